@@ -24,6 +24,7 @@ import shuttl_rest_handler as shuttl
 
 SHUTTL_PORT = shuttl.getShuttlPort()
 SHUTTL_URI = "http://localhost:" + SHUTTL_PORT
+THAW_JOBS_URI = SHUTTL_URI + '/shuttl/rest/archiver/thaw/jobs'
 
 DEBUG = False
 debugIndexes = ['test index 1', 'test index 2']
@@ -153,11 +154,33 @@ class Archiving(controllers.BaseController):
     def flush(self, **params):
         return self.bucket_action_at(SHUTTL_URI + '/shuttl/rest/archiver/bucket/flush', params)
 
-    # Attempts to thaw buckets in a specific index and time range
+    # Submits a job that thaws buckets in a specific index and time range.
+    # Gives the job's status as json, which has the id of the job.
     @expose_page(must_login=True, trim_spaces=True, methods=['POST'])
     def thaw(self, **params):
-        return self.bucket_action_at(SHUTTL_URI + '/shuttl/rest/archiver/bucket/thaw', params)
-        
+        return self.thaw_job_request(THAW_JOBS_URI, 'POST', params)
+
+    # Gives the status of a thaw job as json
+    @expose_page(must_login=True, methods=['GET'])
+    def thaw_status(self, id, **kwargs):
+        return self.thaw_job_request(THAW_JOBS_URI + '/' + urllib.quote(id), 'GET')
+
+    # Cancels a thaw job and gives its status as json
+    @expose_page(must_login=True, methods=['POST'])
+    def cancel_thaw(self, id, **kwargs):
+        return self.thaw_job_request(THAW_JOBS_URI + '/' + urllib.quote(id), 'DELETE')
+
+    def thaw_job_request(self, url, method, params=None):
+        logger.debug('thaw job - %s %s, postArgs: %s' % (method, url, params))
+
+        response = splunk.rest.simpleRequest(url, postargs=params, method=method)
+        cherrypy.response.headers['Content-Type'] = 'application/json'
+        if response[0].status != 200:
+            cherrypy.response.status = response[0].status
+            return json.dumps({'error': response[1]})
+        return response[1]
+
+
     def bucket_action_at(self, url, params):
         errors = None
         responseData = {}
@@ -152,8 +152,10 @@ function thawBucketsPOST() {
     url: 'thaw',
     type: 'POST',
     data: data,
-    success: function(html) {
-      $('#thawed-list').html(html);
+    dataType: 'json',
+    success: function(job) {
+      showThawJob(job);
+      pollThawJob(job.id);
     },
     complete: function() {
       loadingDone();
@@ -161,11 +163,82 @@ function thawBucketsPOST() {
       resizePage(); // Resize body
     },
     error: function(x, t, m) {
-      $('#thawed-list').html("Request submitted! Still thawing..");
+      $('#thawed-list').html("Could not submit the thaw job: " + m);
+    }
+  });
+}
+
+var THAW_JOB_POLL_MILLIS = 2000;
+
+function pollThawJob(id) {
+  $.ajax({
+    url: 'thaw_status',
+    type: 'GET',
+    data: { id: id },
+    dataType: 'json',
+    success: function(job) {
+      showThawJob(job);
+      if (job.state == 'queued' || job.state == 'running') {
+        setTimeout(function() { pollThawJob(id); }, THAW_JOB_POLL_MILLIS);
+      }
+    },
+    error: function(x, t, m) {
+      $('#thawed-list').html("Lost track of the thaw job: " + m);
     }
   });
 }
 
+function cancelThawJob(id) {
+  $.ajax({
+    url: 'cancel_thaw',
+    type: 'POST',
+    data: { id: id },
+    dataType: 'json',
+    success: showThawJob
+  });
+}
+
+function showThawJob(job) {
+  var list = $('#thawed-list');
+  list.empty();
+  list.append($('<p/>').text('Thaw job ' + job.state + ': ' +
+      job.buckets_done + ' of ' + job.buckets_total + ' buckets done, ' +
+      job.buckets_failed + ' failed, ' + formatBytes(job.bytes_transferred) +
+      ' thawed.'));
+  if (job.state == 'running') {
+    var eta = job.eta_seconds == null ? 'unknown' : job.eta_seconds + ' s';
+    list.append($('<p/>').text('Throughput: ' +
+        formatBytes(job.throughput_bytes_per_second) + '/s, time left: ' + eta));
+  }
+  if (job.state == 'queued' || job.state == 'running') {
+    $('<input type="button" value="Cancel thawing"/>')
+        .bind('click', function() { cancelThawJob(job.id); })
+        .appendTo(list);
+  }
+  if (job.error) {
+    list.append($('<p/>').text('Error: ' + job.error));
+  }
+  if (job.failed && job.failed.length > 0) {
+    var failed = $('<ul/>');
+    $.each(job.failed, function(i, failedBucket) {
+      failed.append($('<li/>').text(failedBucket.bucket.bucketName + ': ' +
+          failedBucket.reason));
+    });
+    list.append($('<p/>').text('Failed buckets:')).append(failed);
+  }
+  resizePage();
+}
+
+function formatBytes(bytes) {
+  var units = ['B', 'KB', 'MB', 'GB', 'TB'];
+  var i = 0;
+  while (bytes >= 1024 && i < units.length - 1) {
+    bytes = bytes / 1024;
+    i++;
+  }
+  return bytes.toFixed(i == 0 ? 0 : 1) + ' ' + units[i];
+}
+
 function getAppName() {
   return $(top.document.body).attr("s:app") || 'UNKNOWN_APP_REALLY';
 }
@@ -41,6 +41,9 @@ public final class ShuttlConstants {
 	public static final String ENDPOINT_BUCKET_THAW = "/bucket/thaw";
 	public static final String ENDPOINT_BUCKET_FLUSH = "/bucket/flush";
 	public static final String ENDPOINT_THAW_LIST = "/thaw/list";
+	public static final String ENDPOINT_THAW_JOBS = "/thaw/jobs";
+	public static final String ENDPOINT_METRICS = "/metrics";
+	public static final String ENDPOINT_GLACIER_INVENTORY = "/glacier/inventory";
 	public static final String ENDPOINT_LIST_BUCKETS = "/bucket/list";
 	public static final String ENDPOINT_LIST_INDEXES = "/index/list";
 	public static final String ENDPOINT_ARCHIVER = "/archiver";
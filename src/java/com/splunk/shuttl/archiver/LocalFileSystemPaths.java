@@ -55,6 +55,16 @@ public class LocalFileSystemPaths {
 
 	final String COPY_LOCKS_NAME = "copy-locks-dir";
 
+	final String TRANSFER_CHECKPOINTS_NAME = "transfer-checkpoints-dir";
+
+	final String ARCHIVE_CATALOG_NAME = "archive-catalog-dir";
+
+	final String GLACIER_ARCHIVE_IDS_NAME = "glacier-archive-ids-dir";
+
+	final String GLACIER_RETRIEVALS_NAME = "glacier-retrievals-dir";
+
+	final String UPLOAD_PARTS_NAME = "upload-parts-dir";
+
 	private final String archiverDirectoryPath;
 
 	public LocalFileSystemPaths(File directory) {
@@ -183,6 +193,43 @@ public class LocalFileSystemPaths {
 		return createBucketUniqueDirUnderArchiverDir(COPY_LOCKS_NAME, bucket);
 	}
 
+	/**
+	 * Contains checkpoints for resuming transfers to the archive that failed
+	 * half way.
+	 */
+	public File getTransferCheckpointsDirectory() {
+		return createDirectoryUnderArchiverDir(TRANSFER_CHECKPOINTS_NAME);
+	}
+
+	/**
+	 * Contains the local catalogs of what's been archived.
+	 */
+	public File getArchiveCatalogDirectory() {
+		return createDirectoryUnderArchiverDir(ARCHIVE_CATALOG_NAME);
+	}
+
+	/**
+	 * Contains the local indexes of glacier archive ids.
+	 */
+	public File getGlacierArchiveIdsDirectory() {
+		return createDirectoryUnderArchiverDir(GLACIER_ARCHIVE_IDS_NAME);
+	}
+
+	/**
+	 * Contains the glacier archive retrieval jobs and the archives they have
+	 * downloaded.
+	 */
+	public File getGlacierRetrievalsDirectory() {
+		return createDirectoryUnderArchiverDir(GLACIER_RETRIEVALS_NAME);
+	}
+
+	/**
+	 * Contains the parts of streamed uploads that are waiting to be uploaded.
+	 */
+	public File getUploadPartsDirectory() {
+		return createDirectoryUnderArchiverDir(UPLOAD_PARTS_NAME);
+	}
+
 	public static LocalFileSystemPaths create() {
 		String archiverPath = getPathForArchiverData();
 		return new LocalFileSystemPaths(archiverPath);
@@ -22,14 +22,23 @@ import java.util.List;
 
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.transaction.OpensOutputStreams;
 import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionException;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.PutBucketTransaction;
+import com.splunk.shuttl.archiver.filesystem.transaction.bucket.PutStreamedBucketTransaction;
+import com.splunk.shuttl.archiver.importexport.BucketStreamExporter;
 import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
+import com.splunk.shuttl.archiver.metrics.MeasuredTransaction;
+import com.splunk.shuttl.archiver.metrics.MeasuredTransaction.TransferredBytes;
+import com.splunk.shuttl.archiver.metrics.Phase;
 import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.LocalBucket;
 
 /**
  * Class for transferring buckets
@@ -43,14 +52,45 @@ public class ArchiveBucketTransferer {
 	private final PathResolver pathResolver;
 	private final ArchiveBucketSize archiveBucketSize;
 	private final TransactionExecuter transactionExecuter;
+	private final ArchiveCatalog archiveCatalog;
+	private final ArchiverMetrics archiverMetrics;
+	private final String backendName;
 
 	public ArchiveBucketTransferer(ArchiveFileSystem archive,
 			PathResolver pathResolver, ArchiveBucketSize archiveBucketSize,
 			TransactionExecuter transactionExecuter) {
+		this(archive, pathResolver, archiveBucketSize, transactionExecuter, null);
+	}
+
+	/**
+	 * @param archiveCatalog
+	 *          where archived buckets are cataloged. Can be null.
+	 */
+	public ArchiveBucketTransferer(ArchiveFileSystem archive,
+			PathResolver pathResolver, ArchiveBucketSize archiveBucketSize,
+			TransactionExecuter transactionExecuter, ArchiveCatalog archiveCatalog) {
+		this(archive, pathResolver, archiveBucketSize, transactionExecuter,
+				archiveCatalog, null, null);
+	}
+
+	/**
+	 * @param archiverMetrics
+	 *          where the upload, commit and metadata put are measured. Can be
+	 *          null, to not measure them.
+	 * @param backendName
+	 *          of the archive, which the metrics are kept per.
+	 */
+	public ArchiveBucketTransferer(ArchiveFileSystem archive,
+			PathResolver pathResolver, ArchiveBucketSize archiveBucketSize,
+			TransactionExecuter transactionExecuter, ArchiveCatalog archiveCatalog,
+			ArchiverMetrics archiverMetrics, String backendName) {
 		this.archiveFileSystem = archive;
 		this.pathResolver = pathResolver;
 		this.archiveBucketSize = archiveBucketSize;
 		this.transactionExecuter = transactionExecuter;
+		this.archiveCatalog = archiveCatalog;
+		this.archiverMetrics = archiverMetrics;
+		this.backendName = backendName;
 	}
 
 	/**
@@ -68,17 +108,125 @@ public class ArchiveBucketTransferer {
 				bucket, "destination", destination));
 		Transaction bucketTransaction = PutBucketTransaction.create(
 				archiveFileSystem, bucket, tempPath, destination);
+		Transaction bucketSizeTransaction = archiveBucketSize
+				.createPersistBucketSizeTransaction(bucket);
+
+		bucketTransaction(bucket, bucketTransaction, bucketSizeTransaction,
+				MeasuredTransaction.knownBytes(bucket.getSize() == null ? -1 : bucket
+						.getSize()));
+		catalogArchivedBucket(bucket, destination, bucket.getSize());
+	}
+
+	/**
+	 * @return true if buckets can be streamed to the archive with
+	 *         {@link #streamBucketToArchive(LocalBucket, BucketStreamExporter)}.
+	 */
+	public boolean canStreamToArchive() {
+		return archiveFileSystem instanceof OpensOutputStreams;
+	}
+
+	/**
+	 * Exports the bucket straight into the archive, without storing the export
+	 * on local disk first. The size persisted with the bucket is the number of
+	 * bytes that were streamed, like the size of a bucket exported to disk.
+	 * 
+	 * @throws FailedToArchiveBucketException
+	 *           if bucket failed to be transfered to the archive for any reason.
+	 */
+	public void streamBucketToArchive(LocalBucket bucket,
+			BucketStreamExporter bucketStreamExporter) {
+		Bucket exportedBucket = new Bucket(bucket.getPath(), bucket.getIndex(),
+				bucket.getName(), bucketStreamExporter.getFormat(), bucket.getSize());
+		String destination = pathResolver.resolveArchivePath(exportedBucket);
+		String tempPath = pathResolver.resolveTempPathForBucket(exportedBucket);
+		logger.info(will("attempting to stream bucket to archive", "bucket",
+				exportedBucket, "destination", destination));
+		final PutStreamedBucketTransaction bucketTransaction = PutStreamedBucketTransaction
+				.create(archiveFileSystem, (OpensOutputStreams) archiveFileSystem,
+						bucketStreamExporter, bucket, exportedBucket, tempPath,
+						destination);
+		Transaction bucketSizeTransaction = new PersistsStreamedBucketSize(
+				bucketTransaction, exportedBucket);
+
+		bucketTransaction(exportedBucket, bucketTransaction, bucketSizeTransaction,
+				new TransferredBytes() {
 
-		// TODO: Merge the bucket transaction and the bucketsize transaction. They
-		// should be able to be run at once with
-		// transactionExecuter.execute(Transaction... transactions)
-		bucketTransaction(bucket, bucketTransaction);
-		bucketSizeTransaction(bucket);
+					@Override
+					public long getBytes() {
+						return bucketTransaction.getBytesWritten();
+					}
+				});
+		long bytesWritten = bucketTransaction.getBytesWritten();
+		catalogArchivedBucket(exportedBucket, destination, bytesWritten < 0 ? null
+				: bytesWritten);
 	}
 
-	private void bucketTransaction(Bucket bucket, Transaction bucketTransaction) {
+	/**
+	 * Persists the size of a streamed bucket once it has been streamed, when
+	 * the size is known. Nothing is persisted if the bucket was already
+	 * archived, since its size was archived with it.
+	 */
+	private class PersistsStreamedBucketSize implements Transaction {
+
+		private final PutStreamedBucketTransaction bucketTransaction;
+		private final Bucket exportedBucket;
+		private Transaction bucketSizeTransaction;
+
+		public PersistsStreamedBucketSize(
+				PutStreamedBucketTransaction bucketTransaction, Bucket exportedBucket) {
+			this.bucketTransaction = bucketTransaction;
+			this.exportedBucket = exportedBucket;
+		}
+
+		@Override
+		public void prepare() {
+			long bytesWritten = bucketTransaction.getBytesWritten();
+			if (bytesWritten < 0)
+				return;
+			bucketSizeTransaction = archiveBucketSize
+					.createPersistBucketSizeTransaction(new Bucket(exportedBucket
+							.getPath(), exportedBucket.getIndex(), exportedBucket.getName(),
+							exportedBucket.getFormat(), bytesWritten));
+			bucketSizeTransaction.prepare();
+		}
+
+		@Override
+		public void commit() {
+			if (bucketSizeTransaction != null)
+				bucketSizeTransaction.commit();
+		}
+
+		@Override
+		public void clean() {
+			if (bucketSizeTransaction != null)
+				bucketSizeTransaction.clean();
+		}
+
+		@Override
+		public String toString() {
+			return "PersistsStreamedBucketSize [bucket=" + exportedBucket + "]";
+		}
+	}
+
+	/**
+	 * The bucket size is staged inside the bucket's temp path, so it's committed
+	 * with the same rename as the bucket and they're both archived, or neither.
+	 * 
+	 * @param uploadedBytes
+	 *          counted as the bytes of the upload when it's measured.
+	 */
+	private void bucketTransaction(Bucket bucket, Transaction bucketTransaction,
+			Transaction bucketSizeTransaction, TransferredBytes uploadedBytes) {
+		if (archiverMetrics != null) {
+			bucketTransaction = new MeasuredTransaction(bucketTransaction,
+					archiverMetrics, Phase.UPLOAD, Phase.COMMIT, backendName,
+					bucket.getFormat(), uploadedBytes);
+			bucketSizeTransaction = new MeasuredTransaction(bucketSizeTransaction,
+					archiverMetrics, Phase.METADATA_PUT, null, backendName,
+					bucket.getFormat(), -1);
+		}
 		try {
-			transactionExecuter.execute(bucketTransaction);
+			transactionExecuter.execute(bucketTransaction, bucketSizeTransaction);
 		} catch (TransactionException e) {
 			logger.error(did("Executed a bucket transaction.", e,
 					"To transfer the bucket to the archive.", "bucket", bucket));
@@ -86,8 +234,22 @@ public class ArchiveBucketTransferer {
 		}
 	}
 
-	private void bucketSizeTransaction(Bucket bucket) {
-		archiveBucketSize.persistBucketSize(bucket);
+	/**
+	 * The bucket is archived even if it can't be cataloged. The catalog is then
+	 * behind the archive until it's rebuilt.
+	 */
+	private void catalogArchivedBucket(Bucket bucket, String destination,
+			Long size) {
+		if (archiveCatalog == null)
+			return;
+		try {
+			archiveCatalog.putArchivedBucket(new Bucket(destination, bucket
+					.getIndex(), bucket.getName(), bucket.getFormat(), size));
+		} catch (IOException e) {
+			logger.warn(warn("Cataloged archived bucket", e,
+					"Catalog will be behind the archive until it's rebuilt", "bucket",
+					bucket, "destination", destination));
+		}
 	}
 
 	/**
@@ -20,6 +20,7 @@ import static com.splunk.shuttl.archiver.LogFormatter.*;
 import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.Deflater;
 
 import javax.management.InstanceNotFoundException;
 
@@ -33,6 +34,8 @@ public class ArchiveConfiguration {
 	private static final String ARCHIVE_DATA_DIRECTORY_NAME = "archive_data";
 	private static final String TEMPORARY_DATA_DIRECTORY_NAME = "temporary_data";
 
+	public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+
 	private final String localArchiverDir;
 	private final List<BucketFormat> bucketFormats;
 	private final String clusterName;
@@ -41,11 +44,29 @@ public class ArchiveConfiguration {
 	private final String tempPath;
 	private final String archivePath;
 	private final String backendName;
+	private final Integer compressionLevel;
+	private final Integer compressionThreads;
+	private String configuredServerName;
 
 	ArchiveConfiguration(String localArchiverDir,
 			List<BucketFormat> bucketFormats, String clusterName, String serverName,
 			List<BucketFormat> bucketFormatPriority, String tempPath,
 			String archivePath, String backendName) {
+		this(localArchiverDir, bucketFormats, clusterName, serverName,
+				bucketFormatPriority, tempPath, archivePath, backendName, null, null);
+	}
+
+	ArchiveConfiguration(String localArchiverDir,
+			List<BucketFormat> bucketFormats, String clusterName, String serverName,
+			List<BucketFormat> bucketFormatPriority, String tempPath,
+			String archivePath, String backendName, Integer compressionLevel,
+			Integer compressionThreads) {
+		if (compressionLevel != null
+				&& (compressionLevel < Deflater.BEST_SPEED
+						|| compressionLevel > Deflater.BEST_COMPRESSION))
+			throw new IllegalArgumentException("Compression level must be between "
+					+ Deflater.BEST_SPEED + " and " + Deflater.BEST_COMPRESSION
+					+ ", was: " + compressionLevel);
 		this.localArchiverDir = localArchiverDir;
 		this.bucketFormats = bucketFormats;
 		this.clusterName = clusterName;
@@ -54,6 +75,9 @@ public class ArchiveConfiguration {
 		this.tempPath = tempPath;
 		this.archivePath = archivePath;
 		this.backendName = backendName;
+		this.compressionLevel = compressionLevel;
+		this.compressionThreads = compressionThreads;
+		this.configuredServerName = serverName;
 	}
 
 	/**
@@ -105,20 +129,31 @@ public class ArchiveConfiguration {
 		List<BucketFormat> bucketFormatPriority = createFormatPriorityList(mBean);
 		return createSafeConfiguration(mBean.getLocalArchiverDir(), archivePath,
 				bucketFormats, clusterName, serverName, bucketFormatPriority,
-				backendName);
+				backendName, mBean.getCompressionLevel(),
+				mBean.getCompressionThreads());
 	}
 
 	public static ArchiveConfiguration createSafeConfiguration(
 			String localArchiverDir, String archivePath,
 			List<BucketFormat> bucketFormats, String clusterName, String serverName,
 			List<BucketFormat> bucketFormatPriority, String backendName) {
+		return createSafeConfiguration(localArchiverDir, archivePath,
+				bucketFormats, clusterName, serverName, bucketFormatPriority,
+				backendName, null, null);
+	}
+
+	public static ArchiveConfiguration createSafeConfiguration(
+			String localArchiverDir, String archivePath,
+			List<BucketFormat> bucketFormats, String clusterName, String serverName,
+			List<BucketFormat> bucketFormatPriority, String backendName,
+			Integer compressionLevel, Integer compressionThreads) {
 		String archiveDataPath = getChildToArchivingRoot(archivePath,
 				ARCHIVE_DATA_DIRECTORY_NAME);
 		String archiveTempPath = getChildToArchivingRoot(archivePath,
 				TEMPORARY_DATA_DIRECTORY_NAME) + "/" + serverName;
 		return new ArchiveConfiguration(localArchiverDir, bucketFormats,
 				clusterName, serverName, bucketFormatPriority, archiveTempPath,
-				archiveDataPath, backendName);
+				archiveDataPath, backendName, compressionLevel, compressionThreads);
 	}
 
 	private static List<BucketFormat> bucketFormatsFromMBean(
@@ -158,9 +193,22 @@ public class ArchiveConfiguration {
 	}
 
 	public ArchiveConfiguration newConfigWithServerName(String serverName) {
-		return new ArchiveConfiguration(localArchiverDir, bucketFormats,
-				clusterName, serverName, bucketFormatPriority, tempPath, archivePath,
-				backendName);
+		ArchiveConfiguration config = new ArchiveConfiguration(localArchiverDir,
+				bucketFormats, clusterName, serverName, bucketFormatPriority,
+				tempPath, archivePath, backendName, compressionLevel,
+				compressionThreads);
+		config.configuredServerName = configuredServerName;
+		return config;
+	}
+
+	/**
+	 * @return false if the configuration is for another server's part of the
+	 *         archive, as made by {@link #newConfigWithServerName(String)} for
+	 *         replicated buckets.
+	 */
+	public boolean isForConfiguredServer() {
+		return serverName == null ? configuredServerName == null : serverName
+				.equals(configuredServerName);
 	}
 
 	/**
@@ -200,4 +248,23 @@ public class ArchiveConfiguration {
 		return backendName;
 	}
 
+	/**
+	 * @return gzip compression level, 1-9, for compressed bucket formats.
+	 */
+	public int getCompressionLevel() {
+		return compressionLevel == null ? DEFAULT_COMPRESSION_LEVEL
+				: compressionLevel;
+	}
+
+	/**
+	 * @return number of threads to compress buckets with. Defaults to the number
+	 *         of processors.
+	 */
+	public int getCompressionThreads() {
+		if (compressionThreads == null || compressionThreads < 1)
+			return Runtime.getRuntime().availableProcessors();
+		else
+			return compressionThreads;
+	}
+
 }
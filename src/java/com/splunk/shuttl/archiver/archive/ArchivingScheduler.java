@@ -0,0 +1,269 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceNotFoundException;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.util.NamedDaemonThreadFactory;
+import com.splunk.shuttl.server.mbeans.ShuttlServer;
+import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
+
+/**
+ * Runs archiving work on a bounded pool of worker threads. Work is queued per
+ * index and the workers take work from the indexes in a round robin fashion,
+ * so that one busy index cannot starve the others. When the queue is full,
+ * new work is rejected instead of blocking the caller.
+ */
+public class ArchivingScheduler {
+
+	private static final Logger logger = Logger
+			.getLogger(ArchivingScheduler.class);
+
+	public static final int DEFAULT_WORKERS = 4;
+	public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+	private final ExecutorService workers;
+	private final int maxQueued;
+	private final LinkedHashMap<String, LinkedList<QueuedWork>> queuesByIndex;
+
+	private int queued;
+	private int active;
+	private long dispatched;
+	private long rejected;
+	private long totalQueueLatencyMillis;
+	private long maxQueueLatencyMillis;
+
+	public ArchivingScheduler(ExecutorService workers, int maxQueued) {
+		this.workers = workers;
+		this.maxQueued = maxQueued;
+		this.queuesByIndex = new LinkedHashMap<String, LinkedList<QueuedWork>>();
+	}
+
+	/**
+	 * Queues the work for the index.
+	 *
+	 * @throws ArchivingQueueFullException
+	 *           if the queue is full.
+	 */
+	public void schedule(String index, Runnable work) {
+		QueuedWork queuedWork = new QueuedWork(work, System.currentTimeMillis());
+		synchronized (this) {
+			if (queued >= maxQueued) {
+				rejected++;
+				throw new ArchivingQueueFullException("Archiving queue is full. "
+						+ "Queued: " + queued + ", max: " + maxQueued);
+			}
+			getQueueForIndex(index).add(queuedWork);
+			queued++;
+		}
+		try {
+			workers.execute(new RunsNextQueuedWork());
+		} catch (RejectedExecutionException e) {
+			unqueue(index, queuedWork);
+			throw new ArchivingQueueFullException(
+					"Archiving scheduler is shut down");
+		}
+	}
+
+	/**
+	 * Takes back work that the workers did not accept, if no worker has taken
+	 * it already.
+	 */
+	private synchronized void unqueue(String index, QueuedWork work) {
+		LinkedList<QueuedWork> queue = queuesByIndex.get(index);
+		if (queue != null && queue.remove(work)) {
+			queued--;
+			rejected++;
+			if (queue.isEmpty())
+				queuesByIndex.remove(index);
+		}
+	}
+
+	private LinkedList<QueuedWork> getQueueForIndex(String index) {
+		LinkedList<QueuedWork> queue = queuesByIndex.get(index);
+		if (queue == null) {
+			queue = new LinkedList<QueuedWork>();
+			queuesByIndex.put(index, queue);
+		}
+		return queue;
+	}
+
+	/**
+	 * Takes work from the index that has waited the longest for its turn and
+	 * moves that index last in line, if it still has work queued.
+	 */
+	private synchronized QueuedWork takeNextWork() {
+		Iterator<Entry<String, LinkedList<QueuedWork>>> it = queuesByIndex
+				.entrySet().iterator();
+		if (!it.hasNext())
+			return null;
+		Entry<String, LinkedList<QueuedWork>> first = it.next();
+		it.remove();
+		LinkedList<QueuedWork> queue = first.getValue();
+		QueuedWork work = queue.removeFirst();
+		if (!queue.isEmpty())
+			queuesByIndex.put(first.getKey(), queue);
+
+		queued--;
+		active++;
+		recordLatency(System.currentTimeMillis() - work.queuedAtMillis);
+		return work;
+	}
+
+	private void recordLatency(long latency) {
+		dispatched++;
+		totalQueueLatencyMillis += latency;
+		if (latency > maxQueueLatencyMillis)
+			maxQueueLatencyMillis = latency;
+	}
+
+	private synchronized void workDone() {
+		active--;
+	}
+
+	/**
+	 * @return number of queued work that has not started yet.
+	 */
+	public synchronized int getQueueDepth() {
+		return queued;
+	}
+
+	public synchronized int getActiveCount() {
+		return active;
+	}
+
+	public synchronized long getRejectedCount() {
+		return rejected;
+	}
+
+	/**
+	 * @return average time in milliseconds that work has waited in the queue
+	 *         before a worker started it.
+	 */
+	public synchronized long getAverageQueueLatencyMillis() {
+		return dispatched == 0 ? 0 : totalQueueLatencyMillis / dispatched;
+	}
+
+	public synchronized long getMaxQueueLatencyMillis() {
+		return maxQueueLatencyMillis;
+	}
+
+	/**
+	 * Stops accepting work and waits for the running work to finish.
+	 */
+	public void shutdown(long timeout, TimeUnit unit) {
+		workers.shutdown();
+		try {
+			workers.awaitTermination(timeout, unit);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private class RunsNextQueuedWork implements Runnable {
+
+		@Override
+		public void run() {
+			QueuedWork work = takeNextWork();
+			if (work == null)
+				return;
+			try {
+				work.runnable.run();
+			} catch (Throwable e) {
+				logger.error(did("Ran scheduled archiving work", e,
+						"Work to complete without exceptions", "work", work.runnable));
+			} finally {
+				workDone();
+			}
+		}
+	}
+
+	private static class QueuedWork {
+		private final Runnable runnable;
+		private final long queuedAtMillis;
+
+		public QueuedWork(Runnable runnable, long queuedAtMillis) {
+			this.runnable = runnable;
+			this.queuedAtMillis = queuedAtMillis;
+		}
+	}
+
+	private static ArchivingScheduler sharedInstance;
+
+	/**
+	 * @return scheduler shared by the whole Shuttl server, configured with
+	 *         {@link ShuttlServerMBean}.
+	 */
+	public static synchronized ArchivingScheduler getSharedInstance() {
+		if (sharedInstance == null)
+			sharedInstance = createWithServerMBean();
+		return sharedInstance;
+	}
+
+	/**
+	 * @return the shared instance if it has been created, otherwise null.
+	 */
+	public static synchronized ArchivingScheduler getSharedInstanceIfCreated() {
+		return sharedInstance;
+	}
+
+	/**
+	 * Shuts down the shared instance, if it has been created, when the Shuttl
+	 * server stops.
+	 */
+	public static void shutdownSharedInstance(long timeout, TimeUnit unit) {
+		ArchivingScheduler scheduler = getSharedInstanceIfCreated();
+		if (scheduler != null) {
+			logger.info(will("Shut down archiving scheduler", "queued",
+					scheduler.getQueueDepth(), "active", scheduler.getActiveCount()));
+			scheduler.shutdown(timeout, unit);
+		}
+	}
+
+	private static ArchivingScheduler createWithServerMBean() {
+		int workers = DEFAULT_WORKERS;
+		int queueSize = DEFAULT_QUEUE_SIZE;
+		try {
+			ShuttlServerMBean serverMBean = ShuttlServer.getMBeanProxy();
+			workers = serverMBean.getArchiverWorkers();
+			queueSize = serverMBean.getArchiverQueueSize();
+		} catch (InstanceNotFoundException e) {
+			logger.warn(warn("Tried getting the ShuttlServerMBean", e,
+					"Will use default archiving scheduler configuration", "workers",
+					workers, "queue_size", queueSize));
+		}
+		return create(workers, queueSize);
+	}
+
+	public static ArchivingScheduler create(int workers, int queueSize) {
+		logger.info(will("Create archiving scheduler", "workers", workers,
+				"queue_size", queueSize));
+		return new ArchivingScheduler(Executors.newFixedThreadPool(workers,
+				new NamedDaemonThreadFactory("shuttl-archiver")), queueSize);
+	}
+}
@@ -18,14 +18,24 @@ import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.importexport.BucketExportController;
+import com.splunk.shuttl.archiver.importexport.BucketStreamExporter;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics.PhaseTimer;
+import com.splunk.shuttl.archiver.metrics.Phase;
 import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
 
 /**
- * Copies a bucket in all formats with the {@link ArchiveBucketTransferer}.
+ * Copies a bucket in all formats with the {@link ArchiveBucketTransferer}. The
+ * export and transfer of each format is run on the {@link Executor}, so the
+ * formats can be copied concurrently.
  */
 public class BucketCopier implements BucketShuttler {
 
@@ -35,42 +45,136 @@ public class BucketCopier implements BucketShuttler {
 	private final ArchiveBucketTransferer archiveBucketTransferer;
 	private final List<BucketFormat> bucketFormats;
 	private final BucketDeleter bucketDeleter;
+	private final Executor executor;
+	private final ArchiverMetrics archiverMetrics;
+	private final String backendName;
 
 	public BucketCopier(BucketExportController bucketExportController,
 			ArchiveBucketTransferer archiveBucketTransferer,
 			List<BucketFormat> bucketFormats, BucketDeleter bucketDeleter) {
+		this(bucketExportController, archiveBucketTransferer, bucketFormats,
+				bucketDeleter, new CallingThreadExecutor());
+	}
+
+	public BucketCopier(BucketExportController bucketExportController,
+			ArchiveBucketTransferer archiveBucketTransferer,
+			List<BucketFormat> bucketFormats, BucketDeleter bucketDeleter,
+			Executor executor) {
+		this(bucketExportController, archiveBucketTransferer, bucketFormats,
+				bucketDeleter, executor, null, null);
+	}
+
+	/**
+	 * @param archiverMetrics
+	 *          where the exports are measured. Can be null, to not measure
+	 *          them.
+	 * @param backendName
+	 *          of the archive, which the metrics are kept per.
+	 */
+	public BucketCopier(BucketExportController bucketExportController,
+			ArchiveBucketTransferer archiveBucketTransferer,
+			List<BucketFormat> bucketFormats, BucketDeleter bucketDeleter,
+			Executor executor, ArchiverMetrics archiverMetrics, String backendName) {
 		this.bucketExportController = bucketExportController;
 		this.archiveBucketTransferer = archiveBucketTransferer;
 		this.bucketFormats = bucketFormats;
 		this.bucketDeleter = bucketDeleter;
+		this.executor = executor;
+		this.archiverMetrics = archiverMetrics;
+		this.backendName = backendName;
 	}
 
 	public void copyBucket(LocalBucket bucket) {
+		List<FutureTask<Void>> copies = new ArrayList<FutureTask<Void>>();
+		for (BucketFormat format : bucketFormats) {
+			FutureTask<Void> copy = new FutureTask<Void>(new CopiesBucketInFormat(
+					bucket, format), null);
+			executor.execute(copy);
+			copies.add(copy);
+		}
+
 		List<RuntimeException> copyExceptions = new ArrayList<RuntimeException>();
-		for (BucketFormat format : bucketFormats)
-			if (!archiveBucketTransferer.isArchived(bucket, format))
-				exportBucketThenCopy(bucket, format, copyExceptions);
+		for (FutureTask<Void> copy : copies)
+			waitForCopy(copy, copyExceptions);
 
 		if (!copyExceptions.isEmpty())
 			throw new RuntimeException("Got some exceptions when copying bucket: "
 					+ copyExceptions.toString());
 	}
 
-	private void exportBucketThenCopy(LocalBucket bucket, BucketFormat format,
+	private void waitForCopy(FutureTask<Void> copy,
 			List<RuntimeException> copyExceptions) {
-		LocalBucket exportedBucket = bucketExportController.exportBucket(bucket,
-				format);
+		try {
+			copy.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			copyExceptions.add(new RuntimeException(e));
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error)
+				throw (Error) cause;
+			else if (cause instanceof RuntimeException)
+				copyExceptions.add((RuntimeException) cause);
+			else
+				copyExceptions.add(new RuntimeException(cause));
+		}
+	}
+
+	private class CopiesBucketInFormat implements Runnable {
+
+		private final LocalBucket bucket;
+		private final BucketFormat format;
+
+		public CopiesBucketInFormat(LocalBucket bucket, BucketFormat format) {
+			this.bucket = bucket;
+			this.format = format;
+		}
+
+		@Override
+		public void run() {
+			if (!archiveBucketTransferer.isArchived(bucket, format))
+				copyBucketInFormat(bucket, format);
+		}
+	}
+
+	private void copyBucketInFormat(LocalBucket bucket, BucketFormat format) {
+		BucketStreamExporter streamExporter = bucketExportController
+				.getStreamExporter(bucket, format);
+		if (streamExporter != null && archiveBucketTransferer.canStreamToArchive())
+			archiveBucketTransferer.streamBucketToArchive(bucket, streamExporter);
+		else
+			exportBucketThenCopy(bucket, format);
+	}
+
+	private void exportBucketThenCopy(LocalBucket bucket, BucketFormat format) {
+		LocalBucket exportedBucket = exportBucket(bucket, format);
 		try {
 			archiveBucketTransferer.transferBucketToArchive(exportedBucket);
 		} catch (RuntimeException e) {
 			logException(exportedBucket, e);
-			copyExceptions.add(e);
+			throw e;
 		} finally {
 			if (!bucket.equals(exportedBucket))
 				bucketDeleter.deleteBucket(exportedBucket);
 		}
 	}
 
+	private LocalBucket exportBucket(LocalBucket bucket, BucketFormat format) {
+		if (archiverMetrics == null)
+			return bucketExportController.exportBucket(bucket, format);
+		PhaseTimer timer = archiverMetrics.start(Phase.EXPORT, backendName,
+				format);
+		try {
+			LocalBucket exportedBucket = bucketExportController.exportBucket(bucket,
+					format);
+			timer.stop(exportedBucket == null || exportedBucket.getSize() == null ? -1
+					: exportedBucket.getSize());
+			return exportedBucket;
+		} finally {
+			timer.fail();
+		}
+	}
+
 	private void logException(LocalBucket exportedBucket, RuntimeException e) {
 		logger.debug(warn("Copied bucket", e,
 				"Will eventually throw this exception", "bucket", exportedBucket));
@@ -20,6 +20,9 @@ import java.io.IOException;
 
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics.PhaseTimer;
+import com.splunk.shuttl.archiver.metrics.Phase;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
@@ -39,10 +42,15 @@ public class BucketDeleter {
 	 *          to delete.
 	 */
 	public void deleteBucket(LocalBucket bucket) {
+		PhaseTimer timer = ArchiverMetrics.getSharedInstance().start(Phase.DELETE,
+				null, bucket.getFormat());
 		try {
 			bucket.deleteBucket();
+			timer.stop(bucket.getSize() == null ? -1 : bucket.getSize());
 		} catch (IOException e) {
 			logAndIgnoreDeletionException(bucket, e);
+		} finally {
+			timer.fail();
 		}
 	}
 
@@ -14,9 +14,20 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.archive;
 
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogFactory;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
@@ -26,7 +37,10 @@ import com.splunk.shuttl.archiver.importexport.csv.BucketToCsvFileExporter;
 import com.splunk.shuttl.archiver.importexport.csv.CsvExporter;
 import com.splunk.shuttl.archiver.importexport.tgz.CreatesBucketTgz;
 import com.splunk.shuttl.archiver.importexport.tgz.TgzFormatExporter;
+import com.splunk.shuttl.archiver.importexport.tgz.TgzStreamExporter;
 import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
+import com.splunk.shuttl.archiver.util.NamedDaemonThreadFactory;
 
 /**
  * Construction code for creating BucketArchivers that archives in different
@@ -34,6 +48,9 @@ import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
  */
 public class BucketShuttlerFactory {
 
+	private static final Logger logger = Logger
+			.getLogger(BucketShuttlerFactory.class);
+
 	/**
 	 * @return {@link BucketArchiver} as configured in .conf files.
 	 */
@@ -52,7 +69,22 @@ public class BucketShuttlerFactory {
 	private static BucketCopier newCopierWithDependencies(
 			BucketCopierDependencies deps) {
 		return new BucketCopier(deps.exporter, deps.transferer, deps.formats,
-				deps.deleter);
+				deps.deleter, getFormatCopyingExecutor(), deps.metrics,
+				deps.backendName);
+	}
+
+	private static ExecutorService formatCopyingExecutor;
+
+	/**
+	 * @return pool shared by all {@link BucketCopier}s for exporting and
+	 *         transferring a bucket's formats concurrently.
+	 */
+	private static synchronized Executor getFormatCopyingExecutor() {
+		if (formatCopyingExecutor == null)
+			formatCopyingExecutor = Executors.newFixedThreadPool(Runtime
+					.getRuntime().availableProcessors(), new NamedDaemonThreadFactory(
+					"shuttl-format-copier"));
+		return formatCopyingExecutor;
 	}
 
 	/**
@@ -98,37 +130,83 @@ public class BucketShuttlerFactory {
 		ArchiveBucketSize archiveBucketSize = ArchiveBucketSize.create(
 				pathResolver, archiveFileSystem, localFileSystemPaths);
 
+		TgzStreamExporter tgzStreamExporter = new TgzStreamExporter(
+				getCompressionExecutor(config), config.getCompressionLevel(),
+				config.getCompressionThreads());
+
 		TgzFormatExporter tgzFormatExporter = TgzFormatExporter
-				.create(CreatesBucketTgz.create(localFileSystemPaths));
+				.create(CreatesBucketTgz.create(localFileSystemPaths,
+						tgzStreamExporter));
 
 		BucketExportController bucketExportController = BucketExportController
-				.create(CsvExporter.create(bucketToCsvFileExporter), tgzFormatExporter);
+				.create(CsvExporter.create(bucketToCsvFileExporter), tgzFormatExporter,
+						tgzStreamExporter);
+		ArchiverMetrics archiverMetrics = ArchiverMetrics.getSharedInstance();
 		ArchiveBucketTransferer bucketTransferer = new ArchiveBucketTransferer(
 				archiveFileSystem, pathResolver, archiveBucketSize,
-				new TransactionExecuter());
+				new TransactionExecuter(), ArchiveCatalogFactory.getCatalogToArchiveTo(
+						config, localFileSystemPaths), archiverMetrics,
+				config.getBackendName());
 		BucketDeleter bucketDeleter = BucketDeleter.create();
 		List<BucketFormat> archiveFormats = config.getArchiveFormats();
 
 		BucketCopierDependencies deps = new BucketCopierDependencies(
-				bucketExportController, bucketTransferer, bucketDeleter, archiveFormats);
+				bucketExportController, bucketTransferer, bucketDeleter, archiveFormats,
+				archiverMetrics, config.getBackendName());
 		return deps;
 	}
 
+	private static ThreadPoolExecutor compressionExecutor;
+
+	/**
+	 * @return pool shared by all exporters for compressing buckets. The pool is
+	 *         resized in place when the configured number of threads changes,
+	 *         so exporters that are compressing with it keep working.
+	 */
+	public static synchronized Executor getCompressionExecutor(
+			ArchiveConfiguration config) {
+		int threads = config.getCompressionThreads();
+		if (compressionExecutor == null)
+			compressionExecutor = new ThreadPoolExecutor(threads, threads, 0L,
+					TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+					new NamedDaemonThreadFactory("shuttl-compressor"));
+		else if (compressionExecutor.getMaximumPoolSize() != threads)
+			resizeCompressionExecutor(threads);
+		return compressionExecutor;
+	}
+
+	private static void resizeCompressionExecutor(int threads) {
+		logger.info(will("Resize compression pool", "from_threads",
+				compressionExecutor.getMaximumPoolSize(), "to_threads", threads));
+		if (threads > compressionExecutor.getMaximumPoolSize()) {
+			compressionExecutor.setMaximumPoolSize(threads);
+			compressionExecutor.setCorePoolSize(threads);
+		} else {
+			compressionExecutor.setCorePoolSize(threads);
+			compressionExecutor.setMaximumPoolSize(threads);
+		}
+	}
+
 	private static class BucketCopierDependencies {
 
 		public BucketExportController exporter;
 		public ArchiveBucketTransferer transferer;
 		public BucketDeleter deleter;
 		public List<BucketFormat> formats;
+		public ArchiverMetrics metrics;
+		public String backendName;
 
 		public BucketCopierDependencies(
 				BucketExportController bucketExportController,
 				ArchiveBucketTransferer bucketTransferer, BucketDeleter bucketDeleter,
-				List<BucketFormat> archiveFormats) {
+				List<BucketFormat> archiveFormats, ArchiverMetrics metrics,
+				String backendName) {
 			this.exporter = bucketExportController;
 			this.transferer = bucketTransferer;
 			this.deleter = bucketDeleter;
 			this.formats = archiveFormats;
+			this.metrics = metrics;
+			this.backendName = backendName;
 		}
 
 	}
@@ -16,6 +16,9 @@ package com.splunk.shuttl.archiver.archive;
 
 import com.splunk.shuttl.archiver.archive.recovery.IndexPreservingBucketMover;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketHandler;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics.PhaseTimer;
+import com.splunk.shuttl.archiver.metrics.Phase;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
@@ -58,10 +61,22 @@ public class MoveAndArchiveBucketUnderLock implements SharedLockBucketHandler {
 	 *          to move and archive
 	 */
 	public void moveThenArchiveBucket(LocalBucket bucket) {
-		LocalBucket movedBucket = bucketMover.moveBucket(bucket);
+		LocalBucket movedBucket = moveBucket(bucket);
 		archiveRestHandler.callRestToArchiveLocalBucket(movedBucket);
 	}
 
+	private LocalBucket moveBucket(LocalBucket bucket) {
+		PhaseTimer timer = ArchiverMetrics.getSharedInstance().start(
+				Phase.MOVE_TO_SAFE_DIR, null, bucket.getFormat());
+		try {
+			LocalBucket movedBucket = bucketMover.moveBucket(bucket);
+			timer.stop(bucket.getSize() == null ? -1 : bucket.getSize());
+			return movedBucket;
+		} finally {
+			timer.fail();
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
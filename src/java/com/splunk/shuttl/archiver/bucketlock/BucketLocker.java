@@ -14,6 +14,9 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.bucketlock;
 
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics.PhaseTimer;
+import com.splunk.shuttl.archiver.metrics.Phase;
 import com.splunk.shuttl.archiver.model.Bucket;
 
 /**
@@ -55,13 +58,29 @@ public abstract class BucketLocker {
 	private void executeBucketHandlerIfSharedLockIsAcquired(
 			BucketLock bucketLock, Bucket bucket,
 			SharedLockBucketHandler bucketHandler) {
-		if (bucketLock.tryLockExclusive()
-				&& bucketLock.tryConvertExclusiveToSharedLock())
+		if (acquireSharedLock(bucketLock, bucket))
 			bucketHandler.handleSharedLockedBucket(bucket);
 		else
 			bucketHandler.bucketWasLocked(bucket);
 	}
 
+	/**
+	 * Not getting the lock is measured as a failed {@link Phase#LOCK_WAIT}.
+	 */
+	private boolean acquireSharedLock(BucketLock bucketLock, Bucket bucket) {
+		PhaseTimer timer = ArchiverMetrics.getSharedInstance().start(
+				Phase.LOCK_WAIT, null, bucket.getFormat());
+		try {
+			boolean isLocked = bucketLock.tryLockExclusive()
+					&& bucketLock.tryConvertExclusiveToSharedLock();
+			if (isLocked)
+				timer.stop();
+			return isLocked;
+		} finally {
+			timer.fail();
+		}
+	}
+
 	/**
 	 * Interface for operating on a {@link Bucket} while it's locked with
 	 * {@link BucketLock}.
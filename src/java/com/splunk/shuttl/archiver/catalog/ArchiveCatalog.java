@@ -0,0 +1,394 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.catalog;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.thaw.BucketTimeIndex;
+import com.splunk.shuttl.archiver.util.UtilsFile;
+
+/**
+ * Local catalog of the buckets that are archived, so that the archive doesn't
+ * have to be listed remotely to know what's in it. <br/>
+ * <br/>
+ * The catalog is kept in memory and persisted in a local journal file. Every
+ * archived bucket is appended to the journal and synced to disk before it's
+ * visible in memory, and a line that was only partly written is ignored when
+ * the journal is read. The journal is compacted when it has grown to twice the
+ * size of the catalog.<br/>
+ * <br/>
+ * The catalog is complete once it has been rebuilt from a full scan of the
+ * archive. Until then it only knows about the buckets archived since it was
+ * created, and listings have to go to the archive. A complete catalog is
+ * stale when it has not been reconciled with the archive for
+ * {@link #RECONCILE_INTERVAL_MILLIS}, and is then rebuilt again, which picks up
+ * buckets that were removed from or put in the archive by anything else than
+ * this server.<br/>
+ * <br/>
+ * The buckets of an index are also kept indexed by time, until a bucket is
+ * archived in the index or the catalog is rebuilt, so that filtering listings
+ * by time range doesn't index the buckets again on every listing.
+ */
+public class ArchiveCatalog {
+
+	private static final Logger logger = Logger.getLogger(ArchiveCatalog.class);
+
+	private static final String COMPLETE_LINE = "COMPLETE";
+	private static final String BUCKET_LINE = "BUCKET";
+	private static final String SEPARATOR = "\t";
+	private static final String NO_SIZE = "-";
+	private static final int MIN_LINES_BEFORE_COMPACTION = 1000;
+
+	public static final long RECONCILE_INTERVAL_MILLIS = 60 * 60 * 1000;
+
+	private final File journal;
+	private final Map<String, Map<String, CatalogedBucket>> bucketsByIndex;
+	private final Map<String, BucketTimeIndex<Bucket>> timeIndexes;
+
+	private boolean complete;
+	private long reconciledAt;
+	private int journalLines;
+	private int catalogedFormats;
+	private boolean rebuilding;
+	private List<Bucket> archivedDuringRebuild;
+
+	public ArchiveCatalog(File journal) {
+		this.journal = journal;
+		this.bucketsByIndex = new TreeMap<String, Map<String, CatalogedBucket>>();
+		this.timeIndexes = new HashMap<String, BucketTimeIndex<Bucket>>();
+		load();
+	}
+
+	private void load() {
+		if (!journal.exists())
+			return;
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(journal), "UTF-8"));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null)
+					loadLine(line);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			logger.warn(warn("Read archive catalog", e,
+					"Will only use what could be read", "journal", journal));
+		}
+	}
+
+	private void loadLine(String line) {
+		journalLines++;
+		String[] fields = line.split(SEPARATOR, -1);
+		if (fields[0].equals(COMPLETE_LINE)) {
+			loadCompleteLine(fields);
+			return;
+		}
+		if (fields.length != 8 || !fields[0].equals(BUCKET_LINE))
+			return;
+		try {
+			putInMemory(fields[1], fields[2], new Date(Long.parseLong(fields[3])),
+					new Date(Long.parseLong(fields[4])), BucketFormat.valueOf(fields[5]),
+					fields[6], fields[7].equals(NO_SIZE) ? null : Long
+							.parseLong(fields[7]));
+		} catch (IllegalArgumentException e) {
+			// Partly written line.
+		}
+	}
+
+	/**
+	 * Catalogs from older versions have no time on the complete line, and are
+	 * reconciled right away.
+	 */
+	private void loadCompleteLine(String[] fields) {
+		complete = true;
+		try {
+			reconciledAt = fields.length > 1 ? Long.parseLong(fields[1]) : 0;
+		} catch (NumberFormatException e) {
+			reconciledAt = 0;
+		}
+	}
+
+	private void putInMemory(String index, String name, Date earliest,
+			Date latest, BucketFormat format, String path, Long size) {
+		timeIndexes.remove(index);
+		Map<String, CatalogedBucket> buckets = bucketsByIndex.get(index);
+		if (buckets == null) {
+			buckets = new TreeMap<String, CatalogedBucket>();
+			bucketsByIndex.put(index, buckets);
+		}
+		CatalogedBucket bucket = buckets.get(name);
+		if (bucket == null) {
+			bucket = new CatalogedBucket(index, name, earliest, latest);
+			buckets.put(name, bucket);
+		}
+		if (bucket.getPath(format) == null)
+			catalogedFormats++;
+		bucket.putFormat(format, path, size);
+	}
+
+	/**
+	 * @return true if the catalog has been rebuilt from the archive, and knows
+	 *         about every archived bucket.
+	 */
+	public synchronized boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @return true if the catalog is not complete, or was last reconciled with
+	 *         the archive more than {@link #RECONCILE_INTERVAL_MILLIS} ago.
+	 */
+	public synchronized boolean isStale() {
+		return !complete
+				|| currentTimeMillis() - reconciledAt > RECONCILE_INTERVAL_MILLIS;
+	}
+
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Adds a bucket that has been archived at the path. The bucket's format and
+	 * size are cataloged with it.
+	 */
+	public synchronized void putArchivedBucket(Bucket bucket) throws IOException {
+		appendToJournal(toLine(bucket));
+		putBucketInMemory(bucket);
+		if (rebuilding)
+			archivedDuringRebuild.add(bucket);
+		if (journalLines > Math.max(MIN_LINES_BEFORE_COMPACTION,
+				2 * catalogedFormats))
+			writeJournal();
+	}
+
+	private void putBucketInMemory(Bucket bucket) {
+		putInMemory(bucket.getIndex(), bucket.getName(), bucket.getEarliest(),
+				bucket.getLatest(), bucket.getFormat(), bucket.getPath(),
+				bucket.getSize());
+	}
+
+	private String toLine(Bucket bucket) {
+		return BUCKET_LINE + SEPARATOR + bucket.getIndex() + SEPARATOR
+				+ bucket.getName() + SEPARATOR + bucket.getEarliest().getTime()
+				+ SEPARATOR + bucket.getLatest().getTime() + SEPARATOR
+				+ bucket.getFormat() + SEPARATOR + bucket.getPath() + SEPARATOR
+				+ (bucket.getSize() == null ? NO_SIZE : bucket.getSize());
+	}
+
+	private void appendToJournal(String line) throws IOException {
+		journal.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(journal, true);
+		try {
+			out.write((line + "\n").getBytes("UTF-8"));
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		journalLines++;
+	}
+
+	/**
+	 * Writes the whole catalog to a new journal, which replaces the old one.
+	 */
+	private void writeJournal() throws IOException {
+		File temp = new File(journal.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temp);
+		int lines = 0;
+		try {
+			Writer writer = new OutputStreamWriter(out, "UTF-8");
+			for (Map<String, CatalogedBucket> buckets : bucketsByIndex.values())
+				for (CatalogedBucket bucket : buckets.values())
+					for (BucketFormat format : bucket.getFormats()) {
+						writer.write(toLine(bucket, format) + "\n");
+						lines++;
+					}
+			if (complete) {
+				writer.write(COMPLETE_LINE + SEPARATOR + reconciledAt + "\n");
+				lines++;
+			}
+			writer.flush();
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		if (!temp.renameTo(journal)) {
+			journal.delete();
+			if (!temp.renameTo(journal))
+				throw new IOException("Could not replace catalog journal: " + journal);
+		}
+		journalLines = lines;
+	}
+
+	private String toLine(CatalogedBucket bucket, BucketFormat format) {
+		Long size = bucket.getSize(format);
+		return BUCKET_LINE + SEPARATOR + bucket.getIndex() + SEPARATOR
+				+ bucket.getName() + SEPARATOR + bucket.getEarliest().getTime()
+				+ SEPARATOR + bucket.getLatest().getTime() + SEPARATOR + format
+				+ SEPARATOR + bucket.getPath(format) + SEPARATOR
+				+ (size == null ? NO_SIZE : size);
+	}
+
+	/**
+	 * @return archived indexes, sorted.
+	 */
+	public synchronized List<String> getIndexes() {
+		return new ArrayList<String>(bucketsByIndex.keySet());
+	}
+
+	/**
+	 * @return buckets archived in the index, sorted by name.
+	 */
+	public synchronized List<CatalogedBucket> getBuckets(String index) {
+		Map<String, CatalogedBucket> buckets = bucketsByIndex.get(index);
+		if (buckets == null)
+			return new ArrayList<CatalogedBucket>();
+		return new ArrayList<CatalogedBucket>(buckets.values());
+	}
+
+	/**
+	 * Creates the {@link Bucket}s that are indexed by time in
+	 * {@link ArchiveCatalog#getTimeIndex(String, CreatesBuckets)}.
+	 */
+	public interface CreatesBuckets {
+
+		Bucket createBucket(CatalogedBucket catalogedBucket);
+	}
+
+	/**
+	 * @return buckets archived in the index, sorted by name and indexed by time.
+	 *         The buckets are created with the {@link CreatesBuckets} when the
+	 *         index has changed since the last time this was called.
+	 */
+	public synchronized BucketTimeIndex<Bucket> getTimeIndex(String index,
+			CreatesBuckets createsBuckets) {
+		BucketTimeIndex<Bucket> timeIndex = timeIndexes.get(index);
+		if (timeIndex == null) {
+			List<Bucket> buckets = new ArrayList<Bucket>();
+			for (CatalogedBucket catalogedBucket : getBuckets(index))
+				buckets.add(createsBuckets.createBucket(catalogedBucket));
+			timeIndex = BucketTimeIndex.create(buckets);
+			timeIndexes.put(index, timeIndex);
+		}
+		return timeIndex;
+	}
+
+	/**
+	 * @return the cataloged bucket, or null if it's not in the catalog.
+	 */
+	public synchronized CatalogedBucket getBucket(String index, String name) {
+		Map<String, CatalogedBucket> buckets = bucketsByIndex.get(index);
+		return buckets == null ? null : buckets.get(name);
+	}
+
+	/**
+	 * @return false if a rebuild is already in progress.
+	 */
+	public synchronized boolean startRebuild() {
+		if (rebuilding)
+			return false;
+		rebuilding = true;
+		archivedDuringRebuild = new ArrayList<Bucket>();
+		return true;
+	}
+
+	public synchronized boolean isRebuilding() {
+		return rebuilding;
+	}
+
+	/**
+	 * Replaces the catalog with the buckets from a full scan of the archive,
+	 * plus the buckets archived while the scan was running, and marks the
+	 * catalog complete. Buckets that are no longer in the archive are removed
+	 * from the catalog.
+	 * 
+	 * @param scannedBuckets
+	 *          every archived bucket, one per format.
+	 */
+	public synchronized void finishRebuild(List<Bucket> scannedBuckets)
+			throws IOException {
+		try {
+			bucketsByIndex.clear();
+			timeIndexes.clear();
+			catalogedFormats = 0;
+			for (Bucket bucket : scannedBuckets)
+				putBucketInMemory(bucket);
+			for (Bucket bucket : archivedDuringRebuild)
+				putBucketInMemory(bucket);
+			complete = true;
+			reconciledAt = currentTimeMillis();
+			writeJournal();
+		} finally {
+			stopRebuild();
+		}
+	}
+
+	public synchronized void abortRebuild() {
+		stopRebuild();
+	}
+
+	private void stopRebuild() {
+		rebuilding = false;
+		archivedDuringRebuild = null;
+	}
+
+	private static final Map<String, ArchiveCatalog> catalogs = new HashMap<String, ArchiveCatalog>();
+
+	/**
+	 * @return the catalog for the archive that's configured by the config. The
+	 *         same archive always gets the same instance.
+	 */
+	public static ArchiveCatalog getInstance(
+			LocalFileSystemPaths localFileSystemPaths, ArchiveConfiguration config) {
+		String archive = config.getBackendName() + ":"
+				+ new PathResolver(config).getIndexesHome();
+		File journal = new File(
+				localFileSystemPaths.getArchiveCatalogDirectory(),
+				UtilsFile.getFileNameForKey(archive) + ".catalog");
+		synchronized (catalogs) {
+			ArchiveCatalog catalog = catalogs.get(journal.getAbsolutePath());
+			if (catalog == null) {
+				logger.debug(will("Open archive catalog", "archive", archive,
+						"journal", journal));
+				catalog = new ArchiveCatalog(journal);
+				catalogs.put(journal.getAbsolutePath(), catalog);
+			}
+			return catalog;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.catalog;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+
+/**
+ * Factory for getting the {@link ArchiveCatalog} of the configured archive.
+ */
+public class ArchiveCatalogFactory {
+
+	/**
+	 * @return the catalog of the archive configured by the config. The catalog
+	 *         is rebuilt in the background if it is not complete, or if it has
+	 *         not been reconciled with the archive for
+	 *         {@link ArchiveCatalog#RECONCILE_INTERVAL_MILLIS}. Returns null if
+	 *         the config is for another server's part of the archive, which
+	 *         has to be listed from the archive since this server does not see
+	 *         what the other server archives.
+	 */
+	public static ArchiveCatalog create(ArchiveConfiguration config) {
+		return create(config, LocalFileSystemPaths.create(config));
+	}
+
+	public static ArchiveCatalog create(ArchiveConfiguration config,
+			LocalFileSystemPaths localFileSystemPaths) {
+		if (!config.isForConfiguredServer())
+			return null;
+		ArchiveCatalog archiveCatalog = ArchiveCatalog.getInstance(
+				localFileSystemPaths, config);
+		if (archiveCatalog.isStale() && !archiveCatalog.isRebuilding())
+			ArchiveCatalogRebuilder.create(config, archiveCatalog)
+					.rebuildInBackgroundIfStale();
+		return archiveCatalog;
+	}
+
+	/**
+	 * @return the catalog that buckets archived with the config are put in, or
+	 *         null if they're archived for another server.
+	 */
+	public static ArchiveCatalog getCatalogToArchiveTo(
+			ArchiveConfiguration config, LocalFileSystemPaths localFileSystemPaths) {
+		if (!config.isForConfiguredServer())
+			return null;
+		return ArchiveCatalog.getInstance(localFileSystemPaths, config);
+	}
+}
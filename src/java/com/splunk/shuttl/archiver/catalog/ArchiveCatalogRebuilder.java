@@ -0,0 +1,157 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.catalog;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
+import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.listers.ArchiveBucketsLister;
+import com.splunk.shuttl.archiver.listers.ArchivedIndexesLister;
+import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.RemoteBucket;
+import com.splunk.shuttl.archiver.thaw.BucketFormatChooser;
+import com.splunk.shuttl.archiver.thaw.BucketFormatResolver;
+import com.splunk.shuttl.archiver.util.NamedDaemonThreadFactory;
+
+/**
+ * Rebuilds an {@link ArchiveCatalog} from a full scan of the archive.
+ */
+public class ArchiveCatalogRebuilder {
+
+	private static final Logger logger = Logger
+			.getLogger(ArchiveCatalogRebuilder.class);
+
+	private final ArchiveCatalog archiveCatalog;
+	private final ArchiveBucketsLister bucketsLister;
+	private final BucketFormatResolver bucketFormatResolver;
+	private final PathResolver pathResolver;
+	private final ArchiveBucketSize archiveBucketSize;
+
+	/**
+	 * @param bucketsLister
+	 *          and bucketFormatResolver should list the archive itself, and not
+	 *          the catalog that is rebuilt.
+	 */
+	public ArchiveCatalogRebuilder(ArchiveCatalog archiveCatalog,
+			ArchiveBucketsLister bucketsLister,
+			BucketFormatResolver bucketFormatResolver, PathResolver pathResolver,
+			ArchiveBucketSize archiveBucketSize) {
+		this.archiveCatalog = archiveCatalog;
+		this.bucketsLister = bucketsLister;
+		this.bucketFormatResolver = bucketFormatResolver;
+		this.pathResolver = pathResolver;
+		this.archiveBucketSize = archiveBucketSize;
+	}
+
+	/**
+	 * Scans the archive and replaces the catalog with what's in it. Buckets that
+	 * are archived during the scan are kept in the catalog.
+	 * 
+	 * @return false if the catalog was already being rebuilt.
+	 */
+	public boolean rebuild() {
+		if (!archiveCatalog.startRebuild())
+			return false;
+		rebuildStarted();
+		return true;
+	}
+
+	/**
+	 * Starts rebuilding the catalog on a background thread, unless it is
+	 * complete and recently reconciled with the archive, or already being
+	 * rebuilt. A complete catalog keeps being used while it is rebuilt.
+	 */
+	public void rebuildInBackgroundIfStale() {
+		if (!archiveCatalog.isStale() || !archiveCatalog.startRebuild())
+			return;
+		new NamedDaemonThreadFactory("shuttl-catalog-rebuilder").newThread(
+				new Runnable() {
+
+					@Override
+					public void run() {
+						rebuildStarted();
+					}
+				}).start();
+	}
+
+	private void rebuildStarted() {
+		logger.info(will("Rebuild archive catalog"));
+		try {
+			List<Bucket> scannedBuckets = scanArchive();
+			archiveCatalog.finishRebuild(scannedBuckets);
+			logger.info(done("Rebuilt archive catalog", "cataloged_buckets",
+					scannedBuckets.size()));
+		} catch (IOException e) {
+			abortRebuild(e);
+		} catch (RuntimeException e) {
+			abortRebuild(e);
+		}
+	}
+
+	private List<Bucket> scanArchive() {
+		List<Bucket> buckets = new ArrayList<Bucket>();
+		for (Bucket bucket : bucketsLister.listBuckets())
+			for (BucketFormat format : bucketFormatResolver
+					.listArchivedFormats(bucket))
+				buckets.add(createBucketWithFormat(bucket, format));
+		return buckets;
+	}
+
+	private Bucket createBucketWithFormat(Bucket bucket, BucketFormat format) {
+		String path = pathResolver.resolveArchivedBucketPath(bucket.getIndex(),
+				bucket.getName(), format);
+		RemoteBucket bucketWithFormat = new RemoteBucket(path, bucket.getIndex(),
+				bucket.getName(), format);
+		return new RemoteBucket(path, bucket.getIndex(), bucket.getName(), format,
+				archiveBucketSize.readBucketSize(bucketWithFormat));
+	}
+
+	private void abortRebuild(Exception e) {
+		archiveCatalog.abortRebuild();
+		logger.warn(warn("Rebuilt archive catalog", e,
+				"Will keep listing the archive until the catalog is rebuilt"));
+	}
+
+	/**
+	 * @return rebuilder for the catalog of the configured archive.
+	 */
+	public static ArchiveCatalogRebuilder create(ArchiveConfiguration config,
+			ArchiveCatalog archiveCatalog) {
+		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
+				.getWithConfiguration(config);
+		PathResolver pathResolver = new PathResolver(config);
+		ArchiveBucketsLister bucketsLister = new ArchiveBucketsLister(
+				archiveFileSystem, new ArchivedIndexesLister(pathResolver,
+						archiveFileSystem), pathResolver);
+		BucketFormatResolver bucketFormatResolver = new BucketFormatResolver(
+				pathResolver, archiveFileSystem, new BucketFormatChooser(config));
+		return new ArchiveCatalogRebuilder(archiveCatalog, bucketsLister,
+				bucketFormatResolver, pathResolver, ArchiveBucketSize.create(
+						pathResolver, archiveFileSystem,
+						LocalFileSystemPaths.create(config)));
+	}
+}
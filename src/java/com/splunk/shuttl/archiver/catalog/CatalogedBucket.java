@@ -0,0 +1,91 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+
+/**
+ * What the {@link ArchiveCatalog} knows about an archived bucket. A bucket is
+ * archived in one or more formats, which each have a path and a size.
+ */
+public class CatalogedBucket {
+
+	private final String index;
+	private final String name;
+	private final Date earliest;
+	private final Date latest;
+	private final Map<BucketFormat, String> paths;
+	private final Map<BucketFormat, Long> sizes;
+
+	public CatalogedBucket(String index, String name, Date earliest, Date latest) {
+		this.index = index;
+		this.name = name;
+		this.earliest = earliest;
+		this.latest = latest;
+		this.paths = new TreeMap<BucketFormat, String>();
+		this.sizes = new TreeMap<BucketFormat, Long>();
+	}
+
+	void putFormat(BucketFormat format, String path, Long size) {
+		paths.put(format, path);
+		if (size != null)
+			sizes.put(format, size);
+		else
+			sizes.remove(format);
+	}
+
+	public String getIndex() {
+		return index;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Date getEarliest() {
+		return earliest;
+	}
+
+	public Date getLatest() {
+		return latest;
+	}
+
+	public List<BucketFormat> getFormats() {
+		return Collections.unmodifiableList(new ArrayList<BucketFormat>(paths
+				.keySet()));
+	}
+
+	/**
+	 * @return path to the bucket in the format, or null if it's not archived in
+	 *         that format.
+	 */
+	public String getPath(BucketFormat format) {
+		return format == null ? null : paths.get(format);
+	}
+
+	/**
+	 * @return size of the bucket in the format, or null if it's not known.
+	 */
+	public Long getSize(BucketFormat format) {
+		return format == null ? null : sizes.get(format);
+	}
+}
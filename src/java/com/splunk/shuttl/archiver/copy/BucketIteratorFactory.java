@@ -45,20 +45,7 @@ public class BucketIteratorFactory {
 
 		@Override
 		public boolean accept(File f) {
-			try {
-				verifyBucketName(f.getName());
-				return true;
-			} catch (RuntimeException e) {
-				return false;
-			}
-		}
-
-		private void verifyBucketName(String fileName) {
-			BucketName bucketName = new BucketName(fileName);
-			bucketName.getDB();
-			bucketName.getEarliest();
-			bucketName.getLatest();
-			bucketName.getIndex();
+			return new BucketName(f.getName()).isValid();
 		}
 	}
 
@@ -21,7 +21,6 @@ import java.net.URI;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.log4j.Logger;
 
@@ -31,6 +30,8 @@ import com.splunk.shuttl.archiver.filesystem.glacier.GlacierArchiveFileSystemFac
 import com.splunk.shuttl.archiver.filesystem.hadoop.HadoopArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.hadoop.HadoopArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.filesystem.s3.S3ArchiveFileSystemFactory;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottles;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottles.Direction;
 
 /**
  * Factory for getting an {@link ArchiveFileSystem}
@@ -71,12 +72,12 @@ public class ArchiveFileSystemFactory {
 	 * Method that is needed when mocking a configuration for tests.
 	 * 
 	 * @return {@link ArchiveFileSystem} with a specific
-	 *         {@link ArchiveConfiguration}.
+	 *         {@link ArchiveConfiguration}, shared by everyone with the same
+	 *         back-end configuration. See {@link ArchiveFileSystemRegistry}.
 	 */
 	public static ArchiveFileSystem getWithConfiguration(
 			ArchiveConfiguration config) {
-		return getByNameAndLocalFileSystemPaths(config.getBackendName(),
-				LocalFileSystemPaths.create(config));
+		return ArchiveFileSystemRegistry.getSharedInstance().get(config);
 	}
 
 	/**
@@ -99,14 +100,13 @@ public class ArchiveFileSystemFactory {
 	private static ArchiveFileSystem supportedArchiveFileSystem(String backend,
 			LocalFileSystemPaths localFileSystemPaths) {
 		if (backend.equals(LOCAL_FILESYSTEM_BACKEND_NAME))
-			return new HadoopArchiveFileSystem(
-					getHadoopFileSystemSafe(URI.create("file:/")));
+			return createLocal();
 		else if (backend.equals("hdfs"))
-			return HadoopArchiveFileSystemFactory.create();
+			return HadoopArchiveFileSystemFactory.create(localFileSystemPaths);
 		else if (backend.equals("s3"))
-			return S3ArchiveFileSystemFactory.createS3();
+			return S3ArchiveFileSystemFactory.createS3(localFileSystemPaths);
 		else if (backend.equals("s3n"))
-			return S3ArchiveFileSystemFactory.createS3n();
+			return S3ArchiveFileSystemFactory.createS3n(localFileSystemPaths);
 		else if (backend.equals("glacier"))
 			return GlacierArchiveFileSystemFactory.create(localFileSystemPaths);
 		else
@@ -114,9 +114,17 @@ public class ArchiveFileSystemFactory {
 					"Supported URI schemas should return a ArchiveFileSystem.");
 	}
 
+	private static ArchiveFileSystem createLocal() {
+		TransferThrottles throttles = TransferThrottles.getSharedInstance();
+		return new HadoopArchiveFileSystem(
+				getHadoopFileSystemSafe(URI.create("file:/")), null, throttles.get(
+						LOCAL_FILESYSTEM_BACKEND_NAME, Direction.ARCHIVE), throttles.get(
+						LOCAL_FILESYSTEM_BACKEND_NAME, Direction.THAW));
+	}
+
 	private static FileSystem getHadoopFileSystemSafe(URI uri) {
 		try {
-			return FileSystem.get(uri, new Configuration());
+			return HadoopArchiveFileSystemFactory.newFileSystem(uri);
 		} catch (IOException e) {
 			logger.error(did("Tried to create Hadoop FileSystem with uri", e,
 					"To create file system.", "uri", uri));
@@ -0,0 +1,186 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+
+/**
+ * Keeps one {@link ArchiveFileSystem} per back-end configuration, so that
+ * clients, credentials and connections are set up once instead of on every
+ * request. The {@link ArchiveFileSystem}s are thread safe and shared by
+ * everyone that uses the same configuration.<br/>
+ * <br/>
+ * The entries are invalidated when the archiver configuration changes. An
+ * invalidated file system is closed and forgotten once it's been invalidated
+ * for {@link #CLOSE_INVALIDATED_AFTER_MILLIS}, which gives the transfers that
+ * were using it time to finish. Everything is closed when the JVM shuts down.
+ */
+public class ArchiveFileSystemRegistry {
+
+	private static final Logger logger = Logger
+			.getLogger(ArchiveFileSystemRegistry.class);
+
+	/**
+	 * Time an invalidated file system is kept open for the transfers that are
+	 * still using it.
+	 */
+	public static final long CLOSE_INVALIDATED_AFTER_MILLIS = 60 * 60 * 1000;
+
+	private final Map<String, ArchiveFileSystem> fileSystems;
+	private final Map<ArchiveFileSystem, Long> invalidated;
+
+	public ArchiveFileSystemRegistry() {
+		this.fileSystems = new HashMap<String, ArchiveFileSystem>();
+		this.invalidated = new LinkedHashMap<ArchiveFileSystem, Long>();
+	}
+
+	/**
+	 * @return the file system for the configuration's back-end. It's created
+	 *         the first time it's asked for.
+	 */
+	public synchronized ArchiveFileSystem get(ArchiveConfiguration config) {
+		closeExpiredInvalidated();
+		String key = config.getBackendName() + ":" + config.getLocalArchiverDir();
+		ArchiveFileSystem fileSystem = fileSystems.get(key);
+		if (fileSystem == null) {
+			logger.info(will("Create archive file system", "backend",
+					config.getBackendName(), "key", key));
+			fileSystem = create(config.getBackendName(),
+					LocalFileSystemPaths.create(config));
+			fileSystems.put(key, fileSystem);
+		}
+		return fileSystem;
+	}
+
+	/**
+	 * Extension point for tests.
+	 */
+	protected ArchiveFileSystem create(String backend,
+			LocalFileSystemPaths localFileSystemPaths) {
+		return ArchiveFileSystemFactory.getByNameAndLocalFileSystemPaths(backend,
+				localFileSystemPaths);
+	}
+
+	/**
+	 * Forgets the file systems, so that they are created with the current
+	 * configuration the next time they're asked for. They're not closed right
+	 * away, since they may still be in use, but after
+	 * {@link #CLOSE_INVALIDATED_AFTER_MILLIS} or with {@link #closeAll()}.
+	 */
+	public synchronized void invalidateAll() {
+		closeExpiredInvalidated();
+		if (fileSystems.isEmpty())
+			return;
+		logger.info(will("Invalidate archive file systems", "file_systems",
+				fileSystems.keySet()));
+		long now = currentTimeMillis();
+		for (ArchiveFileSystem fileSystem : fileSystems.values())
+			invalidated.put(fileSystem, now);
+		fileSystems.clear();
+	}
+
+	private void closeExpiredInvalidated() {
+		long now = currentTimeMillis();
+		Iterator<Entry<ArchiveFileSystem, Long>> entries = invalidated.entrySet()
+				.iterator();
+		while (entries.hasNext()) {
+			Entry<ArchiveFileSystem, Long> entry = entries.next();
+			if (now - entry.getValue() < CLOSE_INVALIDATED_AFTER_MILLIS)
+				break;
+			closeQuietly(entry.getKey());
+			entries.remove();
+		}
+	}
+
+	/**
+	 * @return number of invalidated file systems that are not closed yet.
+	 */
+	public synchronized int getInvalidatedCount() {
+		return invalidated.size();
+	}
+
+	/**
+	 * Extension point for tests.
+	 */
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Closes every file system that's been created.
+	 */
+	public synchronized void closeAll() {
+		for (ArchiveFileSystem fileSystem : fileSystems.values())
+			closeQuietly(fileSystem);
+		fileSystems.clear();
+		for (ArchiveFileSystem fileSystem : invalidated.keySet())
+			closeQuietly(fileSystem);
+		invalidated.clear();
+	}
+
+	private void closeQuietly(ArchiveFileSystem fileSystem) {
+		if (!(fileSystem instanceof Closeable))
+			return;
+		try {
+			((Closeable) fileSystem).close();
+		} catch (IOException e) {
+			logger.warn(warn("Closed archive file system", e,
+					"Will continue closing the others", "file_system", fileSystem));
+		}
+	}
+
+	private static ArchiveFileSystemRegistry sharedInstance;
+
+	/**
+	 * @return registry shared by the whole Shuttl server. Its file systems are
+	 *         closed when the JVM shuts down.
+	 */
+	public static synchronized ArchiveFileSystemRegistry getSharedInstance() {
+		if (sharedInstance == null) {
+			sharedInstance = new ArchiveFileSystemRegistry();
+			Runtime.getRuntime().addShutdownHook(
+					new Thread(new ClosesAll(sharedInstance),
+							"shuttl-archive-file-system-closer"));
+		}
+		return sharedInstance;
+	}
+
+	private static class ClosesAll implements Runnable {
+
+		private final ArchiveFileSystemRegistry registry;
+
+		public ClosesAll(ArchiveFileSystemRegistry registry) {
+			this.registry = registry;
+		}
+
+		@Override
+		public void run() {
+			registry.closeAll();
+		}
+	}
+}
@@ -16,15 +16,20 @@ package com.splunk.shuttl.archiver.filesystem.glacier;
 
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.archive.BucketDeleter;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.PreparesBucketRetrievals;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.BucketTransactionCleaner;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.TransfersBuckets;
 import com.splunk.shuttl.archiver.filesystem.transaction.file.FileTransactionCleaner;
@@ -36,9 +41,14 @@ import com.splunk.shuttl.archiver.model.LocalBucket;
 /**
  * The glacier file system is not good for storing multiple files, it will
  * therefore rely on s3 to handle the storing of meta data and file structure.
- * It supports only buckets that contain a single file.
+ * It supports only buckets that contain a single file. <br/>
+ * <br/>
+ * When buckets are prepared for retrieval, their archives are retrieved with
+ * a {@link GlacierRetrievalScheduler}, instead of one at a time when they are
+ * transferred.
  */
-public class GlacierArchiveFileSystem implements ArchiveFileSystem {
+public class GlacierArchiveFileSystem implements ArchiveFileSystem,
+		PreparesBucketRetrievals, Closeable {
 
 	private final ArchiveFileSystem hadoop;
 	private final GlacierClient glacierClient;
@@ -46,17 +56,49 @@ public class GlacierArchiveFileSystem implements ArchiveFileSystem {
 	private final Logger logger;
 	private final BucketDeleter bucketDeleter;
 	private final GlacierArchiveIdStore glacierArchiveIdStore;
+	private final GlacierRetrievalScheduler retrievalScheduler;
 
 	public GlacierArchiveFileSystem(ArchiveFileSystem hadoop,
 			GlacierClient glacierClient, TgzFormatExporter tgzFormatExporter,
 			Logger logger, BucketDeleter bucketDeleter,
 			GlacierArchiveIdStore glacierArchiveIdStore) {
+		this(hadoop, glacierClient, tgzFormatExporter, logger, bucketDeleter,
+				glacierArchiveIdStore, null);
+	}
+
+	/**
+	 * @param retrievalScheduler
+	 *          to retrieve prepared buckets with. Can be null, to always
+	 *          retrieve the archives one at a time.
+	 */
+	public GlacierArchiveFileSystem(ArchiveFileSystem hadoop,
+			GlacierClient glacierClient, TgzFormatExporter tgzFormatExporter,
+			Logger logger, BucketDeleter bucketDeleter,
+			GlacierArchiveIdStore glacierArchiveIdStore,
+			GlacierRetrievalScheduler retrievalScheduler) {
 		this.hadoop = hadoop;
 		this.glacierClient = glacierClient;
 		this.tgzFormatExporter = tgzFormatExporter;
 		this.logger = logger;
 		this.bucketDeleter = bucketDeleter;
 		this.glacierArchiveIdStore = glacierArchiveIdStore;
+		this.retrievalScheduler = retrievalScheduler;
+	}
+
+	/**
+	 * @return client of the vault, to retrieve its inventory with.
+	 */
+	public GlacierClient getGlacierClient() {
+		return glacierClient;
+	}
+
+	/**
+	 * Closes the file system that stores the meta data.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (hadoop instanceof Closeable)
+			((Closeable) hadoop).close();
 	}
 
 	private void putBucket(LocalBucket bucket, String temp, String dst)
@@ -113,10 +155,60 @@ public class GlacierArchiveFileSystem implements ArchiveFileSystem {
 	private void getBucket(Bucket remoteBucket, File temp, File dst)
 			throws IOException {
 		String path = remoteBucket.getPath();
-		putArchiveIdIfNotPresent(remoteBucket, path);
 		File bucketFileInGlacier = new File(temp, remoteBucket.getName()
 				+ BucketFormat.extensionOfFormat(remoteBucket.getFormat()));
-		downloadBucketFileFromGlacier(bucketFileInGlacier, path);
+		if (retrievalScheduler != null && retrievalScheduler.hasRetrieval(path)) {
+			moveRetrievedBucketFile(bucketFileInGlacier, path);
+		} else {
+			putArchiveIdIfNotPresent(remoteBucket, path);
+			downloadBucketFileFromGlacier(bucketFileInGlacier, path);
+		}
+	}
+
+	private void moveRetrievedBucketFile(File file, String path)
+			throws IOException {
+		File retrieved;
+		try {
+			retrieved = retrievalScheduler.awaitDownload(path);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GlacierThawingException("Interrupted while waiting for "
+					+ "glacier retrieval. Path: " + path);
+		}
+		FileUtils.deleteQuietly(file);
+		FileUtils.moveFile(retrieved, file);
+	}
+
+	/**
+	 * Starts glacier retrieval jobs for all the buckets, so that they are
+	 * retrieved at the same time. Buckets without a known archiveId are
+	 * retrieved one at a time when they are transferred.
+	 */
+	@Override
+	public void prepareRetrievals(List<Bucket> buckets) {
+		if (retrievalScheduler == null || buckets.isEmpty())
+			return;
+		List<String> paths = new ArrayList<String>();
+		for (Bucket bucket : buckets)
+			paths.add(bucket.getPath());
+		Map<String, String> archiveIds = glacierClient.getArchiveIds(paths);
+		for (Bucket bucket : buckets)
+			if (!archiveIds.containsKey(bucket.getPath()))
+				putPersistedArchiveId(archiveIds, bucket);
+		retrievalScheduler.requestRetrievals(archiveIds);
+	}
+
+	private void putPersistedArchiveId(Map<String, String> archiveIds,
+			Bucket bucket) {
+		try {
+			String archiveId = glacierArchiveIdStore.getArchiveId(bucket);
+			glacierClient.putArchiveId(bucket.getPath(), archiveId);
+			archiveIds.put(bucket.getPath(), archiveId);
+		} catch (RuntimeException e) {
+			logger.warn(warn("Got persisted archiveId for glacier retrieval", e,
+					"Will not prepare retrieval of the bucket", "bucket",
+					bucket.getName()));
+		}
 	}
 
 	private void putArchiveIdIfNotPresent(Bucket remoteBucket, String path) {
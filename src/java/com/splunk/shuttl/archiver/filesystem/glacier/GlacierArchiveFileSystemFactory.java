@@ -21,10 +21,12 @@ import org.apache.log4j.Logger;
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
 import com.splunk.shuttl.archiver.archive.BucketDeleter;
+import com.splunk.shuttl.archiver.archive.BucketShuttlerFactory;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.s3.S3ArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.importexport.tgz.CreatesBucketTgz;
 import com.splunk.shuttl.archiver.importexport.tgz.TgzFormatExporter;
+import com.splunk.shuttl.archiver.importexport.tgz.TgzStreamExporter;
 import com.splunk.shuttl.archiver.metastore.MetadataStore;
 import com.splunk.shuttl.archiver.util.GroupRegex;
 import com.splunk.shuttl.archiver.util.IllegalRegexGroupException;
@@ -41,17 +43,41 @@ public class GlacierArchiveFileSystemFactory {
 	public static GlacierArchiveFileSystem create(
 			LocalFileSystemPaths localFileSystemPaths) {
 		AWSCredentialsImpl credentials = AWSCredentialsImpl.create();
-		GlacierClient client = GlacierClient.create(credentials);
-		ArchiveFileSystem s3 = S3ArchiveFileSystemFactory.createS3n();
+		GlacierClient client = GlacierClient.create(credentials,
+				localFileSystemPaths);
+		ArchiveFileSystem s3 = S3ArchiveFileSystemFactory
+				.createS3n(localFileSystemPaths);
 		ArchiveConfiguration config = ArchiveConfiguration.getSharedInstance();
-		return create(localFileSystemPaths, client, s3, config);
+		GlacierRetrievalScheduler retrievalScheduler = GlacierRetrievalScheduler
+				.getInstance(client, localFileSystemPaths,
+						credentials.getGlacierVault(), GlacierRetrievalConfiguration
+								.createWithPropertyFile(AWSCredentialsImpl
+										.getAmazonPropertiesFile()));
+		return create(localFileSystemPaths, client, s3, config,
+				retrievalScheduler);
 	}
 
 	public static GlacierArchiveFileSystem create(
 			LocalFileSystemPaths localFileSystemPaths, GlacierClient glacierClient,
 			ArchiveFileSystem archiveMetaStore, ArchiveConfiguration config) {
+		return create(localFileSystemPaths, glacierClient, archiveMetaStore,
+				config, null);
+	}
+
+	/**
+	 * @param retrievalScheduler
+	 *          can be null, to retrieve archives one at a time.
+	 */
+	public static GlacierArchiveFileSystem create(
+			LocalFileSystemPaths localFileSystemPaths, GlacierClient glacierClient,
+			ArchiveFileSystem archiveMetaStore, ArchiveConfiguration config,
+			GlacierRetrievalScheduler retrievalScheduler) {
+		TgzStreamExporter tgzStreamExporter = new TgzStreamExporter(
+				BucketShuttlerFactory.getCompressionExecutor(config),
+				config.getCompressionLevel(), config.getCompressionThreads());
 		TgzFormatExporter tgzFormatExporter = TgzFormatExporter
-				.create(CreatesBucketTgz.create(localFileSystemPaths));
+				.create(CreatesBucketTgz.create(localFileSystemPaths,
+						tgzStreamExporter));
 		Logger logger = Logger.getLogger(GlacierArchiveFileSystem.class);
 		BucketDeleter bucketDeleter = BucketDeleter.create();
 
@@ -60,7 +86,7 @@ public class GlacierArchiveFileSystemFactory {
 
 		return new GlacierArchiveFileSystem(archiveMetaStore, glacierClient,
 				tgzFormatExporter, logger, bucketDeleter, new GlacierArchiveIdStore(
-						metadataStore));
+						metadataStore), retrievalScheduler);
 	}
 
 	@SuppressWarnings("unused")
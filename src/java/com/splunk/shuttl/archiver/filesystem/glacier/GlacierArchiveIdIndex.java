@@ -0,0 +1,322 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.util.UtilsFile;
+
+/**
+ * Local index of the archive ids of the paths uploaded to a glacier vault, so
+ * that getting an archive doesn't need a remote metadata read first. <br/>
+ * <br/>
+ * The index is kept in memory and persisted in a local journal file, like the
+ * {@link com.splunk.shuttl.archiver.catalog.ArchiveCatalog}. Every archive id
+ * is appended to the journal and synced to disk, and a line that was only
+ * partly written is ignored when the journal is read. The journal is
+ * compacted when it has grown to twice the size of the index.<br/>
+ * <br/>
+ * The index can be reconciled with the output of a vault inventory job, which
+ * has the archive id and the description of every archive in the vault. The
+ * description of an archive is the path it was uploaded to.
+ */
+public class GlacierArchiveIdIndex {
+
+	private static final Logger logger = Logger
+			.getLogger(GlacierArchiveIdIndex.class);
+
+	private static final String ARCHIVE_LINE = "ARCHIVE";
+	private static final String SEPARATOR = "\t";
+	private static final int MIN_LINES_BEFORE_COMPACTION = 1000;
+
+	private final File journal;
+	private final Map<String, String> archiveIds;
+
+	private int journalLines;
+
+	/**
+	 * @param journal
+	 *          to persist the index in. Can be null, to only keep the index in
+	 *          memory.
+	 */
+	public GlacierArchiveIdIndex(File journal) {
+		this(journal, new HashMap<String, String>());
+	}
+
+	private GlacierArchiveIdIndex(File journal, Map<String, String> archiveIds) {
+		this.journal = journal;
+		this.archiveIds = archiveIds;
+		load();
+	}
+
+	private void load() {
+		if (journal == null || !journal.exists())
+			return;
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(journal), "UTF-8"));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null)
+					loadLine(line);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			logger.warn(warn("Read glacier archive id index", e,
+					"Will only use what could be read", "journal", journal));
+		}
+	}
+
+	private void loadLine(String line) {
+		journalLines++;
+		String[] fields = line.split(SEPARATOR, -1);
+		if (fields.length == 3 && fields[0].equals(ARCHIVE_LINE)
+				&& fields[2].length() > 0)
+			archiveIds.put(fields[1], fields[2]);
+	}
+
+	/**
+	 * @return archive id of the path, or null if it's not in the index.
+	 */
+	public synchronized String get(String path) {
+		return archiveIds.get(path);
+	}
+
+	/**
+	 * @return archive ids of the paths that are in the index, by path.
+	 */
+	public synchronized Map<String, String> getAll(Collection<String> paths) {
+		Map<String, String> found = new HashMap<String, String>();
+		for (String path : paths) {
+			String archiveId = archiveIds.get(path);
+			if (archiveId != null)
+				found.put(path, archiveId);
+		}
+		return found;
+	}
+
+	/**
+	 * @return number of paths in the index.
+	 */
+	public synchronized int size() {
+		return archiveIds.size();
+	}
+
+	/**
+	 * Maps the path to the archive id and persists it. If it cannot be
+	 * persisted, it's still kept in memory.
+	 */
+	public synchronized void put(String path, String archiveId) {
+		if (archiveId.equals(archiveIds.get(path)))
+			return;
+		archiveIds.put(path, archiveId);
+		if (journal == null)
+			return;
+		try {
+			appendToJournal(toLine(path, archiveId));
+			if (journalLines > Math.max(MIN_LINES_BEFORE_COMPACTION,
+					2 * archiveIds.size()))
+				writeJournal();
+		} catch (IOException e) {
+			logger.warn(warn("Persisted glacier archive id", e,
+					"Will only keep the archive id in memory", "path", path,
+					"archive_id", archiveId, "journal", journal));
+		}
+	}
+
+	private static String toLine(String path, String archiveId) {
+		return ARCHIVE_LINE + SEPARATOR + path + SEPARATOR + archiveId;
+	}
+
+	private void appendToJournal(String line) throws IOException {
+		journal.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(journal, true);
+		try {
+			out.write((line + "\n").getBytes("UTF-8"));
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		journalLines++;
+	}
+
+	/**
+	 * Writes the whole index to a new journal, which replaces the old one.
+	 */
+	private void writeJournal() throws IOException {
+		File temp = new File(journal.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temp);
+		try {
+			Writer writer = new OutputStreamWriter(out, "UTF-8");
+			for (Entry<String, String> archiveId : archiveIds.entrySet())
+				writer.write(toLine(archiveId.getKey(), archiveId.getValue()) + "\n");
+			writer.flush();
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		if (!temp.renameTo(journal)) {
+			journal.delete();
+			if (!temp.renameTo(journal))
+				throw new IOException("Could not replace archive id index journal: "
+						+ journal);
+		}
+		journalLines = archiveIds.size();
+	}
+
+	/**
+	 * Adds the archives of a vault inventory to the index. The inventory is
+	 * the JSON output of an inventory retrieval job, which is read one archive
+	 * at a time. When a path was uploaded more than once, the most recent
+	 * archive is used. Paths that are already in the index keep their archive
+	 * id, since the index knows about uploads that are newer than the
+	 * inventory.
+	 * 
+	 * @return number of paths that were added to the index.
+	 */
+	public int reconcileWithInventory(InputStream inventory) throws IOException {
+		Map<String, InventoryArchive> newest = readInventory(inventory);
+		int added = 0;
+		synchronized (this) {
+			for (Entry<String, InventoryArchive> archive : newest.entrySet())
+				if (!archiveIds.containsKey(archive.getKey())) {
+					archiveIds.put(archive.getKey(), archive.getValue().archiveId);
+					added++;
+				}
+			if (journal != null && added > 0)
+				writeJournal();
+		}
+		logger.info(done("Reconciled glacier archive id index with inventory",
+				"archives_in_inventory", newest.size(), "added", added));
+		return added;
+	}
+
+	private static Map<String, InventoryArchive> readInventory(
+			InputStream inventory) throws IOException {
+		Map<String, InventoryArchive> newest = new HashMap<String, InventoryArchive>();
+		JsonParser parser = new JsonFactory().createJsonParser(inventory);
+		try {
+			if (parser.nextToken() != JsonToken.START_OBJECT)
+				throw new IOException("Inventory is not a JSON object");
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if (field.equals("ArchiveList") && value == JsonToken.START_ARRAY)
+					while (parser.nextToken() == JsonToken.START_OBJECT)
+						putIfNewer(newest, readArchive(parser));
+				else
+					parser.skipChildren();
+			}
+		} finally {
+			parser.close();
+		}
+		return newest;
+	}
+
+	private static InventoryArchive readArchive(JsonParser parser)
+			throws IOException {
+		InventoryArchive archive = new InventoryArchive();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			parser.nextToken();
+			if (field.equals("ArchiveId"))
+				archive.archiveId = parser.getText();
+			else if (field.equals("ArchiveDescription"))
+				archive.description = parser.getText();
+			else if (field.equals("CreationDate"))
+				archive.creationDate = parser.getText();
+			else
+				parser.skipChildren();
+		}
+		return archive;
+	}
+
+	/**
+	 * Creation dates are ISO 8601 in UTC, which sort as strings.
+	 */
+	private static void putIfNewer(Map<String, InventoryArchive> newest,
+			InventoryArchive archive) {
+		if (archive.archiveId == null || archive.description == null
+				|| archive.description.length() == 0)
+			return;
+		InventoryArchive existing = newest.get(archive.description);
+		if (existing == null || compareDates(archive, existing) > 0)
+			newest.put(archive.description, archive);
+	}
+
+	private static int compareDates(InventoryArchive a, InventoryArchive b) {
+		String aDate = a.creationDate == null ? "" : a.creationDate;
+		String bDate = b.creationDate == null ? "" : b.creationDate;
+		return aDate.compareTo(bDate);
+	}
+
+	private static class InventoryArchive {
+		private String archiveId;
+		private String description;
+		private String creationDate;
+	}
+
+	/**
+	 * @return index that is only kept in memory, in the map.
+	 */
+	public static GlacierArchiveIdIndex createInMemory(
+			Map<String, String> archiveIds) {
+		return new GlacierArchiveIdIndex(null, archiveIds);
+	}
+
+	private static final Map<String, GlacierArchiveIdIndex> indexes = new HashMap<String, GlacierArchiveIdIndex>();
+
+	/**
+	 * @return the index for the vault. The same vault always gets the same
+	 *         instance.
+	 */
+	public static GlacierArchiveIdIndex getInstance(
+			LocalFileSystemPaths localFileSystemPaths, String vault) {
+		File journal = new File(localFileSystemPaths
+				.getGlacierArchiveIdsDirectory(), UtilsFile.getFileNameForKey(vault)
+				+ ".archiveids");
+		synchronized (indexes) {
+			GlacierArchiveIdIndex index = indexes.get(journal.getAbsolutePath());
+			if (index == null) {
+				logger.debug(will("Open glacier archive id index", "vault", vault,
+						"journal", journal));
+				index = new GlacierArchiveIdIndex(journal);
+				indexes.put(journal.getAbsolutePath(), index);
+			}
+			return index;
+		}
+	}
+}
@@ -14,20 +14,37 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.filesystem.glacier;
 
+import static com.splunk.shuttl.ShuttlConstants.*;
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.HashMap;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.glacier.AmazonGlacier;
 import com.amazonaws.services.glacier.AmazonGlacierClient;
+import com.amazonaws.services.glacier.model.DescribeJobRequest;
+import com.amazonaws.services.glacier.model.GetJobOutputRequest;
+import com.amazonaws.services.glacier.model.InitiateJobRequest;
+import com.amazonaws.services.glacier.model.JobParameters;
 import com.amazonaws.services.glacier.transfer.ArchiveTransferManager;
-import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottle;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottles;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottles.Direction;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoints;
+import com.splunk.shuttl.archiver.util.NamedDaemonThreadFactory;
 
 /**
  * Implementation of doing operations to the Amazon Glacier service.
@@ -36,38 +53,83 @@ public class GlacierClient {
 
 	private static final Logger logger = Logger.getLogger(GlacierClient.class);
 
+	private static final String INVENTORY_ENDPOINT = "/" + ENDPOINT_CONTEXT
+			+ ENDPOINT_ARCHIVER + ENDPOINT_GLACIER_INVENTORY;
+
 	private ArchiveTransferManager transferManager;
 	private String vault;
-	// TODO: Better solution with db or flat files?
-	private static final HashMap<String, String> archiveIdCache = new HashMap<String, String>();
-	private final Map<String, String> archiveIds;
+	private final GlacierArchiveIdIndex archiveIds;
+	private final AmazonGlacier amazonGlacier;
+	private final GlacierMultipartUploader multipartUploader;
+	private final TransferThrottle thawThrottle;
 
 	/**
-	 * Uses the in-memory static final archiveIdCache.
+	 * Keeps the archiveIds only in the map, and cannot retrieve inventories.
 	 */
-	private GlacierClient(ArchiveTransferManager transferManager, String vault) {
-		this(transferManager, vault, archiveIdCache);
+	public GlacierClient(ArchiveTransferManager transferManager, String vault,
+			Map<String, String> archiveIds) {
+		this(transferManager, vault, GlacierArchiveIdIndex
+				.createInMemory(archiveIds), null);
 	}
 
+	/**
+	 * @param archiveIds
+	 *          index that archiveIds are stored in and looked up from.
+	 * @param amazonGlacier
+	 *          to retrieve vault inventories with. Can be null.
+	 */
 	public GlacierClient(ArchiveTransferManager transferManager, String vault,
-			Map<String, String> archiveIds) {
+			GlacierArchiveIdIndex archiveIds, AmazonGlacier amazonGlacier) {
+		this(transferManager, vault, archiveIds, amazonGlacier, null);
+	}
+
+	/**
+	 * @param multipartUploader
+	 *          to upload files with. Can be null, to upload with the
+	 *          transferManager.
+	 */
+	public GlacierClient(ArchiveTransferManager transferManager, String vault,
+			GlacierArchiveIdIndex archiveIds, AmazonGlacier amazonGlacier,
+			GlacierMultipartUploader multipartUploader) {
+		this(transferManager, vault, archiveIds, amazonGlacier,
+				multipartUploader, TransferThrottle.unlimited());
+	}
+
+	/**
+	 * @param thawThrottle
+	 *          throttles the downloads of retrieval job outputs.
+	 */
+	public GlacierClient(ArchiveTransferManager transferManager, String vault,
+			GlacierArchiveIdIndex archiveIds, AmazonGlacier amazonGlacier,
+			GlacierMultipartUploader multipartUploader,
+			TransferThrottle thawThrottle) {
 		this.transferManager = transferManager;
 		this.vault = vault;
 		this.archiveIds = archiveIds;
+		this.amazonGlacier = amazonGlacier;
+		this.multipartUploader = multipartUploader;
+		this.thawThrottle = thawThrottle;
 	}
 
 	/**
-	 * Uploads a file to glacier and stores the of the transfer archiveId in
-	 * memory.
+	 * Uploads a file to glacier and stores the of the transfer archiveId in the
+	 * archiveId index.
 	 */
 	public void upload(File file, String dst) throws AmazonServiceException,
-			AmazonClientException, FileNotFoundException {
-		logger.info(will("Use amazon glacier ArchiveTransferManager"
-				+ " to transfer file to a vault", "file", file, "vault", vault,
-				"destination", dst));
-		UploadResult result = transferManager.upload(vault, dst, file);
+			AmazonClientException, FileNotFoundException, IOException {
+		String archiveId;
+		if (multipartUploader != null) {
+			logger.info(will("Upload file to a vault in parts", "file", file,
+					"vault", vault, "destination", dst));
+			archiveId = multipartUploader.upload(file, dst);
+		} else {
+			logger.info(will("Use amazon glacier ArchiveTransferManager"
+					+ " to transfer file to a vault", "file", file, "vault", vault,
+					"destination", dst));
+			archiveId = transferManager.upload(vault, dst, file).getArchiveId();
+		}
 		logger.info(done("Uploading file to glacier."));
-		putArchiveId(dst, result.getArchiveId());
+		putArchiveId(dst, archiveId);
 	}
 
 	/**
@@ -101,13 +163,24 @@ public class GlacierClient {
 	 * Get the archiveId mapped to a path.
 	 */
 	public String getArchiveId(String path) {
-		if (!archiveIds.containsKey(path))
+		String archiveId = archiveIds.get(path);
+		if (archiveId == null)
 			throw new GlacierArchiveIdDoesNotExist(
 					"Could not get the archiveId for dst: " + path
 							+ ", which means that we cannot download the archive. "
-							+ "Download the archive inventory and parse out the "
-							+ "description for the path->archiveId mappings.");
-		return archiveIds.get(path);
+							+ "Retrieve the vault inventory with a POST to "
+							+ INVENTORY_ENDPOINT + ", and when its job has "
+							+ "completed, reconcile the archiveIds with a POST to "
+							+ INVENTORY_ENDPOINT + "/<job_id>/reconcile");
+		return archiveId;
+	}
+
+	/**
+	 * @return archiveIds of the paths that have one, by path. Paths without
+	 *         an archiveId are not in the map.
+	 */
+	public Map<String, String> getArchiveIds(Collection<String> paths) {
+		return archiveIds.getAll(paths);
 	}
 
 	/**
@@ -117,11 +190,140 @@ public class GlacierClient {
 		archiveIds.put(path, archiveId);
 	}
 
-	public static GlacierClient create(AWSCredentialsImpl credentials) {
+	/**
+	 * Starts a job that retrieves the inventory of the vault, which takes
+	 * hours.
+	 * 
+	 * @return id of the job, to reconcile the archiveIds with once it's done.
+	 */
+	public String initiateInventoryRetrieval() {
+		logger.info(will("Initiate inventory retrieval", "vault", vault));
+		return getAmazonGlacier().initiateJob(
+				new InitiateJobRequest(vault, new JobParameters()
+						.withType("inventory-retrieval"))).getJobId();
+	}
+
+	/**
+	 * @return true if the job has completed.
+	 */
+	public boolean isJobCompleted(String jobId) {
+		Boolean completed = getAmazonGlacier().describeJob(
+				new DescribeJobRequest(vault, jobId)).getCompleted();
+		return completed != null && completed;
+	}
+
+	/**
+	 * Adds the archiveIds in the output of a completed inventory retrieval job
+	 * to the archiveId index.
+	 * 
+	 * @return number of archiveIds that were added.
+	 */
+	public int reconcileArchiveIdsWithInventory(String inventoryJobId)
+			throws IOException {
+		logger.info(will("Reconcile archiveIds with vault inventory", "vault",
+				vault, "job_id", inventoryJobId));
+		InputStream inventory = getAmazonGlacier().getJobOutput(
+				new GetJobOutputRequest().withVaultName(vault).withJobId(
+						inventoryJobId)).getBody();
+		try {
+			return archiveIds.reconcileWithInventory(inventory);
+		} finally {
+			inventory.close();
+		}
+	}
+
+	/**
+	 * Starts a job that makes an archive available for download, which takes
+	 * hours.
+	 * 
+	 * @return id of the job, to download the archive with once it's done.
+	 */
+	public String initiateArchiveRetrieval(String archiveId) {
+		logger.info(will("Initiate archive retrieval", "vault", vault,
+				"archiveId", archiveId));
+		return getAmazonGlacier().initiateJob(
+				new InitiateJobRequest(vault, new JobParameters().withType(
+						"archive-retrieval").withArchiveId(archiveId))).getJobId();
+	}
+
+	/**
+	 * @return status code of the job, which is InProgress, Succeeded or
+	 *         Failed.
+	 */
+	public String getJobStatusCode(String jobId) {
+		return getAmazonGlacier().describeJob(new DescribeJobRequest(vault, jobId))
+				.getStatusCode();
+	}
+
+	/**
+	 * Downloads the output of a completed archive retrieval job to a file.
+	 */
+	public void downloadJobOutputToFile(String jobId, File file)
+			throws IOException {
+		logger.info(will("Download archive retrieval job output", "vault",
+				vault, "job_id", jobId, "destination", file));
+		InputStream output = thawThrottle.throttle(getAmazonGlacier()
+				.getJobOutput(
+						new GetJobOutputRequest().withVaultName(vault).withJobId(jobId))
+				.getBody());
+		try {
+			file.getParentFile().mkdirs();
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				IOUtils.copyLarge(output, out);
+			} finally {
+				out.close();
+			}
+		} finally {
+			output.close();
+		}
+		logger.info(done("Downloaded archive retrieval job output", "job_id",
+				jobId, "destination", file));
+	}
+
+	private AmazonGlacier getAmazonGlacier() {
+		if (amazonGlacier == null)
+			throw new IllegalStateException("Glacier client has no amazon "
+					+ "glacier client to retrieve inventories with.");
+		return amazonGlacier;
+	}
+
+	/**
+	 * @return client with the archiveId index of the vault, which is persisted
+	 *         in the local file system paths, and that uploads files in parts.
+	 */
+	public static GlacierClient create(AWSCredentialsImpl credentials,
+			LocalFileSystemPaths localFileSystemPaths) {
 		AmazonGlacierClient amazonGlacierClient = new AmazonGlacierClient(
 				credentials);
 		amazonGlacierClient.setEndpoint(credentials.getGlacierEndpoint());
+		String vault = credentials.getGlacierVault();
+		TransferThrottles throttles = TransferThrottles.getSharedInstance();
+		GlacierUploadConfiguration uploadConfiguration = GlacierUploadConfiguration
+				.createWithPropertyFile(AWSCredentialsImpl.getAmazonPropertiesFile());
+		GlacierMultipartUploader multipartUploader = new GlacierMultipartUploader(
+				amazonGlacierClient, vault,
+				getUploadExecutor(uploadConfiguration.getThreads()),
+				uploadConfiguration.getPartSize(),
+				uploadConfiguration.getPartRetries(),
+				TransferCheckpoints.create(localFileSystemPaths), throttles.get(
+						"glacier", Direction.ARCHIVE));
 		return new GlacierClient(new ArchiveTransferManager(amazonGlacierClient,
-				credentials), credentials.getGlacierVault());
+				credentials), vault, GlacierArchiveIdIndex.getInstance(
+				localFileSystemPaths, vault), amazonGlacierClient, multipartUploader,
+				throttles.get("glacier", Direction.THAW));
+	}
+
+	private static ExecutorService uploadExecutor;
+
+	/**
+	 * Parts are uploaded on a pool that's shared by all glacier clients, so
+	 * that the number of concurrent uploads stays bounded.
+	 */
+	private static synchronized ExecutorService getUploadExecutor(int threads) {
+		if (uploadExecutor == null)
+			uploadExecutor = Executors.newFixedThreadPool(threads,
+					new NamedDaemonThreadFactory("shuttl-glacier-uploader"));
+		return uploadExecutor;
 	}
 }
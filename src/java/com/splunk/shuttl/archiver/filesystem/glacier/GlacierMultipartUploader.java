@@ -0,0 +1,456 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.ListPartsRequest;
+import com.amazonaws.services.glacier.model.ListPartsResult;
+import com.amazonaws.services.glacier.model.PartListElement;
+import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottle;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoint;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoints;
+
+/**
+ * Uploads files to a glacier vault in parts, like the
+ * {@link com.splunk.shuttl.archiver.filesystem.s3.S3MultipartUploader}. The
+ * parts are uploaded concurrently on the {@link Executor}, and a part that
+ * fails is retried on its own.<br/>
+ * <br/>
+ * Every part is read from the file once, and its {@link GlacierTreeHash} is
+ * computed while it's read. The tree hash of the whole file is combined from
+ * the parts' tree hashes, so the file is not read a second time.<br/>
+ * <br/>
+ * With {@link TransferCheckpoints}, a failed upload is kept in glacier and the
+ * next upload of the same file resumes it by its upload id, uploading only the
+ * parts that are missing or that don't match the file.
+ */
+public class GlacierMultipartUploader {
+
+	private static final Logger logger = Logger
+			.getLogger(GlacierMultipartUploader.class);
+
+	private static final String UPLOAD_ID = "upload.id";
+	private static final String FILE_SIZE = "file.size";
+	private static final String PART_SIZE = "part.size";
+	private static final String PART_PREFIX = "part.";
+
+	private final AmazonGlacier glacier;
+	private final String vault;
+	private final Executor executor;
+	private final long partSize;
+	private final int partRetries;
+	private final TransferCheckpoints transferCheckpoints;
+	private final TransferThrottle throttle;
+
+	/**
+	 * @param partSize
+	 *          a power of two megabytes, at most
+	 *          {@link GlacierUploadConfiguration#MAX_PART_SIZE_MB}.
+	 * @param partRetries
+	 *          number of times a part is retried after its first attempt fails.
+	 * @param transferCheckpoints
+	 *          for resuming failed uploads. Failed uploads are aborted if it's
+	 *          null.
+	 */
+	public GlacierMultipartUploader(AmazonGlacier glacier, String vault,
+			Executor executor, long partSize, int partRetries,
+			TransferCheckpoints transferCheckpoints) {
+		this(glacier, vault, executor, partSize, partRetries,
+				transferCheckpoints, TransferThrottle.unlimited());
+	}
+
+	/**
+	 * @param throttle
+	 *          that every upload attempt of a part waits for, as one operation.
+	 *          The tokens for the whole part are taken before the attempt, since
+	 *          the request is signed by reading the whole part before it is
+	 *          sent. A throttled part is therefore sent at full speed after its
+	 *          wait, and smaller parts give a smoother throughput.
+	 */
+	public GlacierMultipartUploader(AmazonGlacier glacier, String vault,
+			Executor executor, long partSize, int partRetries,
+			TransferCheckpoints transferCheckpoints, TransferThrottle throttle) {
+		if (partSize < GlacierTreeHash.CHUNK_SIZE
+				|| Long.bitCount(partSize) != 1)
+			throw new IllegalArgumentException("Part size has to be a power of "
+					+ "two megabytes. Was: " + partSize);
+		if (partSize > GlacierUploadConfiguration.MAX_PART_SIZE_MB
+				* (long) GlacierTreeHash.CHUNK_SIZE)
+			throw new IllegalArgumentException("Part size can be at most "
+					+ GlacierUploadConfiguration.MAX_PART_SIZE_MB
+					+ " megabytes. Was: " + partSize);
+		this.glacier = glacier;
+		this.vault = vault;
+		this.executor = executor;
+		this.partSize = partSize;
+		this.partRetries = partRetries;
+		this.transferCheckpoints = transferCheckpoints;
+		this.throttle = throttle;
+	}
+
+	/**
+	 * Uploads the file as an archive with the description. Nothing is
+	 * archived if the upload fails.
+	 * 
+	 * @return archive id of the uploaded file.
+	 */
+	public String upload(File file, String description) throws IOException {
+		if (file.length() == 0)
+			throw new IOException("Glacier cannot archive empty file: " + file);
+		try {
+			return uploadInParts(file, description);
+		} catch (AmazonClientException e) {
+			throw new IOException("Could not upload " + file + " to " + vault, e);
+		}
+	}
+
+	private String uploadInParts(File file, String description)
+			throws IOException {
+		TransferCheckpoint checkpoint = getCheckpoint(description);
+		Map<Integer, byte[]> uploadedParts = new HashMap<Integer, byte[]>();
+		String uploadId = resumeUpload(file, checkpoint, uploadedParts);
+		if (uploadId == null)
+			uploadId = initiateUpload(file, description, checkpoint);
+
+		logger.debug(will("Upload file to glacier in parts", "file", file,
+				"description", description, "upload_id", uploadId, "part_size",
+				partSize, "resumed_parts", uploadedParts.size()));
+		try {
+			AtomicBoolean stopped = new AtomicBoolean();
+			List<byte[]> partHashes = waitForParts(
+					submitParts(file, uploadId, uploadedParts, checkpoint, stopped),
+					stopped);
+			String archiveId = glacier.completeMultipartUpload(
+					new CompleteMultipartUploadRequest().withVaultName(vault)
+							.withUploadId(uploadId).withArchiveSize("" + file.length())
+							.withChecksum(
+									GlacierTreeHash.toHex(GlacierTreeHash.combine(partHashes))))
+					.getArchiveId();
+			if (checkpoint != null)
+				checkpoint.delete();
+			logger.debug(done("Uploaded file to glacier in parts", "file", file,
+					"parts", partHashes.size(), "archiveId", archiveId));
+			return archiveId;
+		} catch (IOException e) {
+			abortUnlessResumable(uploadId, checkpoint);
+			throw e;
+		} catch (RuntimeException e) {
+			abortUnlessResumable(uploadId, checkpoint);
+			throw e;
+		}
+	}
+
+	private TransferCheckpoint getCheckpoint(String description) {
+		if (transferCheckpoints == null)
+			return null;
+		return transferCheckpoints.getCheckpoint("glacier://" + vault + "/"
+				+ description);
+	}
+
+	private String initiateUpload(File file, String description,
+			TransferCheckpoint checkpoint) throws IOException {
+		String uploadId = glacier.initiateMultipartUpload(
+				new InitiateMultipartUploadRequest().withVaultName(vault)
+						.withArchiveDescription(description)
+						.withPartSize("" + partSize)).getUploadId();
+		if (checkpoint != null) {
+			checkpoint.put(UPLOAD_ID, uploadId);
+			checkpoint.put(FILE_SIZE, "" + file.length());
+			checkpoint.put(PART_SIZE, "" + partSize);
+		}
+		return uploadId;
+	}
+
+	/**
+	 * @return id of the upload to resume, or null if there's nothing to resume.
+	 *         Puts the tree hashes of the parts that are already uploaded and
+	 *         match the file in uploadedParts.
+	 */
+	private String resumeUpload(File file, TransferCheckpoint checkpoint,
+			Map<Integer, byte[]> uploadedParts) throws IOException {
+		if (checkpoint == null || checkpoint.get(UPLOAD_ID) == null)
+			return null;
+		String uploadId = checkpoint.get(UPLOAD_ID);
+		if (!("" + file.length()).equals(checkpoint.get(FILE_SIZE))
+				|| !("" + partSize).equals(checkpoint.get(PART_SIZE))) {
+			abort(uploadId);
+			checkpoint.delete();
+			return null;
+		}
+		try {
+			for (PartListElement part : listParts(uploadId))
+				putIfUploadedPartOfFile(file, part, checkpoint, uploadedParts);
+		} catch (AmazonClientException e) {
+			logger.warn(warn("Listed parts of glacier upload to resume", e,
+					"Will start a new upload", "upload_id", uploadId));
+			checkpoint.delete();
+			return null;
+		}
+		logger.info(will("Resume glacier upload", "upload_id", uploadId,
+				"uploaded_parts", uploadedParts.size()));
+		return uploadId;
+	}
+
+	private List<PartListElement> listParts(String uploadId) {
+		List<PartListElement> parts = new ArrayList<PartListElement>();
+		ListPartsRequest request = new ListPartsRequest().withVaultName(vault)
+				.withUploadId(uploadId);
+		ListPartsResult listing;
+		do {
+			listing = glacier.listParts(request);
+			parts.addAll(listing.getParts());
+			request.setMarker(listing.getMarker());
+		} while (listing.getMarker() != null);
+		return parts;
+	}
+
+	/**
+	 * A part is uploaded if its tree hash is in the checkpoint, and both match
+	 * the tree hash of the same range of the local file.
+	 */
+	private void putIfUploadedPartOfFile(File file, PartListElement part,
+			TransferCheckpoint checkpoint, Map<Integer, byte[]> uploadedParts)
+			throws IOException {
+		String[] range = part.getRangeInBytes().split("-");
+		long start = Long.parseLong(range[0]);
+		long length = Long.parseLong(range[1]) - start + 1;
+		int partNumber = (int) (start / partSize);
+		if (start % partSize != 0
+				|| length != Math.min(partSize, file.length() - start))
+			return;
+		String treeHash = part.getSHA256TreeHash();
+		if (!treeHash.equals(checkpoint.get(PART_PREFIX + partNumber)))
+			return;
+		byte[] fileTreeHash = treeHashOfRange(file, start, length);
+		if (Arrays.equals(fileTreeHash, GlacierTreeHash.fromHex(treeHash)))
+			uploadedParts.put(partNumber, fileTreeHash);
+	}
+
+	private static byte[] treeHashOf(byte[] data) {
+		GlacierTreeHash treeHash = new GlacierTreeHash();
+		treeHash.update(data, 0, data.length);
+		return treeHash.digest();
+	}
+
+	/**
+	 * Tree hash of the range of the file, read a chunk at a time.
+	 */
+	private static byte[] treeHashOfRange(File file, long offset, long length)
+			throws IOException {
+		GlacierTreeHash treeHash = new GlacierTreeHash();
+		byte[] chunk = new byte[(int) Math.min(length, GlacierTreeHash.CHUNK_SIZE)];
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			in.seek(offset);
+			long left = length;
+			while (left > 0) {
+				int n = (int) Math.min(left, chunk.length);
+				in.readFully(chunk, 0, n);
+				treeHash.update(chunk, 0, n);
+				left -= n;
+			}
+		} finally {
+			in.close();
+		}
+		return treeHash.digest();
+	}
+
+	private static byte[] readPart(File file, long offset, long length)
+			throws IOException {
+		byte[] data = new byte[(int) length];
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			in.seek(offset);
+			in.readFully(data);
+		} finally {
+			in.close();
+		}
+		return data;
+	}
+
+	private List<FutureTask<byte[]>> submitParts(File file, String uploadId,
+			Map<Integer, byte[]> uploadedParts, TransferCheckpoint checkpoint,
+			AtomicBoolean stopped) {
+		List<FutureTask<byte[]>> parts = new ArrayList<FutureTask<byte[]>>();
+		long fileLength = file.length();
+		int partNumber = 0;
+		for (long offset = 0; offset < fileLength; offset += partSize, partNumber++) {
+			byte[] uploaded = uploadedParts.get(partNumber);
+			if (uploaded != null) {
+				FutureTask<byte[]> part = new FutureTask<byte[]>(new UploadedPart(
+						uploaded));
+				part.run();
+				parts.add(part);
+				continue;
+			}
+			FutureTask<byte[]> part = new FutureTask<byte[]>(new UploadsPart(file,
+					uploadId, partNumber, offset, Math.min(partSize, fileLength
+							- offset), checkpoint, stopped));
+			parts.add(part);
+			executor.execute(part);
+		}
+		return parts;
+	}
+
+	/**
+	 * When a part fails, the parts that have not started are stopped, and the
+	 * parts that are already uploading are waited for, so that nothing is left
+	 * running when the upload is aborted or left for resuming.
+	 */
+	private List<byte[]> waitForParts(List<FutureTask<byte[]>> parts,
+			AtomicBoolean stopped) throws IOException {
+		List<byte[]> partHashes = new ArrayList<byte[]>();
+		try {
+			for (FutureTask<byte[]> part : parts)
+				partHashes.add(part.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while uploading parts");
+		} catch (ExecutionException e) {
+			throw new IOException("Could not upload part", e.getCause());
+		} finally {
+			stopped.set(true);
+			waitForRunningParts(parts);
+		}
+		return partHashes;
+	}
+
+	private void waitForRunningParts(List<FutureTask<byte[]>> parts) {
+		for (FutureTask<byte[]> part : parts)
+			try {
+				part.get();
+			} catch (ExecutionException e) {
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+	}
+
+	private void abortUnlessResumable(String uploadId,
+			TransferCheckpoint checkpoint) {
+		if (checkpoint == null)
+			abort(uploadId);
+		else
+			logger.info(will("Keep failed glacier upload for resuming",
+					"upload_id", uploadId));
+	}
+
+	private void abort(String uploadId) {
+		try {
+			glacier.abortMultipartUpload(new AbortMultipartUploadRequest()
+					.withVaultName(vault).withUploadId(uploadId));
+		} catch (AmazonClientException e) {
+			logger.warn(warn("Aborted glacier multipart upload", e,
+					"Parts may be left in the vault until they expire", "upload_id",
+					uploadId));
+		}
+	}
+
+	private class UploadsPart implements Callable<byte[]> {
+
+		private final File file;
+		private final String uploadId;
+		private final int partNumber;
+		private final long offset;
+		private final long length;
+		private final TransferCheckpoint checkpoint;
+		private final AtomicBoolean stopped;
+
+		public UploadsPart(File file, String uploadId, int partNumber,
+				long offset, long length, TransferCheckpoint checkpoint,
+				AtomicBoolean stopped) {
+			this.file = file;
+			this.uploadId = uploadId;
+			this.partNumber = partNumber;
+			this.offset = offset;
+			this.length = length;
+			this.checkpoint = checkpoint;
+			this.stopped = stopped;
+		}
+
+		@Override
+		public byte[] call() throws IOException {
+			if (stopped.get())
+				throw new IOException("Upload was stopped before part " + partNumber
+						+ " started");
+			byte[] data = readPart(file, offset, length);
+			byte[] treeHash = treeHashOf(data);
+			uploadWithRetries(data, GlacierTreeHash.toHex(treeHash));
+			if (checkpoint != null)
+				checkpoint.put(PART_PREFIX + partNumber,
+						GlacierTreeHash.toHex(treeHash));
+			return treeHash;
+		}
+
+		private void uploadWithRetries(byte[] data, String checksum)
+				throws IOException {
+			String range = "bytes " + offset + "-" + (offset + length - 1) + "/*";
+			for (int attempt = 0;; attempt++)
+				try {
+					throttle.acquire(data.length);
+					glacier.uploadMultipartPart(new UploadMultipartPartRequest()
+							.withVaultName(vault).withUploadId(uploadId)
+							.withRange(range).withChecksum(checksum)
+							.withBody(new ByteArrayInputStream(data)));
+					return;
+				} catch (AmazonClientException e) {
+					if (attempt >= partRetries)
+						throw e;
+					logger.warn(warn("Uploaded glacier part", e, "Will retry the part",
+							"upload_id", uploadId, "part", partNumber, "attempt",
+							attempt + 1));
+				}
+		}
+	}
+
+	private static class UploadedPart implements Callable<byte[]> {
+
+		private final byte[] treeHash;
+
+		public UploadedPart(byte[] treeHash) {
+			this.treeHash = treeHash;
+		}
+
+		@Override
+		public byte[] call() {
+			return treeHash;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * How archives are retrieved from glacier when several buckets are thawed.
+ * Configured in the amazon properties file, where every property is
+ * optional.
+ */
+public class GlacierRetrievalConfiguration {
+
+	public static final String POLL_SECONDS_PROPERTY = "glacier.retrieval.poll.seconds";
+	public static final String DOWNLOAD_THREADS_PROPERTY = "glacier.retrieval.download.threads";
+	public static final String EXPIRY_HOURS_PROPERTY = "glacier.retrieval.expiry.hours";
+
+	/**
+	 * Retrieval jobs take about four hours, so there's no use polling often.
+	 */
+	public static final int DEFAULT_POLL_SECONDS = 15 * 60;
+	public static final int DEFAULT_DOWNLOAD_THREADS = 4;
+
+	/**
+	 * Glacier keeps the output of a retrieval job for 24 hours, so a retrieval
+	 * that nobody has thawed by then is not waited for any longer either.
+	 */
+	public static final int DEFAULT_EXPIRY_HOURS = 24;
+
+	private final int pollSeconds;
+	private final int downloadThreads;
+	private final int expiryHours;
+
+	public GlacierRetrievalConfiguration(int pollSeconds, int downloadThreads) {
+		this(pollSeconds, downloadThreads, DEFAULT_EXPIRY_HOURS);
+	}
+
+	public GlacierRetrievalConfiguration(int pollSeconds, int downloadThreads,
+			int expiryHours) {
+		this.pollSeconds = Math.max(1, pollSeconds);
+		this.downloadThreads = Math.max(1, downloadThreads);
+		this.expiryHours = Math.max(1, expiryHours);
+	}
+
+	/**
+	 * @return seconds between checking the status of the retrieval jobs.
+	 */
+	public int getPollSeconds() {
+		return pollSeconds;
+	}
+
+	/**
+	 * @return number of retrieved archives downloaded at the same time.
+	 */
+	public int getDownloadThreads() {
+		return downloadThreads;
+	}
+
+	/**
+	 * @return hours that a downloaded or failed retrieval is kept, when no thaw
+	 *         claims it.
+	 */
+	public int getExpiryHours() {
+		return expiryHours;
+	}
+
+	public static GlacierRetrievalConfiguration createWithPropertyFile(
+			File amazonProperties) {
+		InputStream in = null;
+		try {
+			in = FileUtils.openInputStream(amazonProperties);
+			Properties properties = new Properties();
+			properties.load(in);
+			return new GlacierRetrievalConfiguration(getInt(properties,
+					POLL_SECONDS_PROPERTY, DEFAULT_POLL_SECONDS), getInt(properties,
+					DOWNLOAD_THREADS_PROPERTY, DEFAULT_DOWNLOAD_THREADS), getInt(
+					properties, EXPIRY_HOURS_PROPERTY, DEFAULT_EXPIRY_HOURS));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	private static int getInt(Properties properties, String key, int defaultValue) {
+		String value = properties.getProperty(key);
+		return value == null ? defaultValue : Integer.parseInt(value.trim());
+	}
+}
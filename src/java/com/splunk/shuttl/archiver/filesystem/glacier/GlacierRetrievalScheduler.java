@@ -0,0 +1,533 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.amazonaws.services.glacier.model.ResourceNotFoundException;
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.util.NamedDaemonThreadFactory;
+import com.splunk.shuttl.archiver.util.UtilsFile;
+
+/**
+ * Retrieves many glacier archives at the same time. Getting an archive from
+ * glacier is a retrieval job that takes hours, so the jobs for all the
+ * archives are started up front, instead of one after the other. <br/>
+ * <br/>
+ * The jobs are polled in the background, or reported completed with
+ * {@link #jobCompleted(String)} by whoever gets glacier's completion
+ * notifications. The output of a completed job is downloaded on a pool of
+ * threads, to a file that {@link #awaitDownload(String)} returns. <br/>
+ * <br/>
+ * The jobs are persisted in a local journal, the same way as the
+ * {@link GlacierArchiveIdIndex}, so that jobs that were started before a
+ * restart are still polled and downloaded after it, and archives that were
+ * downloaded before a restart can still be awaited after it. <br/>
+ * <br/>
+ * Retrievals that are downloaded or failed, but that nobody awaits within
+ * the expiry time, are forgotten and their downloaded files are deleted.
+ * Files in the download directory that no retrieval knows of, such as
+ * downloads that a restart interrupted, are deleted when the journal is
+ * loaded.
+ */
+public class GlacierRetrievalScheduler {
+
+	private static final Logger logger = Logger
+			.getLogger(GlacierRetrievalScheduler.class);
+
+	private static final String JOB_LINE = "JOB";
+	private static final String DOWNLOADED_LINE = "DOWNLOADED";
+	private static final String DONE_LINE = "DONE";
+	private static final String SEPARATOR = "\t";
+	private static final int MIN_LINES_BEFORE_COMPACTION = 100;
+
+	private static final String SUCCEEDED = "Succeeded";
+	private static final String FAILED = "Failed";
+
+	private enum State {
+		WAITING, DOWNLOADING, DOWNLOADED, FAILED
+	}
+
+	private final GlacierClient glacierClient;
+	private final File journal;
+	private final File downloadDirectory;
+	private final Executor downloaders;
+	private final long expiryMillis;
+	private final Map<String, Retrieval> retrievalsByPath;
+
+	private int journalLines;
+
+	/**
+	 * @param journal
+	 *          to persist the jobs in. Can be null, to only keep them in memory.
+	 * @param downloadDirectory
+	 *          to download the retrieved archives to.
+	 * @param downloaders
+	 *          to download the retrieved archives on.
+	 */
+	public GlacierRetrievalScheduler(GlacierClient glacierClient, File journal,
+			File downloadDirectory, Executor downloaders) {
+		this(glacierClient, journal, downloadDirectory, downloaders,
+				GlacierRetrievalConfiguration.DEFAULT_EXPIRY_HOURS * 60 * 60 * 1000L);
+	}
+
+	/**
+	 * @param expiryMillis
+	 *          how long a downloaded or failed retrieval is kept when nobody
+	 *          awaits it.
+	 */
+	public GlacierRetrievalScheduler(GlacierClient glacierClient, File journal,
+			File downloadDirectory, Executor downloaders, long expiryMillis) {
+		this.glacierClient = glacierClient;
+		this.journal = journal;
+		this.downloadDirectory = downloadDirectory;
+		this.downloaders = downloaders;
+		this.expiryMillis = expiryMillis;
+		this.retrievalsByPath = new LinkedHashMap<String, Retrieval>();
+		load();
+	}
+
+	private void load() {
+		if (journal == null || !journal.exists())
+			return;
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(journal), "UTF-8"));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null)
+					loadLine(line);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			logger.warn(warn("Read glacier retrieval jobs", e,
+					"Will only use what could be read", "journal", journal));
+		}
+		for (Retrieval retrieval : retrievalsByPath.values())
+			if (retrieval.state == State.DOWNLOADED && !retrieval.file.isFile()) {
+				retrieval.state = State.WAITING;
+				retrieval.file = null;
+			}
+		deleteUnknownDownloads();
+		if (!retrievalsByPath.isEmpty())
+			logger.info(done("Loaded glacier retrieval jobs", "jobs",
+					retrievalsByPath.size(), "journal", journal));
+	}
+
+	private void deleteUnknownDownloads() {
+		File[] files = downloadDirectory.listFiles();
+		if (files == null)
+			return;
+		List<File> known = new ArrayList<File>();
+		for (Retrieval retrieval : retrievalsByPath.values())
+			if (retrieval.file != null)
+				known.add(retrieval.file.getAbsoluteFile());
+		for (File file : files)
+			if (!known.contains(file.getAbsoluteFile())) {
+				logger.info(will("Delete glacier download without a retrieval",
+						"file", file));
+				file.delete();
+			}
+	}
+
+	private void loadLine(String line) {
+		journalLines++;
+		String[] fields = line.split(SEPARATOR, -1);
+		if (fields.length == 4 && fields[0].equals(JOB_LINE)
+				&& fields[3].length() > 0)
+			retrievalsByPath.put(fields[1], new Retrieval(fields[1], fields[2],
+					fields[3]));
+		else if (fields.length == 4 && fields[0].equals(DOWNLOADED_LINE)
+				&& retrievalsByPath.containsKey(fields[1]))
+			loadDownloaded(retrievalsByPath.get(fields[1]), fields[2], fields[3]);
+		else if (fields.length == 2 && fields[0].equals(DONE_LINE))
+			retrievalsByPath.remove(fields[1]);
+	}
+
+	private void loadDownloaded(Retrieval retrieval, String file,
+			String downloadedMillis) {
+		try {
+			retrieval.doneMillis = Long.parseLong(downloadedMillis);
+			retrieval.file = new File(file);
+			retrieval.state = State.DOWNLOADED;
+		} catch (NumberFormatException e) {
+			// A partly written line. The archive is downloaded again.
+		}
+	}
+
+	/**
+	 * Starts retrieval jobs for the archives, unless they already have one.
+	 * Archives that a job cannot be started for are left out, and have to be
+	 * downloaded some other way.
+	 * 
+	 * @param archiveIdsByPath
+	 *          archive ids to retrieve, by the path they were uploaded to.
+	 * @return number of jobs that were started.
+	 */
+	public int requestRetrievals(Map<String, String> archiveIdsByPath) {
+		Map<String, String> toRetrieve = withoutRetrievals(archiveIdsByPath);
+		int started = 0;
+		for (Entry<String, String> archive : toRetrieve.entrySet())
+			try {
+				String jobId = glacierClient.initiateArchiveRetrieval(archive
+						.getValue());
+				addRetrieval(new Retrieval(archive.getKey(), archive.getValue(),
+						jobId));
+				started++;
+			} catch (RuntimeException e) {
+				logger.warn(warn("Initiated glacier archive retrieval", e,
+						"Will download the archive when it's thawed instead", "path",
+						archive.getKey(), "archiveId", archive.getValue()));
+			}
+		logger.info(done("Requested glacier archive retrievals", "requested",
+				archiveIdsByPath.size(), "started_jobs", started));
+		return started;
+	}
+
+	private synchronized Map<String, String> withoutRetrievals(
+			Map<String, String> archiveIdsByPath) {
+		Map<String, String> withoutRetrievals = new LinkedHashMap<String, String>();
+		for (Entry<String, String> archive : archiveIdsByPath.entrySet())
+			if (!retrievalsByPath.containsKey(archive.getKey()))
+				withoutRetrievals.put(archive.getKey(), archive.getValue());
+		return withoutRetrievals;
+	}
+
+	private synchronized void addRetrieval(Retrieval retrieval) {
+		retrievalsByPath.put(retrieval.path, retrieval);
+		journal(JOB_LINE + SEPARATOR + retrieval.path + SEPARATOR
+				+ retrieval.archiveId + SEPARATOR + retrieval.jobId);
+	}
+
+	/**
+	 * @return true if there's a retrieval job for the path, which
+	 *         {@link #awaitDownload(String)} can wait for.
+	 */
+	public synchronized boolean hasRetrieval(String path) {
+		return retrievalsByPath.containsKey(path);
+	}
+
+	/**
+	 * @return number of retrievals that have not been taken with
+	 *         {@link #awaitDownload(String)} yet.
+	 */
+	public synchronized int getRetrievalCount() {
+		return retrievalsByPath.size();
+	}
+
+	/**
+	 * Waits for the archive of the path to be retrieved and downloaded. The
+	 * retrieval is done after this, and the caller owns the downloaded file.
+	 * 
+	 * @return the downloaded archive.
+	 * @throws GlacierThawingException
+	 *           if there's no retrieval for the path, or if it failed.
+	 */
+	public synchronized File awaitDownload(String path)
+			throws InterruptedException {
+		Retrieval retrieval = retrievalsByPath.get(path);
+		if (retrieval == null)
+			throw new GlacierThawingException("No glacier retrieval for path: "
+					+ path);
+		while (retrieval.state == State.WAITING
+				|| retrieval.state == State.DOWNLOADING)
+			wait();
+
+		retrievalsByPath.remove(path);
+		journal(DONE_LINE + SEPARATOR + path);
+		if (retrieval.state == State.FAILED)
+			throw new GlacierThawingException("Glacier retrieval failed. Path: "
+					+ path + ", job: " + retrieval.jobId + ", reason: "
+					+ retrieval.failure);
+		return retrieval.file;
+	}
+
+	/**
+	 * Checks the status of every job that has not completed, and starts
+	 * downloading the ones that have. Forgets the retrievals that have expired.
+	 */
+	public void pollJobs() {
+		forgetExpiredRetrievals();
+		for (Retrieval retrieval : getWaitingRetrievals())
+			try {
+				String status = glacierClient.getJobStatusCode(retrieval.jobId);
+				if (SUCCEEDED.equals(status))
+					startDownload(retrieval);
+				else if (FAILED.equals(status))
+					retrievalFailed(retrieval, "Job failed");
+			} catch (ResourceNotFoundException e) {
+				retrievalFailed(retrieval, "Job does not exist. It may have expired");
+			} catch (RuntimeException e) {
+				logger.warn(warn("Polled glacier retrieval job", e,
+						"Will poll it again later", "job_id", retrieval.jobId));
+			}
+	}
+
+	private synchronized void forgetExpiredRetrievals() {
+		List<Retrieval> expired = new ArrayList<Retrieval>();
+		long expiredBefore = currentTimeMillis() - expiryMillis;
+		for (Retrieval retrieval : retrievalsByPath.values())
+			if ((retrieval.state == State.DOWNLOADED || retrieval.state == State.FAILED)
+					&& retrieval.doneMillis < expiredBefore)
+				expired.add(retrieval);
+		for (Retrieval retrieval : expired) {
+			logger.warn(warn("Kept glacier retrieval", "nobody thawed it",
+					"Will forget the retrieval and delete its download", "path",
+					retrieval.path, "job_id", retrieval.jobId, "state",
+					retrieval.state));
+			retrievalsByPath.remove(retrieval.path);
+			if (retrieval.file != null)
+				retrieval.file.delete();
+			journal(DONE_LINE + SEPARATOR + retrieval.path);
+		}
+	}
+
+	/**
+	 * Used to expire retrievals. Overridden in tests.
+	 */
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	private synchronized List<Retrieval> getWaitingRetrievals() {
+		List<Retrieval> waiting = new ArrayList<Retrieval>();
+		for (Retrieval retrieval : retrievalsByPath.values())
+			if (retrieval.state == State.WAITING)
+				waiting.add(retrieval);
+		return waiting;
+	}
+
+	/**
+	 * Starts downloading the output of a job that glacier has notified as
+	 * completed, without waiting for the next poll.
+	 */
+	public void jobCompleted(String jobId) {
+		Retrieval completed = null;
+		synchronized (this) {
+			for (Retrieval retrieval : retrievalsByPath.values())
+				if (retrieval.jobId.equals(jobId) && retrieval.state == State.WAITING)
+					completed = retrieval;
+		}
+		if (completed != null)
+			startDownload(completed);
+	}
+
+	private void startDownload(Retrieval retrieval) {
+		synchronized (this) {
+			if (retrieval.state != State.WAITING)
+				return;
+			retrieval.state = State.DOWNLOADING;
+		}
+		downloaders.execute(new DownloadsJobOutput(retrieval));
+	}
+
+	private class DownloadsJobOutput implements Runnable {
+
+		private final Retrieval retrieval;
+
+		public DownloadsJobOutput(Retrieval retrieval) {
+			this.retrieval = retrieval;
+		}
+
+		@Override
+		public void run() {
+			File file = new File(downloadDirectory,
+					UtilsFile.getFileNameForKey(retrieval.path));
+			try {
+				glacierClient.downloadJobOutputToFile(retrieval.jobId, file);
+				retrievalDownloaded(retrieval, file);
+			} catch (Exception e) {
+				logger.error(did("Downloaded glacier retrieval job output", e,
+						"To download the retrieved archive", "path", retrieval.path,
+						"job_id", retrieval.jobId));
+				file.delete();
+				retrievalFailed(retrieval, e.toString());
+			}
+		}
+	}
+
+	private synchronized void retrievalDownloaded(Retrieval retrieval, File file) {
+		retrieval.file = file;
+		retrieval.state = State.DOWNLOADED;
+		retrieval.doneMillis = currentTimeMillis();
+		if (retrievalsByPath.get(retrieval.path) == retrieval)
+			journal(downloadedLine(retrieval));
+		notifyAll();
+	}
+
+	private static String downloadedLine(Retrieval retrieval) {
+		return DOWNLOADED_LINE + SEPARATOR + retrieval.path + SEPARATOR
+				+ retrieval.file.getAbsolutePath() + SEPARATOR + retrieval.doneMillis;
+	}
+
+	private synchronized void retrievalFailed(Retrieval retrieval,
+			String failure) {
+		logger.warn(warn("Retrieved glacier archive", failure,
+				"Will fail thawing the archive", "path", retrieval.path, "job_id",
+				retrieval.jobId));
+		retrieval.failure = failure;
+		retrieval.state = State.FAILED;
+		retrieval.doneMillis = currentTimeMillis();
+		notifyAll();
+	}
+
+	private void journal(String line) {
+		if (journal == null)
+			return;
+		try {
+			appendToJournal(line);
+			if (journalLines > Math.max(MIN_LINES_BEFORE_COMPACTION,
+					4 * retrievalsByPath.size()))
+				writeJournal();
+		} catch (IOException e) {
+			logger.warn(warn("Persisted glacier retrieval job", e,
+					"Will only keep the job in memory", "line", line, "journal",
+					journal));
+		}
+	}
+
+	private void appendToJournal(String line) throws IOException {
+		journal.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(journal, true);
+		try {
+			out.write((line + "\n").getBytes("UTF-8"));
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		journalLines++;
+	}
+
+	/**
+	 * Writes the jobs that are not done, and whether they are downloaded, to a
+	 * new journal, which replaces the old one.
+	 */
+	private void writeJournal() throws IOException {
+		File temp = new File(journal.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temp);
+		int lines = 0;
+		try {
+			Writer writer = new OutputStreamWriter(out, "UTF-8");
+			for (Retrieval retrieval : retrievalsByPath.values()) {
+				writer.write(JOB_LINE + SEPARATOR + retrieval.path + SEPARATOR
+						+ retrieval.archiveId + SEPARATOR + retrieval.jobId + "\n");
+				lines++;
+				if (retrieval.state == State.DOWNLOADED) {
+					writer.write(downloadedLine(retrieval) + "\n");
+					lines++;
+				}
+			}
+			writer.flush();
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		if (!temp.renameTo(journal)) {
+			journal.delete();
+			if (!temp.renameTo(journal))
+				throw new IOException("Could not replace glacier retrieval journal: "
+						+ journal);
+		}
+		journalLines = lines;
+	}
+
+	private static class Retrieval {
+		private final String path;
+		private final String archiveId;
+		private final String jobId;
+		private State state = State.WAITING;
+		private File file;
+		private String failure;
+		private long doneMillis;
+
+		public Retrieval(String path, String archiveId, String jobId) {
+			this.path = path;
+			this.archiveId = archiveId;
+			this.jobId = jobId;
+		}
+	}
+
+	private static final Map<String, GlacierRetrievalScheduler> schedulers = new HashMap<String, GlacierRetrievalScheduler>();
+
+	/**
+	 * @return the scheduler for the vault, which polls its jobs in the
+	 *         background. The same vault always gets the same instance.
+	 */
+	public static GlacierRetrievalScheduler getInstance(
+			GlacierClient glacierClient, LocalFileSystemPaths localFileSystemPaths,
+			String vault, GlacierRetrievalConfiguration config) {
+		File retrievalsDirectory = localFileSystemPaths
+				.getGlacierRetrievalsDirectory();
+		String vaultName = UtilsFile.getFileNameForKey(vault);
+		File journal = new File(retrievalsDirectory, vaultName + ".jobs");
+		synchronized (schedulers) {
+			GlacierRetrievalScheduler scheduler = schedulers.get(journal
+					.getAbsolutePath());
+			if (scheduler == null) {
+				scheduler = create(glacierClient, journal, new File(
+						retrievalsDirectory, vaultName), config);
+				schedulers.put(journal.getAbsolutePath(), scheduler);
+			}
+			return scheduler;
+		}
+	}
+
+	private static GlacierRetrievalScheduler create(GlacierClient glacierClient,
+			File journal, File downloadDirectory,
+			GlacierRetrievalConfiguration config) {
+		logger.info(will("Create glacier retrieval scheduler", "journal",
+				journal, "poll_seconds", config.getPollSeconds(),
+				"download_threads", config.getDownloadThreads(), "expiry_hours",
+				config.getExpiryHours()));
+		final GlacierRetrievalScheduler scheduler = new GlacierRetrievalScheduler(
+				glacierClient, journal, downloadDirectory,
+				Executors.newFixedThreadPool(config.getDownloadThreads(),
+						new NamedDaemonThreadFactory("shuttl-glacier-download")),
+				config.getExpiryHours() * 60 * 60 * 1000L);
+		ScheduledExecutorService poller = Executors
+				.newSingleThreadScheduledExecutor(new NamedDaemonThreadFactory(
+						"shuttl-glacier-poller"));
+		poller.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				scheduler.pollJobs();
+			}
+		}, config.getPollSeconds(), config.getPollSeconds(), TimeUnit.SECONDS);
+		return scheduler;
+	}
+}
@@ -0,0 +1,112 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * Computes the SHA-256 tree hash that glacier uses as checksum, while the data
+ * is read. The data is hashed in chunks of one megabyte, and the chunk hashes
+ * are hashed together two at a time until there's one hash left.<br/>
+ * <br/>
+ * When the data is split in parts that are a power of two megabytes, the tree
+ * hashes of the parts are the nodes of the tree one level up, so the tree hash
+ * of all the data is the parts' tree hashes {@link #combine(List)}d.
+ */
+public class GlacierTreeHash {
+
+	public static final int CHUNK_SIZE = 1024 * 1024;
+
+	private final List<byte[]> chunkHashes;
+	private final MessageDigest chunkDigest;
+
+	private int chunkLength;
+
+	public GlacierTreeHash() {
+		this.chunkHashes = new ArrayList<byte[]>();
+		this.chunkDigest = newSHA256();
+	}
+
+	public void update(byte[] b, int off, int len) {
+		while (len > 0) {
+			int n = Math.min(len, CHUNK_SIZE - chunkLength);
+			chunkDigest.update(b, off, n);
+			chunkLength += n;
+			off += n;
+			len -= n;
+			if (chunkLength == CHUNK_SIZE)
+				endChunk();
+		}
+	}
+
+	private void endChunk() {
+		chunkHashes.add(chunkDigest.digest());
+		chunkLength = 0;
+	}
+
+	/**
+	 * @return tree hash of the data that has been updated.
+	 */
+	public byte[] digest() {
+		if (chunkLength > 0 || chunkHashes.isEmpty())
+			endChunk();
+		return combine(chunkHashes);
+	}
+
+	/**
+	 * @return tree hash of the hashes, which are the nodes of one level of a
+	 *         tree.
+	 */
+	public static byte[] combine(List<byte[]> hashes) {
+		if (hashes.isEmpty())
+			throw new IllegalArgumentException("No hashes to combine");
+		MessageDigest sha256 = newSHA256();
+		List<byte[]> level = hashes;
+		while (level.size() > 1) {
+			List<byte[]> nextLevel = new ArrayList<byte[]>((level.size() + 1) / 2);
+			for (int i = 0; i < level.size(); i += 2)
+				if (i + 1 < level.size()) {
+					sha256.update(level.get(i));
+					sha256.update(level.get(i + 1));
+					nextLevel.add(sha256.digest());
+				} else {
+					nextLevel.add(level.get(i));
+				}
+			level = nextLevel;
+		}
+		return level.get(0);
+	}
+
+	public static String toHex(byte[] hash) {
+		return StringUtils.byteToHexString(hash);
+	}
+
+	public static byte[] fromHex(String hex) {
+		return StringUtils.hexStringToByte(hex);
+	}
+
+	private static MessageDigest newSHA256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
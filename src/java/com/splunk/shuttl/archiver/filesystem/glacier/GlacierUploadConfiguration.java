@@ -0,0 +1,131 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * How files are uploaded to glacier. Configured in the amazon properties
+ * file, where every property is optional.
+ */
+public class GlacierUploadConfiguration {
+
+	private static final Logger logger = Logger
+			.getLogger(GlacierUploadConfiguration.class);
+
+	public static final String PART_SIZE_MB_PROPERTY = "glacier.upload.part.size.mb";
+	public static final String THREADS_PROPERTY = "glacier.upload.threads";
+	public static final String PART_RETRIES_PROPERTY = "glacier.upload.part.retries";
+
+	/**
+	 * Glacier accepts parts that are a power of two megabytes, from one megabyte
+	 * to four gigabytes. Each part being uploaded is held in memory, since the
+	 * request signing reads the whole body before sending it, so parts are kept
+	 * well below what fits in a byte array.
+	 */
+	public static final int MAX_PART_SIZE_MB = 1024;
+	public static final int DEFAULT_PART_SIZE_MB = 16;
+	public static final int DEFAULT_THREADS = 4;
+	public static final int DEFAULT_PART_RETRIES = 3;
+
+	private static final long MB = 1024 * 1024;
+
+	private final int partSizeMB;
+	private final int threads;
+	private final int partRetries;
+
+	/**
+	 * @param partSizeMB
+	 *          is rounded down to a power of two.
+	 */
+	public GlacierUploadConfiguration(int partSizeMB, int threads,
+			int partRetries) {
+		this(partSizeMB, threads, partRetries, Runtime.getRuntime().maxMemory());
+	}
+
+	/**
+	 * @param maxMemory
+	 *          bytes of heap. The part size is halved until the parts of all
+	 *          threads fit in half of it.
+	 */
+	public GlacierUploadConfiguration(int partSizeMB, int threads,
+			int partRetries, long maxMemory) {
+		this.threads = Math.max(1, threads);
+		this.partRetries = Math.max(0, partRetries);
+		this.partSizeMB = fitInMemory(
+				Integer.highestOneBit(Math.min(MAX_PART_SIZE_MB,
+						Math.max(1, partSizeMB))), this.threads, maxMemory);
+	}
+
+	private static int fitInMemory(int partSizeMB, int threads, long maxMemory) {
+		int fitted = partSizeMB;
+		while (fitted > 1 && (long) threads * fitted * MB > maxMemory / 2)
+			fitted /= 2;
+		if (fitted != partSizeMB)
+			logger.warn(warn("Configured glacier upload part size",
+					"parts of all upload threads would not fit in the heap",
+					"using a smaller part size", "configured_part_size_mb",
+					partSizeMB, "part_size_mb", fitted, "threads", threads,
+					"max_memory", maxMemory));
+		return fitted;
+	}
+
+	public long getPartSize() {
+		return partSizeMB * MB;
+	}
+
+	/**
+	 * @return number of parts uploaded at the same time.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	public int getPartRetries() {
+		return partRetries;
+	}
+
+	public static GlacierUploadConfiguration createWithPropertyFile(
+			File amazonProperties) {
+		InputStream in = null;
+		try {
+			in = FileUtils.openInputStream(amazonProperties);
+			Properties properties = new Properties();
+			properties.load(in);
+			return new GlacierUploadConfiguration(getInt(properties,
+					PART_SIZE_MB_PROPERTY, DEFAULT_PART_SIZE_MB), getInt(properties,
+					THREADS_PROPERTY, DEFAULT_THREADS), getInt(properties,
+					PART_RETRIES_PROPERTY, DEFAULT_PART_RETRIES));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	private static int getInt(Properties properties, String key, int defaultValue) {
+		String value = properties.getProperty(key);
+		return value == null ? defaultValue : Integer.parseInt(value.trim());
+	}
+}
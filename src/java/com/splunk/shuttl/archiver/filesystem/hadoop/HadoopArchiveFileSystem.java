@@ -15,8 +15,15 @@
 
 package com.splunk.shuttl.archiver.filesystem.hadoop;
 
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
 
@@ -24,10 +31,17 @@ import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.FileOverwriteException;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottle;
+import com.splunk.shuttl.archiver.filesystem.transaction.OpensInputStreams;
+import com.splunk.shuttl.archiver.filesystem.transaction.OpensOutputStreams;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionalFileSystem;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoint;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoints;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.BucketTransactionCleaner;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.TransfersBuckets;
 import com.splunk.shuttl.archiver.filesystem.transaction.file.FileTransactionCleaner;
@@ -36,12 +50,57 @@ import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
 public class HadoopArchiveFileSystem implements ArchiveFileSystem,
-		TransactionalFileSystem {
+		TransactionalFileSystem, OpensOutputStreams, OpensInputStreams,
+		Closeable {
+
+	private static final Logger logger = Logger
+			.getLogger(HadoopArchiveFileSystem.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
 
 	private final FileSystem hadoopFileSystem;
+	private final TransferCheckpoints transferCheckpoints;
+	private final TransferThrottle archiveThrottle;
+	private final TransferThrottle thawThrottle;
 
 	public HadoopArchiveFileSystem(FileSystem hadoopFileSystem) {
+		this(hadoopFileSystem, null);
+	}
+
+	/**
+	 * @param transferCheckpoints
+	 *          for resuming directory puts that failed half way. Puts are not
+	 *          resumed if it's null.
+	 */
+	public HadoopArchiveFileSystem(FileSystem hadoopFileSystem,
+			TransferCheckpoints transferCheckpoints) {
+		this(hadoopFileSystem, transferCheckpoints, TransferThrottle.unlimited(),
+				TransferThrottle.unlimited());
+	}
+
+	/**
+	 * @param archiveThrottle
+	 *          throttles the data that is put.
+	 * @param thawThrottle
+	 *          throttles the data that is gotten.
+	 */
+	public HadoopArchiveFileSystem(FileSystem hadoopFileSystem,
+			TransferCheckpoints transferCheckpoints,
+			TransferThrottle archiveThrottle, TransferThrottle thawThrottle) {
 		this.hadoopFileSystem = hadoopFileSystem;
+		this.transferCheckpoints = transferCheckpoints;
+		this.archiveThrottle = archiveThrottle;
+		this.thawThrottle = thawThrottle;
+	}
+
+	/**
+	 * Closes the Hadoop {@link FileSystem}. It should not be one from Hadoop's
+	 * file system cache, since that's shared with everyone else that got it.
+	 * See {@link HadoopArchiveFileSystemFactory#newFileSystem(java.net.URI)}.
+	 */
+	@Override
+	public void close() throws IOException {
+		hadoopFileSystem.close();
 	}
 
 	@Override
@@ -54,20 +113,139 @@ public class HadoopArchiveFileSystem implements ArchiveFileSystem,
 			return Collections.emptyList();
 	}
 
+	/**
+	 * Puts the file or directory at temp. When a directory is put with a
+	 * checkpoint, files that were completely put by an earlier attempt are kept
+	 * and only the rest is put.
+	 */
 	private void putFile(File src, Path temp, Path dst) throws IOException {
 		if (hadoopFileSystem.exists(dst))
 			throw new FileOverwriteException();
-		hadoopFileSystem.delete(temp, true);
-		hadoopFileSystem.copyFromLocalFile(new Path(src.getAbsoluteFile().toURI()),
-				temp);
+		TransferCheckpoint checkpoint = getCheckpoint(src, temp);
+		if (checkpoint == null || checkpoint.isEmpty())
+			hadoopFileSystem.delete(temp, true);
+		else
+			logger.info(will("Resume put of directory", "src", src, "temp", temp));
+		putEntries(src, temp, "", checkpoint);
+	}
+
+	private TransferCheckpoint getCheckpoint(File src, Path temp) {
+		if (transferCheckpoints == null || !src.isDirectory())
+			return null;
+		return transferCheckpoints.getCheckpoint(temp.toString());
+	}
+
+	private void putEntries(File src, Path path, String entry,
+			TransferCheckpoint checkpoint) throws IOException {
+		if (src.isDirectory()) {
+			File[] children = src.listFiles();
+			if (children == null)
+				throw new IOException("Could not list directory: " + src);
+			if (children.length == 0)
+				hadoopFileSystem.mkdirs(path);
+			for (File child : children)
+				putEntries(child, new Path(path, child.getName()), entry + "/"
+						+ child.getName(), checkpoint);
+		} else if (!isPut(src, path, entry, checkpoint)) {
+			putEntry(src, path);
+			if (checkpoint != null)
+				checkpoint.put(entry, checkpointValue(src));
+		}
+	}
+
+	private boolean isPut(File src, Path path, String entry,
+			TransferCheckpoint checkpoint) throws IOException {
+		if (checkpoint == null || !checkpointValue(src).equals(checkpoint.get(entry)))
+			return false;
+		return hadoopFileSystem.exists(path)
+				&& hadoopFileSystem.getFileStatus(path).getLen() == src.length();
+	}
+
+	private String checkpointValue(File src) {
+		return src.length() + ":" + src.lastModified();
+	}
+
+	/**
+	 * Puts a single file, overwriting anything at dst.
+	 */
+	protected void putEntry(File src, Path dst) throws IOException {
+		InputStream in = new FileInputStream(src);
+		try {
+			OutputStream out = archiveThrottle.throttle(hadoopFileSystem.create(dst,
+					true));
+			try {
+				IOUtils.copyBytes(in, out, BUFFER_SIZE, false);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Keeps the temp path when a put failed half way and there's a checkpoint
+	 * for resuming it. The temp path doesn't exist when the transaction has
+	 * been committed.
+	 */
+	private void cleanResumableTemp(String temp) {
+		if (transferCheckpoints == null) {
+			deletePath(temp);
+			return;
+		}
+		TransferCheckpoint checkpoint = transferCheckpoints.getCheckpoint(new Path(
+				temp).toString());
+		if (!checkpoint.isEmpty() && existsQuietly(temp)) {
+			logger.info(will("Keep temp path of failed put for resuming", "temp",
+					temp));
+		} else {
+			deletePath(temp);
+			checkpoint.delete();
+		}
 	}
 
 	private void getFile(Path src, File temp, File dst) throws IOException {
 		if (dst.exists())
 			throw new FileOverwriteException();
 		FileUtils.deleteDirectory(temp);
-		hadoopFileSystem.copyToLocalFile(src, new Path(temp.getAbsoluteFile()
-				.toURI()));
+		getEntries(src, temp);
+	}
+
+	private void getEntries(Path src, File dst) throws IOException {
+		if (hadoopFileSystem.getFileStatus(src).isDir()) {
+			if (!dst.mkdirs() && !dst.isDirectory())
+				throw new IOException("Could not create directory: " + dst);
+			for (FileStatus child : hadoopFileSystem.listStatus(src))
+				getEntries(child.getPath(), new File(dst, child.getPath().getName()));
+		} else {
+			getEntry(src, dst);
+		}
+	}
+
+	private void getEntry(Path src, File dst) throws IOException {
+		dst.getParentFile().mkdirs();
+		InputStream in = thawThrottle.throttle(hadoopFileSystem.open(src));
+		try {
+			OutputStream out = new FileOutputStream(dst);
+			try {
+				IOUtils.copyBytes(in, out, BUFFER_SIZE, false);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	@Override
+	public OutputStream openOutputStream(String path) throws IOException {
+		return archiveThrottle.throttle(hadoopFileSystem.create(new Path(path),
+				true));
+	}
+
+	@Override
+	public InputStream openInputStream(String path) throws IOException {
+		return thawThrottle.throttle(hadoopFileSystem.open(new Path(path)));
 	}
 
 	@Override
@@ -90,6 +268,14 @@ public class HadoopArchiveFileSystem implements ArchiveFileSystem,
 		return hadoopFileSystem.exists(new Path(path));
 	}
 
+	private boolean existsQuietly(String path) {
+		try {
+			return exists(path);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
 	public void deletePath(String path) {
 		try {
 			hadoopFileSystem.delete(new Path(path), true);
@@ -141,7 +327,7 @@ public class HadoopArchiveFileSystem implements ArchiveFileSystem,
 
 			@Override
 			public void cleanTransaction(Bucket bucket, String temp) {
-				deletePath(temp);
+				cleanResumableTemp(temp);
 			}
 		};
 	}
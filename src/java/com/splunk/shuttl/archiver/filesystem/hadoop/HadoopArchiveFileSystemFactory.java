@@ -21,8 +21,12 @@ import java.net.URI;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.BackendConfigurationFiles;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottles;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottles.Direction;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoints;
 
 /**
  *
@@ -34,25 +38,59 @@ public class HadoopArchiveFileSystemFactory {
 	 *         shuttl/conf/backend directory.
 	 */
 	public static ArchiveFileSystem create() {
-		return createWithPropertyFile(BackendConfigurationFiles.create().getByName(
-				HdfsProperties.HDFS_PROPERTIES_FILENAME));
+		return createWithPropertyFile(getHdfsPropertiesFile());
+	}
+
+	/**
+	 * @return Hadoop file system as a back-end, which resumes failed puts with
+	 *         checkpoints in the {@link LocalFileSystemPaths}.
+	 */
+	public static ArchiveFileSystem create(
+			LocalFileSystemPaths localFileSystemPaths) {
+		TransferThrottles throttles = TransferThrottles.getSharedInstance();
+		try {
+			return new HadoopArchiveFileSystem(
+					createHadoopFileSystem(getHdfsPropertiesFile()),
+					TransferCheckpoints.create(localFileSystemPaths), throttles.get(
+							"hdfs", Direction.ARCHIVE), throttles.get("hdfs",
+							Direction.THAW));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static File getHdfsPropertiesFile() {
+		return BackendConfigurationFiles.create().getByName(
+				HdfsProperties.HDFS_PROPERTIES_FILENAME);
 	}
 
 	public static HadoopArchiveFileSystem createWithPropertyFile(
 			File hdfsProperties) {
 		try {
-			return doCreate(hdfsProperties);
+			return new HadoopArchiveFileSystem(
+					createHadoopFileSystem(hdfsProperties));
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
-	private static HadoopArchiveFileSystem doCreate(File hdfsProperties)
+	private static FileSystem createHadoopFileSystem(File hdfsProperties)
 			throws IOException {
 		HdfsProperties properties = HdfsProperties.create(hdfsProperties);
-		FileSystem fs = FileSystem.get(
-				URI.create("hdfs://" + properties.getHost() + ":"
-						+ properties.getPort()), new Configuration());
-		return new HadoopArchiveFileSystem(fs);
+		return newFileSystem(URI.create("hdfs://" + properties.getHost() + ":"
+				+ properties.getPort()));
+	}
+
+	/**
+	 * @return a Hadoop {@link FileSystem} that's not shared through Hadoop's
+	 *         file system cache, so that closing it with
+	 *         {@link HadoopArchiveFileSystem#close()} doesn't close it for
+	 *         everyone else that got the same file system.
+	 */
+	public static FileSystem newFileSystem(URI uri) throws IOException {
+		Configuration configuration = new Configuration();
+		configuration.setBoolean("fs." + uri.getScheme() + ".impl.disable.cache",
+				true);
+		return FileSystem.get(uri, configuration);
 	}
 }
@@ -16,46 +16,100 @@ package com.splunk.shuttl.archiver.filesystem.s3;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.glacier.AWSCredentialsImpl;
 import com.splunk.shuttl.archiver.filesystem.hadoop.HadoopArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.hadoop.HadoopArchiveFileSystemFactory;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottles;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottles.Direction;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoints;
+import com.splunk.shuttl.archiver.util.NamedDaemonThreadFactory;
 
 /**
  * Factory for creating an AWS S3 or S3n back-end.
  */
 public class S3ArchiveFileSystemFactory {
 
+	private static ThreadPoolExecutor uploadExecutor;
+
 	/**
 	 * @return back-end running S3.
 	 */
-	public static ArchiveFileSystem createS3() {
-		return create("s3");
+	public static ArchiveFileSystem createS3(
+			LocalFileSystemPaths localFileSystemPaths) {
+		TransferThrottles throttles = TransferThrottles.getSharedInstance();
+		return new HadoopArchiveFileSystem(createHadoopFileSystem("s3",
+				AWSCredentialsImpl.create()),
+				TransferCheckpoints.create(localFileSystemPaths), throttles.get("s3",
+						Direction.ARCHIVE), throttles.get("s3", Direction.THAW));
 	}
 
 	/**
-	 * @return back-end running S3n.
+	 * @return back-end running S3n, which uploads files in parts.
 	 */
-	public static ArchiveFileSystem createS3n() {
-		return create("s3n");
+	public static ArchiveFileSystem createS3n(
+			LocalFileSystemPaths localFileSystemPaths) {
+		AWSCredentialsImpl credentials = AWSCredentialsImpl.create();
+		TransferThrottles throttles = TransferThrottles.getSharedInstance();
+		TransferCheckpoints transferCheckpoints = TransferCheckpoints
+				.create(localFileSystemPaths);
+		S3UploadConfiguration uploadConfiguration = S3UploadConfiguration
+				.createWithPropertyFile(AWSCredentialsImpl.getAmazonPropertiesFile());
+		S3MultipartUploader uploader = new S3MultipartUploader(
+				new AmazonS3Client(credentials), credentials.getS3Bucket(),
+				getUploadExecutor(uploadConfiguration.getThreads()),
+				uploadConfiguration.getPartSize(),
+				uploadConfiguration.getPartRetries(), transferCheckpoints,
+				throttles.get("s3n", Direction.ARCHIVE));
+		return new S3nArchiveFileSystem(
+				createHadoopFileSystem("s3n", credentials), uploader,
+				transferCheckpoints, throttles.get("s3n", Direction.THAW),
+				localFileSystemPaths.getUploadPartsDirectory(),
+				uploadConfiguration.getThreads());
 	}
 
-	private static ArchiveFileSystem create(String scheme) {
-		URI s3Uri = createS3UriForHadoopFileSystem(scheme);
+	/**
+	 * Parts are uploaded on a pool that's shared by all s3n back-ends, so that
+	 * the number of concurrent uploads stays bounded. The pool is resized in
+	 * place when the configured number of threads changes, so uploads that are
+	 * using it keep working.
+	 */
+	static synchronized ExecutorService getUploadExecutor(int threads) {
+		if (uploadExecutor == null)
+			uploadExecutor = new ThreadPoolExecutor(threads, threads, 0L,
+					TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+					new NamedDaemonThreadFactory("shuttl-s3-uploader"));
+		else if (threads > uploadExecutor.getMaximumPoolSize()) {
+			uploadExecutor.setMaximumPoolSize(threads);
+			uploadExecutor.setCorePoolSize(threads);
+		} else if (threads < uploadExecutor.getMaximumPoolSize()) {
+			uploadExecutor.setCorePoolSize(threads);
+			uploadExecutor.setMaximumPoolSize(threads);
+		}
+		return uploadExecutor;
+	}
 
+	private static FileSystem createHadoopFileSystem(String scheme,
+			AWSCredentialsImpl credentials) {
+		URI s3Uri = createS3UriForHadoopFileSystem(scheme, credentials);
 		try {
-			return new HadoopArchiveFileSystem(FileSystem.get(s3Uri,
-					new Configuration()));
+			return HadoopArchiveFileSystemFactory.newFileSystem(s3Uri);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
-	private static URI createS3UriForHadoopFileSystem(String scheme) {
-		AWSCredentialsImpl credentials = AWSCredentialsImpl.create();
+	private static URI createS3UriForHadoopFileSystem(String scheme,
+			AWSCredentialsImpl credentials) {
 		return URI.create(scheme + "://" + credentials.getAWSAccessKeyId() + ":"
 				+ credentials.getAWSSecretKey() + "@" + credentials.getS3Bucket());
 	}
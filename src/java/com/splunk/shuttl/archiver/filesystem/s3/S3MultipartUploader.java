@@ -0,0 +1,654 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.s3;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.io.MD5Hash;
+import org.apache.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottle;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoint;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoints;
+
+/**
+ * Uploads files to an S3 bucket in parts. The parts are uploaded concurrently
+ * on the {@link Executor}, which bounds how many parts are uploaded at once,
+ * and a part that fails is retried on its own instead of uploading the whole
+ * file again. Files that fit in one part are uploaded with a single put.<br/>
+ * <br/>
+ * With {@link TransferCheckpoints}, a failed upload is kept in S3 and the next
+ * upload to the same key resumes it, uploading only the parts that are missing
+ * or that don't match the file.<br/>
+ * <br/>
+ * S3 takes at most {@link #MAX_PARTS} parts per upload, so the part size is
+ * raised for files that would need more.
+ */
+public class S3MultipartUploader {
+
+	private static final Logger logger = Logger
+			.getLogger(S3MultipartUploader.class);
+
+	private static final String UPLOAD_ID = "upload.id";
+	private static final String FILE_SIZE = "file.size";
+	private static final String PART_PREFIX = "part.";
+
+	/**
+	 * Most parts S3 takes in one multipart upload.
+	 */
+	public static final int MAX_PARTS = 10000;
+
+	/**
+	 * Streamed parts grow by the configured part size every this many parts, so
+	 * that a stream of unknown length fits in {@link #MAX_PARTS}.
+	 */
+	static final int STREAMED_PARTS_PER_SIZE_STEP = MAX_PARTS / 10;
+
+	private final AmazonS3 s3;
+	private final String bucketName;
+	private final Executor executor;
+	private final long partSize;
+	private final int partRetries;
+	private final TransferCheckpoints transferCheckpoints;
+	private final TransferThrottle throttle;
+
+	public S3MultipartUploader(AmazonS3 s3, String bucketName,
+			Executor executor, long partSize, int partRetries) {
+		this(s3, bucketName, executor, partSize, partRetries, null);
+	}
+
+	/**
+	 * @param partRetries
+	 *          number of times a part is retried after its first attempt fails.
+	 * @param transferCheckpoints
+	 *          for resuming failed uploads. Failed uploads are aborted if it's
+	 *          null.
+	 */
+	public S3MultipartUploader(AmazonS3 s3, String bucketName,
+			Executor executor, long partSize, int partRetries,
+			TransferCheckpoints transferCheckpoints) {
+		this(s3, bucketName, executor, partSize, partRetries,
+				transferCheckpoints, TransferThrottle.unlimited());
+	}
+
+	/**
+	 * @param throttle
+	 *          that every upload attempt of a part, or of a file small enough
+	 *          to be put whole, waits for as one operation. The bytes of the
+	 *          attempt are acquired up front, so the byte limit holds on average
+	 *          over many parts rather than within a part.
+	 */
+	public S3MultipartUploader(AmazonS3 s3, String bucketName,
+			Executor executor, long partSize, int partRetries,
+			TransferCheckpoints transferCheckpoints, TransferThrottle throttle) {
+		this.s3 = s3;
+		this.bucketName = bucketName;
+		this.executor = executor;
+		this.partSize = partSize;
+		this.partRetries = partRetries;
+		this.transferCheckpoints = transferCheckpoints;
+		this.throttle = throttle;
+	}
+
+	/**
+	 * Uploads the file to the key in the bucket. Nothing is visible at the key
+	 * if the upload fails.
+	 */
+	public void upload(File file, String key) throws IOException {
+		try {
+			if (file.length() <= partSize) {
+				throttle.acquire(file.length());
+				s3.putObject(bucketName, key, file);
+			} else
+				uploadInParts(file, key);
+		} catch (AmazonClientException e) {
+			throw new IOException("Could not upload " + file + " to " + key, e);
+		}
+	}
+
+	private void uploadInParts(File file, String key) throws IOException {
+		long filePartSize = getPartSize(file.length());
+		TransferCheckpoint checkpoint = getCheckpoint(key);
+		Map<Integer, PartETag> uploadedParts = new HashMap<Integer, PartETag>();
+		String uploadId = resumeUpload(file, key, filePartSize, checkpoint,
+				uploadedParts);
+		if (uploadId == null)
+			uploadId = initiateUpload(file, key, checkpoint);
+
+		logger.debug(will("Upload file in parts", "file", file, "key", key,
+				"upload_id", uploadId, "part_size", filePartSize, "resumed_parts",
+				uploadedParts.size()));
+		try {
+			AtomicBoolean stopped = new AtomicBoolean();
+			List<PartETag> partETags = waitForParts(submitParts(file, key,
+					uploadId, filePartSize, uploadedParts, checkpoint, stopped),
+					stopped);
+			s3.completeMultipartUpload(new CompleteMultipartUploadRequest(
+					bucketName, key, uploadId, partETags));
+			if (checkpoint != null)
+				checkpoint.delete();
+			logger.debug(done("Uploaded file in parts", "file", file, "key", key,
+					"parts", partETags.size()));
+		} catch (IOException e) {
+			abortUnlessResumable(key, uploadId, checkpoint);
+			throw e;
+		} catch (RuntimeException e) {
+			abortUnlessResumable(key, uploadId, checkpoint);
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the configured part size, or the smallest part size that uploads
+	 *         a file of the length in {@link #MAX_PARTS} parts, if that's larger.
+	 */
+	long getPartSize(long fileLength) {
+		long smallestPartSize = (fileLength + MAX_PARTS - 1) / MAX_PARTS;
+		return Math.max(partSize, smallestPartSize);
+	}
+
+	/**
+	 * Uploads what's written to the stream to the key in the bucket. Every part
+	 * is staged in a file in the staging directory, and uploaded as soon as it
+	 * is full, while the next part is written. Nothing is visible at the key
+	 * until the stream is closed.<br/>
+	 * <br/>
+	 * Streamed uploads are not resumed, since the written data is not kept.
+	 * 
+	 * @param maxStagedParts
+	 *          number of full parts that may be staged and uploading at once,
+	 *          which bounds the disk used in the staging directory. Writing
+	 *          blocks until a part has been uploaded when there are more.
+	 */
+	public OutputStream openOutputStream(String key, File stagingDirectory,
+			int maxStagedParts) {
+		return new UploadsStreamInParts(key, stagingDirectory, Math.max(1,
+				maxStagedParts));
+	}
+
+	/**
+	 * @return size of a streamed part. The parts grow every
+	 *         {@link #STREAMED_PARTS_PER_SIZE_STEP} parts, since the length of
+	 *         the stream is not known when the first parts are uploaded.
+	 */
+	long getStreamedPartSize(int partNumber) {
+		return partSize * (1 + (partNumber - 1) / STREAMED_PARTS_PER_SIZE_STEP);
+	}
+
+	private TransferCheckpoint getCheckpoint(String key) {
+		if (transferCheckpoints == null)
+			return null;
+		return transferCheckpoints.getCheckpoint("s3://" + bucketName + "/" + key);
+	}
+
+	private String initiateUpload(File file, String key,
+			TransferCheckpoint checkpoint) throws IOException {
+		String uploadId = s3.initiateMultipartUpload(
+				new InitiateMultipartUploadRequest(bucketName, key)).getUploadId();
+		if (checkpoint != null) {
+			checkpoint.put(UPLOAD_ID, uploadId);
+			checkpoint.put(FILE_SIZE, "" + file.length());
+		}
+		return uploadId;
+	}
+
+	/**
+	 * @return id of the upload to resume, or null if there's nothing to resume.
+	 *         Puts the parts that are already uploaded and match the file in
+	 *         uploadedParts.
+	 */
+	private String resumeUpload(File file, String key, long filePartSize,
+			TransferCheckpoint checkpoint, Map<Integer, PartETag> uploadedParts)
+			throws IOException {
+		if (checkpoint == null || checkpoint.get(UPLOAD_ID) == null)
+			return null;
+		String uploadId = checkpoint.get(UPLOAD_ID);
+		if (!("" + file.length()).equals(checkpoint.get(FILE_SIZE))) {
+			abort(key, uploadId);
+			checkpoint.delete();
+			return null;
+		}
+		try {
+			for (PartSummary part : listParts(key, uploadId))
+				if (isUploadedPartOfFile(file, filePartSize, part, checkpoint))
+					uploadedParts.put(part.getPartNumber(),
+							new PartETag(part.getPartNumber(), part.getETag()));
+		} catch (AmazonClientException e) {
+			logger.warn(warn("Listed parts of upload to resume", e,
+					"Will start a new upload", "key", key, "upload_id", uploadId));
+			checkpoint.delete();
+			return null;
+		}
+		logger.info(will("Resume upload", "key", key, "upload_id", uploadId,
+				"uploaded_parts", uploadedParts.size()));
+		return uploadId;
+	}
+
+	private List<PartSummary> listParts(String key, String uploadId) {
+		List<PartSummary> parts = new ArrayList<PartSummary>();
+		ListPartsRequest request = new ListPartsRequest(bucketName, key, uploadId);
+		PartListing listing;
+		do {
+			listing = s3.listParts(request);
+			parts.addAll(listing.getParts());
+			request.setPartNumberMarker(listing.getNextPartNumberMarker());
+		} while (listing.isTruncated());
+		return parts;
+	}
+
+	/**
+	 * A part's ETag is the MD5 of its content, which is compared with the same
+	 * part of the local file.
+	 */
+	private boolean isUploadedPartOfFile(File file, long filePartSize,
+			PartSummary part, TransferCheckpoint checkpoint) throws IOException {
+		String eTag = unquote(part.getETag());
+		long offset = (part.getPartNumber() - 1) * filePartSize;
+		return eTag.equals(checkpoint.get(PART_PREFIX + part.getPartNumber()))
+				&& part.getSize() == Math.min(filePartSize, file.length() - offset)
+				&& eTag.equals(md5Hex(file, offset, part.getSize()));
+	}
+
+	private static String unquote(String eTag) {
+		return eTag.replace("\"", "");
+	}
+
+	private static String md5Hex(File file, long offset, long length)
+			throws IOException {
+		MessageDigest md5 = newMD5();
+		byte[] buffer = new byte[64 * 1024];
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			in.seek(offset);
+			long left = length;
+			while (left > 0) {
+				int read = in.read(buffer, 0, (int) Math.min(buffer.length, left));
+				if (read == -1)
+					break;
+				md5.update(buffer, 0, read);
+				left -= read;
+			}
+		} finally {
+			in.close();
+		}
+		return new MD5Hash(md5.digest()).toString();
+	}
+
+	private static MessageDigest newMD5() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private List<FutureTask<PartETag>> submitParts(File file, String key,
+			String uploadId, long filePartSize, Map<Integer, PartETag> uploadedParts,
+			TransferCheckpoint checkpoint, AtomicBoolean stopped) {
+		List<FutureTask<PartETag>> parts = new ArrayList<FutureTask<PartETag>>();
+		long fileLength = file.length();
+		int partNumber = 1;
+		for (long offset = 0; offset < fileLength; offset += filePartSize,
+				partNumber++) {
+			PartETag uploaded = uploadedParts.get(partNumber);
+			if (uploaded != null) {
+				FutureTask<PartETag> part = new FutureTask<PartETag>(
+						new UploadedPart(uploaded));
+				part.run();
+				parts.add(part);
+				continue;
+			}
+			UploadPartRequest request = new UploadPartRequest()
+					.withBucketName(bucketName).withKey(key).withUploadId(uploadId)
+					.withPartNumber(partNumber).withFile(file).withFileOffset(offset)
+					.withPartSize(Math.min(filePartSize, fileLength - offset))
+					.withLastPart(offset + filePartSize >= fileLength);
+			FutureTask<PartETag> part = new FutureTask<PartETag>(new UploadsPart(
+					request, checkpoint, stopped));
+			parts.add(part);
+			executor.execute(part);
+		}
+		return parts;
+	}
+
+	/**
+	 * When a part fails, the parts that have not started are stopped, and the
+	 * parts that are already uploading are waited for, so that nothing is left
+	 * running when the upload is aborted or left for resuming.
+	 */
+	private List<PartETag> waitForParts(List<FutureTask<PartETag>> parts,
+			AtomicBoolean stopped) throws IOException {
+		List<PartETag> partETags = new ArrayList<PartETag>();
+		try {
+			for (FutureTask<PartETag> part : parts)
+				partETags.add(part.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while uploading parts");
+		} catch (ExecutionException e) {
+			throw new IOException("Could not upload part", e.getCause());
+		} finally {
+			stopped.set(true);
+			waitForRunningParts(parts);
+		}
+		return partETags;
+	}
+
+	private void waitForRunningParts(List<FutureTask<PartETag>> parts) {
+		for (FutureTask<PartETag> part : parts)
+			try {
+				part.get();
+			} catch (ExecutionException e) {
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+	}
+
+	private void abortUnlessResumable(String key, String uploadId,
+			TransferCheckpoint checkpoint) {
+		if (checkpoint == null)
+			abort(key, uploadId);
+		else
+			logger.info(will("Keep failed upload for resuming", "key", key,
+					"upload_id", uploadId));
+	}
+
+	private void abort(String key, String uploadId) {
+		try {
+			s3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName,
+					key, uploadId));
+		} catch (AmazonClientException e) {
+			logger.warn(warn("Aborted multipart upload", e,
+					"Parts may be left in the bucket until it's aborted", "key", key,
+					"upload_id", uploadId));
+		}
+	}
+
+	private class UploadsStreamInParts extends OutputStream {
+
+		private final String key;
+		private final File stagingDirectory;
+		private final int maxStagedParts;
+		private final List<FutureTask<PartETag>> parts;
+		private final AtomicBoolean stopped;
+
+		private String uploadId;
+		private int partNumber;
+		private File partFile;
+		private OutputStream partOut;
+		private long partLength;
+		private int uploadedParts;
+		private boolean failed;
+		private boolean closed;
+
+		public UploadsStreamInParts(String key, File stagingDirectory,
+				int maxStagedParts) {
+			this.key = key;
+			this.stagingDirectory = stagingDirectory;
+			this.maxStagedParts = maxStagedParts;
+			this.parts = new ArrayList<FutureTask<PartETag>>();
+			this.stopped = new AtomicBoolean();
+			this.partNumber = 1;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (closed)
+				throw new IOException("Stream closed");
+			try {
+				while (len > 0) {
+					if (partOut == null)
+						startPart();
+					long left = getStreamedPartSize(partNumber) - partLength;
+					int n = (int) Math.min(len, left);
+					partOut.write(b, off, n);
+					partLength += n;
+					off += n;
+					len -= n;
+					if (partLength == getStreamedPartSize(partNumber))
+						uploadPart(false);
+				}
+			} catch (IOException e) {
+				failed = true;
+				throw e;
+			} catch (RuntimeException e) {
+				failed = true;
+				throw e;
+			}
+		}
+
+		private void startPart() throws IOException {
+			if (partNumber > MAX_PARTS)
+				throw new IOException("Stream to " + key + " needs more than "
+						+ MAX_PARTS + " parts");
+			partFile = File.createTempFile("part-" + partNumber + "-", ".tmp",
+					stagingDirectory);
+			partOut = new BufferedOutputStream(new FileOutputStream(partFile));
+			partLength = 0;
+		}
+
+		private void uploadPart(boolean lastPart) throws IOException {
+			partOut.close();
+			partOut = null;
+			if (uploadId == null)
+				uploadId = s3.initiateMultipartUpload(
+						new InitiateMultipartUploadRequest(bucketName, key))
+						.getUploadId();
+			UploadPartRequest request = new UploadPartRequest()
+					.withBucketName(bucketName).withKey(key).withUploadId(uploadId)
+					.withPartNumber(partNumber).withFile(partFile).withFileOffset(0)
+					.withPartSize(partLength).withLastPart(lastPart);
+			FutureTask<PartETag> part = new FutureTask<PartETag>(
+					new DeletesStagedPart(new UploadsPart(request, null, stopped),
+							partFile));
+			parts.add(part);
+			partFile = null;
+			partNumber++;
+			executor.execute(part);
+
+			while (parts.size() - uploadedParts > maxStagedParts)
+				waitForPart(parts.get(uploadedParts++));
+		}
+
+		private void waitForPart(FutureTask<PartETag> part) throws IOException {
+			try {
+				part.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while uploading parts");
+			} catch (ExecutionException e) {
+				throw new IOException("Could not upload part", e.getCause());
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed)
+				return;
+			closed = true;
+			try {
+				if (failed)
+					stopUpload();
+				else if (uploadId == null)
+					putStagedPart();
+				else
+					completeUpload();
+			} catch (AmazonClientException e) {
+				throw new IOException("Could not upload stream to " + key, e);
+			} finally {
+				deleteStagedPart();
+			}
+		}
+
+		private void putStagedPart() throws IOException {
+			if (partOut == null)
+				startPart();
+			partOut.close();
+			partOut = null;
+			throttle.acquire(partLength);
+			s3.putObject(bucketName, key, partFile);
+		}
+
+		private void completeUpload() throws IOException {
+			try {
+				if (partOut != null)
+					uploadPart(true);
+				List<PartETag> partETags = waitForParts(parts, stopped);
+				s3.completeMultipartUpload(new CompleteMultipartUploadRequest(
+						bucketName, key, uploadId, partETags));
+				logger.debug(done("Uploaded stream in parts", "key", key, "parts",
+						partETags.size()));
+			} catch (IOException e) {
+				stopUpload();
+				throw e;
+			} catch (RuntimeException e) {
+				stopUpload();
+				throw e;
+			}
+		}
+
+		private void stopUpload() {
+			stopped.set(true);
+			waitForRunningParts(parts);
+			if (uploadId != null)
+				abort(key, uploadId);
+		}
+
+		private void deleteStagedPart() {
+			if (partOut != null)
+				try {
+					partOut.close();
+				} catch (IOException e) {
+				}
+			partOut = null;
+			if (partFile != null)
+				partFile.delete();
+			partFile = null;
+		}
+	}
+
+	/**
+	 * Deletes the staged file of a streamed part once it has been uploaded, or
+	 * has failed to.
+	 */
+	private static class DeletesStagedPart implements Callable<PartETag> {
+
+		private final Callable<PartETag> uploadsPart;
+		private final File stagedPart;
+
+		public DeletesStagedPart(Callable<PartETag> uploadsPart, File stagedPart) {
+			this.uploadsPart = uploadsPart;
+			this.stagedPart = stagedPart;
+		}
+
+		@Override
+		public PartETag call() throws Exception {
+			try {
+				return uploadsPart.call();
+			} finally {
+				stagedPart.delete();
+			}
+		}
+	}
+
+	private class UploadsPart implements Callable<PartETag> {
+
+		private final UploadPartRequest request;
+		private final TransferCheckpoint checkpoint;
+		private final AtomicBoolean stopped;
+
+		public UploadsPart(UploadPartRequest request,
+				TransferCheckpoint checkpoint, AtomicBoolean stopped) {
+			this.request = request;
+			this.checkpoint = checkpoint;
+			this.stopped = stopped;
+		}
+
+		@Override
+		public PartETag call() throws IOException {
+			if (stopped.get())
+				throw new IOException("Upload was stopped before part "
+						+ request.getPartNumber() + " started");
+			PartETag partETag = uploadWithRetries();
+			if (checkpoint != null)
+				checkpoint.put(PART_PREFIX + partETag.getPartNumber(),
+						unquote(partETag.getETag()));
+			return partETag;
+		}
+
+		private PartETag uploadWithRetries() throws IOException {
+			for (int attempt = 0;; attempt++)
+				try {
+					throttle.acquire(request.getPartSize());
+					return s3.uploadPart(request).getPartETag();
+				} catch (AmazonClientException e) {
+					if (attempt >= partRetries)
+						throw e;
+					logger.warn(warn("Uploaded part", e, "Will retry the part",
+							"key", request.getKey(), "part", request.getPartNumber(),
+							"attempt", attempt + 1));
+				}
+		}
+	}
+
+	private static class UploadedPart implements Callable<PartETag> {
+
+		private final PartETag partETag;
+
+		public UploadedPart(PartETag partETag) {
+			this.partETag = partETag;
+		}
+
+		@Override
+		public PartETag call() {
+			return partETag;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.s3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * How files are uploaded to s3n. Configured in the amazon properties file,
+ * where every property is optional.
+ */
+public class S3UploadConfiguration {
+
+	public static final String PART_SIZE_MB_PROPERTY = "s3.upload.part.size.mb";
+	public static final String THREADS_PROPERTY = "s3.upload.threads";
+	public static final String PART_RETRIES_PROPERTY = "s3.upload.part.retries";
+
+	/**
+	 * S3 does not accept smaller parts, except for the last one.
+	 */
+	public static final int MIN_PART_SIZE_MB = 5;
+	public static final int DEFAULT_PART_SIZE_MB = 16;
+	public static final int DEFAULT_THREADS = 4;
+	public static final int DEFAULT_PART_RETRIES = 3;
+
+	private static final long MB = 1024 * 1024;
+
+	private final int partSizeMB;
+	private final int threads;
+	private final int partRetries;
+
+	public S3UploadConfiguration(int partSizeMB, int threads, int partRetries) {
+		this.partSizeMB = Math.max(MIN_PART_SIZE_MB, partSizeMB);
+		this.threads = Math.max(1, threads);
+		this.partRetries = Math.max(0, partRetries);
+	}
+
+	public long getPartSize() {
+		return partSizeMB * MB;
+	}
+
+	/**
+	 * @return number of parts uploaded at the same time.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	public int getPartRetries() {
+		return partRetries;
+	}
+
+	public static S3UploadConfiguration createWithPropertyFile(
+			File amazonProperties) {
+		InputStream in = null;
+		try {
+			in = FileUtils.openInputStream(amazonProperties);
+			Properties properties = new Properties();
+			properties.load(in);
+			return new S3UploadConfiguration(getInt(properties,
+					PART_SIZE_MB_PROPERTY, DEFAULT_PART_SIZE_MB), getInt(properties,
+					THREADS_PROPERTY, DEFAULT_THREADS), getInt(properties,
+					PART_RETRIES_PROPERTY, DEFAULT_PART_RETRIES));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	private static int getInt(Properties properties, String key, int defaultValue) {
+		String value = properties.getProperty(key);
+		return value == null ? defaultValue : Integer.parseInt(value.trim());
+	}
+}
@@ -0,0 +1,97 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.s3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import com.splunk.shuttl.archiver.filesystem.hadoop.HadoopArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottle;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoints;
+
+/**
+ * S3n back-end that puts files with a {@link S3MultipartUploader} instead of
+ * Hadoop's single stream upload. Everything else is done with Hadoop's s3n
+ * file system, which reads the uploaded objects as regular files.
+ */
+public class S3nArchiveFileSystem extends HadoopArchiveFileSystem {
+
+	private final S3MultipartUploader uploader;
+	private final File stagingDirectory;
+	private final int maxStagedParts;
+
+	public S3nArchiveFileSystem(FileSystem hadoopFileSystem,
+			S3MultipartUploader uploader) {
+		this(hadoopFileSystem, uploader, null);
+	}
+
+	public S3nArchiveFileSystem(FileSystem hadoopFileSystem,
+			S3MultipartUploader uploader, TransferCheckpoints transferCheckpoints) {
+		this(hadoopFileSystem, uploader, transferCheckpoints, TransferThrottle
+				.unlimited());
+	}
+
+	/**
+	 * @param thawThrottle
+	 *          throttles the data that is gotten. Puts are throttled by the
+	 *          uploader.
+	 */
+	public S3nArchiveFileSystem(FileSystem hadoopFileSystem,
+			S3MultipartUploader uploader, TransferCheckpoints transferCheckpoints,
+			TransferThrottle thawThrottle) {
+		this(hadoopFileSystem, uploader, transferCheckpoints, thawThrottle, null,
+				S3UploadConfiguration.DEFAULT_THREADS);
+	}
+
+	/**
+	 * @param stagingDirectory
+	 *          where the parts of streams are staged before they're uploaded.
+	 *          The system's temp directory is used if it's null.
+	 * @param maxStagedParts
+	 *          number of parts of a stream that may be staged at once.
+	 */
+	public S3nArchiveFileSystem(FileSystem hadoopFileSystem,
+			S3MultipartUploader uploader, TransferCheckpoints transferCheckpoints,
+			TransferThrottle thawThrottle, File stagingDirectory, int maxStagedParts) {
+		super(hadoopFileSystem, transferCheckpoints, TransferThrottle.unlimited(),
+				thawThrottle);
+		this.uploader = uploader;
+		this.stagingDirectory = stagingDirectory;
+		this.maxStagedParts = maxStagedParts;
+	}
+
+	@Override
+	protected void putEntry(File src, Path dst) throws IOException {
+		uploader.upload(src, toKey(dst));
+	}
+
+	private String toKey(Path path) {
+		return getFileSystem().makeQualified(path).toUri().getPath().substring(1);
+	}
+
+	/**
+	 * The data is uploaded in parts while it's written, so at most a few parts
+	 * are on local disk at any time.
+	 */
+	@Override
+	public OutputStream openOutputStream(String path) throws IOException {
+		return uploader.openOutputStream(toKey(new Path(path)), stagingDirectory,
+				maxStagedParts);
+	}
+}
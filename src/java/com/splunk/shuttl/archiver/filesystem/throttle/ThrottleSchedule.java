@@ -0,0 +1,114 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Times of day when transfers are throttled, written like
+ * <code>08:00-18:00</code>. Several windows are separated with commas, and a
+ * window that ends before it starts, like <code>22:00-02:00</code>, wraps
+ * past midnight. An empty schedule is always active.
+ */
+public class ThrottleSchedule {
+
+	private static final ThrottleSchedule ALWAYS = new ThrottleSchedule(
+			Collections.<int[]> emptyList());
+
+	private final List<int[]> windows;
+
+	private ThrottleSchedule(List<int[]> windows) {
+		this.windows = windows;
+	}
+
+	/**
+	 * @return true if the time of day is within any of the windows.
+	 */
+	public boolean isActive(Calendar time) {
+		if (windows.isEmpty())
+			return true;
+		int minute = time.get(Calendar.HOUR_OF_DAY) * 60
+				+ time.get(Calendar.MINUTE);
+		for (int[] window : windows)
+			if (isWithin(minute, window[0], window[1]))
+				return true;
+		return false;
+	}
+
+	private static boolean isWithin(int minute, int start, int end) {
+		if (start <= end)
+			return start <= minute && minute < end;
+		else
+			return minute >= start || minute < end;
+	}
+
+	public boolean isAlways() {
+		return windows.isEmpty();
+	}
+
+	/**
+	 * @return schedule that is always active.
+	 */
+	public static ThrottleSchedule always() {
+		return ALWAYS;
+	}
+
+	/**
+	 * @param schedule
+	 *          comma separated HH:mm-HH:mm windows. Null or blank is always.
+	 * @throws IllegalArgumentException
+	 *           if the schedule can't be parsed.
+	 */
+	public static ThrottleSchedule parse(String schedule) {
+		if (schedule == null || schedule.trim().isEmpty())
+			return ALWAYS;
+		List<int[]> windows = new ArrayList<int[]>();
+		for (String window : schedule.split(","))
+			windows.add(parseWindow(window.trim(), schedule));
+		return new ThrottleSchedule(windows);
+	}
+
+	private static int[] parseWindow(String window, String schedule) {
+		int dash = window.indexOf('-');
+		if (dash < 0)
+			throw invalid(schedule);
+		return new int[] { parseMinuteOfDay(window.substring(0, dash), schedule),
+				parseMinuteOfDay(window.substring(dash + 1), schedule) };
+	}
+
+	private static int parseMinuteOfDay(String time, String schedule) {
+		String[] hoursAndMinutes = time.trim().split(":");
+		if (hoursAndMinutes.length != 2)
+			throw invalid(schedule);
+		try {
+			int hours = Integer.parseInt(hoursAndMinutes[0]);
+			int minutes = Integer.parseInt(hoursAndMinutes[1]);
+			if (hours < 0 || hours > 24 || minutes < 0 || minutes > 59
+					|| (hours == 24 && minutes != 0))
+				throw invalid(schedule);
+			return hours * 60 + minutes;
+		} catch (NumberFormatException e) {
+			throw invalid(schedule);
+		}
+	}
+
+	private static IllegalArgumentException invalid(String schedule) {
+		return new IllegalArgumentException("Throttle schedule has to be comma "
+				+ "separated HH:mm-HH:mm windows. Was: " + schedule);
+	}
+}
@@ -0,0 +1,63 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads through a {@link TransferThrottle}. The stream is one operation, which
+ * is acquired with the first read. The bytes read are reported to the
+ * thread's {@link TransferListeners}.
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+	private final TransferThrottle throttle;
+	private boolean acquiredOperation;
+
+	public ThrottledInputStream(InputStream in, TransferThrottle throttle) {
+		super(in);
+		this.throttle = throttle;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b != -1) {
+			acquire(1);
+			TransferListeners.getCurrent().bytesTransferred(1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int read = super.read(b, off, len);
+		if (read > 0) {
+			acquire(read);
+			TransferListeners.getCurrent().bytesTransferred(read);
+		}
+		return read;
+	}
+
+	private void acquire(int byteCount) throws IOException {
+		if (acquiredOperation)
+			throttle.acquireBytes(byteCount);
+		else
+			throttle.acquire(byteCount);
+		acquiredOperation = true;
+	}
+}
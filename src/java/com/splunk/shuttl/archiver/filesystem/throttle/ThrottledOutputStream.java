@@ -0,0 +1,57 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes through a {@link TransferThrottle}. The stream is one operation,
+ * which is acquired with the first write. The bytes written are reported to
+ * the thread's {@link TransferListeners}.
+ */
+public class ThrottledOutputStream extends FilterOutputStream {
+
+	private final TransferThrottle throttle;
+	private boolean acquiredOperation;
+
+	public ThrottledOutputStream(OutputStream out, TransferThrottle throttle) {
+		super(out);
+		this.throttle = throttle;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		acquire(1);
+		out.write(b);
+		TransferListeners.getCurrent().bytesTransferred(1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		acquire(len);
+		out.write(b, off, len);
+		TransferListeners.getCurrent().bytesTransferred(len);
+	}
+
+	private void acquire(int byteCount) throws IOException {
+		if (acquiredOperation)
+			throttle.acquireBytes(byteCount);
+		else
+			throttle.acquire(byteCount);
+		acquiredOperation = true;
+	}
+}
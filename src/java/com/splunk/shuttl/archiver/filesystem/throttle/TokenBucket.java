@@ -0,0 +1,107 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+/**
+ * Token bucket that limits a rate per second. Tokens are added continuously
+ * at the rate, up to one second's worth. A caller that takes more tokens than
+ * there are puts the bucket in debt and sleeps until the debt would have been
+ * paid, which lets large transfers be throttled with a single call. <br/>
+ * <br/>
+ * The rate can be changed while the bucket is in use.
+ */
+public class TokenBucket {
+
+	private static final long NANOS_PER_SECOND = 1000L * 1000L * 1000L;
+
+	private long ratePerSecond;
+	private double tokens;
+	private long lastRefillNanos;
+
+	/**
+	 * @param ratePerSecond
+	 *          tokens per second. Zero or less is unlimited.
+	 */
+	public TokenBucket(long ratePerSecond) {
+		this.ratePerSecond = ratePerSecond;
+		this.lastRefillNanos = nanoTime();
+		this.tokens = Math.max(0, ratePerSecond);
+	}
+
+	public synchronized long getRatePerSecond() {
+		return ratePerSecond;
+	}
+
+	public synchronized boolean isLimited() {
+		return ratePerSecond > 0;
+	}
+
+	/**
+	 * Changes the rate. Any debt is forgiven when the rate changes, so callers
+	 * don't keep waiting for a rate that no longer applies.
+	 */
+	public synchronized void setRatePerSecond(long ratePerSecond) {
+		if (this.ratePerSecond == ratePerSecond)
+			return;
+		refill();
+		this.ratePerSecond = ratePerSecond;
+		this.tokens = Math.max(0, Math.min(tokens, ratePerSecond));
+	}
+
+	/**
+	 * Takes the tokens and sleeps if the bucket went into debt.
+	 */
+	public void acquire(long count) throws InterruptedException {
+		long sleepNanos = take(count);
+		if (sleepNanos > 0)
+			sleepNanos(sleepNanos);
+	}
+
+	/**
+	 * @return nanoseconds to wait for the taken tokens.
+	 */
+	synchronized long take(long count) {
+		if (ratePerSecond <= 0)
+			return 0;
+		refill();
+		tokens -= count;
+		if (tokens >= 0)
+			return 0;
+		return (long) (-tokens * NANOS_PER_SECOND / ratePerSecond);
+	}
+
+	private void refill() {
+		long now = nanoTime();
+		long elapsed = now - lastRefillNanos;
+		lastRefillNanos = now;
+		if (ratePerSecond > 0 && elapsed > 0)
+			tokens = Math.min(ratePerSecond, tokens + (double) elapsed
+					* ratePerSecond / NANOS_PER_SECOND);
+	}
+
+	/**
+	 * Overridable for tests.
+	 */
+	protected long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Overridable for tests.
+	 */
+	protected void sleepNanos(long nanos) throws InterruptedException {
+		Thread.sleep(nanos / 1000000, (int) (nanos % 1000000));
+	}
+}
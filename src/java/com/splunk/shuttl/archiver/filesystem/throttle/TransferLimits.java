@@ -0,0 +1,74 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+/**
+ * Limits for a {@link TransferThrottle}. A limit of zero or less is
+ * unlimited.
+ */
+public class TransferLimits {
+
+	private static final TransferLimits UNLIMITED = new TransferLimits(0, 0,
+			ThrottleSchedule.always());
+
+	private final long bytesPerSecond;
+	private final long operationsPerSecond;
+	private final ThrottleSchedule schedule;
+
+	public TransferLimits(long bytesPerSecond, long operationsPerSecond,
+			ThrottleSchedule schedule) {
+		this.bytesPerSecond = bytesPerSecond;
+		this.operationsPerSecond = operationsPerSecond;
+		this.schedule = schedule;
+	}
+
+	public long getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	/**
+	 * @return requests to the back-end per second. See {@link TransferThrottle}
+	 *         for what counts as one.
+	 */
+	public long getOperationsPerSecond() {
+		return operationsPerSecond;
+	}
+
+	/**
+	 * @return when the limits apply.
+	 */
+	public ThrottleSchedule getSchedule() {
+		return schedule;
+	}
+
+	public static TransferLimits unlimited() {
+		return UNLIMITED;
+	}
+
+	/**
+	 * @param bytesPerSecond
+	 *          can be null for unlimited.
+	 * @param operationsPerSecond
+	 *          can be null for unlimited.
+	 * @param schedule
+	 *          see {@link ThrottleSchedule#parse(String)}.
+	 */
+	public static TransferLimits create(Long bytesPerSecond,
+			Integer operationsPerSecond, String schedule) {
+		return new TransferLimits(bytesPerSecond == null ? 0 : bytesPerSecond,
+				operationsPerSecond == null ? 0 : operationsPerSecond,
+				ThrottleSchedule.parse(schedule));
+	}
+}
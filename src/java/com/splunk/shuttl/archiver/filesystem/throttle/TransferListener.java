@@ -0,0 +1,34 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+/**
+ * Is told about the bytes that are transferred to or from the archive, while
+ * they are transferred. See {@link TransferListeners}.
+ */
+public interface TransferListener {
+
+	void bytesTransferred(long byteCount);
+
+	/**
+	 * Listener that does nothing.
+	 */
+	TransferListener NONE = new TransferListener() {
+
+		@Override
+		public void bytesTransferred(long byteCount) {
+		}
+	};
+}
@@ -0,0 +1,46 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+/**
+ * Keeps the {@link TransferListener} of the current thread. The
+ * {@link ThrottledInputStream} and {@link ThrottledOutputStream}, which every
+ * transfer in the back-ends goes through, tell it about every read and write.
+ * Work that's handed over to other threads has to take the listener with it.
+ */
+public class TransferListeners {
+
+	private static final ThreadLocal<TransferListener> current = new ThreadLocal<TransferListener>();
+
+	/**
+	 * @return the current thread's listener, or {@link TransferListener#NONE}.
+	 */
+	public static TransferListener getCurrent() {
+		TransferListener listener = current.get();
+		return listener == null ? TransferListener.NONE : listener;
+	}
+
+	/**
+	 * @return the listener that was current before, to restore when done.
+	 */
+	public static TransferListener setCurrent(TransferListener listener) {
+		TransferListener previous = getCurrent();
+		if (listener == TransferListener.NONE)
+			current.remove();
+		else
+			current.set(listener);
+		return previous;
+	}
+}
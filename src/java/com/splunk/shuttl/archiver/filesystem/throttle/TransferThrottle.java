@@ -0,0 +1,132 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Calendar;
+
+/**
+ * Throttles the bytes and the operations of transfers, with one
+ * {@link TokenBucket} for each. An operation is one request to the back-end:
+ * a throttled stream is one operation however many reads or writes it takes,
+ * and every upload attempt of a file or a part is one. The throttle is shared
+ * by every transfer in the same direction to the same back-end, so the limits
+ * are for all of them together. The limits only apply during the
+ * {@link ThrottleSchedule}, and can be changed while transfers are running.
+ */
+public class TransferThrottle {
+
+	private final TokenBucket bytes;
+	private final TokenBucket operations;
+	private volatile ThrottleSchedule schedule;
+
+	public TransferThrottle(TransferLimits limits) {
+		this(new TokenBucket(limits.getBytesPerSecond()), new TokenBucket(
+				limits.getOperationsPerSecond()), limits.getSchedule());
+	}
+
+	TransferThrottle(TokenBucket bytes, TokenBucket operations,
+			ThrottleSchedule schedule) {
+		this.bytes = bytes;
+		this.operations = operations;
+		this.schedule = schedule;
+	}
+
+	public void setLimits(TransferLimits limits) {
+		bytes.setRatePerSecond(limits.getBytesPerSecond());
+		operations.setRatePerSecond(limits.getOperationsPerSecond());
+		schedule = limits.getSchedule();
+	}
+
+	public TransferLimits getLimits() {
+		return new TransferLimits(bytes.getRatePerSecond(),
+				operations.getRatePerSecond(), schedule);
+	}
+
+	/**
+	 * Waits until one operation transferring the bytes is allowed. The tokens
+	 * for all the bytes are taken at once, so a caller that acquires a large
+	 * transfer first sleeps and then transfers at full speed. The byte limit
+	 * then only holds on average over several transfers.
+	 * 
+	 * @throws InterruptedIOException
+	 *           if the thread is interrupted while waiting.
+	 */
+	public void acquire(long byteCount) throws InterruptedIOException {
+		acquire(1, byteCount);
+	}
+
+	/**
+	 * Waits until the bytes are allowed, as part of an operation that has
+	 * already been acquired.
+	 * 
+	 * @throws InterruptedIOException
+	 *           if the thread is interrupted while waiting.
+	 */
+	public void acquireBytes(long byteCount) throws InterruptedIOException {
+		acquire(0, byteCount);
+	}
+
+	private void acquire(int operationCount, long byteCount)
+			throws InterruptedIOException {
+		if (!isActive())
+			return;
+		try {
+			if (operationCount > 0)
+				operations.acquire(operationCount);
+			bytes.acquire(byteCount);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while throttled");
+		}
+	}
+
+	private boolean isActive() {
+		if (!bytes.isLimited() && !operations.isLimited())
+			return false;
+		return schedule.isActive(now());
+	}
+
+	/**
+	 * Overridable for tests.
+	 */
+	protected Calendar now() {
+		return Calendar.getInstance();
+	}
+
+	/**
+	 * @return stream whose reads are throttled, as one operation.
+	 */
+	public InputStream throttle(InputStream in) {
+		return new ThrottledInputStream(in, this);
+	}
+
+	/**
+	 * @return stream whose writes are throttled, as one operation.
+	 */
+	public OutputStream throttle(OutputStream out) {
+		return new ThrottledOutputStream(out, this);
+	}
+
+	/**
+	 * @return throttle without limits, for transfers that are not configured
+	 *         with one.
+	 */
+	public static TransferThrottle unlimited() {
+		return new TransferThrottle(TransferLimits.unlimited());
+	}
+}
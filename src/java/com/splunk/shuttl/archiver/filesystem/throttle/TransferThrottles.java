@@ -0,0 +1,89 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps one {@link TransferThrottle} per back-end and direction. The
+ * throttles are handed to the back-ends when they are created, and their
+ * limits are changed in place when the configuration changes, so running
+ * transfers pick up new limits without a restart.
+ */
+public class TransferThrottles {
+
+	private static final Logger logger = Logger
+			.getLogger(TransferThrottles.class);
+
+	public enum Direction {
+		ARCHIVE, THAW
+	}
+
+	private final Map<String, TransferThrottle> throttles;
+
+	public TransferThrottles() {
+		this.throttles = new HashMap<String, TransferThrottle>();
+	}
+
+	/**
+	 * @return the throttle for transfers to or from the back-end. It's
+	 *         unlimited until the back-end is configured.
+	 */
+	public synchronized TransferThrottle get(String backend,
+			Direction direction) {
+		String key = keyFor(backend, direction);
+		TransferThrottle throttle = throttles.get(key);
+		if (throttle == null) {
+			throttle = TransferThrottle.unlimited();
+			throttles.put(key, throttle);
+		}
+		return throttle;
+	}
+
+	private String keyFor(String backend, Direction direction) {
+		return backend + ":" + direction;
+	}
+
+	/**
+	 * Sets the limits of the back-end's throttles, and removes the limits of
+	 * every other back-end, since only one back-end is configured at a time.
+	 */
+	public synchronized void configure(String backend,
+			TransferLimits archiveLimits, TransferLimits thawLimits) {
+		logger.info(will("Configure transfer throttles", "backend", backend,
+				"archive_bytes_per_second", archiveLimits.getBytesPerSecond(),
+				"thaw_bytes_per_second", thawLimits.getBytesPerSecond()));
+		for (TransferThrottle throttle : throttles.values())
+			throttle.setLimits(TransferLimits.unlimited());
+		get(backend, Direction.ARCHIVE).setLimits(archiveLimits);
+		get(backend, Direction.THAW).setLimits(thawLimits);
+	}
+
+	private static TransferThrottles sharedInstance;
+
+	/**
+	 * @return throttles shared by the whole Shuttl server.
+	 */
+	public static synchronized TransferThrottles getSharedInstance() {
+		if (sharedInstance == null)
+			sharedInstance = new TransferThrottles();
+		return sharedInstance;
+	}
+}
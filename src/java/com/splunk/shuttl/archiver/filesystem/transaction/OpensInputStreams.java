@@ -0,0 +1,30 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.transaction;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A file system that can open a stream to read a file with, so that data can
+ * be used while it is being transferred.
+ */
+public interface OpensInputStreams {
+
+	/**
+	 * @return stream to read the file at path. The caller closes the stream.
+	 */
+	InputStream openInputStream(String path) throws IOException;
+}
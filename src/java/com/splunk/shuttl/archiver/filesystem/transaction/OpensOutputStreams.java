@@ -0,0 +1,31 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.transaction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A file system that can open a stream to write a file with, so that data can
+ * be transferred while it is being produced.
+ */
+public interface OpensOutputStreams {
+
+	/**
+	 * @return stream to a new file at path, overwriting any existing file. The
+	 *         caller closes the stream.
+	 */
+	OutputStream openOutputStream(String path) throws IOException;
+}
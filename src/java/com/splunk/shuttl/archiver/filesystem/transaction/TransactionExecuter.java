@@ -15,6 +15,7 @@
 package com.splunk.shuttl.archiver.filesystem.transaction;
 
 import static com.splunk.shuttl.archiver.LogFormatter.*;
+import static java.util.Arrays.*;
 
 import org.apache.log4j.Logger;
 
@@ -34,6 +35,18 @@ public class TransactionExecuter {
 		TransactionExecuter.executeTransaction(transaction);
 	}
 
+	/**
+	 * Execute transactions together. All transactions are prepared before any
+	 * of them is committed, so if one fails to prepare, none is committed. The
+	 * transactions are prepared and committed in the given order, which lets a
+	 * transaction stage its data inside the temp directory of a transaction
+	 * before it and be committed by the same rename. All the transactions are
+	 * cleaned last, even if any other step throws exception.
+	 */
+	public void execute(Transaction... transactions) {
+		TransactionExecuter.executeTransactions(transactions);
+	}
+
 	/**
 	 * Execute a transaction in the right order. Makes sure that clean is always
 	 * called last, even if any other step throws exception.
@@ -54,4 +67,50 @@ public class TransactionExecuter {
 			transaction.clean();
 		}
 	}
+
+	/**
+	 * @see TransactionExecuter#execute(Transaction...)
+	 */
+	public static void executeTransactions(Transaction... transactions) {
+		try {
+			logger.info(will("Prepare transactions", "transactions",
+					asList(transactions)));
+			for (Transaction transaction : transactions)
+				transaction.prepare();
+			logger.info(done("Preparing transactions", "transactions",
+					asList(transactions)));
+			logger.info(will("Commit transactions", "transactions",
+					asList(transactions)));
+			for (Transaction transaction : transactions)
+				transaction.commit();
+			logger.info(done("Commit transactions", "transactions",
+					asList(transactions)));
+		} catch (RuntimeException e) {
+			logger.error(did("Executed transactions", e,
+					"All transactions to prepare and commit", "transactions",
+					asList(transactions)));
+			throw e;
+		} finally {
+			cleanAll(transactions);
+		}
+	}
+
+	/**
+	 * Cleans in the reverse order, so that a transaction staged inside another
+	 * transaction's temp directory is cleaned before that directory.
+	 */
+	private static void cleanAll(Transaction[] transactions) {
+		RuntimeException cleanException = null;
+		for (int i = transactions.length - 1; i >= 0; i--)
+			try {
+				transactions[i].clean();
+			} catch (RuntimeException e) {
+				logger.error(did("Cleaned transaction", e,
+						"Transaction to be cleaned", "transaction", transactions[i]));
+				if (cleanException == null)
+					cleanException = e;
+			}
+		if (cleanException != null)
+			throw cleanException;
+	}
 }
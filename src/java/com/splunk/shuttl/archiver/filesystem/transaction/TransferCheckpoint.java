@@ -0,0 +1,101 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.transaction;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Records what has been transferred so far for a transfer, so that a failed
+ * transfer can resume where it stopped. The checkpoint is kept in a local file
+ * and every recorded entry is written to disk right away.
+ */
+public class TransferCheckpoint {
+
+	private final File file;
+	private final Properties entries;
+
+	public TransferCheckpoint(File file) {
+		this.file = file;
+		this.entries = new Properties();
+		load();
+	}
+
+	private void load() {
+		if (!file.exists())
+			return;
+		try {
+			InputStream in = new FileInputStream(file);
+			try {
+				entries.load(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * @return the recorded value, or null if nothing is recorded for the key.
+	 */
+	public synchronized String get(String key) {
+		return entries.getProperty(key);
+	}
+
+	/**
+	 * Records the value and writes the checkpoint to disk.
+	 */
+	public synchronized void put(String key, String value) throws IOException {
+		entries.setProperty(key, value);
+		save();
+	}
+
+	private void save() throws IOException {
+		File parent = file.getParentFile();
+		if (parent != null)
+			parent.mkdirs();
+		File temp = new File(file.getPath() + ".tmp");
+		OutputStream out = new FileOutputStream(temp);
+		try {
+			entries.store(out, null);
+		} finally {
+			out.close();
+		}
+		if (!temp.renameTo(file)) {
+			file.delete();
+			if (!temp.renameTo(file))
+				throw new IOException("Could not write checkpoint: " + file);
+		}
+	}
+
+	public synchronized boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/**
+	 * Forgets everything recorded, when the transfer is done or can't be
+	 * resumed.
+	 */
+	public synchronized void delete() {
+		entries.clear();
+		file.delete();
+	}
+}
@@ -0,0 +1,48 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.transaction;
+
+import java.io.File;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.util.UtilsFile;
+
+/**
+ * Keeps a {@link TransferCheckpoint} for every transfer path, in a local
+ * directory.
+ */
+public class TransferCheckpoints {
+
+	private final File directory;
+
+	public TransferCheckpoints(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return checkpoint for the path that's being transferred to. The same
+	 *         path always gets the same checkpoint.
+	 */
+	public TransferCheckpoint getCheckpoint(String path) {
+		return new TransferCheckpoint(new File(directory,
+				UtilsFile.getFileNameForKey(path) + ".checkpoint"));
+	}
+
+	public static TransferCheckpoints create(
+			LocalFileSystemPaths localFileSystemPaths) {
+		return new TransferCheckpoints(
+				localFileSystemPaths.getTransferCheckpointsDirectory());
+	}
+}
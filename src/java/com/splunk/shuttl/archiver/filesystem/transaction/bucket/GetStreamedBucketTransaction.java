@@ -0,0 +1,90 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.transaction.bucket;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.FileUtils;
+
+import com.splunk.shuttl.archiver.filesystem.transaction.AbstractTransaction;
+import com.splunk.shuttl.archiver.filesystem.transaction.LocalTransactionalFileSystemFactory;
+import com.splunk.shuttl.archiver.filesystem.transaction.OpensInputStreams;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransactionalFileSystem;
+import com.splunk.shuttl.archiver.importexport.BucketStreamImporter;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Gets a bucket by importing it straight from its archived file into the
+ * local temp directory, which is then committed like any other bucket
+ * transaction. The archived file is never stored on local disk.
+ */
+public class GetStreamedBucketTransaction extends AbstractTransaction<Bucket> {
+
+	private final OpensInputStreams opensInputStreams;
+	private final BucketStreamImporter bucketStreamImporter;
+
+	private GetStreamedBucketTransaction(OpensInputStreams opensInputStreams,
+			BucketStreamImporter bucketStreamImporter,
+			TransactionalFileSystem localFileSystem, Bucket remoteBucket,
+			String temp, String dst) {
+		super(localFileSystem, localFileSystem.getBucketTransactionCleaner(),
+				remoteBucket, temp, dst);
+		this.opensInputStreams = opensInputStreams;
+		this.bucketStreamImporter = bucketStreamImporter;
+	}
+
+	@Override
+	protected void doTransferData(Bucket data, String temp, String dst)
+			throws IOException {
+		File bucketDirectory = new File(temp);
+		if (bucketDirectory.isDirectory())
+			FileUtils.cleanDirectory(bucketDirectory);
+		String file = data.getPath() + "/"
+				+ bucketStreamImporter.getFileName(data);
+		InputStream in = opensInputStreams.openInputStream(file);
+		try {
+			bucketStreamImporter.importBucket(in, bucketDirectory);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @param remoteBucket
+	 *          to import, in the format of the importer.
+	 */
+	public static GetStreamedBucketTransaction create(
+			OpensInputStreams opensInputStreams,
+			BucketStreamImporter bucketStreamImporter, Bucket remoteBucket,
+			String temp, String dst) {
+		return create(LocalTransactionalFileSystemFactory.create(),
+				opensInputStreams, bucketStreamImporter, remoteBucket, temp, dst);
+	}
+
+	/**
+	 * @param localFileSystem
+	 *          that the temp and destination directories are in.
+	 */
+	public static GetStreamedBucketTransaction create(
+			TransactionalFileSystem localFileSystem,
+			OpensInputStreams opensInputStreams,
+			BucketStreamImporter bucketStreamImporter, Bucket remoteBucket,
+			String temp, String dst) {
+		return new GetStreamedBucketTransaction(opensInputStreams,
+				bucketStreamImporter, localFileSystem, remoteBucket, temp, dst);
+	}
+}
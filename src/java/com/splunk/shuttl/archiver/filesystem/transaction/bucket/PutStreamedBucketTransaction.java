@@ -0,0 +1,87 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.transaction.bucket;
+
+import java.io.IOException;
+
+import org.apache.commons.io.output.CountingOutputStream;
+
+import com.splunk.shuttl.archiver.filesystem.transaction.AbstractTransaction;
+import com.splunk.shuttl.archiver.filesystem.transaction.HasFileStructure;
+import com.splunk.shuttl.archiver.filesystem.transaction.OpensOutputStreams;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransactionalFileSystem;
+import com.splunk.shuttl.archiver.importexport.BucketStreamExporter;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+
+/**
+ * Puts a bucket by exporting it straight into a file in the temp directory,
+ * which is then committed like any other bucket transaction.
+ */
+public class PutStreamedBucketTransaction extends AbstractTransaction<Bucket> {
+
+	private final OpensOutputStreams opensOutputStreams;
+	private final BucketStreamExporter bucketStreamExporter;
+	private final LocalBucket localBucket;
+	private long bytesWritten = -1;
+
+	private PutStreamedBucketTransaction(OpensOutputStreams opensOutputStreams,
+			BucketStreamExporter bucketStreamExporter, LocalBucket localBucket,
+			HasFileStructure hasFileStructure,
+			BucketTransactionCleaner transactionCleaner, Bucket exportedBucket,
+			String temp, String dst) {
+		super(hasFileStructure, transactionCleaner, exportedBucket, temp, dst);
+		this.opensOutputStreams = opensOutputStreams;
+		this.bucketStreamExporter = bucketStreamExporter;
+		this.localBucket = localBucket;
+	}
+
+	@Override
+	protected void doTransferData(Bucket data, String temp, String dst)
+			throws IOException {
+		String file = temp + "/" + bucketStreamExporter.getFileName(localBucket);
+		CountingOutputStream out = new CountingOutputStream(
+				opensOutputStreams.openOutputStream(file));
+		try {
+			bucketStreamExporter.exportBucket(localBucket, out);
+		} finally {
+			out.close();
+		}
+		bytesWritten = out.getByteCount();
+	}
+
+	/**
+	 * @return bytes of the exported bucket that were written to the archive, or
+	 *         -1 if the bucket has not been exported by this transaction.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * @param localBucket
+	 *          to export.
+	 * @param exportedBucket
+	 *          the bucket as it will be in the archive, in the exported format.
+	 */
+	public static PutStreamedBucketTransaction create(TransactionalFileSystem fs,
+			OpensOutputStreams opensOutputStreams,
+			BucketStreamExporter bucketStreamExporter, LocalBucket localBucket,
+			Bucket exportedBucket, String temp, String dst) {
+		return new PutStreamedBucketTransaction(opensOutputStreams,
+				bucketStreamExporter, localBucket, fs,
+				fs.getBucketTransactionCleaner(), exportedBucket, temp, dst);
+	}
+}
@@ -14,12 +14,16 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.flush;
 
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import org.apache.log4j.Logger;
+
 import com.splunk.shuttl.archiver.listers.ArchivedIndexesLister;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.FileNotDirectoryException;
@@ -34,8 +38,11 @@ import com.splunk.shuttl.archiver.util.IllegalRegexGroupException;
  */
 public class Flusher {
 
+	private static final Logger logger = Logger.getLogger(Flusher.class);
+
 	private final SplunkIndexesLayer splunkIndexesLayer;
 	private ArrayList<Bucket> flushedBuckets;
+	private ArrayList<Bucket> unparsableBuckets;
 	private ArchivedIndexesLister indexesLister;
 
 	/**
@@ -47,6 +54,7 @@ public class Flusher {
 		this.splunkIndexesLayer = splunkIndexesLayer;
 		this.indexesLister = indexesLister;
 		this.flushedBuckets = new ArrayList<Bucket>();
+		this.unparsableBuckets = new ArrayList<Bucket>();
 	}
 
 	/**
@@ -86,16 +94,21 @@ public class Flusher {
 		}
 	}
 
+	/**
+	 * Buckets with names that don't have times are not flushed. They're logged
+	 * and kept in {@link #getUnparsableBuckets()}.
+	 */
 	private List<LocalBucket> filterByTimeRange(Date earliest, Date latest,
 			List<LocalBucket> buckets) {
 		List<LocalBucket> filtered = new ArrayList<LocalBucket>();
 		for (LocalBucket b : buckets) {
 			try {
-				if (BucketFilter.isBucketWithinTimeRange(b, earliest, latest)) {
+				if (BucketFilter.isBucketWithinTimeRange(b, earliest, latest))
 					filtered.add(b);
-				}
 			} catch (IllegalRegexGroupException e) {
-				// Do nothing.
+				logger.warn(warn("Filtered thawed bucket by time range", e,
+						"Will not flush the bucket", "bucket_directory", b.getDirectory()));
+				unparsableBuckets.add(b);
 			}
 		}
 		return filtered;
@@ -107,4 +120,12 @@ public class Flusher {
 	public List<Bucket> getFlushedBuckets() {
 		return flushedBuckets;
 	}
+
+	/**
+	 * @return the buckets that were not flushed, because their names don't have
+	 *         earliest and latest times.
+	 */
+	public List<Bucket> getUnparsableBuckets() {
+		return unparsableBuckets;
+	}
 }
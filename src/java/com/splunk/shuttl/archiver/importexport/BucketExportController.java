@@ -26,6 +26,7 @@ import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.archive.UnknownBucketFormatException;
 import com.splunk.shuttl.archiver.importexport.csv.CsvExporter;
 import com.splunk.shuttl.archiver.importexport.tgz.TgzFormatExporter;
+import com.splunk.shuttl.archiver.importexport.tgz.TgzStreamExporter;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
@@ -44,6 +45,7 @@ public class BucketExportController {
 	private final static Logger logger = Logger
 			.getLogger(BucketExportController.class);
 	private Map<BucketFormat, BucketExporter> formatChangers;
+	private Map<BucketFormat, BucketStreamExporter> streamExporters;
 
 	/**
 	 * @param bucketToCsvFileExporter
@@ -52,7 +54,26 @@ public class BucketExportController {
 	 *          for creating a {@link Bucket} from the .csv file.
 	 */
 	public BucketExportController(Map<BucketFormat, BucketExporter> formatChangers) {
+		this(formatChangers, new HashMap<BucketFormat, BucketStreamExporter>());
+	}
+
+	public BucketExportController(
+			Map<BucketFormat, BucketExporter> formatChangers,
+			Map<BucketFormat, BucketStreamExporter> streamExporters) {
 		this.formatChangers = formatChangers;
+		this.streamExporters = streamExporters;
+	}
+
+	/**
+	 * @return {@link BucketStreamExporter} that can export the bucket to the new
+	 *         format, or null if the bucket cannot be exported to a stream.
+	 */
+	public BucketStreamExporter getStreamExporter(LocalBucket bucket,
+			BucketFormat newFormat) {
+		if (bucket.getFormat().equals(BucketFormat.SPLUNK_BUCKET))
+			return streamExporters.get(newFormat);
+		else
+			return null;
 	}
 
 	/**
@@ -101,11 +122,23 @@ public class BucketExportController {
 	 */
 	public static BucketExportController create(CsvExporter csvExporter,
 			TgzFormatExporter tgzFormatExporter) {
+		return create(csvExporter, tgzFormatExporter, new TgzStreamExporter());
+	}
+
+	/**
+	 * @return an instance of the {@link BucketExportController} that streams
+	 *         tgz exports with the {@link TgzStreamExporter}.
+	 */
+	public static BucketExportController create(CsvExporter csvExporter,
+			TgzFormatExporter tgzFormatExporter, TgzStreamExporter tgzStreamExporter) {
 		Map<BucketFormat, BucketExporter> formatChangers = new HashMap<BucketFormat, BucketExporter>();
 		formatChangers.put(BucketFormat.CSV, csvExporter);
 		formatChangers.put(BucketFormat.SPLUNK_BUCKET_TGZ, tgzFormatExporter);
 
-		return new BucketExportController(formatChangers);
+		Map<BucketFormat, BucketStreamExporter> streamExporters = new HashMap<BucketFormat, BucketStreamExporter>();
+		streamExporters.put(BucketFormat.SPLUNK_BUCKET_TGZ, tgzStreamExporter);
+
+		return new BucketExportController(formatChangers, streamExporters);
 	}
 
 }
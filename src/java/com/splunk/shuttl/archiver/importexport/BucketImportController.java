@@ -20,6 +20,7 @@ import java.util.Map;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.importexport.csv.CsvImporter;
 import com.splunk.shuttl.archiver.importexport.tgz.TgzImporter;
+import com.splunk.shuttl.archiver.importexport.tgz.TgzStreamImporter;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
@@ -30,13 +31,28 @@ import com.splunk.shuttl.archiver.model.LocalBucket;
 public class BucketImportController {
 
 	private final Map<BucketFormat, BucketImporter> importers;
+	private final Map<BucketFormat, BucketStreamImporter> streamImporters;
 
 	/**
 	 * @param importers
 	 *          to import buckets from CSV to SPLUNK_BUCKET.
 	 */
 	public BucketImportController(Map<BucketFormat, BucketImporter> importers) {
+		this(importers, new HashMap<BucketFormat, BucketStreamImporter>());
+	}
+
+	public BucketImportController(Map<BucketFormat, BucketImporter> importers,
+			Map<BucketFormat, BucketStreamImporter> streamImporters) {
 		this.importers = importers;
+		this.streamImporters = streamImporters;
+	}
+
+	/**
+	 * @return {@link BucketStreamImporter} that can import a bucket from the
+	 *         format while it's transferred, or null if there is none.
+	 */
+	public BucketStreamImporter getStreamImporter(BucketFormat format) {
+		return streamImporters.get(format);
 	}
 
 	/**
@@ -61,8 +77,11 @@ public class BucketImportController {
 		Map<BucketFormat, BucketImporter> importers = new HashMap<BucketFormat, BucketImporter>();
 		importers.put(BucketFormat.CSV, CsvImporter.create());
 		importers.put(BucketFormat.SPLUNK_BUCKET_TGZ, TgzImporter.create());
+		Map<BucketFormat, BucketStreamImporter> streamImporters = new HashMap<BucketFormat, BucketStreamImporter>();
+		streamImporters.put(BucketFormat.SPLUNK_BUCKET_TGZ,
+				new TgzStreamImporter());
 
-		return new BucketImportController(importers);
+		return new BucketImportController(importers, streamImporters);
 	}
 
 }
@@ -0,0 +1,48 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Imports a bucket to {@link BucketFormat#SPLUNK_BUCKET} by reading the
+ * archived bucket from a stream, instead of from a file on local disk like the
+ * {@link BucketImporter} does. The stream can be opened directly on the
+ * archive.
+ */
+public interface BucketStreamImporter {
+
+	/**
+	 * @return format that the bucket is imported from.
+	 */
+	BucketFormat getFormat();
+
+	/**
+	 * @return name of the file that the archived bucket is stored as.
+	 */
+	String getFileName(Bucket bucket);
+
+	/**
+	 * Reads the archived bucket from the stream and writes the bucket's files
+	 * in {@link BucketFormat#SPLUNK_BUCKET} to the directory. Does not close the
+	 * stream.
+	 */
+	void importBucket(InputStream in, File bucketDirectory) throws IOException;
+}
@@ -14,19 +14,22 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.importexport.tgz;
 
-import static java.util.Arrays.*;
-
 import java.io.File;
-import java.util.HashMap;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
 
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.importexport.GetsBucketsExportFile;
-import com.splunk.shuttl.archiver.importexport.ShellExecutor;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
 /**
  * Creates a tgz file from a bucket. Useful when either compressing the buckets
- * or when wanting to represent a bucket as a single file.
+ * or when wanting to represent a bucket as a single file. The tgz is written
+ * in-process by a {@link TgzStreamExporter}, so it is compressed in parallel
+ * the same way as a streamed tgz.
  */
 public class CreatesBucketTgz {
 
@@ -34,14 +37,17 @@ public class CreatesBucketTgz {
 
 		private static final long serialVersionUID = 1L;
 
+		public TgzBucketCreationFailedException(Throwable cause) {
+			super(cause);
+		}
 	}
 
-	private final ShellExecutor shellExecutor;
+	private final TgzStreamExporter tgzStreamExporter;
 	private GetsBucketsExportFile getsBucketsExportFile;
 
-	public CreatesBucketTgz(ShellExecutor shellExecutor,
+	public CreatesBucketTgz(TgzStreamExporter tgzStreamExporter,
 			GetsBucketsExportFile getsBucketsExportFile) {
-		this.shellExecutor = shellExecutor;
+		this.tgzStreamExporter = tgzStreamExporter;
 		this.getsBucketsExportFile = getsBucketsExportFile;
 	}
 
@@ -52,36 +58,43 @@ public class CreatesBucketTgz {
 		File tgz = getsBucketsExportFile.getExportFile(bucket, "tgz");
 		try {
 			createTgzFileFromBucket(bucket, tgz);
-		} catch (TgzBucketCreationFailedException e) {
+		} catch (IOException e) {
+			tgz.delete();
+			throw new TgzBucketCreationFailedException(e);
+		} catch (RuntimeException e) {
 			tgz.delete();
 			throw e;
 		}
 		return tgz;
 	}
 
-	private void createTgzFileFromBucket(LocalBucket bucket, File tgz) {
-		String[] command = buildTgzCommand(bucket, tgz);
-		executeCommand(command);
-	}
-
-	private String[] buildTgzCommand(LocalBucket bucket, File tgz) {
-		File bucketDir = bucket.getDirectory();
-		String parentPath = bucketDir.getParentFile().getAbsolutePath();
-		String tgzCmd = "tar -C " + parentPath + " -c " + bucketDir.getName()
-				+ " | gzip -c > " + tgz.getAbsolutePath();
-		return new String[] { "/bin/sh", "-c", tgzCmd };
+	private void createTgzFileFromBucket(LocalBucket bucket, File tgz)
+			throws IOException {
+		OutputStream out = new FileOutputStream(tgz);
+		try {
+			tgzStreamExporter.exportBucket(bucket, out);
+			out.close();
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
 	}
 
-	private void executeCommand(String[] cmd) {
-		HashMap<String, String> emptyMap = new HashMap<String, String>();
-		int exit = shellExecutor.executeCommand(emptyMap, asList(cmd));
-		if (exit != 0)
-			throw new TgzBucketCreationFailedException();
+	/**
+	 * Compresses on the calling thread with the default compression level.
+	 */
+	public static CreatesBucketTgz create(
+			LocalFileSystemPaths localFileSystemPaths) {
+		return create(localFileSystemPaths, new TgzStreamExporter());
 	}
 
+	/**
+	 * @param tgzStreamExporter
+	 *          with the configured compression pool, level and threads.
+	 */
 	public static CreatesBucketTgz create(
-			LocalFileSystemPaths localFileSystemPaths) {
-		return new CreatesBucketTgz(ShellExecutor.getInstance(),
-				new GetsBucketsExportFile(localFileSystemPaths));
+			LocalFileSystemPaths localFileSystemPaths,
+			TgzStreamExporter tgzStreamExporter) {
+		return new CreatesBucketTgz(tgzStreamExporter, new GetsBucketsExportFile(
+				localFileSystemPaths));
 	}
 }
@@ -0,0 +1,193 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Gunzips every member of a gzip stream until the end of the stream, such as
+ * the multi-member output of {@link ParallelGzipOutputStream}. Unlike
+ * {@link java.util.zip.GZIPInputStream}, whether there is another member is
+ * decided by reading the underlying stream, never by its available(). Every
+ * member's CRC and size is verified.
+ */
+public class GzipMembersInputStream extends InputStream {
+
+	private static final int MAGIC = 0x8b1f;
+	private static final int DEFLATE = 8;
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private final InputStream in;
+	private final byte[] buffer;
+	private final Inflater inflater;
+	private final CRC32 crc;
+	private int position;
+	private int limit;
+	private boolean eof;
+	private boolean closed;
+
+	/**
+	 * Reads the header of the first member.
+	 * 
+	 * @throws ZipException
+	 *           if the stream is not gzip.
+	 */
+	public GzipMembersInputStream(InputStream in, int bufferSize)
+			throws IOException {
+		this.in = in;
+		this.buffer = new byte[bufferSize];
+		this.inflater = new Inflater(true);
+		this.crc = new CRC32();
+		readHeader();
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (closed)
+			throw new IOException("Stream closed");
+		if (len == 0)
+			return 0;
+		while (!eof) {
+			if (inflater.needsInput())
+				setInflaterInput();
+			int read = inflate(b, off, len);
+			if (inflater.finished())
+				finishMember();
+			if (read > 0)
+				return read;
+		}
+		return -1;
+	}
+
+	private void setInflaterInput() throws IOException {
+		if (position == limit && fill() == -1)
+			throw new EOFException("Unexpected end of gzip stream");
+		inflater.setInput(buffer, position, limit - position);
+		position = limit;
+	}
+
+	private int inflate(byte[] b, int off, int len) throws IOException {
+		try {
+			int read = inflater.inflate(b, off, len);
+			if (read == 0 && inflater.needsDictionary())
+				throw new ZipException("Gzip member needs a preset dictionary");
+			crc.update(b, off, read);
+			return read;
+		} catch (DataFormatException e) {
+			String message = e.getMessage();
+			throw new ZipException(message != null ? message
+					: "Invalid gzip data");
+		}
+	}
+
+	/**
+	 * Verifies the member's trailer, then starts on the next member, unless the
+	 * stream has ended.
+	 */
+	private void finishMember() throws IOException {
+		position = limit - inflater.getRemaining();
+		long expectedCrc = readIntLE();
+		long expectedSize = readIntLE();
+		if (expectedCrc != crc.getValue())
+			throw new ZipException("Corrupt gzip member, CRC mismatch");
+		if (expectedSize != (inflater.getBytesWritten() & 0xffffffffL))
+			throw new ZipException("Corrupt gzip member, size mismatch");
+		if (position == limit && fill() == -1) {
+			eof = true;
+		} else {
+			inflater.reset();
+			crc.reset();
+			readHeader();
+		}
+	}
+
+	private void readHeader() throws IOException {
+		if (readShortLE() != MAGIC)
+			throw new ZipException("Not in GZIP format");
+		if (readByte() != DEFLATE)
+			throw new ZipException("Unsupported gzip compression method");
+		int flags = readByte();
+		skipBytes(6);
+		if ((flags & FEXTRA) != 0)
+			skipBytes(readShortLE());
+		if ((flags & FNAME) != 0)
+			skipZeroTerminated();
+		if ((flags & FCOMMENT) != 0)
+			skipZeroTerminated();
+		if ((flags & FHCRC) != 0)
+			skipBytes(2);
+	}
+
+	private void skipZeroTerminated() throws IOException {
+		while (readByte() != 0)
+			continue;
+	}
+
+	private void skipBytes(int n) throws IOException {
+		for (int i = 0; i < n; i++)
+			readByte();
+	}
+
+	private long readIntLE() throws IOException {
+		return ((long) readShortLE()) | ((long) readShortLE() << 16);
+	}
+
+	private int readShortLE() throws IOException {
+		return readByte() | (readByte() << 8);
+	}
+
+	private int readByte() throws IOException {
+		if (position == limit && fill() == -1)
+			throw new EOFException("Unexpected end of gzip stream");
+		return buffer[position++] & 0xff;
+	}
+
+	/**
+	 * @return bytes read into the empty buffer, or -1 at the end of the stream.
+	 */
+	private int fill() throws IOException {
+		int read;
+		do {
+			read = in.read(buffer, 0, buffer.length);
+		} while (read == 0);
+		position = 0;
+		limit = Math.max(0, read);
+		return read;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			inflater.end();
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,173 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compresses on multiple threads, like pigz. The data is split into
+ * blocks, which are compressed concurrently on the {@link Executor} and
+ * written in order.<br/>
+ * <br/>
+ * The output is multi-member: every block is a complete gzip member, and the
+ * members are concatenated. That is a standard gzip stream, which gzip and tar
+ * read, but it has to be read with a reader that reads every member until the
+ * end of the stream, such as {@link GzipMembersInputStream}.
+ * {@link java.util.zip.GZIPInputStream} stops after a member whenever the
+ * underlying stream's available() returns 0, which network streams often do,
+ * and then silently returns only part of the data.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+	private final OutputStream out;
+	private final Executor executor;
+	private final int level;
+	private final int blockSize;
+	private final int maxBlocksInFlight;
+	private final LinkedList<FutureTask<byte[]>> blocksInFlight;
+
+	private byte[] block;
+	private int blockLength;
+	private boolean hasSubmittedBlock;
+	private boolean closed;
+
+	/**
+	 * @param maxBlocksInFlight
+	 *          number of blocks that may be compressing or waiting to be
+	 *          written, which bounds the memory used.
+	 */
+	public ParallelGzipOutputStream(OutputStream out, Executor executor,
+			int level, int blockSize, int maxBlocksInFlight) {
+		this.out = out;
+		this.executor = executor;
+		this.level = level;
+		this.blockSize = blockSize;
+		this.maxBlocksInFlight = Math.max(1, maxBlocksInFlight);
+		this.blocksInFlight = new LinkedList<FutureTask<byte[]>>();
+		this.block = new byte[blockSize];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (closed)
+			throw new IOException("Stream closed");
+		while (len > 0) {
+			int n = Math.min(len, blockSize - blockLength);
+			System.arraycopy(b, off, block, blockLength, n);
+			blockLength += n;
+			off += n;
+			len -= n;
+			if (blockLength == blockSize)
+				submitBlock();
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		FutureTask<byte[]> compression = new FutureTask<byte[]>(
+				new CompressesBlock(block, blockLength, level));
+		blocksInFlight.add(compression);
+		hasSubmittedBlock = true;
+		block = new byte[blockSize];
+		blockLength = 0;
+		executor.execute(compression);
+
+		while (blocksInFlight.size() > maxBlocksInFlight)
+			writeOldestBlock();
+	}
+
+	private void writeOldestBlock() throws IOException {
+		FutureTask<byte[]> compression = blocksInFlight.removeFirst();
+		try {
+			out.write(compression.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing");
+		} catch (ExecutionException e) {
+			throw new IOException("Could not compress block", e.getCause());
+		}
+	}
+
+	/**
+	 * Compresses and writes all the data written so far, without closing the
+	 * underlying stream. Nothing can be written after this.
+	 */
+	public void finish() throws IOException {
+		if (blockLength > 0 || !hasSubmittedBlock)
+			submitBlock();
+		while (!blocksInFlight.isEmpty())
+			writeOldestBlock();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		try {
+			finish();
+		} finally {
+			closed = true;
+			out.close();
+		}
+	}
+
+	private static class CompressesBlock implements Callable<byte[]> {
+
+		private final byte[] data;
+		private final int length;
+		private final int level;
+
+		public CompressesBlock(byte[] data, int length, int level) {
+			this.data = data;
+			this.length = length;
+			this.level = level;
+		}
+
+		@Override
+		public byte[] call() throws IOException {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+					length / 2 + 64);
+			GZIPOutputStream gzip = new LeveledGzipOutputStream(compressed, level);
+			gzip.write(data, 0, length);
+			gzip.close();
+			return compressed.toByteArray();
+		}
+	}
+
+	private static class LeveledGzipOutputStream extends GZIPOutputStream {
+
+		public LeveledGzipOutputStream(OutputStream out, int level)
+				throws IOException {
+			super(out);
+			def.setLevel(level);
+		}
+	}
+}
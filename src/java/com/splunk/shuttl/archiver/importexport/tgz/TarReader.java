@@ -0,0 +1,326 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Reads a tar archive from an {@link InputStream} and extracts it, without
+ * the archive ever being on local disk. Reads the archives that
+ * {@link TarWriter} and GNU tar write: ustar, GNU long names, sizes in binary
+ * and pax headers. Only regular files and directories are extracted.
+ */
+public class TarReader {
+
+	private static final int BLOCK_SIZE = 512;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final byte TYPE_OLD_FILE = 0;
+	private static final byte TYPE_FILE = '0';
+	private static final byte TYPE_CONTIGUOUS_FILE = '7';
+	private static final byte TYPE_DIRECTORY = '5';
+	private static final byte TYPE_LONG_NAME = 'L';
+	private static final byte TYPE_PAX_HEADER = 'x';
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[64 * 1024];
+
+	public TarReader(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Extracts what is in the archive's top directory to the directory, like
+	 * running <code>tar -x --strip-components 1 -C dir</code>. Reads until the
+	 * end of archive marker. Does not close the stream.
+	 * 
+	 * @throws IOException
+	 *           if the archive is corrupt, ends before the end of archive
+	 *           marker or an entry would be extracted outside of the directory.
+	 */
+	public void extractDirectoryContents(File dir) throws IOException {
+		byte[] header = new byte[BLOCK_SIZE];
+		String nextName = null;
+		long nextSize = -1;
+		while (readBlock(header)) {
+			verifyChecksum(header);
+			byte type = header[156];
+			long size = nextSize >= 0 ? nextSize : getSize(header);
+			String name = nextName != null ? nextName : getName(header);
+			nextName = null;
+			nextSize = -1;
+
+			if (type == TYPE_LONG_NAME) {
+				nextName = trimNul(new String(readContent(size), UTF8));
+			} else if (type == TYPE_PAX_HEADER) {
+				PaxHeader pax = new PaxHeader(readContent(size));
+				nextName = pax.path;
+				nextSize = pax.size;
+			} else if (type == TYPE_DIRECTORY) {
+				File directory = getFileInDirectory(dir, name);
+				if (directory != null && !directory.isDirectory()
+						&& !directory.mkdirs())
+					throw new IOException("Could not create directory: " + directory);
+			} else if (type == TYPE_FILE || type == TYPE_OLD_FILE
+					|| type == TYPE_CONTIGUOUS_FILE) {
+				extractFile(getFileInDirectory(dir, name), size,
+						(int) parseOctal(header, 100, 8),
+						parseOctal(header, 136, 12) * 1000);
+			} else {
+				skipContent(size);
+			}
+		}
+	}
+
+	private void extractFile(File file, long size, int mode,
+			long lastModifiedMillis) throws IOException {
+		if (file == null)
+			throw new IOException("Tar archive has a file outside of its directory");
+		File parent = file.getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs())
+			throw new IOException("Could not create directory: " + parent);
+
+		OutputStream out = new FileOutputStream(file);
+		try {
+			copy(out, size);
+		} finally {
+			out.close();
+		}
+		skipPadding(size);
+		if ((mode & 0100) != 0)
+			file.setExecutable(true);
+		file.setLastModified(lastModifiedMillis);
+	}
+
+	/**
+	 * @return file in the directory for the entry name without its first path
+	 *         element, or null for the top directory itself.
+	 */
+	private static File getFileInDirectory(File dir, String name)
+			throws IOException {
+		String path = name;
+		while (path.startsWith("./"))
+			path = path.substring(2);
+		int slash = path.indexOf('/');
+		String relative = slash < 0 ? "" : path.substring(slash + 1);
+		while (relative.endsWith("/"))
+			relative = relative.substring(0, relative.length() - 1);
+		if (relative.length() == 0)
+			return null;
+		for (String element : relative.split("/"))
+			if (element.equals(".."))
+				throw new IOException("Tar entry is outside of its directory: "
+						+ name);
+		return new File(dir, relative);
+	}
+
+	/**
+	 * @return false at the end of archive marker, which is two blocks of zeroes.
+	 * @throws IOException
+	 *           if the stream ends before the end of archive marker, since the
+	 *           archive is then truncated.
+	 */
+	private boolean readBlock(byte[] block) throws IOException {
+		readBlockFully(block);
+		if (!isZeroes(block))
+			return true;
+		readBlockFully(block);
+		if (!isZeroes(block))
+			throw new IOException("Tar archive has a single block of zeroes "
+					+ "in the middle of it");
+		return false;
+	}
+
+	private void readBlockFully(byte[] block) throws IOException {
+		if (readFully(block, 0, BLOCK_SIZE) < BLOCK_SIZE)
+			throw new IOException("Unexpected end of tar archive, "
+					+ "before its end of archive marker");
+	}
+
+	private int readFully(byte[] b, int off, int len) throws IOException {
+		int total = 0;
+		while (total < len) {
+			int read = in.read(b, off + total, len - total);
+			if (read == -1)
+				break;
+			total += read;
+		}
+		return total;
+	}
+
+	private static boolean isZeroes(byte[] block) {
+		for (byte b : block)
+			if (b != 0)
+				return false;
+		return true;
+	}
+
+	private byte[] readContent(long size) throws IOException {
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("Tar header entry is too large: " + size);
+		byte[] content = new byte[(int) size];
+		if (readFully(content, 0, content.length) != content.length)
+			throw new IOException("Unexpected end of tar archive");
+		skipPadding(size);
+		return content;
+	}
+
+	private void copy(OutputStream out, long size) throws IOException {
+		long left = size;
+		while (left > 0) {
+			int read = in.read(buffer, 0, (int) Math.min(buffer.length, left));
+			if (read == -1)
+				throw new IOException("Unexpected end of tar archive");
+			out.write(buffer, 0, read);
+			left -= read;
+		}
+	}
+
+	private void skipContent(long size) throws IOException {
+		skip(size);
+		skipPadding(size);
+	}
+
+	private void skipPadding(long size) throws IOException {
+		int remainder = (int) (size % BLOCK_SIZE);
+		if (remainder != 0)
+			skip(BLOCK_SIZE - remainder);
+	}
+
+	private void skip(long n) throws IOException {
+		long left = n;
+		while (left > 0) {
+			int read = in.read(buffer, 0, (int) Math.min(buffer.length, left));
+			if (read == -1)
+				throw new IOException("Unexpected end of tar archive");
+			left -= read;
+		}
+	}
+
+	private static String getName(byte[] header) {
+		String name = getString(header, 0, 100);
+		String prefix = getString(header, 345, 155);
+		boolean isUstar = getString(header, 257, 6).startsWith("ustar")
+				&& header[262] == 0;
+		if (isUstar && prefix.length() > 0)
+			return prefix + "/" + name;
+		return name;
+	}
+
+	private static String getString(byte[] header, int offset, int length) {
+		int end = offset;
+		while (end < offset + length && header[end] != 0)
+			end++;
+		return new String(header, offset, end - offset, UTF8);
+	}
+
+	private static String trimNul(String s) {
+		int nul = s.indexOf(0);
+		return nul < 0 ? s : s.substring(0, nul);
+	}
+
+	/**
+	 * Sizes too large for the octal field are a big endian binary number,
+	 * marked by the high bit, as GNU tar writes them.
+	 */
+	private static long getSize(byte[] header) {
+		if ((header[124] & 0x80) == 0)
+			return parseOctal(header, 124, 12);
+		long size = 0;
+		for (int i = 125; i < 136; i++)
+			size = (size << 8) | (header[i] & 0xff);
+		return size;
+	}
+
+	private static long parseOctal(byte[] header, int offset, int length) {
+		long value = 0;
+		for (int i = offset; i < offset + length; i++) {
+			byte b = header[i];
+			if (b >= '0' && b <= '7')
+				value = value * 8 + (b - '0');
+			else if (b == 0 || (b == ' ' && value > 0))
+				break;
+		}
+		return value;
+	}
+
+	private static void verifyChecksum(byte[] header) throws IOException {
+		long expected = parseOctal(header, 148, 8);
+		long unsigned = 0;
+		long signed = 0;
+		for (int i = 0; i < BLOCK_SIZE; i++) {
+			byte b = (i >= 148 && i < 156) ? (byte) ' ' : header[i];
+			unsigned += b & 0xff;
+			signed += b;
+		}
+		if (expected != unsigned && expected != signed)
+			throw new IOException("Tar header has an invalid checksum");
+	}
+
+	/**
+	 * The records of a pax extended header that are used: the path and size of
+	 * the next entry.
+	 */
+	private static class PaxHeader {
+
+		private String path;
+		private long size = -1;
+
+		public PaxHeader(byte[] content) throws IOException {
+			int offset = 0;
+			while (offset < content.length && content[offset] != 0) {
+				int space = indexOf(content, (byte) ' ', offset);
+				if (space < 0)
+					throw new IOException("Invalid pax header");
+				int length = Integer.parseInt(new String(content, offset, space
+						- offset, UTF8));
+				if (length <= 0 || offset + length > content.length)
+					throw new IOException("Invalid pax header");
+				String record = new String(content, space + 1, offset + length
+						- space - 2, UTF8);
+				parseRecord(record);
+				offset += length;
+			}
+		}
+
+		private void parseRecord(String record) throws IOException {
+			int equals = record.indexOf('=');
+			if (equals < 0)
+				return;
+			String key = record.substring(0, equals);
+			String value = record.substring(equals + 1);
+			if (key.equals("path"))
+				path = value;
+			else if (key.equals("size"))
+				try {
+					size = Long.parseLong(value);
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid size in pax header: " + value);
+				}
+		}
+
+		private static int indexOf(byte[] bytes, byte b, int from) {
+			for (int i = from; i < bytes.length; i++)
+				if (bytes[i] == b)
+					return i;
+			return -1;
+		}
+	}
+}
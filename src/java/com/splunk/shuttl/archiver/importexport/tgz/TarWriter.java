@@ -0,0 +1,182 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Writes a directory tree as a tar archive to an {@link OutputStream}. The
+ * archive has the same layout as running <code>tar -C parent -c dir</code>,
+ * using the GNU tar format so that long paths and large files are supported.
+ * Only regular files and directories are written.
+ */
+public class TarWriter {
+
+	private static final int BLOCK_SIZE = 512;
+	private static final int NAME_LENGTH = 100;
+	private static final long MAX_OCTAL_SIZE = 077777777777L;
+	private static final String LONG_NAME_ENTRY = "././@LongLink";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final byte TYPE_FILE = '0';
+	private static final byte TYPE_DIRECTORY = '5';
+	private static final byte TYPE_LONG_NAME = 'L';
+
+	private final OutputStream out;
+	private final byte[] buffer = new byte[64 * 1024];
+
+	public TarWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Writes the directory, named by its own name, and everything in it. Call
+	 * {@link #finish()} when all directories are written.
+	 */
+	public void writeDirectory(File dir) throws IOException {
+		writeDirectory(dir, dir.getName() + "/");
+	}
+
+	private void writeDirectory(File dir, String name) throws IOException {
+		writeHeader(name, TYPE_DIRECTORY, 0, 0755, dir.lastModified());
+		File[] children = dir.listFiles();
+		if (children == null)
+			throw new IOException("Could not list directory: " + dir);
+		Arrays.sort(children);
+		for (File child : children)
+			if (child.isDirectory())
+				writeDirectory(child, name + child.getName() + "/");
+			else if (child.isFile())
+				writeFile(child, name + child.getName());
+	}
+
+	private void writeFile(File file, String name) throws IOException {
+		long size = file.length();
+		writeHeader(name, TYPE_FILE, size, file.canExecute() ? 0755 : 0644,
+				file.lastModified());
+		InputStream in = new FileInputStream(file);
+		try {
+			long written = copy(in, size);
+			if (written != size)
+				throw new IOException("File changed size while being archived: "
+						+ file);
+		} finally {
+			in.close();
+		}
+		pad(size);
+	}
+
+	private long copy(InputStream in, long size) throws IOException {
+		long written = 0;
+		int read;
+		while (written < size
+				&& (read = in.read(buffer, 0,
+						(int) Math.min(buffer.length, size - written))) != -1) {
+			out.write(buffer, 0, read);
+			written += read;
+		}
+		return written;
+	}
+
+	private void writeHeader(String name, byte type, long size, int mode,
+			long lastModifiedMillis) throws IOException {
+		byte[] nameBytes = name.getBytes(UTF8);
+		if (nameBytes.length > NAME_LENGTH)
+			writeLongName(nameBytes);
+
+		byte[] header = new byte[BLOCK_SIZE];
+		System.arraycopy(nameBytes, 0, header, 0,
+				Math.min(nameBytes.length, NAME_LENGTH));
+		putOctal(header, 100, 8, mode);
+		putOctal(header, 108, 8, 0);
+		putOctal(header, 116, 8, 0);
+		putSize(header, size);
+		putOctal(header, 136, 12, lastModifiedMillis / 1000);
+		header[156] = type;
+		putAscii(header, 257, "ustar  ");
+		putChecksum(header);
+		out.write(header);
+	}
+
+	private void writeLongName(byte[] nameBytes) throws IOException {
+		byte[] nulTerminated = Arrays.copyOf(nameBytes, nameBytes.length + 1);
+		writeHeader(LONG_NAME_ENTRY, TYPE_LONG_NAME, nulTerminated.length, 0644, 0);
+		out.write(nulTerminated);
+		pad(nulTerminated.length);
+	}
+
+	/**
+	 * Sizes too large for the octal field are written as a big endian binary
+	 * number, marked by the high bit, as GNU tar does.
+	 */
+	private void putSize(byte[] header, long size) {
+		if (size <= MAX_OCTAL_SIZE) {
+			putOctal(header, 124, 12, size);
+		} else {
+			for (int i = 135; i > 124; i--) {
+				header[i] = (byte) size;
+				size >>>= 8;
+			}
+			header[124] = (byte) 0x80;
+		}
+	}
+
+	private static void putOctal(byte[] header, int offset, int length,
+			long value) {
+		String octal = Long.toOctalString(value);
+		int digits = length - 1;
+		StringBuilder sb = new StringBuilder(digits);
+		for (int i = octal.length(); i < digits; i++)
+			sb.append('0');
+		sb.append(octal);
+		putAscii(header, offset, sb.toString());
+		header[offset + digits] = 0;
+	}
+
+	private static void putAscii(byte[] header, int offset, String s) {
+		for (int i = 0; i < s.length(); i++)
+			header[offset + i] = (byte) s.charAt(i);
+	}
+
+	private static void putChecksum(byte[] header) {
+		Arrays.fill(header, 148, 156, (byte) ' ');
+		long sum = 0;
+		for (byte b : header)
+			sum += b & 0xff;
+		putOctal(header, 148, 7, sum);
+		header[155] = ' ';
+	}
+
+	private void pad(long written) throws IOException {
+		int remainder = (int) (written % BLOCK_SIZE);
+		if (remainder != 0)
+			out.write(new byte[BLOCK_SIZE - remainder]);
+	}
+
+	/**
+	 * Writes the end of archive marker and flushes. Does not close the
+	 * underlying stream.
+	 */
+	public void finish() throws IOException {
+		out.write(new byte[2 * BLOCK_SIZE]);
+		out.flush();
+	}
+}
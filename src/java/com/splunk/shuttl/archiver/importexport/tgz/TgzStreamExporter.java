@@ -0,0 +1,83 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.importexport.BucketStreamExporter;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
+
+/**
+ * Tars and gzips a bucket in-process, straight to a stream. The result is the
+ * same kind of .tgz that {@link CreatesBucketTgz} creates, without writing it
+ * to local disk first. The gzip compression is done in parallel with a
+ * {@link ParallelGzipOutputStream}.
+ */
+public class TgzStreamExporter implements BucketStreamExporter {
+
+	private final Executor compressionExecutor;
+	private final int compressionLevel;
+	private final int compressionThreads;
+
+	/**
+	 * Compresses on the calling thread with the default compression level.
+	 */
+	public TgzStreamExporter() {
+		this(new CallingThreadExecutor(),
+				ArchiveConfiguration.DEFAULT_COMPRESSION_LEVEL, 1);
+	}
+
+	/**
+	 * @param compressionExecutor
+	 *          to compress on, which should have compressionThreads threads.
+	 */
+	public TgzStreamExporter(Executor compressionExecutor, int compressionLevel,
+			int compressionThreads) {
+		this.compressionExecutor = compressionExecutor;
+		this.compressionLevel = compressionLevel;
+		this.compressionThreads = compressionThreads;
+	}
+
+	@Override
+	public BucketFormat getFormat() {
+		return BucketFormat.SPLUNK_BUCKET_TGZ;
+	}
+
+	@Override
+	public String getFileName(LocalBucket bucket) {
+		return bucket.getName() + ".tgz";
+	}
+
+	/**
+	 * Two blocks per thread keeps every thread busy while the oldest block is
+	 * written.
+	 */
+	@Override
+	public void exportBucket(LocalBucket bucket, OutputStream out)
+			throws IOException {
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out,
+				compressionExecutor, compressionLevel,
+				ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE, 2 * compressionThreads);
+		TarWriter tarWriter = new TarWriter(gzip);
+		tarWriter.writeDirectory(bucket.getDirectory());
+		tarWriter.finish();
+		gzip.finish();
+	}
+}
@@ -0,0 +1,51 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.importexport.BucketStreamImporter;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Gunzips and untars a bucket in-process, straight from a stream. Imports the
+ * same kind of .tgz that the {@link TgzImporter} imports, without the .tgz
+ * being written to local disk first. Every gzip member is read, so the
+ * multi-member .tgz of the {@link TgzStreamExporter} is imported whole.
+ */
+public class TgzStreamImporter implements BucketStreamImporter {
+
+	private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+	@Override
+	public BucketFormat getFormat() {
+		return BucketFormat.SPLUNK_BUCKET_TGZ;
+	}
+
+	@Override
+	public String getFileName(Bucket bucket) {
+		return bucket.getName() + ".tgz";
+	}
+
+	@Override
+	public void importBucket(InputStream in, File bucketDirectory)
+			throws IOException {
+		InputStream gunzip = new GzipMembersInputStream(in, GZIP_BUFFER_SIZE);
+		new TarReader(gunzip).extractDirectoryContents(bucketDirectory);
+	}
+}
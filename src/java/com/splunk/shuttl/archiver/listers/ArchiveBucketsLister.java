@@ -24,10 +24,14 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog.CreatesBuckets;
+import com.splunk.shuttl.archiver.catalog.CatalogedBucket;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.RemoteBucket;
+import com.splunk.shuttl.archiver.thaw.BucketTimeIndex;
 
 /**
  * Lists {@link Bucket}s in an {@link ArchiveFileSystem}.
@@ -39,6 +43,7 @@ public class ArchiveBucketsLister {
 	private final ArchivedIndexesLister indexesLister;
 	private final PathResolver pathResolver;
 	private final ArchiveFileSystem archiveFileSystem;
+	private final ArchiveCatalog archiveCatalog;
 
 	/**
 	 * 
@@ -51,16 +56,38 @@ public class ArchiveBucketsLister {
 	 */
 	public ArchiveBucketsLister(ArchiveFileSystem archiveFileSystem,
 			ArchivedIndexesLister indexesLister, PathResolver pathResolver) {
+		this(archiveFileSystem, indexesLister, pathResolver, null);
+	}
+
+	/**
+	 * @param archiveCatalog
+	 *          to list the {@link Bucket}s from, instead of the
+	 *          {@link ArchiveFileSystem}, when the catalog is complete. Can be
+	 *          null.
+	 */
+	public ArchiveBucketsLister(ArchiveFileSystem archiveFileSystem,
+			ArchivedIndexesLister indexesLister, PathResolver pathResolver,
+			ArchiveCatalog archiveCatalog) {
 		this.archiveFileSystem = archiveFileSystem;
 		this.indexesLister = indexesLister;
 		this.pathResolver = pathResolver;
+		this.archiveCatalog = archiveCatalog;
+	}
+
+	/**
+	 * @return indexes that buckets can be listed in.
+	 */
+	public List<String> listIndexes() {
+		return indexesLister.listIndexes();
 	}
 
 	/**
 	 * List buckets in an {@link ArchiveFileSystem}.<br/>
-	 * Note: Buckets returned will have {@link BucketFormat} = null;
+	 * Note: Buckets listed from the archive will have {@link BucketFormat} =
+	 * null. Buckets listed from a complete catalog have the first format they
+	 * are cataloged in.
 	 * 
-	 * @return list of buckets with null {@link BucketFormat}.
+	 * @return list of buckets.
 	 */
 	public List<Bucket> listBuckets() {
 		List<Bucket> buckets = new ArrayList<Bucket>();
@@ -72,17 +99,62 @@ public class ArchiveBucketsLister {
 	/**
 	 * Lists {@link Bucket}s for an index that's been archived in an
 	 * {@link ArchiveFileSystem}<br/>
-	 * Note: Buckets returned will have {@link BucketFormat} = null;
+	 * Note: Buckets listed from the archive will have {@link BucketFormat} =
+	 * null. Buckets listed from a complete catalog have the first format they
+	 * are cataloged in, with its path and size.
 	 * 
 	 * @return {@link Bucket}s archived for an index.
 	 */
 	public List<Bucket> listBucketsInIndex(String index) {
+		if (archiveCatalog != null && archiveCatalog.isComplete())
+			return listCatalogedBucketsInIndex(index);
 		ArrayList<Bucket> buckets = new ArrayList<Bucket>();
 		for (String pathToBucket : getPathToBucketsWithIndex(index))
 			buckets.add(createBucketFromPathToBucket(pathToBucket));
 		return buckets;
 	}
 
+	private List<Bucket> listCatalogedBucketsInIndex(String index) {
+		List<Bucket> buckets = new ArrayList<Bucket>();
+		for (CatalogedBucket catalogedBucket : archiveCatalog.getBuckets(index))
+			buckets.add(createBucketFromCatalogedBucket(catalogedBucket));
+		return buckets;
+	}
+
+	/**
+	 * Lists the {@link Bucket}s of an index like
+	 * {@link #listBucketsInIndex(String)}, indexed by time for filtering them
+	 * by time range. A complete catalog keeps the index until the catalog
+	 * changes, so it's only built again when needed.
+	 * 
+	 * @return {@link Bucket}s archived for an index, indexed by time.
+	 */
+	public BucketTimeIndex<Bucket> indexBucketsInIndex(String index) {
+		if (archiveCatalog != null && archiveCatalog.isComplete())
+			return archiveCatalog.getTimeIndex(index, new CreatesBuckets() {
+
+				@Override
+				public Bucket createBucket(CatalogedBucket catalogedBucket) {
+					return createBucketFromCatalogedBucket(catalogedBucket);
+				}
+			});
+		else
+			return BucketTimeIndex.create(listBucketsInIndex(index));
+	}
+
+	private Bucket createBucketFromCatalogedBucket(
+			CatalogedBucket catalogedBucket) {
+		String index = catalogedBucket.getIndex();
+		String name = catalogedBucket.getName();
+		List<BucketFormat> formats = catalogedBucket.getFormats();
+		if (formats.isEmpty())
+			return new RemoteBucket(pathResolver.getFormatsHome(index, name), index,
+					name, (BucketFormat) null);
+		BucketFormat format = formats.get(0);
+		return new RemoteBucket(catalogedBucket.getPath(format), index, name,
+				format, catalogedBucket.getSize(format));
+	}
+
 	private List<String> getPathToBucketsWithIndex(String index) {
 		String bucketsHome = pathResolver.getBucketsHome(index);
 		List<String> pathsToBuckets = listBucketsHomeInArchive(bucketsHome);
@@ -15,6 +15,8 @@
 package com.splunk.shuttl.archiver.listers;
 
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogFactory;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
@@ -32,10 +34,12 @@ public class ArchiveBucketsListerFactory {
 				.getWithConfiguration(config);
 		PathResolver pathResolver = new PathResolver(config);
 
+		ArchiveCatalog archiveCatalog = ArchiveCatalogFactory.create(config);
+
 		ArchivedIndexesLister indexesLister = new ArchivedIndexesLister(
-				pathResolver, archiveFileSystem);
+				pathResolver, archiveFileSystem, archiveCatalog);
 		return new ArchiveBucketsLister(archiveFileSystem, indexesLister,
-				pathResolver);
+				pathResolver, archiveCatalog);
 	}
 
 }
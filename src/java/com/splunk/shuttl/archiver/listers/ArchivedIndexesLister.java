@@ -23,6 +23,7 @@ import java.util.List;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
 
@@ -35,6 +36,7 @@ public class ArchivedIndexesLister {
 			.getLogger(ArchivedIndexesLister.class);
 	private final PathResolver pathResolver;
 	private final ArchiveFileSystem fileSystem;
+	private final ArchiveCatalog archiveCatalog;
 
 	/**
 	 * @param pathResolver
@@ -44,8 +46,20 @@ public class ArchivedIndexesLister {
 	 */
 	public ArchivedIndexesLister(PathResolver pathResolver,
 			ArchiveFileSystem fileSystem) {
+		this(pathResolver, fileSystem, null);
+	}
+
+	/**
+	 * @param archiveCatalog
+	 *          to list the indexes from, instead of the
+	 *          {@link ArchiveFileSystem}, when the catalog is complete. Can be
+	 *          null.
+	 */
+	public ArchivedIndexesLister(PathResolver pathResolver,
+			ArchiveFileSystem fileSystem, ArchiveCatalog archiveCatalog) {
 		this.pathResolver = pathResolver;
 		this.fileSystem = fileSystem;
+		this.archiveCatalog = archiveCatalog;
 	}
 
 	/**
@@ -53,6 +67,8 @@ public class ArchivedIndexesLister {
 	 *         {@link ArchiveFileSystem}
 	 */
 	public List<String> listIndexes() {
+		if (archiveCatalog != null && archiveCatalog.isComplete())
+			return archiveCatalog.getIndexes();
 		String indexesHome = pathResolver.getIndexesHome();
 		List<String> indexPaths = listIndexesPathsOnArchiveFileSystem(indexesHome);
 		List<String> indexes = new ArrayList<String>();
@@ -15,6 +15,7 @@
 package com.splunk.shuttl.archiver.listers;
 
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogFactory;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
 
@@ -33,7 +34,8 @@ public class ArchivedIndexesListerFactory {
 	 */
 	public static ArchivedIndexesLister create(ArchiveConfiguration config) {
 		return new ArchivedIndexesLister(new PathResolver(config),
-				ArchiveFileSystemFactory.getWithConfiguration(config));
+				ArchiveFileSystemFactory.getWithConfiguration(config),
+				ArchiveCatalogFactory.create(config));
 	}
 
 }
@@ -0,0 +1,71 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.listers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * A page of listed buckets, and the cursor to the next page.
+ */
+public class BucketPage {
+
+	private final List<Bucket> buckets;
+	private final String nextCursor;
+
+	public BucketPage(List<Bucket> buckets, String nextCursor) {
+		this.buckets = buckets;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<Bucket> getBuckets() {
+		return buckets;
+	}
+
+	/**
+	 * @return cursor to list the next page with, or null if this is the last
+	 *         page.
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	/**
+	 * @return page of buckets that are all in memory, in the sort order.
+	 */
+	public static BucketPage pageOf(List<? extends Bucket> buckets,
+			BucketSort sort, int limit, String cursor) {
+		Comparator<Bucket> comparator = sort.getComparator();
+		List<Bucket> sorted = new ArrayList<Bucket>(buckets);
+		Collections.sort(sorted, comparator);
+		Bucket after = cursor == null ? null : sort.parseCursor(cursor);
+
+		List<Bucket> page = new ArrayList<Bucket>();
+		String nextCursor = null;
+		for (Bucket bucket : sorted)
+			if (after == null || comparator.compare(bucket, after) > 0) {
+				if (page.size() == limit) {
+					nextCursor = sort.getCursor(page.get(limit - 1));
+					break;
+				}
+				page.add(bucket);
+			}
+		return new BucketPage(page, nextCursor);
+	}
+}
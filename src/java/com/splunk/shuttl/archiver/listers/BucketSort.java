@@ -0,0 +1,162 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.listers;
+
+import java.util.Comparator;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.RemoteBucket;
+
+/**
+ * Order to list buckets in, one page at a time. Buckets with the same sort key
+ * are ordered by index and name, so that the order is the same for every page.
+ * A page continues after a cursor, which identifies the last bucket of the
+ * previous page.
+ */
+public class BucketSort {
+
+	public enum By {
+		EARLIEST, LATEST, SIZE, NAME
+	}
+
+	private static final String CURSOR_SEPARATOR = "/";
+
+	private final By by;
+	private final boolean descending;
+
+	public BucketSort(By by, boolean descending) {
+		this.by = by;
+		this.descending = descending;
+	}
+
+	public By getBy() {
+		return by;
+	}
+
+	public boolean isDescending() {
+		return descending;
+	}
+
+	/**
+	 * @return true if the buckets need their sizes to be sorted.
+	 */
+	public boolean needsSizes() {
+		return by == By.SIZE;
+	}
+
+	/**
+	 * @return true if the buckets are ordered by index first, so that they can
+	 *         be listed one index at a time.
+	 */
+	public boolean isByIndex() {
+		return by == By.NAME;
+	}
+
+	public Comparator<Bucket> getComparator() {
+		return new Comparator<Bucket>() {
+
+			@Override
+			public int compare(Bucket a, Bucket b) {
+				int compared = compareKey(a, b);
+				if (compared == 0)
+					compared = compareIndexAndName(a, b);
+				return descending ? -compared : compared;
+			}
+		};
+	}
+
+	/**
+	 * @return comparison of two indexes in this sort order.
+	 */
+	public int compareIndexes(String a, String b) {
+		return descending ? b.compareTo(a) : a.compareTo(b);
+	}
+
+	private int compareKey(Bucket a, Bucket b) {
+		switch (by) {
+		case EARLIEST:
+			return a.getEarliest().compareTo(b.getEarliest());
+		case LATEST:
+			return a.getLatest().compareTo(b.getLatest());
+		case SIZE:
+			return compareLongs(sizeOf(a), sizeOf(b));
+		default:
+			return 0;
+		}
+	}
+
+	private static int compareIndexAndName(Bucket a, Bucket b) {
+		int compared = a.getIndex().compareTo(b.getIndex());
+		return compared != 0 ? compared : a.getName().compareTo(b.getName());
+	}
+
+	private static int compareLongs(long a, long b) {
+		return a < b ? -1 : (a == b ? 0 : 1);
+	}
+
+	private static long sizeOf(Bucket bucket) {
+		return bucket.getSize() == null ? 0 : bucket.getSize();
+	}
+
+	/**
+	 * @return cursor that a page continues after, to get the buckets that come
+	 *         after the bucket.
+	 */
+	public String getCursor(Bucket bucket) {
+		String cursor = bucket.getIndex() + CURSOR_SEPARATOR + bucket.getName();
+		if (needsSizes())
+			cursor += CURSOR_SEPARATOR + sizeOf(bucket);
+		return cursor;
+	}
+
+	/**
+	 * @return bucket with what the cursor identifies, which can be compared with
+	 *         this sort's comparator.
+	 * @throws IllegalArgumentException
+	 *           if the cursor is not a cursor of this sort.
+	 */
+	public Bucket parseCursor(String cursor) {
+		String[] parts = cursor.split(CURSOR_SEPARATOR);
+		if (parts.length != (needsSizes() ? 3 : 2))
+			throw new IllegalArgumentException("Not a cursor when sorting by "
+					+ by.name().toLowerCase() + ": " + cursor);
+		try {
+			Long size = needsSizes() ? Long.valueOf(parts[2]) : null;
+			return new RemoteBucket(cursor, parts[0], parts[1], (BucketFormat) null,
+					size);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Not a cursor: " + cursor, e);
+		}
+	}
+
+	/**
+	 * @param sort
+	 *          earliest, latest, size or name, with a '-' in front for
+	 *          descending order.
+	 * @throws IllegalArgumentException
+	 *           if the sort is not one of them.
+	 */
+	public static BucketSort parse(String sort) {
+		boolean descending = sort.startsWith("-");
+		String by = descending ? sort.substring(1) : sort;
+		try {
+			return new BucketSort(By.valueOf(by.toUpperCase()), descending);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Can only sort by "
+					+ "earliest, latest, size or name. Was: " + sort);
+		}
+	}
+}
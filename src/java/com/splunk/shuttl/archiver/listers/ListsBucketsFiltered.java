@@ -14,12 +14,16 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.listers;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.thaw.BucketFilter;
 import com.splunk.shuttl.archiver.thaw.BucketFormatResolver;
+import com.splunk.shuttl.archiver.thaw.BucketSizeResolver;
 
 /**
  * Lists buckets in the archive, filtered by time range.
@@ -29,12 +33,25 @@ public class ListsBucketsFiltered {
 	private final ArchiveBucketsLister bucketsLister;
 	private final BucketFilter bucketFilter;
 	private final BucketFormatResolver bucketFormatResolver;
+	private final BucketSizeResolver bucketSizeResolver;
 
 	public ListsBucketsFiltered(ArchiveBucketsLister bucketsLister,
 			BucketFilter bucketFilter, BucketFormatResolver bucketFormatResolver) {
+		this(bucketsLister, bucketFilter, bucketFormatResolver, null);
+	}
+
+	/**
+	 * @param bucketSizeResolver
+	 *          to resolve the sizes of the buckets in a page. Can be null, when
+	 *          the pages are never sorted by size and sizes are not needed.
+	 */
+	public ListsBucketsFiltered(ArchiveBucketsLister bucketsLister,
+			BucketFilter bucketFilter, BucketFormatResolver bucketFormatResolver,
+			BucketSizeResolver bucketSizeResolver) {
 		this.bucketsLister = bucketsLister;
 		this.bucketFilter = bucketFilter;
 		this.bucketFormatResolver = bucketFormatResolver;
+		this.bucketSizeResolver = bucketSizeResolver;
 	}
 
 	/**
@@ -43,8 +60,8 @@ public class ListsBucketsFiltered {
 	 * @see ListsBucketsFiltered#listFilteredBucketsAtIndex(String, Date, Date)
 	 */
 	public List<Bucket> listFilteredBuckets(Date earliestTime, Date latestTime) {
-		List<Bucket> allBuckets = bucketsLister.listBuckets();
-		return filterBucketsAndGiveThemFormats(allBuckets, earliestTime, latestTime);
+		return bucketFormatResolver.resolveBucketsFormats(filterBucketsInIndexOrAll(
+				null, earliestTime, latestTime));
 	}
 
 	/**
@@ -55,16 +72,113 @@ public class ListsBucketsFiltered {
 	 */
 	public List<Bucket> listFilteredBucketsAtIndex(String index,
 			Date earliestTime, Date latestTime) {
-		List<Bucket> bucketsInIndex = bucketsLister.listBucketsInIndex(index);
-		return filterBucketsAndGiveThemFormats(bucketsInIndex, earliestTime,
-				latestTime);
+		return bucketFormatResolver.resolveBucketsFormats(filterBucketsInIndex(
+				index, earliestTime, latestTime));
+	}
+
+	/**
+	 * Filters the buckets with the index by time of the listing, which is built
+	 * once per listing of an index.
+	 */
+	private List<Bucket> filterBucketsInIndex(String index, Date earliestTime,
+			Date latestTime) {
+		return bucketFilter.filterBucketsByTimeRange(
+				bucketsLister.indexBucketsInIndex(index), earliestTime, latestTime);
+	}
+
+	private List<Bucket> filterBucketsInIndexOrAll(String index,
+			Date earliestTime, Date latestTime) {
+		if (index != null)
+			return filterBucketsInIndex(index, earliestTime, latestTime);
+		List<Bucket> buckets = new ArrayList<Bucket>();
+		for (String i : bucketsLister.listIndexes())
+			buckets.addAll(filterBucketsInIndex(i, earliestTime, latestTime));
+		return buckets;
 	}
 
-	private List<Bucket> filterBucketsAndGiveThemFormats(
-			List<Bucket> bucketsToFilter, Date earliestTime, Date latestTime) {
-		List<Bucket> filteredBuckets = bucketFilter.filterBucketsByTimeRange(
-				bucketsToFilter, earliestTime, latestTime);
-		return bucketFormatResolver.resolveBucketsFormats(filteredBuckets);
+	/**
+	 * Lists a page of buckets filtered by earliest and latest time, in the sort
+	 * order. Only the buckets in the page get their formats and sizes resolved,
+	 * unless the buckets are sorted by size. When sorted by name, the indexes
+	 * are listed one at a time until the page is filled.
+	 * 
+	 * @param index
+	 *          to list buckets in. if {@code null}, list buckets in all indexes.
+	 * @param cursor
+	 *          to continue after, from the previous page. {@code null} for the
+	 *          first page.
+	 */
+	public BucketPage listFilteredBucketsPage(String index, Date earliestTime,
+			Date latestTime, BucketSort sort, int limit, String cursor) {
+		Bucket after = cursor == null ? null : sort.parseCursor(cursor);
+		List<Bucket> candidates;
+		if (sort.isByIndex())
+			candidates = listSortedIndexByIndex(index, earliestTime, latestTime,
+					sort, after, limit + 1);
+		else
+			candidates = sortAfter(filterBucketsInIndexOrAll(index, earliestTime,
+					latestTime), sort, after);
+
+		boolean hasNextPage = candidates.size() > limit;
+		List<Bucket> page = candidates.subList(0, Math.min(limit,
+				candidates.size()));
+		if (!sort.needsSizes())
+			page = resolveSizes(bucketFormatResolver.resolveBucketsFormats(page));
+		String nextCursor = hasNextPage ? sort.getCursor(page.get(page.size() - 1))
+				: null;
+		return new BucketPage(new ArrayList<Bucket>(page), nextCursor);
+	}
+
+	private List<Bucket> listSortedIndexByIndex(String index,
+			Date earliestTime, Date latestTime, final BucketSort sort, Bucket after,
+			int atLeast) {
+		List<String> indexes = new ArrayList<String>();
+		if (index == null)
+			indexes.addAll(bucketsLister.listIndexes());
+		else
+			indexes.add(index);
+		Collections.sort(indexes, new Comparator<String>() {
+
+			@Override
+			public int compare(String a, String b) {
+				return sort.compareIndexes(a, b);
+			}
+		});
+
+		List<Bucket> buckets = new ArrayList<Bucket>();
+		for (String i : indexes) {
+			if (after != null && sort.compareIndexes(i, after.getIndex()) < 0)
+				continue;
+			buckets.addAll(sortAfter(filterBucketsInIndex(i, earliestTime,
+					latestTime), sort, after));
+			if (buckets.size() >= atLeast)
+				break;
+		}
+		return buckets;
+	}
+
+	private List<Bucket> sortAfter(List<Bucket> filtered, BucketSort sort,
+			Bucket after) {
+		List<Bucket> sorted = filtered;
+		if (sort.needsSizes())
+			sorted = resolveSizes(bucketFormatResolver.resolveBucketsFormats(sorted));
+		else
+			sorted = new ArrayList<Bucket>(sorted);
+		Comparator<Bucket> comparator = sort.getComparator();
+		Collections.sort(sorted, comparator);
+		if (after == null)
+			return sorted;
+
+		List<Bucket> afterCursor = new ArrayList<Bucket>();
+		for (Bucket bucket : sorted)
+			if (comparator.compare(bucket, after) > 0)
+				afterCursor.add(bucket);
+		return afterCursor;
 	}
 
+	private List<Bucket> resolveSizes(List<Bucket> buckets) {
+		if (bucketSizeResolver == null)
+			return buckets;
+		return bucketSizeResolver.resolveBucketSizes(buckets);
+	}
 }
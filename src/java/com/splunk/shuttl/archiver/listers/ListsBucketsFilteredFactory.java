@@ -14,10 +14,14 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.listers;
 
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.thaw.BucketFilter;
 import com.splunk.shuttl.archiver.thaw.BucketFormatResolver;
 import com.splunk.shuttl.archiver.thaw.BucketFormatResolverFactory;
+import com.splunk.shuttl.archiver.thaw.BucketSizeResolver;
+import com.splunk.shuttl.archiver.thaw.BucketSizeResolverFactory;
 
 /**
  * Factory for creating {@link ListsBucketsFiltered} instances.
@@ -34,8 +38,11 @@ public class ListsBucketsFilteredFactory {
 		BucketFilter bucketFilter = new BucketFilter();
 		BucketFormatResolver bucketFormatResolver = BucketFormatResolverFactory
 				.create(config);
+		BucketSizeResolver bucketSizeResolver = BucketSizeResolverFactory.create(
+				config, ArchiveFileSystemFactory.getWithConfiguration(config),
+				LocalFileSystemPaths.create());
 		return new ListsBucketsFiltered(bucketsLister, bucketFilter,
-				bucketFormatResolver);
+				bucketFormatResolver, bucketSizeResolver);
 	}
 
 }
@@ -17,7 +17,7 @@ package com.splunk.shuttl.archiver.metastore;
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
-import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
+import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
 import com.splunk.shuttl.archiver.metastore.MetadataStore.CouldNotReadMetadataException;
 import com.splunk.shuttl.archiver.model.Bucket;
 
@@ -56,6 +56,19 @@ public class ArchiveBucketSize {
 		}
 	}
 
+	/**
+	 * @return size of an archived bucket if it's stored on the local file
+	 *         system, otherwise null. Never reads from the archive.
+	 */
+	public Long readLocalBucketSize(Bucket bucket) {
+		String size = metadataStore.readLocal(bucket, getSizeMetadataFileName());
+		try {
+			return size == null ? null : Long.parseLong(size);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
 	/**
 	 * @return file name of the metadata file with bucket size.
 	 */
@@ -64,11 +77,12 @@ public class ArchiveBucketSize {
 	}
 
 	/**
-	 * @param bucket
-	 *          to persist bucket size for.
+	 * @return transaction that persists the bucket size, for executing together
+	 *         with the bucket's transaction.
 	 */
-	public void persistBucketSize(Bucket bucket) {
-		metadataStore.put(bucket, getSizeMetadataFileName(), "" + bucket.getSize());
+	public Transaction createPersistBucketSizeTransaction(Bucket bucket) {
+		return metadataStore.createPutTransaction(bucket,
+				getSizeMetadataFileName(), "" + bucket.getSize());
 	}
 
 	/**
@@ -79,8 +93,7 @@ public class ArchiveBucketSize {
 	public static ArchiveBucketSize create(PathResolver pathResolver,
 			ArchiveFileSystem archiveFileSystem,
 			LocalFileSystemPaths localFileSystemPaths) {
-		return new ArchiveBucketSize(new MetadataStore(pathResolver,
-				new FlatFileStorage(localFileSystemPaths), archiveFileSystem,
-				new TransactionExecuter(), localFileSystemPaths));
+		return new ArchiveBucketSize(MetadataStore.create(pathResolver,
+				archiveFileSystem, localFileSystemPaths));
 	}
 }
@@ -16,7 +16,9 @@ package com.splunk.shuttl.archiver.metastore;
 
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
 
 import org.apache.commons.io.FileUtils;
@@ -83,7 +85,15 @@ public class FlatFileStorage {
 	}
 
 	private String getFirstLineFromFile(File file) throws IOException {
-		return FileUtils.readLines(file).get(0);
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String firstLine = reader.readLine();
+			if (firstLine == null)
+				throw new IOException("Flat file is empty: " + file);
+			return firstLine;
+		} finally {
+			reader.close();
+		}
 	}
 
 	public static class FlatFileReadException extends RuntimeException {
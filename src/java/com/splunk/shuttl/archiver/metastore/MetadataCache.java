@@ -0,0 +1,305 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metastore;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.server.mbeans.ShuttlMBeanException;
+import com.splunk.shuttl.server.mbeans.util.RegistersMBeans;
+
+/**
+ * Bounded in memory cache of bucket metadata, in front of the
+ * {@link FlatFileStorage}. Entries are kept per bucket and metadata file name
+ * and the least recently used entries are evicted when the cache is full. The
+ * cache is split into segments that are locked separately, so that
+ * concurrent readers of different buckets rarely wait for each other. <br/>
+ * <br/>
+ * Metadata is only cached for a while, since the archive can be changed by
+ * someone else. Metadata that could not be found in the archive is cached as
+ * missing for a shorter while, since the bucket might be archived at any time.
+ */
+public class MetadataCache implements MetadataCacheMBean {
+
+	private static final Logger logger = Logger.getLogger(MetadataCache.class);
+
+	public static final int DEFAULT_MAX_SIZE = 10000;
+	public static final long DEFAULT_TTL_MILLIS = 15 * 60 * 1000;
+	public static final long DEFAULT_MISSING_TTL_MILLIS = 60 * 1000;
+
+	private static final int SEGMENTS = 16;
+
+	private final int maxSize;
+	private final long ttlMillis;
+	private final long missingTtlMillis;
+	private final Segment[] segments;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong negativeHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @param maxSize
+	 *          maximum number of cached entries. Nothing is cached when zero.
+	 * @param missingTtlMillis
+	 *          time that metadata is cached as missing.
+	 */
+	public MetadataCache(int maxSize, long missingTtlMillis) {
+		this(maxSize, DEFAULT_TTL_MILLIS, missingTtlMillis);
+	}
+
+	/**
+	 * @param ttlMillis
+	 *          time that metadata is cached.
+	 */
+	public MetadataCache(int maxSize, long ttlMillis, long missingTtlMillis) {
+		this.maxSize = Math.max(0, maxSize);
+		this.ttlMillis = ttlMillis;
+		this.missingTtlMillis = missingTtlMillis;
+		this.segments = new Segment[SEGMENTS];
+		int segmentSize = (this.maxSize + SEGMENTS - 1) / SEGMENTS;
+		for (int i = 0; i < SEGMENTS; i++)
+			segments[i] = new Segment(segmentSize);
+	}
+
+	/**
+	 * @return the cached metadata, which might be cached as missing, or null if
+	 *         nothing is cached for the bucket and file name.
+	 */
+	public CachedMetadata get(Bucket bucket, String fileName) {
+		if (maxSize == 0)
+			return null;
+		String key = keyFor(bucket, fileName);
+		Segment segment = segmentFor(key);
+		CachedMetadata cached;
+		synchronized (segment) {
+			cached = segment.get(key);
+			if (cached != null && cached.hasExpired(now())) {
+				segment.remove(key);
+				cached = null;
+			}
+		}
+		countLookup(cached);
+		return cached;
+	}
+
+	private void countLookup(CachedMetadata cached) {
+		if (cached == null)
+			misses.incrementAndGet();
+		else if (cached.isMissing())
+			negativeHits.incrementAndGet();
+		else
+			hits.incrementAndGet();
+	}
+
+	/**
+	 * Caches the metadata for the configured time to live.
+	 */
+	public void put(Bucket bucket, String fileName, String data) {
+		if (data == null)
+			throw new IllegalArgumentException("Use putMissing for missing data");
+		put(keyFor(bucket, fileName),
+				new CachedMetadata(data, now() + ttlMillis));
+	}
+
+	/**
+	 * Caches the metadata as missing for the configured time to live.
+	 */
+	public void putMissing(Bucket bucket, String fileName) {
+		put(keyFor(bucket, fileName), new CachedMetadata(null, now()
+				+ missingTtlMillis));
+	}
+
+	private void put(String key, CachedMetadata cached) {
+		if (maxSize == 0)
+			return;
+		Segment segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, cached);
+		}
+	}
+
+	public void remove(Bucket bucket, String fileName) {
+		String key = keyFor(bucket, fileName);
+		Segment segment = segmentFor(key);
+		synchronized (segment) {
+			segment.remove(key);
+		}
+	}
+
+	private String keyFor(Bucket bucket, String fileName) {
+		return bucket.getIndex() + "/" + bucket.getName() + "/"
+				+ bucket.getFormat() + "/" + fileName;
+	}
+
+	private Segment segmentFor(String key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return segments[(hash & 0x7fffffff) % SEGMENTS];
+	}
+
+	/**
+	 * Current time in milliseconds. Overridable for tests.
+	 */
+	protected long now() {
+		return System.currentTimeMillis();
+	}
+
+	@Override
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	@Override
+	public long getNegativeHitCount() {
+		return negativeHits.get();
+	}
+
+	@Override
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	@Override
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	@Override
+	public int getSize() {
+		int size = 0;
+		for (Segment segment : segments)
+			synchronized (segment) {
+				size += segment.size();
+			}
+		return size;
+	}
+
+	@Override
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	@Override
+	public void clear() {
+		for (Segment segment : segments)
+			synchronized (segment) {
+				segment.clear();
+			}
+	}
+
+	/**
+	 * Metadata in the cache. Missing metadata has no data.
+	 */
+	public static class CachedMetadata {
+
+		private final String data;
+		private final long expiresAtMillis;
+
+		private CachedMetadata(String data, long expiresAtMillis) {
+			this.data = data;
+			this.expiresAtMillis = expiresAtMillis;
+		}
+
+		public boolean isMissing() {
+			return data == null;
+		}
+
+		public String getData() {
+			return data;
+		}
+
+		private boolean hasExpired(long nowMillis) {
+			return nowMillis >= expiresAtMillis;
+		}
+	}
+
+	/**
+	 * Access ordered map, which evicts the least recently used entry when it
+	 * grows over its size.
+	 */
+	private class Segment extends LinkedHashMap<String, CachedMetadata> {
+
+		private static final long serialVersionUID = 0L;
+
+		private final int maxSegmentSize;
+
+		public Segment(int maxSegmentSize) {
+			super(16, 0.75f, true);
+			this.maxSegmentSize = maxSegmentSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(
+				Map.Entry<String, CachedMetadata> eldest) {
+			if (size() > maxSegmentSize) {
+				evictions.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * @return cache that doesn't cache anything.
+	 */
+	public static MetadataCache createDisabled() {
+		return new MetadataCache(0, 0, 0);
+	}
+
+	private static final Map<String, MetadataCache> caches = new HashMap<String, MetadataCache>();
+
+	/**
+	 * @return the cache for the archiver directory. The same directory always
+	 *         gets the same instance, which is registered as an MBean.
+	 */
+	public static MetadataCache getInstance(
+			LocalFileSystemPaths localFileSystemPaths) {
+		String archiverDir = localFileSystemPaths.getArchiverDirectory()
+				.getAbsolutePath();
+		synchronized (caches) {
+			MetadataCache cache = caches.get(archiverDir);
+			if (cache == null) {
+				cache = new MetadataCache(DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS,
+						DEFAULT_MISSING_TTL_MILLIS);
+				registerMBean(cache, archiverDir);
+				caches.put(archiverDir, cache);
+			}
+			return cache;
+		}
+	}
+
+	private static void registerMBean(MetadataCache cache, String archiverDir) {
+		String name = OBJECT_NAME + ",name=" + ObjectName.quote(archiverDir);
+		try {
+			RegistersMBeans.create().registerMBean(name, cache);
+		} catch (ShuttlMBeanException e) {
+			logger.warn(warn("Tried registering the metadata cache MBean", e,
+					"Will cache metadata without exposing its counters", "name",
+					name));
+		}
+	}
+}
@@ -0,0 +1,50 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metastore;
+
+/**
+ * Hit and miss counters of the {@link MetadataCache}.
+ */
+public interface MetadataCacheMBean {
+
+	String OBJECT_NAME = "com.splunk.shuttl.mbeans:type=MetadataCache";
+
+	/**
+	 * @return reads that were answered with cached metadata.
+	 */
+	long getHitCount();
+
+	/**
+	 * @return reads that were answered by a cached, not yet expired, miss of
+	 *         the remote metadata.
+	 */
+	long getNegativeHitCount();
+
+	/**
+	 * @return reads that had to go to the flat files or the archive.
+	 */
+	long getMissCount();
+
+	long getEvictionCount();
+
+	int getSize();
+
+	int getMaxSize();
+
+	/**
+	 * Removes all cached metadata. Counters are kept.
+	 */
+	void clear();
+}
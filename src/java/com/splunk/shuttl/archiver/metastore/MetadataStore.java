@@ -32,10 +32,12 @@ import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.filesystem.transaction.file.GetFileTransaction;
 import com.splunk.shuttl.archiver.filesystem.transaction.file.PutFileTransaction;
 import com.splunk.shuttl.archiver.metastore.FlatFileStorage.FlatFileReadException;
+import com.splunk.shuttl.archiver.metastore.MetadataCache.CachedMetadata;
 import com.splunk.shuttl.archiver.model.Bucket;
 
 /**
- * Puts and gets metadata that's unique for a bucket.
+ * Puts and gets metadata that's unique for a bucket. Metadata is read through
+ * a {@link MetadataCache}, which is written through on put.
  */
 public class MetadataStore {
 
@@ -46,16 +48,30 @@ public class MetadataStore {
 	private final ArchiveFileSystem archiveFileSystem;
 	private final TransactionExecuter transactionExecuter;
 	private final LocalFileSystemPaths localFileSystemPaths;
+	private final MetadataCache metadataCache;
 
+	/**
+	 * Store that reads the flat files every time.
+	 */
 	public MetadataStore(PathResolver pathResolver,
 			FlatFileStorage flatFileStorage, ArchiveFileSystem archiveFileSystem,
 			TransactionExecuter transactionExecuter,
 			LocalFileSystemPaths localFileSystemPaths) {
+		this(pathResolver, flatFileStorage, archiveFileSystem,
+				transactionExecuter, localFileSystemPaths, MetadataCache
+						.createDisabled());
+	}
+
+	public MetadataStore(PathResolver pathResolver,
+			FlatFileStorage flatFileStorage, ArchiveFileSystem archiveFileSystem,
+			TransactionExecuter transactionExecuter,
+			LocalFileSystemPaths localFileSystemPaths, MetadataCache metadataCache) {
 		this.pathResolver = pathResolver;
 		this.flatFileStorage = flatFileStorage;
 		this.archiveFileSystem = archiveFileSystem;
 		this.transactionExecuter = transactionExecuter;
 		this.localFileSystemPaths = localFileSystemPaths;
+		this.metadataCache = metadataCache;
 	}
 
 	/**
@@ -63,8 +79,7 @@ public class MetadataStore {
 	 */
 	public void put(Bucket bucket, String fileName, String data) {
 		try {
-			transactionExecuter.execute(putBucketSizeTransaction(bucket, fileName,
-					data));
+			transactionExecuter.execute(createPutTransaction(bucket, fileName, data));
 		} catch (TransactionException e) {
 			logger.error(did("Tried to transactionally transfer"
 					+ " the bucketSize metadata to the archive.", e,
@@ -73,9 +88,16 @@ public class MetadataStore {
 		}
 	}
 
-	private Transaction putBucketSizeTransaction(Bucket bucket, String fileName,
+	/**
+	 * @return transaction that puts the metadata for the bucket, without
+	 *         executing it. The metadata is staged inside the bucket's temp
+	 *         path, so it can be executed together with the bucket's transaction
+	 *         and be committed with it.
+	 */
+	public Transaction createPutTransaction(Bucket bucket, String fileName,
 			String data) {
 		flatFileStorage.writeFlatFile(bucket, fileName, data);
+		metadataCache.put(bucket, fileName, data);
 		File fileWithBucketSize = flatFileStorage.getFlatFile(bucket, fileName);
 		String temp = pathResolver.resolveTempPathForBucketMetadata(bucket,
 				fileWithBucketSize);
@@ -88,23 +110,58 @@ public class MetadataStore {
 
 	/**
 	 * Read metadata stored with bucket and filename identifiers.
+	 * 
+	 * @throws CouldNotReadMetadataException
+	 *           if the metadata is neither stored locally nor in the archive.
 	 */
 	public String read(Bucket bucket, String fileName) {
-		File metadataFile = flatFileStorage.getFlatFile(bucket, fileName);
-		getRemoteFileIfNeeded(bucket, metadataFile);
+		CachedMetadata cached = metadataCache.get(bucket, fileName);
+		if (cached != null)
+			return getDataOrThrow(cached);
 
+		File metadataFile = flatFileStorage.getFlatFile(bucket, fileName);
 		String data = readLocalMetadataFile(metadataFile);
 		if (data == null)
+			data = readRemoteFile(bucket, metadataFile);
+
+		if (data == null) {
+			metadataCache.putMissing(bucket, fileName);
 			throw new CouldNotReadMetadataException();
-		else
+		} else {
+			metadataCache.put(bucket, fileName, data);
 			return data;
+		}
 	}
 
-	private void getRemoteFileIfNeeded(Bucket bucket, File metadataFile) {
-		if (!metadataFile.exists() || readLocalMetadataFile(metadataFile) == null) {
-			FileUtils.deleteQuietly(metadataFile);
-			getRemoteFile(bucket, metadataFile);
-		}
+	private String getDataOrThrow(CachedMetadata cached) {
+		if (cached.isMissing())
+			throw new CouldNotReadMetadataException();
+		return cached.getData();
+	}
+
+	/**
+	 * @return metadata that has been stored locally, or null if it has to be
+	 *         read from the archive. Metadata cached as missing is not trusted,
+	 *         since the local file might have been written after it was cached.
+	 */
+	public String readLocal(Bucket bucket, String fileName) {
+		CachedMetadata cached = metadataCache.get(bucket, fileName);
+		if (cached != null && !cached.isMissing())
+			return cached.getData();
+
+		File metadataFile = flatFileStorage.getFlatFile(bucket, fileName);
+		if (!metadataFile.exists())
+			return null;
+		String data = readLocalMetadataFile(metadataFile);
+		if (data != null)
+			metadataCache.put(bucket, fileName, data);
+		return data;
+	}
+
+	private String readRemoteFile(Bucket bucket, File metadataFile) {
+		FileUtils.deleteQuietly(metadataFile);
+		getRemoteFile(bucket, metadataFile);
+		return readLocalMetadataFile(metadataFile);
 	}
 
 	private String readLocalMetadataFile(File metadata) {
@@ -145,11 +202,23 @@ public class MetadataStore {
 
 	}
 
+	/**
+	 * @return store that reads through the metadata cache shared by everyone
+	 *         using the same local file system paths.
+	 */
 	public static MetadataStore create(ArchiveConfiguration config,
 			ArchiveFileSystem archiveFileSystem,
 			LocalFileSystemPaths localFileSystemPaths) {
-		return new MetadataStore(new PathResolver(config), new FlatFileStorage(
-				localFileSystemPaths), archiveFileSystem, new TransactionExecuter(),
+		return create(new PathResolver(config), archiveFileSystem,
 				localFileSystemPaths);
 	}
+
+	public static MetadataStore create(PathResolver pathResolver,
+			ArchiveFileSystem archiveFileSystem,
+			LocalFileSystemPaths localFileSystemPaths) {
+		return new MetadataStore(pathResolver, new FlatFileStorage(
+				localFileSystemPaths), archiveFileSystem, new TransactionExecuter(),
+				localFileSystemPaths,
+				MetadataCache.getInstance(localFileSystemPaths));
+	}
 }
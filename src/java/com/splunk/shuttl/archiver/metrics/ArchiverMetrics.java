@@ -0,0 +1,276 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metrics;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.server.mbeans.ShuttlMBeanException;
+import com.splunk.shuttl.server.mbeans.util.RegistersMBeans;
+
+/**
+ * Measures every {@link Phase} of archiving and thawing buckets, per back-end
+ * and bucket format. A phase is measured by starting a {@link PhaseTimer}
+ * before it and stopping the timer when the phase is done, or failing it when
+ * the phase fails.
+ */
+public class ArchiverMetrics implements ArchiverMetricsMBean {
+
+	private static final Logger logger = Logger.getLogger(ArchiverMetrics.class);
+
+	private final ConcurrentMap<String, PhaseMetrics> series;
+
+	public ArchiverMetrics() {
+		this.series = new ConcurrentHashMap<String, PhaseMetrics>();
+	}
+
+	/**
+	 * @param backend
+	 *          can be null, when the phase doesn't use a back-end.
+	 * @param format
+	 *          can be null, when the format isn't known.
+	 * @return timer that's started.
+	 */
+	public PhaseTimer start(Phase phase, String backend, BucketFormat format) {
+		return new PhaseTimer(getSeries(phase, backend, format), nanoTime());
+	}
+
+	/**
+	 * @param bytes
+	 *          handled by the phase, or a negative number if unknown.
+	 */
+	public void record(Phase phase, String backend, BucketFormat format,
+			long millis, long bytes) {
+		getSeries(phase, backend, format).recordSuccess(millis, bytes);
+	}
+
+	public void recordFailure(Phase phase, String backend, BucketFormat format,
+			long millis) {
+		getSeries(phase, backend, format).recordFailure(millis);
+	}
+
+	private PhaseMetrics getSeries(Phase phase, String backend,
+			BucketFormat format) {
+		String formatName = format == null ? null : format.name();
+		String key = phase + "|" + backend + "|" + formatName;
+		PhaseMetrics metrics = series.get(key);
+		if (metrics == null) {
+			PhaseMetrics created = new PhaseMetrics(phase, backend, formatName);
+			metrics = series.putIfAbsent(key, created);
+			if (metrics == null)
+				metrics = created;
+		}
+		return metrics;
+	}
+
+	/**
+	 * @return everything measured, ordered by phase, back-end and format.
+	 */
+	public List<PhaseMetrics> getAllSeries() {
+		List<PhaseMetrics> all = new ArrayList<PhaseMetrics>(series.values());
+		Collections.sort(all, new OrdersSeries());
+		return all;
+	}
+
+	/**
+	 * @return latencies of the phase, for all back-ends and formats.
+	 */
+	public LatencyHistogram getPhaseLatencies(Phase phase) {
+		LatencyHistogram merged = new LatencyHistogram();
+		for (PhaseMetrics metrics : series.values())
+			if (metrics.getPhase() == phase)
+				merged.add(metrics.getLatencies());
+		return merged;
+	}
+
+	/**
+	 * @return the metrics with the property series, which lists every
+	 *         {@link PhaseMetrics#toMap()}.
+	 */
+	public Map<String, Object> toMap() {
+		List<Map<String, Object>> all = new ArrayList<Map<String, Object>>();
+		for (PhaseMetrics metrics : getAllSeries())
+			all.add(metrics.toMap());
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("series", all);
+		return map;
+	}
+
+	@Override
+	public String[] getSeriesSummaries() {
+		List<PhaseMetrics> all = getAllSeries();
+		String[] summaries = new String[all.size()];
+		for (int i = 0; i < summaries.length; i++)
+			summaries[i] = all.get(i).toString();
+		return summaries;
+	}
+
+	@Override
+	public long getPhaseCount(String phase) {
+		return getPhaseLatencies(Phase.fromName(phase)).getCount();
+	}
+
+	@Override
+	public long getPhaseFailureCount(String phase) {
+		long failures = 0;
+		for (PhaseMetrics metrics : seriesOfPhase(phase))
+			failures += metrics.getFailures();
+		return failures;
+	}
+
+	@Override
+	public long getPhaseBytes(String phase) {
+		long bytes = 0;
+		for (PhaseMetrics metrics : seriesOfPhase(phase))
+			bytes += metrics.getBytes();
+		return bytes;
+	}
+
+	private List<PhaseMetrics> seriesOfPhase(String phaseName) {
+		Phase phase = Phase.fromName(phaseName);
+		List<PhaseMetrics> ofPhase = new ArrayList<PhaseMetrics>();
+		for (PhaseMetrics metrics : series.values())
+			if (metrics.getPhase() == phase)
+				ofPhase.add(metrics);
+		return ofPhase;
+	}
+
+	@Override
+	public long getPhaseLatencyPercentileMillis(String phase, double percentile) {
+		return getPhaseLatencies(Phase.fromName(phase)).getPercentileMillis(
+				percentile);
+	}
+
+	@Override
+	public void reset() {
+		series.clear();
+	}
+
+	/**
+	 * Testability, to control time.
+	 */
+	protected long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Measures one run of a phase. Only the first call to {@link #stop()},
+	 * {@link #stop(long)} or {@link #fail()} is recorded.
+	 */
+	public class PhaseTimer {
+
+		private final PhaseMetrics metrics;
+		private final long startNanos;
+		private boolean done;
+
+		private PhaseTimer(PhaseMetrics metrics, long startNanos) {
+			this.metrics = metrics;
+			this.startNanos = startNanos;
+		}
+
+		/**
+		 * Records the phase as done, without knowing its bytes.
+		 */
+		public void stop() {
+			stop(-1);
+		}
+
+		/**
+		 * Records the phase as done.
+		 *
+		 * @param bytes
+		 *          handled by the phase, or a negative number if unknown.
+		 */
+		public void stop(long bytes) {
+			if (markDone())
+				metrics.recordSuccess(elapsedMillis(), bytes);
+		}
+
+		/**
+		 * Records the phase as failed.
+		 */
+		public void fail() {
+			if (markDone())
+				metrics.recordFailure(elapsedMillis());
+		}
+
+		private synchronized boolean markDone() {
+			if (done)
+				return false;
+			done = true;
+			return true;
+		}
+
+		private long elapsedMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(nanoTime() - startNanos);
+		}
+	}
+
+	private static class OrdersSeries implements Comparator<PhaseMetrics> {
+
+		@Override
+		public int compare(PhaseMetrics a, PhaseMetrics b) {
+			int byPhase = a.getPhase().compareTo(b.getPhase());
+			if (byPhase != 0)
+				return byPhase;
+			int byBackend = compareNullsFirst(a.getBackend(), b.getBackend());
+			if (byBackend != 0)
+				return byBackend;
+			return compareNullsFirst(a.getFormat(), b.getFormat());
+		}
+
+		private static int compareNullsFirst(String a, String b) {
+			if (a == null)
+				return b == null ? 0 : -1;
+			return b == null ? 1 : a.compareTo(b);
+		}
+	}
+
+	private static ArchiverMetrics sharedInstance;
+
+	/**
+	 * @return metrics shared by the whole process, which are registered as an
+	 *         MBean the first time they're got.
+	 */
+	public static synchronized ArchiverMetrics getSharedInstance() {
+		if (sharedInstance == null) {
+			sharedInstance = new ArchiverMetrics();
+			registerMBean(sharedInstance);
+		}
+		return sharedInstance;
+	}
+
+	private static void registerMBean(ArchiverMetrics metrics) {
+		try {
+			RegistersMBeans.create().registerMBean(OBJECT_NAME, metrics);
+		} catch (ShuttlMBeanException e) {
+			logger.warn(warn("Tried registering the archiver metrics MBean", e,
+					"Will measure the archiver without exposing it over JMX", "name",
+					OBJECT_NAME));
+		}
+	}
+}
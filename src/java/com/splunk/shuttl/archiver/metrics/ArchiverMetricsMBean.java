@@ -0,0 +1,52 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metrics;
+
+/**
+ * Per phase latencies, failures and bytes of archiving and thawing buckets,
+ * as measured by {@link ArchiverMetrics}. Phases are named as in
+ * {@link Phase#getName()}.
+ */
+public interface ArchiverMetricsMBean {
+
+	String OBJECT_NAME = "com.splunk.shuttl.mbeans:type=ArchiverMetrics";
+
+	/**
+	 * @return one line per phase, back-end and format that has been measured.
+	 */
+	String[] getSeriesSummaries();
+
+	/**
+	 * @return times the phase has run, for all back-ends and formats.
+	 */
+	long getPhaseCount(String phase);
+
+	long getPhaseFailureCount(String phase);
+
+	long getPhaseBytes(String phase);
+
+	/**
+	 * @param percentile
+	 *          between 0 and 100.
+	 * @return estimated latency of the phase at the percentile, for all
+	 *         back-ends and formats.
+	 */
+	long getPhaseLatencyPercentileMillis(String phase, double percentile);
+
+	/**
+	 * Forgets everything measured so far.
+	 */
+	void reset();
+}
@@ -0,0 +1,126 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Histogram of latencies in milliseconds, with fixed buckets from 1ms to an
+ * hour. Percentiles are estimated by the upper bound of the bucket they fall
+ * in, which is exact enough for phases that take from milliseconds to hours,
+ * while using the same small amount of memory however many latencies are
+ * recorded.
+ */
+public class LatencyHistogram {
+
+	static final long[] UPPER_BOUNDS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200,
+			500, 1000, 2000, 5000, 10000, 30000, 60000, 120000, 300000, 600000,
+			1800000, 3600000 };
+
+	private final long[] counts = new long[UPPER_BOUNDS_MILLIS.length + 1];
+	private long count;
+	private long totalMillis;
+	private long maxMillis;
+
+	public synchronized void record(long millis) {
+		millis = Math.max(0, millis);
+		counts[bucketIndex(millis)]++;
+		count++;
+		totalMillis += millis;
+		if (millis > maxMillis)
+			maxMillis = millis;
+	}
+
+	private static int bucketIndex(long millis) {
+		for (int i = 0; i < UPPER_BOUNDS_MILLIS.length; i++)
+			if (millis <= UPPER_BOUNDS_MILLIS[i])
+				return i;
+		return UPPER_BOUNDS_MILLIS.length;
+	}
+
+	/**
+	 * Adds the latencies of the other histogram to this one.
+	 */
+	public void add(LatencyHistogram other) {
+		long[] otherCounts;
+		long otherCount, otherTotal, otherMax;
+		synchronized (other) {
+			otherCounts = other.counts.clone();
+			otherCount = other.count;
+			otherTotal = other.totalMillis;
+			otherMax = other.maxMillis;
+		}
+		synchronized (this) {
+			for (int i = 0; i < counts.length; i++)
+				counts[i] += otherCounts[i];
+			count += otherCount;
+			totalMillis += otherTotal;
+			if (otherMax > maxMillis)
+				maxMillis = otherMax;
+		}
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	public synchronized long getTotalMillis() {
+		return totalMillis;
+	}
+
+	public synchronized long getMaxMillis() {
+		return maxMillis;
+	}
+
+	public synchronized long getMeanMillis() {
+		return count == 0 ? 0 : totalMillis / count;
+	}
+
+	/**
+	 * @param percentile
+	 *          between 0 and 100.
+	 * @return upper bound of the bucket that the percentile falls in, but never
+	 *         more than the max latency. 0 when nothing is recorded.
+	 */
+	public synchronized long getPercentileMillis(double percentile) {
+		if (count == 0)
+			return 0;
+		long rank = (long) Math.ceil(count * Math.min(100, Math.max(0,
+				percentile)) / 100.0);
+		rank = Math.max(1, rank);
+		long seen = 0;
+		for (int i = 0; i < UPPER_BOUNDS_MILLIS.length; i++) {
+			seen += counts[i];
+			if (seen >= rank)
+				return Math.min(UPPER_BOUNDS_MILLIS[i], maxMillis);
+		}
+		return maxMillis;
+	}
+
+	/**
+	 * @return count of latencies per bucket, keyed by the bucket's upper bound
+	 *         in milliseconds, or "inf" for the bucket above an hour. Empty
+	 *         buckets are left out.
+	 */
+	public synchronized Map<String, Long> getBucketCounts() {
+		Map<String, Long> buckets = new LinkedHashMap<String, Long>();
+		for (int i = 0; i < counts.length; i++)
+			if (counts[i] > 0)
+				buckets.put(i < UPPER_BOUNDS_MILLIS.length ? Long
+						.toString(UPPER_BOUNDS_MILLIS[i]) : "inf", counts[i]);
+		return buckets;
+	}
+}
@@ -0,0 +1,128 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metrics;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics.PhaseTimer;
+
+/**
+ * Measures the prepare and commit of a {@link Transaction} as phases in the
+ * {@link ArchiverMetrics}.
+ */
+public class MeasuredTransaction implements Transaction {
+
+	private final Transaction transaction;
+	private final ArchiverMetrics metrics;
+	private final Phase preparePhase;
+	private final Phase commitPhase;
+	private final String backend;
+	private final BucketFormat format;
+	private final TransferredBytes transferredBytes;
+
+	/**
+	 * @param commitPhase
+	 *          can be null, to not measure the commit.
+	 * @param bytes
+	 *          transferred when preparing, or a negative number if unknown.
+	 */
+	public MeasuredTransaction(Transaction transaction, ArchiverMetrics metrics,
+			Phase preparePhase, Phase commitPhase, String backend,
+			BucketFormat format, long bytes) {
+		this(transaction, metrics, preparePhase, commitPhase, backend, format,
+				knownBytes(bytes));
+	}
+
+	/**
+	 * @param transferredBytes
+	 *          asked for the bytes once the prepare is done, for transactions
+	 *          that only know them after transferring.
+	 */
+	public MeasuredTransaction(Transaction transaction, ArchiverMetrics metrics,
+			Phase preparePhase, Phase commitPhase, String backend,
+			BucketFormat format, TransferredBytes transferredBytes) {
+		this.transaction = transaction;
+		this.metrics = metrics;
+		this.preparePhase = preparePhase;
+		this.commitPhase = commitPhase;
+		this.backend = backend;
+		this.format = format;
+		this.transferredBytes = transferredBytes;
+	}
+
+	/**
+	 * Bytes that a transaction transferred when it was prepared.
+	 */
+	public interface TransferredBytes {
+
+		/**
+		 * @return bytes transferred, or a negative number if unknown.
+		 */
+		long getBytes();
+	}
+
+	/**
+	 * @return bytes that are known before the transaction is prepared.
+	 */
+	public static TransferredBytes knownBytes(final long bytes) {
+		return new TransferredBytes() {
+
+			@Override
+			public long getBytes() {
+				return bytes;
+			}
+		};
+	}
+
+	@Override
+	public void prepare() {
+		PhaseTimer timer = metrics.start(preparePhase, backend, format);
+		try {
+			transaction.prepare();
+			timer.stop(transferredBytes.getBytes());
+		} finally {
+			timer.fail();
+		}
+	}
+
+	@Override
+	public void commit() {
+		if (commitPhase == null) {
+			transaction.commit();
+			return;
+		}
+		PhaseTimer timer = metrics.start(commitPhase, backend, format);
+		try {
+			transaction.commit();
+			timer.stop();
+		} finally {
+			timer.fail();
+		}
+	}
+
+	@Override
+	public void clean() {
+		transaction.clean();
+	}
+
+	public Transaction getTransaction() {
+		return transaction;
+	}
+
+	@Override
+	public String toString() {
+		return transaction.toString();
+	}
+}
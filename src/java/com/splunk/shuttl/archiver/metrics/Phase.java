@@ -0,0 +1,95 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metrics;
+
+/**
+ * Phases of a bucket's life that are measured by {@link ArchiverMetrics}.
+ */
+public enum Phase {
+
+	/**
+	 * Locking the bucket before it's moved, archived or thawed.
+	 */
+	LOCK_WAIT,
+
+	/**
+	 * Moving a frozen bucket to the safe directory. Happens in the process that
+	 * Splunk runs when it freezes a bucket.
+	 */
+	MOVE_TO_SAFE_DIR,
+
+	/**
+	 * Exporting a bucket to a format on local disk.
+	 */
+	EXPORT,
+
+	/**
+	 * Transferring a bucket to the archive's temp path. When a bucket is
+	 * streamed to the archive, the export is part of the upload.
+	 */
+	UPLOAD,
+
+	/**
+	 * Renaming the transferred bucket to its archive path.
+	 */
+	COMMIT,
+
+	/**
+	 * Putting the bucket's metadata in the archive.
+	 */
+	METADATA_PUT,
+
+	/**
+	 * Deleting a local bucket.
+	 */
+	DELETE,
+
+	/**
+	 * Transferring a bucket from the archive to thaw.
+	 */
+	THAW_DOWNLOAD,
+
+	/**
+	 * Importing a thawed bucket to Splunk's bucket format.
+	 */
+	IMPORT,
+
+	/**
+	 * Resolving the size of a thawed bucket.
+	 */
+	THAW_FINALIZE,
+
+	/**
+	 * Waiting for a busy stage of the thaw pipeline, before the stage works on
+	 * the bucket.
+	 */
+	THAW_STAGE_WAIT;
+
+	/**
+	 * @return lower case name, as used in json.
+	 */
+	public String getName() {
+		return name().toLowerCase();
+	}
+
+	/**
+	 * @return phase with the name, in any case.
+	 * @throws IllegalArgumentException
+	 *           if there is no such phase.
+	 */
+	public static Phase fromName(String name) {
+		return valueOf(name.trim().toUpperCase());
+	}
+}
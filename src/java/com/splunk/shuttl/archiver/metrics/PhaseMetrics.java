@@ -0,0 +1,148 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latencies, failures and bytes of a {@link Phase}, for one back-end and
+ * bucket format.
+ */
+public class PhaseMetrics {
+
+	private final Phase phase;
+	private final String backend;
+	private final String format;
+	private final LatencyHistogram latencies;
+
+	private long failures;
+	private long bytes;
+	private long millisTransferringBytes;
+
+	/**
+	 * @param backend
+	 *          can be null, when the phase doesn't use a back-end.
+	 * @param format
+	 *          can be null, when the format isn't known.
+	 */
+	public PhaseMetrics(Phase phase, String backend, String format) {
+		this.phase = phase;
+		this.backend = backend;
+		this.format = format;
+		this.latencies = new LatencyHistogram();
+	}
+
+	/**
+	 * @param bytes
+	 *          handled by the phase, or a negative number if unknown.
+	 */
+	public void recordSuccess(long millis, long bytes) {
+		latencies.record(millis);
+		if (bytes >= 0)
+			synchronized (this) {
+				this.bytes += bytes;
+				this.millisTransferringBytes += Math.max(0, millis);
+			}
+	}
+
+	public void recordFailure(long millis) {
+		latencies.record(millis);
+		synchronized (this) {
+			failures++;
+		}
+	}
+
+	public Phase getPhase() {
+		return phase;
+	}
+
+	public String getBackend() {
+		return backend;
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return latencies of both successful and failed runs of the phase.
+	 */
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	public long getCount() {
+		return latencies.getCount();
+	}
+
+	public synchronized long getFailures() {
+		return failures;
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return bytes per second, over the time spent in runs that reported their
+	 *         bytes.
+	 */
+	public synchronized long getThroughputBytesPerSecond() {
+		return millisTransferringBytes == 0 ? 0 : bytes * 1000
+				/ millisTransferringBytes;
+	}
+
+	/**
+	 * @return the metrics with the properties: phase, backend, format, count,
+	 *         failures, bytes, throughput_bytes_per_second and latency_ms, which
+	 *         has mean, max, p50, p90, p99 and the histogram's buckets.
+	 */
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("phase", phase.getName());
+		map.put("backend", backend);
+		map.put("format", format);
+		map.put("count", getCount());
+		map.put("failures", getFailures());
+		map.put("bytes", getBytes());
+		map.put("throughput_bytes_per_second", getThroughputBytesPerSecond());
+
+		Map<String, Object> latency = new LinkedHashMap<String, Object>();
+		latency.put("mean", latencies.getMeanMillis());
+		latency.put("max", latencies.getMaxMillis());
+		latency.put("p50", latencies.getPercentileMillis(50));
+		latency.put("p90", latencies.getPercentileMillis(90));
+		latency.put("p99", latencies.getPercentileMillis(99));
+		latency.put("buckets", latencies.getBucketCounts());
+		map.put("latency_ms", latency);
+		return map;
+	}
+
+	/**
+	 * @return one line summary for JMX consoles.
+	 */
+	@Override
+	public String toString() {
+		return "phase=" + phase.getName()
+				+ (backend == null ? "" : " backend=" + backend)
+				+ (format == null ? "" : " format=" + format) + " count="
+				+ getCount() + " failures=" + getFailures() + " bytes=" + getBytes()
+				+ " throughput_bytes_per_second=" + getThroughputBytesPerSecond()
+				+ " mean_ms=" + latencies.getMeanMillis() + " p99_ms="
+				+ latencies.getPercentileMillis(99) + " max_ms="
+				+ latencies.getMaxMillis();
+	}
+}
@@ -14,26 +14,34 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.model;
 
-import com.splunk.shuttl.archiver.util.GroupRegex;
 import com.splunk.shuttl.archiver.util.IllegalRegexGroupException;
 
 /**
- * Bucket name with db-name, earliest time, latest time and bucket index.
+ * Bucket name with db-name, earliest time, latest time and bucket index.<br/>
+ * <br/>
+ * The name is parsed once, when the {@link BucketName} is created, and accepts
+ * the same names as {@link #LEGAL_NAME_REGEX}, with {@link #GUID_ADDITION} when
+ * the name has four underscores. The getters throw the same exceptions as when
+ * the name was matched against the regex on every call.
  */
 public class BucketName {
 
 	public static final String LEGAL_NAME_REGEX = "([A-Za-z0-9]+?)_(\\d+?)_(\\d+?)_(.+)";
 	public static final String GUID_ADDITION = "_(.+)";
 
-	private static final int DB_GROUP = 1;
-	private static final int LATEST_GROUP = 2;
-	private static final int EARLIEST_GROUP = 3;
-	private static final int INDEX_GROUP = 4;
-	private static final int GUID_GROUP = 5;
+	private static final char SEPARATOR = '_';
 
 	private final String name;
+	private final int underscoresInName;
 
-	private GroupRegex groupRegex;
+	private boolean legal;
+	private String db;
+	private long latest;
+	private long earliest;
+	private boolean latestOverflows;
+	private boolean earliestOverflows;
+	private String index;
+	private String guid;
 
 	/**
 	 * @param name
@@ -41,24 +49,141 @@ public class BucketName {
 	 */
 	public BucketName(String name) {
 		this.name = name;
-		String regex = LEGAL_NAME_REGEX;
-		if (getUnderscoresInName() == 4)
-			regex += GUID_ADDITION;
-		this.groupRegex = new GroupRegex(regex, name);
+		this.underscoresInName = countUnderscores(name);
+		if (name != null)
+			parse(name);
 	}
 
-	private int getUnderscoresInName() {
-		return name == null ? 0 : name.split("_").length - 1;
+	/**
+	 * Counts underscores the way <code>name.split("_").length - 1</code> does,
+	 * which does not count trailing underscores.
+	 */
+	private static int countUnderscores(String name) {
+		if (name == null || name.length() == 0)
+			return 0;
+		int end = name.length();
+		while (end > 0 && name.charAt(end - 1) == SEPARATOR)
+			end--;
+		if (end == 0)
+			return -1;
+		int underscores = 0;
+		for (int i = 0; i < end; i++)
+			if (name.charAt(i) == SEPARATOR)
+				underscores++;
+		return underscores;
+	}
+
+	private void parse(String name) {
+		int dbEnd = name.indexOf(SEPARATOR);
+		if (dbEnd <= 0 || !isAlphanumeric(name, 0, dbEnd))
+			return;
+		int latestEnd = name.indexOf(SEPARATOR, dbEnd + 1);
+		if (!isDigits(name, dbEnd + 1, latestEnd))
+			return;
+		int earliestEnd = name.indexOf(SEPARATOR, latestEnd + 1);
+		if (!isDigits(name, latestEnd + 1, earliestEnd))
+			return;
+		int indexStart = earliestEnd + 1;
+		if (indexStart == name.length() || hasLineTerminator(name, indexStart))
+			return;
+
+		int indexEnd = name.length();
+		if (underscoresInName == 4) {
+			indexEnd = name.lastIndexOf(SEPARATOR, name.length() - 2);
+			if (indexEnd <= indexStart)
+				return;
+			guid = name.substring(indexEnd + 1);
+		}
+		legal = true;
+		db = name.substring(0, dbEnd);
+		latestOverflows = !isLong(name, dbEnd + 1, latestEnd);
+		latest = parseDigits(name, dbEnd + 1, latestEnd);
+		earliestOverflows = !isLong(name, latestEnd + 1, earliestEnd);
+		earliest = parseDigits(name, latestEnd + 1, earliestEnd);
+		index = name.substring(indexStart, indexEnd);
+	}
+
+	private static boolean isAlphanumeric(String s, int from, int to) {
+		for (int i = from; i < to; i++) {
+			char c = s.charAt(i);
+			if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0'
+					&& c <= '9'))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isDigits(String s, int from, int to) {
+		if (to <= from)
+			return false;
+		for (int i = from; i < to; i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9')
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * The regex' dot does not match line terminators.
+	 */
+	private static boolean hasLineTerminator(String s, int from) {
+		for (int i = from; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028'
+					|| c == '\u2029')
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean isLong(String digits, int from, int to) {
+		long value = 0;
+		for (int i = from; i < to; i++) {
+			int digit = digits.charAt(i) - '0';
+			if (value > (Long.MAX_VALUE - digit) / 10)
+				return false;
+			value = value * 10 + digit;
+		}
+		return true;
+	}
+
+	private static long parseDigits(String digits, int from, int to) {
+		long value = 0;
+		for (int i = from; i < to; i++)
+			value = value * 10 + (digits.charAt(i) - '0');
+		return value;
 	}
 
 	private void validateBucketName() {
-		int underscoresInName = getUnderscoresInName();
 		if (underscoresInName > 4 || underscoresInName < 3)
 			throw new IllegalBucketNameException(
 					"Underscores in the bucket name must be 3 or 4. Was: "
 							+ underscoresInName + ", name: " + name);
 	}
 
+	private void throwExceptionIfNotLegal() {
+		if (!legal)
+			throw new IllegalRegexGroupException();
+	}
+
+	private long getTime(long time, boolean overflows) {
+		throwExceptionIfNotLegal();
+		if (overflows)
+			throw new NumberFormatException("Time does not fit in a long. Name: "
+					+ name);
+		return time;
+	}
+
+	/**
+	 * @return true if db, earliest, latest and index can all be read without
+	 *         exceptions.
+	 */
+	public boolean isValid() {
+		return legal && underscoresInName >= 3 && underscoresInName <= 4
+				&& !latestOverflows && !earliestOverflows;
+	}
+
 	/**
 	 * Throws {@link IllegalRegexGroupException} if name was not valid to get db.
 	 * 
@@ -66,7 +191,8 @@ public class BucketName {
 	 */
 	public String getDB() {
 		validateBucketName();
-		return groupRegex.getValue(DB_GROUP);
+		throwExceptionIfNotLegal();
+		return db;
 	}
 
 	/**
@@ -76,7 +202,7 @@ public class BucketName {
 	 * @return earliest time of the {@link Bucket}'s name.
 	 */
 	public long getEarliest() {
-		return Long.parseLong(groupRegex.getValue(EARLIEST_GROUP));
+		return getTime(earliest, earliestOverflows);
 	}
 
 	/**
@@ -86,7 +212,7 @@ public class BucketName {
 	 * @return time of the {@link BucketName}
 	 */
 	public long getLatest() {
-		return Long.parseLong(groupRegex.getValue(LATEST_GROUP));
+		return getTime(latest, latestOverflows);
 	}
 
 	/**
@@ -97,7 +223,8 @@ public class BucketName {
 	 */
 	public String getIndex() {
 		validateBucketName();
-		return groupRegex.getValue(INDEX_GROUP);
+		throwExceptionIfNotLegal();
+		return index;
 	}
 
 	/*
@@ -121,7 +248,10 @@ public class BucketName {
 	 * @return the bucket's GUID, if it has one. Throws otherwise.
 	 */
 	public String getGuid() {
-		return groupRegex.getValue(GUID_GROUP);
+		throwExceptionIfNotLegal();
+		if (guid == null)
+			throw new IllegalRegexGroupException();
+		return guid;
 	}
 
 	public static class IllegalBucketNameException extends RuntimeException {
@@ -49,6 +49,18 @@ public class BucketFilter {
 		return BucketFilter.filterBuckets(buckets, earliest, latest);
 	}
 
+	/**
+	 * Filters buckets by time range with an index of the buckets, which is
+	 * faster than filtering the list when the index is built once and used for
+	 * many time ranges.
+	 * 
+	 * @see #filterBucketsByTimeRange(List, Date, Date)
+	 */
+	public List<Bucket> filterBucketsByTimeRange(
+			BucketTimeIndex<Bucket> timeIndex, Date earliest, Date latest) {
+		return BucketFilter.filterBuckets(timeIndex, earliest, latest);
+	}
+
 	public static List<Bucket> filterBuckets(List<? extends Bucket> buckets,
 			Date earliest,
 			Date latest) {
@@ -58,6 +70,15 @@ public class BucketFilter {
 			return filterBucketsWithinTimeRange(buckets, earliest, latest);
 	}
 
+	public static List<Bucket> filterBuckets(
+			BucketTimeIndex<? extends Bucket> timeIndex, Date earliest, Date latest) {
+		if (earliest.after(latest))
+			return emptyListWithLogWarning(earliest, latest);
+		else
+			return new ArrayList<Bucket>(timeIndex.getBucketsOverlapping(earliest,
+					latest));
+	}
+
 	private static List<Bucket> filterBucketsWithinTimeRange(
 			List<? extends Bucket> buckets, Date earliest, Date latest) {
 		ArrayList<Bucket> filteredBuckets = new ArrayList<Bucket>();
@@ -25,6 +25,8 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
+import com.splunk.shuttl.archiver.catalog.CatalogedBucket;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
 import com.splunk.shuttl.archiver.model.Bucket;
@@ -42,6 +44,7 @@ public class BucketFormatResolver {
 	private final PathResolver pathResolver;
 	private final ArchiveFileSystem archiveFileSystem;
 	private final BucketFormatChooser bucketFormatChooser;
+	private final ArchiveCatalog archiveCatalog;
 
 	/**
 	 * @param pathResolver
@@ -54,9 +57,21 @@ public class BucketFormatResolver {
 	public BucketFormatResolver(PathResolver pathResolver,
 			ArchiveFileSystem archiveFileSystem,
 			BucketFormatChooser bucketFormatChooser) {
+		this(pathResolver, archiveFileSystem, bucketFormatChooser, null);
+	}
+
+	/**
+	 * @param archiveCatalog
+	 *          to get the formats from, instead of listing them in the archive,
+	 *          when the catalog is complete. Can be null.
+	 */
+	public BucketFormatResolver(PathResolver pathResolver,
+			ArchiveFileSystem archiveFileSystem,
+			BucketFormatChooser bucketFormatChooser, ArchiveCatalog archiveCatalog) {
 		this.pathResolver = pathResolver;
 		this.archiveFileSystem = archiveFileSystem;
 		this.bucketFormatChooser = bucketFormatChooser;
+		this.archiveCatalog = archiveCatalog;
 	}
 
 	/**
@@ -72,7 +87,7 @@ public class BucketFormatResolver {
 	}
 
 	private Bucket getBucketWithResolvedFormat(Bucket bucket) {
-		List<BucketFormat> availableFormats = getAvailableFormatsForBucket(bucket);
+		List<BucketFormat> availableFormats = listArchivedFormats(bucket);
 		BucketFormat chosenFormat = bucketFormatChooser
 				.chooseBucketFormat(availableFormats);
 		String pathToBucketWithChosenBucket = pathResolver
@@ -82,7 +97,12 @@ public class BucketFormatResolver {
 				pathToBucketWithChosenBucket);
 	}
 
-	private List<BucketFormat> getAvailableFormatsForBucket(Bucket bucket) {
+	/**
+	 * @return formats that the bucket is archived in.
+	 */
+	public List<BucketFormat> listArchivedFormats(Bucket bucket) {
+		if (archiveCatalog != null && archiveCatalog.isComplete())
+			return getCatalogedFormats(bucket);
 		String formatsHomeForBucket = pathResolver.getFormatsHome(
 				bucket.getIndex(), bucket.getName());
 		List<String> archivedFormats = listArchivedFormatsWithErrorHandling(
@@ -90,6 +110,14 @@ public class BucketFormatResolver {
 		return getBucketFormats(archivedFormats);
 	}
 
+	private List<BucketFormat> getCatalogedFormats(Bucket bucket) {
+		CatalogedBucket catalogedBucket = archiveCatalog.getBucket(
+				bucket.getIndex(), bucket.getName());
+		if (catalogedBucket == null)
+			return Collections.emptyList();
+		return catalogedBucket.getFormats();
+	}
+
 	private List<String> listArchivedFormatsWithErrorHandling(
 			String formatsHomeForBucket, Bucket bucket) {
 		try {
@@ -15,6 +15,7 @@
 package com.splunk.shuttl.archiver.thaw;
 
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogFactory;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
@@ -33,7 +34,7 @@ public class BucketFormatResolverFactory {
 		PathResolver pathResolver = new PathResolver(config);
 		BucketFormatChooser bucketFormatChooser = new BucketFormatChooser(config);
 		return new BucketFormatResolver(pathResolver, archiveFileSystem,
-				bucketFormatChooser);
+				bucketFormatChooser, ArchiveCatalogFactory.create(config));
 	}
 
 }
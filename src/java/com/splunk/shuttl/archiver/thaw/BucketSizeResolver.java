@@ -14,6 +14,15 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.thaw;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
+import com.splunk.shuttl.archiver.catalog.CatalogedBucket;
 import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
 import com.splunk.shuttl.archiver.model.Bucket;
 
@@ -23,13 +32,38 @@ import com.splunk.shuttl.archiver.model.Bucket;
 public class BucketSizeResolver {
 
 	private final ArchiveBucketSize archiveBucketSize;
+	private final ArchiveCatalog archiveCatalog;
+	private final Executor executor;
 
 	/**
 	 * @param archiveBucketSize
 	 *          to get the size from the archive.
 	 */
 	public BucketSizeResolver(ArchiveBucketSize archiveBucketSize) {
+		this(archiveBucketSize, null);
+	}
+
+	/**
+	 * @param archiveCatalog
+	 *          to get the size from, when the bucket is cataloged with a size.
+	 *          Can be null.
+	 */
+	public BucketSizeResolver(ArchiveBucketSize archiveBucketSize,
+			ArchiveCatalog archiveCatalog) {
+		this(archiveBucketSize, archiveCatalog, null);
+	}
+
+	/**
+	 * @param executor
+	 *          to read sizes from the archive concurrently with
+	 *          {@link #resolveBucketSizes(List)}. Can be null, to read them one
+	 *          at a time.
+	 */
+	public BucketSizeResolver(ArchiveBucketSize archiveBucketSize,
+			ArchiveCatalog archiveCatalog, Executor executor) {
 		this.archiveBucketSize = archiveBucketSize;
+		this.archiveCatalog = archiveCatalog;
+		this.executor = executor;
 	}
 
 	/**
@@ -37,9 +71,89 @@ public class BucketSizeResolver {
 	 *          that needs size to be resolved from the archive.
 	 */
 	public Bucket resolveBucketSize(Bucket bucket) {
-		Long size = archiveBucketSize.readBucketSize(bucket);
+		Long size = getCatalogedSize(bucket);
+		if (size == null)
+			size = archiveBucketSize.readBucketSize(bucket);
+		return withSize(bucket, size);
+	}
+
+	private static Bucket withSize(Bucket bucket, Long size) {
 		return new Bucket(bucket.getPath(), bucket.getIndex(), bucket.getName(),
 				bucket.getFormat(), size);
 	}
 
+	/**
+	 * Resolves the sizes of many buckets at once. Sizes that are known locally
+	 * are resolved right away, and the others are read from the archive on the
+	 * executor.
+	 * 
+	 * @return buckets with sizes, in the same order as the buckets.
+	 */
+	public List<Bucket> resolveBucketSizes(List<Bucket> buckets) {
+		List<FutureTask<Bucket>> resolvedBuckets = new ArrayList<FutureTask<Bucket>>();
+		for (Bucket bucket : buckets) {
+			Long localSize = executor == null ? null : getLocalSize(bucket);
+			FutureTask<Bucket> resolvedBucket = new FutureTask<Bucket>(
+					new ResolvesSize(bucket, localSize));
+			resolvedBuckets.add(resolvedBucket);
+			if (executor == null || localSize != null)
+				resolvedBucket.run();
+			else
+				executor.execute(resolvedBucket);
+		}
+		return getAll(resolvedBuckets);
+	}
+
+	private Long getLocalSize(Bucket bucket) {
+		Long size = getCatalogedSize(bucket);
+		if (size == null)
+			size = archiveBucketSize.readLocalBucketSize(bucket);
+		return size;
+	}
+
+	private List<Bucket> getAll(List<FutureTask<Bucket>> resolvedBuckets) {
+		List<Bucket> bucketsWithSize = new ArrayList<Bucket>();
+		try {
+			for (FutureTask<Bucket> resolvedBucket : resolvedBuckets)
+				bucketsWithSize.add(resolvedBucket.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} finally {
+			for (FutureTask<Bucket> resolvedBucket : resolvedBuckets)
+				resolvedBucket.cancel(false);
+		}
+		return bucketsWithSize;
+	}
+
+	private Long getCatalogedSize(Bucket bucket) {
+		if (archiveCatalog == null)
+			return null;
+		CatalogedBucket catalogedBucket = archiveCatalog.getBucket(
+				bucket.getIndex(), bucket.getName());
+		return catalogedBucket == null ? null : catalogedBucket.getSize(bucket
+				.getFormat());
+	}
+
+	private class ResolvesSize implements Callable<Bucket> {
+
+		private final Bucket bucket;
+		private final Long knownSize;
+
+		public ResolvesSize(Bucket bucket, Long knownSize) {
+			this.bucket = bucket;
+			this.knownSize = knownSize;
+		}
+
+		@Override
+		public Bucket call() {
+			if (knownSize != null)
+				return withSize(bucket, knownSize);
+			return resolveBucketSize(bucket);
+		}
+	}
 }
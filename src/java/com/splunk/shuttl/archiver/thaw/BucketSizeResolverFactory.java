@@ -0,0 +1,63 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogFactory;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.util.NamedDaemonThreadFactory;
+
+/**
+ * Factory for creating {@link BucketSizeResolver}s.
+ */
+public class BucketSizeResolverFactory {
+
+	/**
+	 * Number of sizes that are read from the archive at the same time, by all
+	 * resolvers together.
+	 */
+	public static final int SIZE_READING_THREADS = 16;
+
+	/**
+	 * @return resolver that reads sizes from the archive concurrently, on a
+	 *         pool shared by all resolvers.
+	 */
+	public static BucketSizeResolver create(ArchiveConfiguration config,
+			ArchiveFileSystem archiveFileSystem,
+			LocalFileSystemPaths localFileSystemPaths) {
+		ArchiveBucketSize archiveBucketSize = ArchiveBucketSize.create(
+				new PathResolver(config), archiveFileSystem, localFileSystemPaths);
+		return new BucketSizeResolver(archiveBucketSize,
+				ArchiveCatalogFactory.create(config, localFileSystemPaths),
+				getSizeReadingExecutor());
+	}
+
+	private static ExecutorService sizeReadingExecutor;
+
+	private static synchronized Executor getSizeReadingExecutor() {
+		if (sizeReadingExecutor == null)
+			sizeReadingExecutor = Executors.newFixedThreadPool(
+					SIZE_READING_THREADS, new NamedDaemonThreadFactory(
+							"shuttl-size-reader"));
+		return sizeReadingExecutor;
+	}
+}
@@ -17,20 +17,31 @@ package com.splunk.shuttl.archiver.thaw;
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketHandler;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferListener;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferListeners;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFiltered;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
 
 /**
  * Interacts with the archive to thaw buckets within the users needs, which is
- * currently only a time range.
+ * currently only a time range. The buckets are thawed on an {@link Executor},
+ * so that several buckets can be thawed at the same time. Each bucket is
+ * still thawed under its shared thaw lock. The bytes transferred for a bucket
+ * are reported to the {@link ThawProgress} through the
+ * {@link TransferListeners}.
  */
 public class BucketThawer {
 
@@ -42,6 +53,7 @@ public class BucketThawer {
 	private final List<Bucket> skippedBuckets;
 	private final List<FailedBucket> failedBuckets;
 	private final BucketLocker thawBucketLocker;
+	private final Executor executor;
 
 	private LocalBucketStorage localBuckets;
 
@@ -70,14 +82,30 @@ public class BucketThawer {
 	public BucketThawer(ListsBucketsFiltered listsBucketsFiltered,
 			GetsBucketsFromArchive getsBucketsFromArchive,
 			LocalBucketStorage localBuckets, BucketLocker thawBucketLocker) {
+		this(listsBucketsFiltered, getsBucketsFromArchive, localBuckets,
+				thawBucketLocker, new CallingThreadExecutor());
+	}
+
+	/**
+	 * @param executor
+	 *          to thaw the buckets on. The number of threads it has is the number
+	 *          of buckets that are thawed at the same time.
+	 */
+	public BucketThawer(ListsBucketsFiltered listsBucketsFiltered,
+			GetsBucketsFromArchive getsBucketsFromArchive,
+			LocalBucketStorage localBuckets, BucketLocker thawBucketLocker,
+			Executor executor) {
 		this.listsBucketsFiltered = listsBucketsFiltered;
 		this.getsBucketsFromArchive = getsBucketsFromArchive;
 		this.localBuckets = localBuckets;
 		this.thawBucketLocker = thawBucketLocker;
+		this.executor = executor;
 
-		this.successfulThawedBuckets = new ArrayList<LocalBucket>();
-		this.skippedBuckets = new ArrayList<Bucket>();
-		this.failedBuckets = new ArrayList<FailedBucket>();
+		this.successfulThawedBuckets = Collections
+				.synchronizedList(new ArrayList<LocalBucket>());
+		this.skippedBuckets = Collections.synchronizedList(new ArrayList<Bucket>());
+		this.failedBuckets = Collections
+				.synchronizedList(new ArrayList<FailedBucket>());
 	}
 
 	/**
@@ -91,20 +119,117 @@ public class BucketThawer {
 	 *          to filter buckets.
 	 */
 	public void thawBuckets(String index, Date earliestTime, Date latestTime) {
+		thawBuckets(index, earliestTime, latestTime, ThawProgress.NONE);
+	}
+
+	/**
+	 * Thaws buckets like {@link #thawBuckets(String, Date, Date)} and reports
+	 * the progress. Buckets that have not started thawing when the progress is
+	 * cancelled are not thawed, and are not in any of the results.
+	 */
+	public void thawBuckets(String index, Date earliestTime, Date latestTime,
+			ThawProgress progress) {
 		List<Bucket> bucketsToThaw = getFilteredBuckets(index, earliestTime,
 				latestTime);
-		for (Bucket bucket : bucketsToThaw)
+		progress.thawStarted(bucketsToThaw);
+		prepareBucketsNotThawed(bucketsToThaw, progress);
+		List<FutureTask<Void>> thaws = new ArrayList<FutureTask<Void>>();
+		for (Bucket bucket : bucketsToThaw) {
+			FutureTask<Void> thaw = new FutureTask<Void>(new ThawsBucket(bucket,
+					progress), null);
+			thaws.add(thaw);
+			executor.execute(thaw);
+		}
+		waitForThaws(thaws);
+	}
+
+	private void prepareBucketsNotThawed(List<Bucket> buckets,
+			ThawProgress progress) {
+		List<Bucket> bucketsNotThawed = getBucketsNotThawed(buckets);
+		if (!bucketsNotThawed.isEmpty() && !progress.isCancelled())
+			getsBucketsFromArchive.prepareBucketsFromArchive(bucketsNotThawed);
+	}
+
+	private List<Bucket> getBucketsNotThawed(List<Bucket> buckets) {
+		List<Bucket> notThawed = new ArrayList<Bucket>();
+		for (Bucket bucket : buckets)
 			try {
-				if (!localBuckets.hasBucket(bucket)) {
-					thawBucketLocker.callBucketHandlerUnderSharedLock(bucket,
-							new ThawBucketFromArchive());
-				} else {
-					skippedBuckets.add(bucket);
-				}
+				if (!localBuckets.hasBucket(bucket))
+					notThawed.add(bucket);
 			} catch (Exception e) {
-				logExceptionFromCheckingIfBucketWasThawed(bucket, e);
-				failedBuckets.add(new FailedBucket(bucket, e));
+				// Reported when the bucket is thawed.
 			}
+		return notThawed;
+	}
+
+	private void thawBucket(Bucket bucket, ThawProgress progress) {
+		try {
+			if (!localBuckets.hasBucket(bucket)) {
+				thawBucketLocker.callBucketHandlerUnderSharedLock(bucket,
+						new ThawBucketFromArchive(progress));
+			} else {
+				bucketSkipped(bucket, progress);
+			}
+		} catch (Exception e) {
+			logExceptionFromCheckingIfBucketWasThawed(bucket, e);
+			bucketFailed(bucket, e, progress);
+		}
+	}
+
+	private void waitForThaws(List<FutureTask<Void>> thaws) {
+		for (FutureTask<Void> thaw : thaws)
+			try {
+				thaw.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.warn(warn("Waited for buckets to thaw", e,
+						"Will stop waiting. Buckets may still be thawing"));
+				return;
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Error)
+					throw (Error) e.getCause();
+				throw new RuntimeException(e.getCause());
+			}
+	}
+
+	private class ThawsBucket implements Runnable {
+
+		private final Bucket bucket;
+		private final ThawProgress progress;
+
+		public ThawsBucket(Bucket bucket, ThawProgress progress) {
+			this.bucket = bucket;
+			this.progress = progress;
+		}
+
+		@Override
+		public void run() {
+			if (progress.isCancelled())
+				return;
+			TransferListener previous = TransferListeners
+					.setCurrent(new ReportsBytesTransferred(bucket, progress));
+			try {
+				thawBucket(bucket, progress);
+			} finally {
+				TransferListeners.setCurrent(previous);
+			}
+		}
+	}
+
+	private static class ReportsBytesTransferred implements TransferListener {
+
+		private final Bucket bucket;
+		private final ThawProgress progress;
+
+		public ReportsBytesTransferred(Bucket bucket, ThawProgress progress) {
+			this.bucket = bucket;
+			this.progress = progress;
+		}
+
+		@Override
+		public void bytesTransferred(long byteCount) {
+			progress.bytesTransferred(bucket, byteCount);
+		}
 	}
 
 	private List<Bucket> getFilteredBuckets(String index, Date earliestTime,
@@ -130,32 +255,49 @@ public class BucketThawer {
 	 */
 	private class ThawBucketFromArchive implements SharedLockBucketHandler {
 
+		private final ThawProgress progress;
+
+		public ThawBucketFromArchive(ThawProgress progress) {
+			this.progress = progress;
+		}
+
 		@Override
 		public void handleSharedLockedBucket(Bucket bucket) {
-			BucketThawer.this.thawBucketFromArchive(bucket);
+			BucketThawer.this.thawBucketFromArchive(bucket, progress);
 		}
 
 		@Override
 		public void bucketWasLocked(Bucket bucket) {
-			BucketThawer.this.skippedBuckets.add(bucket);
+			BucketThawer.this.bucketSkipped(bucket, progress);
 		}
 
 	}
 
-	private void thawBucketFromArchive(Bucket bucket) {
+	private void thawBucketFromArchive(Bucket bucket, ThawProgress progress) {
 		try {
 			LocalBucket thawedBucket = getsBucketsFromArchive
 					.getBucketFromArchive(bucket);
 			successfulThawedBuckets.add(thawedBucket);
+			progress.bucketThawed(thawedBucket);
 		} catch (ThawTransferFailException e) {
 			logTransferException(bucket, e);
-			failedBuckets.add(new FailedBucket(bucket, e));
+			bucketFailed(bucket, e, progress);
 		} catch (ImportThawedBucketFailException e) {
 			logImportException(bucket, e);
-			failedBuckets.add(new FailedBucket(bucket, e));
+			bucketFailed(bucket, e, progress);
 		}
 	}
 
+	private void bucketSkipped(Bucket bucket, ThawProgress progress) {
+		skippedBuckets.add(bucket);
+		progress.bucketSkipped(bucket);
+	}
+
+	private void bucketFailed(Bucket bucket, Exception e, ThawProgress progress) {
+		failedBuckets.add(new FailedBucket(bucket, e));
+		progress.bucketFailed(bucket, e);
+	}
+
 	private void logTransferException(Bucket bucket, ThawTransferFailException e) {
 		logger.error(did("Tried to transfer bucket to thaw", e,
 				"Transfer to succeed", "bucket", bucket, "exception", e));
@@ -14,8 +14,14 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.thaw;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalogFactory;
 import com.splunk.shuttl.archiver.copy.IndexStoragePaths;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
@@ -25,7 +31,10 @@ import com.splunk.shuttl.archiver.importexport.BucketImportController;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFiltered;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFilteredFactory;
 import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
 import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
+import com.splunk.shuttl.archiver.util.NamedDaemonThreadFactory;
 
 /**
  * Factory for getting {@link BucketThawer}
@@ -69,13 +78,62 @@ public class BucketThawerFactory {
 		PathResolver pathResolver = new PathResolver(configuration);
 		BucketSizeResolver bucketSizeResolver = new BucketSizeResolver(
 				ArchiveBucketSize.create(pathResolver, archiveFileSystem,
+						localFileSystemPaths), ArchiveCatalogFactory.create(configuration,
 						localFileSystemPaths));
+		String backendName = configuration.getBackendName();
 		GetsBucketsFromArchive getsBucketsFromArchive = new GetsBucketsFromArchive(
 				thawBucketTransferer, BucketImportController.create(),
-				bucketSizeResolver);
+				bucketSizeResolver, getThawPipeline(backendName),
+				ArchiverMetrics.getSharedInstance(), backendName);
 		return new BucketThawer(listsBucketsFiltered, getsBucketsFromArchive,
 				new LocalBucketStorage(new IndexStoragePaths(splunkIndexesLayer)),
-				new ThawBucketLocker(localFileSystemPaths));
+				new ThawBucketLocker(localFileSystemPaths),
+				getThawExecutor(backendName));
+	}
+
+	private static final Map<String, Executor> thawExecutorsByBackend =
+			new HashMap<String, Executor>();
+
+	/**
+	 * Buckets from the same back-end are thawed on a pool shared by all
+	 * thawers, with the number of threads in the back-end's
+	 * {@link ThawConfiguration}. The configuration is read when the pool is
+	 * created.
+	 */
+	private static synchronized Executor getThawExecutor(String backendName) {
+		Executor executor = thawExecutorsByBackend.get(backendName);
+		if (executor == null) {
+			executor = createThawExecutor(ThawConfiguration.createForBackend(
+					backendName).getThreads());
+			thawExecutorsByBackend.put(backendName, executor);
+		}
+		return executor;
+	}
+
+	private static final Map<String, ThawPipeline> thawPipelinesByBackend =
+			new HashMap<String, ThawPipeline>();
+
+	/**
+	 * Buckets from the same back-end go through a {@link ThawPipeline} shared by
+	 * all thawers, so that the stage threads of the back-end's
+	 * {@link ThawConfiguration} are a limit for the whole server.
+	 */
+	public static synchronized ThawPipeline getThawPipeline(String backendName) {
+		ThawPipeline pipeline = thawPipelinesByBackend.get(backendName);
+		if (pipeline == null) {
+			pipeline = ThawPipeline.create(backendName,
+					ThawConfiguration.createForBackend(backendName));
+			thawPipelinesByBackend.put(backendName, pipeline);
+		}
+		return pipeline;
+	}
+
+	private static Executor createThawExecutor(int threads) {
+		if (threads == 1)
+			return new CallingThreadExecutor();
+		else
+			return Executors.newFixedThreadPool(threads,
+					new NamedDaemonThreadFactory("shuttl-thawer"));
 	}
 
 	private static ThawBucketTransferer getThawBucketTransferer(
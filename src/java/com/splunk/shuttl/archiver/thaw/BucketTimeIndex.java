@@ -0,0 +1,145 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.util.IllegalRegexGroupException;
+
+/**
+ * Index of buckets by their time range, which finds the buckets that overlap a
+ * time range in O(log n + k) time, where k is the number of buckets found.
+ * Build it once per listing of buckets and query it as many times as needed.<br/>
+ * <br/>
+ * The buckets are sorted by earliest time and the sorted array is used as an
+ * implicit balanced binary tree, where every node also knows the latest time in
+ * its subtree. Subtrees that end before the range or start after it are never
+ * visited. Each bucket's name is parsed once, when the index is built.
+ */
+public class BucketTimeIndex<B extends Bucket> {
+
+	private final List<B> buckets;
+	private final int[] positions;
+	private final long[] earliest;
+	private final long[] latest;
+	private final long[] maxLatestInSubtree;
+
+	private BucketTimeIndex(List<B> buckets, int[] positions, long[] earliest,
+			long[] latest) {
+		this.buckets = buckets;
+		this.positions = positions;
+		this.earliest = earliest;
+		this.latest = latest;
+		this.maxLatestInSubtree = new long[positions.length];
+		computeMaxLatest(0, positions.length);
+	}
+
+	private long computeMaxLatest(int from, int to) {
+		if (from >= to)
+			return Long.MIN_VALUE;
+		int mid = (from + to) >>> 1;
+		long max = Math.max(latest[mid],
+				Math.max(computeMaxLatest(from, mid), computeMaxLatest(mid + 1, to)));
+		maxLatestInSubtree[mid] = max;
+		return max;
+	}
+
+	/**
+	 * @return number of indexed buckets.
+	 */
+	public int size() {
+		return positions.length;
+	}
+
+	/**
+	 * @return every indexed bucket, in the order they were given when the index
+	 *         was built.
+	 */
+	public List<B> getBuckets() {
+		return Collections.unmodifiableList(buckets);
+	}
+
+	/**
+	 * @return buckets that overlap the time range, in the order they were given
+	 *         when the index was built.
+	 */
+	public List<B> getBucketsOverlapping(Date earliestTime, Date latestTime) {
+		List<Integer> found = new ArrayList<Integer>();
+		collectOverlapping(0, positions.length, earliestTime.getTime(),
+				latestTime.getTime(), found);
+		Collections.sort(found);
+		List<B> overlapping = new ArrayList<B>(found.size());
+		for (int position : found)
+			overlapping.add(buckets.get(position));
+		return overlapping;
+	}
+
+	private void collectOverlapping(int from, int to, long rangeEarliest,
+			long rangeLatest, List<Integer> found) {
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (maxLatestInSubtree[mid] < rangeEarliest)
+				return;
+			collectOverlapping(from, mid, rangeEarliest, rangeLatest, found);
+			if (earliest[mid] > rangeLatest)
+				return;
+			if (latest[mid] >= rangeEarliest)
+				found.add(positions[mid]);
+			from = mid + 1;
+		}
+	}
+
+	/**
+	 * @return index of the buckets.
+	 * @throws IllegalRegexGroupException
+	 *           if a bucket's name doesn't have its earliest and latest time.
+	 */
+	public static <B extends Bucket> BucketTimeIndex<B> create(
+			List<? extends B> buckets) {
+		List<B> indexed = new ArrayList<B>(buckets);
+		List<long[]> times = new ArrayList<long[]>(buckets.size());
+		for (B bucket : indexed)
+			times.add(new long[] { bucket.getEarliest().getTime(),
+					bucket.getLatest().getTime(), times.size() });
+		return fromTimes(indexed, times);
+	}
+
+	private static <B extends Bucket> BucketTimeIndex<B> fromTimes(
+			List<B> indexed, List<long[]> times) {
+		long[][] sorted = times.toArray(new long[times.size()][]);
+		Arrays.sort(sorted, new Comparator<long[]>() {
+
+			@Override
+			public int compare(long[] a, long[] b) {
+				return a[0] < b[0] ? -1 : (a[0] == b[0] ? 0 : 1);
+			}
+		});
+		int[] positions = new int[sorted.length];
+		long[] earliest = new long[sorted.length];
+		long[] latest = new long[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			earliest[i] = sorted[i][0];
+			latest[i] = sorted[i][1];
+			positions[i] = (int) sorted[i][2];
+		}
+		return new BucketTimeIndex<B>(indexed, positions, earliest, latest);
+	}
+}
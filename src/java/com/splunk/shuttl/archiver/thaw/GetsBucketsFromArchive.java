@@ -16,15 +16,25 @@ package com.splunk.shuttl.archiver.thaw;
 
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
+import java.util.List;
+import java.util.concurrent.Callable;
+
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.importexport.BucketImportController;
+import com.splunk.shuttl.archiver.importexport.BucketStreamImporter;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics.PhaseTimer;
+import com.splunk.shuttl.archiver.metrics.Phase;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.BucketFactory;
 import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.thaw.ThawPipeline.Stage;
 
 /**
  * Transfers and restores {@link Bucket}s from the archive to the local disk.
+ * The download, import and size resolving are stages of a
+ * {@link ThawPipeline}.
  */
 public class GetsBucketsFromArchive {
 
@@ -34,6 +44,9 @@ public class GetsBucketsFromArchive {
 	private final ThawBucketTransferer thawBucketTransferer;
 	private final BucketImportController bucketImportController;
 	private final BucketSizeResolver bucketSizeResolver;
+	private final ThawPipeline thawPipeline;
+	private final ArchiverMetrics archiverMetrics;
+	private final String backendName;
 
 	/**
 	 * @param thawBucketTransferer
@@ -43,9 +56,53 @@ public class GetsBucketsFromArchive {
 	public GetsBucketsFromArchive(ThawBucketTransferer thawBucketTransferer,
 			BucketImportController bucketImportController,
 			BucketSizeResolver bucketSizeResolver) {
+		this(thawBucketTransferer, bucketImportController, bucketSizeResolver,
+				ThawPipeline.createInline());
+	}
+
+	/**
+	 * @param thawPipeline
+	 *          to run the stages of getting a bucket on.
+	 */
+	public GetsBucketsFromArchive(ThawBucketTransferer thawBucketTransferer,
+			BucketImportController bucketImportController,
+			BucketSizeResolver bucketSizeResolver, ThawPipeline thawPipeline) {
+		this(thawBucketTransferer, bucketImportController, bucketSizeResolver,
+				thawPipeline, null, null);
+	}
+
+	/**
+	 * @param archiverMetrics
+	 *          where the download and import are measured. Can be null, to not
+	 *          measure them.
+	 * @param backendName
+	 *          of the archive, which the metrics are kept per.
+	 */
+	public GetsBucketsFromArchive(ThawBucketTransferer thawBucketTransferer,
+			BucketImportController bucketImportController,
+			BucketSizeResolver bucketSizeResolver, ThawPipeline thawPipeline,
+			ArchiverMetrics archiverMetrics, String backendName) {
 		this.thawBucketTransferer = thawBucketTransferer;
 		this.bucketImportController = bucketImportController;
 		this.bucketSizeResolver = bucketSizeResolver;
+		this.thawPipeline = thawPipeline;
+		this.archiverMetrics = archiverMetrics;
+		this.backendName = backendName;
+	}
+
+	/**
+	 * Prepares the archive for getting the buckets, which are then got one at
+	 * a time with {@link #getBucketFromArchive(Bucket)}. Failing to prepare
+	 * does not fail getting the buckets.
+	 */
+	public void prepareBucketsFromArchive(List<Bucket> buckets) {
+		try {
+			thawBucketTransferer.prepareTransfers(buckets);
+		} catch (RuntimeException e) {
+			logger.warn(warn("Prepared buckets to be thawed", e,
+					"Will thaw the buckets without preparing them", "buckets",
+					buckets.size()));
+		}
 	}
 
 	/**
@@ -55,22 +112,115 @@ public class GetsBucketsFromArchive {
 	 * @throws ImportThawedBucketFailException
 	 *           if the import of the thawed bucket fails.
 	 */
-	public LocalBucket getBucketFromArchive(Bucket bucket)
+	public LocalBucket getBucketFromArchive(final Bucket bucket)
 			throws ThawTransferFailException, ImportThawedBucketFailException {
 		logger.info(will("Attempting to thaw bucket", "bucket", bucket));
-		LocalBucket thawedBucket = getTransferedBucket(bucket);
-		LocalBucket importedBucket = importThawedBucket(thawedBucket);
-		Bucket bucketWithSize = bucketSizeResolver.resolveBucketSize(thawedBucket);
+		final LocalBucket thawedBucket = runStage(Stage.DOWNLOAD,
+				new Callable<LocalBucket>() {
+
+					@Override
+					public LocalBucket call() throws Exception {
+						PhaseTimer timer = startTimer(Phase.THAW_DOWNLOAD, bucket);
+						try {
+							LocalBucket thawedBucket = getTransferedBucket(bucket);
+							stopTimer(timer, thawedBucket);
+							return thawedBucket;
+						} finally {
+							failTimer(timer);
+						}
+					}
+				});
+		final LocalBucket importedBucket = runStage(Stage.IMPORT,
+				new Callable<LocalBucket>() {
+
+					@Override
+					public LocalBucket call() throws Exception {
+						PhaseTimer timer = startTimer(Phase.IMPORT, thawedBucket);
+						try {
+							LocalBucket importedBucket = importThawedBucket(thawedBucket);
+							stopTimer(timer, importedBucket);
+							return importedBucket;
+						} finally {
+							failTimer(timer);
+						}
+					}
+				});
+		LocalBucket sizedBucket = runStage(Stage.FINALIZE,
+				new Callable<LocalBucket>() {
+
+					@Override
+					public LocalBucket call() throws Exception {
+						PhaseTimer timer = startTimer(Phase.THAW_FINALIZE,
+								importedBucket);
+						try {
+							LocalBucket sizedBucket = withSize(bucket, importedBucket);
+							stopTimer(timer, sizedBucket);
+							return sizedBucket;
+						} finally {
+							failTimer(timer);
+						}
+					}
+				});
 		logger.info(done("Thawed bucket", "bucket", importedBucket));
+		return sizedBucket;
+	}
+
+	private PhaseTimer startTimer(Phase phase, Bucket bucket) {
+		if (archiverMetrics == null)
+			return null;
+		return archiverMetrics.start(phase, backendName, bucket.getFormat());
+	}
+
+	private static void stopTimer(PhaseTimer timer, Bucket bucket) {
+		if (timer != null)
+			timer.stop(bucket.getSize() == null ? -1 : bucket.getSize());
+	}
+
+	private static void failTimer(PhaseTimer timer) {
+		if (timer != null)
+			timer.fail();
+	}
+
+	/**
+	 * The size is resolved for the archived bucket, which has the same format
+	 * as the transferred bucket unless it was imported while transferred.
+	 */
+	private LocalBucket withSize(Bucket archivedBucket,
+			LocalBucket importedBucket) {
+		Bucket bucketWithSize = bucketSizeResolver
+				.resolveBucketSize(archivedBucket);
 		return BucketFactory.createBucketWithIndexDirectoryAndSize(
 				importedBucket.getIndex(), importedBucket.getDirectory(),
 				importedBucket.getFormat(), bucketWithSize.getSize());
 	}
 
+	private LocalBucket runStage(Stage stage, Callable<LocalBucket> work)
+			throws ThawTransferFailException, ImportThawedBucketFailException {
+		try {
+			return thawPipeline.runStage(stage, work);
+		} catch (ThawTransferFailException e) {
+			throw e;
+		} catch (ImportThawedBucketFailException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while thawing bucket", e);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	private LocalBucket getTransferedBucket(Bucket bucket)
 			throws ThawTransferFailException {
 		try {
-			return thawBucketTransferer.transferBucketToThaw(bucket);
+			BucketStreamImporter streamImporter = bucketImportController
+					.getStreamImporter(bucket.getFormat());
+			if (streamImporter != null && thawBucketTransferer.canStreamFromArchive())
+				return thawBucketTransferer.streamBucketToThaw(bucket, streamImporter);
+			else
+				return thawBucketTransferer.transferBucketToThaw(bucket);
 		} catch (Exception e) {
 			logger.error(did("Tried to thaw bucket", e, "Place the bucket in thaw",
 					"bucket", bucket, "exception", e));
@@ -16,11 +16,17 @@ package com.splunk.shuttl.archiver.thaw;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
+import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.PreparesBucketRetrievals;
+import com.splunk.shuttl.archiver.filesystem.transaction.OpensInputStreams;
 import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.GetBucketTransaction;
+import com.splunk.shuttl.archiver.filesystem.transaction.bucket.GetStreamedBucketTransaction;
+import com.splunk.shuttl.archiver.importexport.BucketStreamImporter;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.BucketFactory;
 import com.splunk.shuttl.archiver.model.LocalBucket;
@@ -60,4 +66,42 @@ public class ThawBucketTransferer {
 		return bucketFactory.createWithIndexDirectoryAndSize(bucket.getIndex(),
 				dst, bucket.getFormat(), bucket.getSize());
 	}
+
+	/**
+	 * Lets the archive start getting the buckets ready before they are
+	 * transferred, if the archive is slow to start getting each bucket.
+	 */
+	public void prepareTransfers(List<Bucket> buckets) {
+		if (archiveFileSystem instanceof PreparesBucketRetrievals)
+			((PreparesBucketRetrievals) archiveFileSystem)
+					.prepareRetrievals(buckets);
+	}
+
+	/**
+	 * @return true if buckets can be imported while they are transferred, with
+	 *         {@link #streamBucketToThaw(Bucket, BucketStreamImporter)}.
+	 */
+	public boolean canStreamFromArchive() {
+		return archiveFileSystem instanceof OpensInputStreams;
+	}
+
+	/**
+	 * Imports an archived bucket straight from the archive to the thaw
+	 * directory of the bucket's index, without storing the archived bucket
+	 * file locally.
+	 * 
+	 * @return the transferred bucket, in {@link BucketFormat#SPLUNK_BUCKET}.
+	 */
+	public LocalBucket streamBucketToThaw(Bucket bucket,
+			BucketStreamImporter bucketStreamImporter) throws IOException {
+		File temp = thawLocationProvider.getThawTransferLocation(bucket);
+		File dst = thawLocationProvider.getLocationInThawForBucket(bucket);
+		Transaction getStreamedBucketTransaction = GetStreamedBucketTransaction
+				.create((OpensInputStreams) archiveFileSystem, bucketStreamImporter,
+						bucket, temp.getAbsolutePath(), dst.getAbsolutePath());
+		transactionExecuter.execute(getStreamedBucketTransaction);
+
+		return bucketFactory.createWithIndexDirectoryAndSize(bucket.getIndex(),
+				dst, BucketFormat.SPLUNK_BUCKET, bucket.getSize());
+	}
 }
@@ -0,0 +1,149 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.splunk.shuttl.archiver.filesystem.BackendConfigurationFiles.ConfigurationFileDoesNotExist;
+import com.splunk.shuttl.archiver.filesystem.glacier.AWSCredentialsImpl;
+import com.splunk.shuttl.archiver.filesystem.hadoop.HdfsProperties;
+
+/**
+ * How buckets are thawed from a back-end. Configured in the back-end's
+ * properties file, where every property is optional.
+ */
+public class ThawConfiguration {
+
+	public static final String THREADS_PROPERTY = "thaw.threads";
+	public static final String DOWNLOAD_THREADS_PROPERTY = "thaw.download.threads";
+	public static final String IMPORT_THREADS_PROPERTY = "thaw.import.threads";
+	public static final String FINALIZE_THREADS_PROPERTY = "thaw.finalize.threads";
+	public static final String QUEUE_SIZE_PROPERTY = "thaw.queue.size";
+
+	/**
+	 * Buckets are thawed one at a time, unless configured otherwise.
+	 */
+	public static final int DEFAULT_THREADS = 1;
+	public static final int DEFAULT_QUEUE_SIZE = 2;
+
+	private final int threads;
+	private final int downloadThreads;
+	private final int importThreads;
+	private final int finalizeThreads;
+	private final int queueSize;
+
+	/**
+	 * Each stage of the pipeline gets as many threads as there are buckets in
+	 * the pipeline, so that the stages don't limit the threads.
+	 */
+	public ThawConfiguration(int threads) {
+		this(threads, threads, threads, threads, DEFAULT_QUEUE_SIZE);
+	}
+
+	public ThawConfiguration(int threads, int downloadThreads,
+			int importThreads, int finalizeThreads, int queueSize) {
+		this.threads = Math.max(1, threads);
+		this.downloadThreads = Math.max(1, downloadThreads);
+		this.importThreads = Math.max(1, importThreads);
+		this.finalizeThreads = Math.max(1, finalizeThreads);
+		this.queueSize = Math.max(1, queueSize);
+	}
+
+	/**
+	 * @return number of buckets in the thaw pipeline at the same time.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @return number of buckets downloaded from the back-end at the same time.
+	 */
+	public int getDownloadThreads() {
+		return downloadThreads;
+	}
+
+	/**
+	 * @return number of downloaded buckets imported at the same time.
+	 */
+	public int getImportThreads() {
+		return importThreads;
+	}
+
+	/**
+	 * @return number of imported buckets that get their sizes resolved at the
+	 *         same time.
+	 */
+	public int getFinalizeThreads() {
+		return finalizeThreads;
+	}
+
+	/**
+	 * @return number of buckets that can wait for each stage of the pipeline.
+	 */
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	/**
+	 * @return configuration in the properties file of the back-end, or the
+	 *         default configuration if the back-end doesn't have a properties
+	 *         file.
+	 */
+	public static ThawConfiguration createForBackend(String backendName) {
+		try {
+			if ("hdfs".equals(backendName))
+				return createWithPropertyFile(HdfsProperties.getHdfsPropertiesFile());
+			else if ("s3".equals(backendName) || "s3n".equals(backendName)
+					|| "glacier".equals(backendName))
+				return createWithPropertyFile(AWSCredentialsImpl
+						.getAmazonPropertiesFile());
+		} catch (ConfigurationFileDoesNotExist e) {
+			// Use the default configuration.
+		}
+		return new ThawConfiguration(DEFAULT_THREADS);
+	}
+
+	private static int getInt(Properties properties, String name,
+			int defaultValue) {
+		String value = properties.getProperty(name);
+		return value == null ? defaultValue : Integer.parseInt(value.trim());
+	}
+
+	public static ThawConfiguration createWithPropertyFile(File properties) {
+		InputStream in = null;
+		try {
+			in = FileUtils.openInputStream(properties);
+			Properties loaded = new Properties();
+			loaded.load(in);
+			int threads = getInt(loaded, THREADS_PROPERTY, DEFAULT_THREADS);
+			return new ThawConfiguration(threads, getInt(loaded,
+					DOWNLOAD_THREADS_PROPERTY, threads), getInt(loaded,
+					IMPORT_THREADS_PROPERTY, threads), getInt(loaded,
+					FINALIZE_THREADS_PROPERTY, threads), getInt(loaded,
+					QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+}
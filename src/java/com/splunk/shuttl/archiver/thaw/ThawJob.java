@@ -0,0 +1,312 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.thaw.BucketThawer.FailedBucket;
+
+/**
+ * Thaws a time range of buckets in the background and keeps track of how far
+ * it has come. See {@link ThawJobs}.
+ */
+public class ThawJob implements Runnable, ThawProgress {
+
+	private static final Logger logger = Logger.getLogger(ThawJob.class);
+
+	/**
+	 * Throughput is measured over the bytes transferred during this window.
+	 */
+	public static final long THROUGHPUT_WINDOW_MILLIS = 60 * 1000;
+
+	public enum State {
+		QUEUED, RUNNING, FINISHED, CANCELLED, FAILED;
+
+		public boolean isDone() {
+			return this != QUEUED && this != RUNNING;
+		}
+	}
+
+	private final String id;
+	private final BucketThawer bucketThawer;
+	private final String index;
+	private final Date earliestTime;
+	private final Date latestTime;
+	private final long submittedMillis;
+
+	private final AtomicInteger bucketsThawed = new AtomicInteger();
+	private final AtomicInteger bucketsSkipped = new AtomicInteger();
+	private final AtomicLong bytesTransferred = new AtomicLong();
+	private final ConcurrentHashMap<String, AtomicLong> bytesStreamedPerBucket = new ConcurrentHashMap<String, AtomicLong>();
+	private final List<FailedBucket> failedBuckets = Collections
+			.synchronizedList(new ArrayList<FailedBucket>());
+	private final LinkedList<long[]> recentlyTransferred = new LinkedList<long[]>();
+
+	private volatile State state = State.QUEUED;
+	private volatile boolean cancelled;
+	private volatile int bucketsTotal;
+	private volatile long startedMillis;
+	private volatile long finishedMillis;
+	private volatile String error;
+
+	public ThawJob(String id, BucketThawer bucketThawer, String index,
+			Date earliestTime, Date latestTime, long submittedMillis) {
+		this.id = id;
+		this.bucketThawer = bucketThawer;
+		this.index = index;
+		this.earliestTime = earliestTime;
+		this.latestTime = latestTime;
+		this.submittedMillis = submittedMillis;
+	}
+
+	@Override
+	public void run() {
+		startedMillis = System.currentTimeMillis();
+		if (cancelled) {
+			finish(State.CANCELLED);
+			return;
+		}
+		state = State.RUNNING;
+		logger.info(will("Run thaw job", "job_id", id, "index", index,
+				"earliest_time", earliestTime, "latest_time", latestTime));
+		try {
+			bucketThawer.thawBuckets(index, earliestTime, latestTime, this);
+			finish(cancelled ? State.CANCELLED : State.FINISHED);
+			logger.info(done("Ran thaw job", "job_id", id, "state", state));
+		} catch (RuntimeException e) {
+			fail(e);
+		} catch (Error e) {
+			fail(e);
+			throw e;
+		}
+	}
+
+	private void fail(Throwable e) {
+		error = e.getMessage() == null ? e.getClass().getSimpleName() : e
+				.getMessage();
+		finish(State.FAILED);
+		logger.error(did("Ran thaw job", e, "Job to finish", "job_id", id));
+	}
+
+	private void finish(State finalState) {
+		finishedMillis = System.currentTimeMillis();
+		state = finalState;
+	}
+
+	/**
+	 * Buckets that have not started thawing will not be thawed. Buckets that
+	 * are thawing will finish.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public void thawStarted(List<Bucket> buckets) {
+		bucketsTotal = buckets.size();
+	}
+
+	@Override
+	public void bytesTransferred(Bucket bucket, long byteCount) {
+		String key = key(bucket);
+		AtomicLong streamed = bytesStreamedPerBucket.get(key);
+		if (streamed == null) {
+			bytesStreamedPerBucket.putIfAbsent(key, new AtomicLong());
+			streamed = bytesStreamedPerBucket.get(key);
+		}
+		streamed.addAndGet(byteCount);
+		addBytesTransferred(byteCount);
+	}
+
+	/**
+	 * A bucket that was transferred without reporting its bytes, which some
+	 * back-ends do, is counted with its size.
+	 */
+	@Override
+	public void bucketThawed(LocalBucket thawedBucket) {
+		bucketsThawed.incrementAndGet();
+		AtomicLong streamed = bytesStreamedPerBucket.remove(key(thawedBucket));
+		if (streamed == null || streamed.get() == 0)
+			addBytesTransferred(thawedBucket.getSize() == null ? 0 : thawedBucket
+					.getSize());
+	}
+
+	private static String key(Bucket bucket) {
+		return bucket.getIndex() + "/" + bucket.getName();
+	}
+
+	private void addBytesTransferred(long byteCount) {
+		bytesTransferred.addAndGet(byteCount);
+		long second = System.currentTimeMillis() / 1000 * 1000;
+		synchronized (recentlyTransferred) {
+			if (!recentlyTransferred.isEmpty()
+					&& recentlyTransferred.getLast()[0] == second)
+				recentlyTransferred.getLast()[1] += byteCount;
+			else
+				recentlyTransferred.add(new long[] { second, byteCount });
+		}
+	}
+
+	@Override
+	public void bucketSkipped(Bucket bucket) {
+		bucketsSkipped.incrementAndGet();
+	}
+
+	@Override
+	public void bucketFailed(Bucket bucket, Exception exception) {
+		bytesStreamedPerBucket.remove(key(bucket));
+		failedBuckets.add(new FailedBucket(bucket, exception));
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public String getIndex() {
+		return index;
+	}
+
+	public Date getEarliestTime() {
+		return earliestTime;
+	}
+
+	public Date getLatestTime() {
+		return latestTime;
+	}
+
+	public long getSubmittedMillis() {
+		return submittedMillis;
+	}
+
+	/**
+	 * @return when the job started running, or 0 if it has not started.
+	 */
+	public long getStartedMillis() {
+		return startedMillis;
+	}
+
+	/**
+	 * @return when the job was done, or 0 if it is not done.
+	 */
+	public long getFinishedMillis() {
+		return finishedMillis;
+	}
+
+	/**
+	 * @return number of buckets to thaw, which is 0 until the buckets are
+	 *         listed.
+	 */
+	public int getBucketsTotal() {
+		return bucketsTotal;
+	}
+
+	/**
+	 * @return number of buckets that are thawed or skipped because they were
+	 *         already thawed.
+	 */
+	public int getBucketsDone() {
+		return bucketsThawed.get() + bucketsSkipped.get();
+	}
+
+	public int getBucketsThawed() {
+		return bucketsThawed.get();
+	}
+
+	public int getBucketsSkipped() {
+		return bucketsSkipped.get();
+	}
+
+	public int getBucketsFailed() {
+		return failedBuckets.size();
+	}
+
+	public List<FailedBucket> getFailedBuckets() {
+		synchronized (failedBuckets) {
+			return new ArrayList<FailedBucket>(failedBuckets);
+		}
+	}
+
+	/**
+	 * @return bytes transferred from the archive so far, counted while they are
+	 *         transferred.
+	 */
+	public long getBytesTransferred() {
+		return bytesTransferred.get();
+	}
+
+	/**
+	 * @return bytes per second transferred during the last
+	 *         {@link #THROUGHPUT_WINDOW_MILLIS}, or 0 if the job is not running.
+	 */
+	public long getThroughputBytesPerSecond() {
+		if (state != State.RUNNING)
+			return 0;
+		long now = System.currentTimeMillis();
+		long windowStart = Math.max(startedMillis, now - THROUGHPUT_WINDOW_MILLIS);
+		long bytes = 0;
+		synchronized (recentlyTransferred) {
+			while (!recentlyTransferred.isEmpty()
+					&& recentlyTransferred.getFirst()[0] < now
+							- THROUGHPUT_WINDOW_MILLIS)
+				recentlyTransferred.removeFirst();
+			for (long[] transferred : recentlyTransferred)
+				bytes += transferred[1];
+		}
+		long windowMillis = Math.max(1, now - windowStart);
+		return bytes * 1000 / windowMillis;
+	}
+
+	/**
+	 * @return estimated seconds until the job is done, from the average time
+	 *         per bucket so far, or null if it cannot be estimated yet.
+	 */
+	public Long getEstimatedSecondsLeft() {
+		int processed = getBucketsDone() + getBucketsFailed();
+		if (state != State.RUNNING || processed == 0)
+			return null;
+		long elapsed = System.currentTimeMillis() - startedMillis;
+		int left = Math.max(0, bucketsTotal - processed);
+		return elapsed * left / processed / 1000;
+	}
+
+	/**
+	 * @return why the job failed, or null if it did not fail.
+	 */
+	public String getError() {
+		return error;
+	}
+}
@@ -0,0 +1,176 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.util.NamedDaemonThreadFactory;
+
+/**
+ * Runs {@link ThawJob}s in the background and keeps them in memory, so that
+ * their status can be asked for by id after the request that submitted them
+ * is gone. Jobs that are done are kept for a while, and only a limited number
+ * of them, after which they are forgotten. Only a limited number of jobs can
+ * be queued or running at the same time, new jobs are rejected after that.
+ */
+public class ThawJobs {
+
+	private static final Logger logger = Logger.getLogger(ThawJobs.class);
+
+	public static final int DEFAULT_JOB_THREADS = 2;
+	public static final int DEFAULT_MAX_ACTIVE_JOBS = 10;
+	public static final int DEFAULT_MAX_DONE_JOBS = 100;
+	public static final long DEFAULT_DONE_JOB_RETENTION_MILLIS = 24 * 60 * 60 * 1000;
+
+	private final Executor executor;
+	private final int maxActiveJobs;
+	private final int maxDoneJobs;
+	private final long doneJobRetentionMillis;
+	private final LinkedHashMap<String, ThawJob> jobs;
+
+	/**
+	 * @param executor
+	 *          to run the jobs on.
+	 * @param maxDoneJobs
+	 *          number of jobs that are done to keep.
+	 * @param doneJobRetentionMillis
+	 *          how long to keep jobs that are done.
+	 */
+	public ThawJobs(Executor executor, int maxDoneJobs,
+			long doneJobRetentionMillis) {
+		this(executor, DEFAULT_MAX_ACTIVE_JOBS, maxDoneJobs,
+				doneJobRetentionMillis);
+	}
+
+	/**
+	 * @param maxActiveJobs
+	 *          number of jobs that can be queued or running at the same time.
+	 */
+	public ThawJobs(Executor executor, int maxActiveJobs, int maxDoneJobs,
+			long doneJobRetentionMillis) {
+		this.executor = executor;
+		this.maxActiveJobs = maxActiveJobs;
+		this.maxDoneJobs = maxDoneJobs;
+		this.doneJobRetentionMillis = doneJobRetentionMillis;
+		this.jobs = new LinkedHashMap<String, ThawJob>();
+	}
+
+	/**
+	 * @return the submitted job, which will thaw the buckets with the thawer.
+	 * @throws ThawJobsFullException
+	 *           if as many jobs as allowed are already queued or running.
+	 */
+	public ThawJob submit(BucketThawer bucketThawer, String index,
+			Date earliestTime, Date latestTime) {
+		ThawJob job = new ThawJob(UUID.randomUUID().toString(), bucketThawer,
+				index, earliestTime, latestTime, System.currentTimeMillis());
+		synchronized (this) {
+			forgetOldJobs();
+			int activeJobs = countActiveJobs();
+			if (activeJobs >= maxActiveJobs) {
+				logger.warn(warn("Submitting thaw job", "too many thaw jobs",
+						"will reject the job", "index", index, "active_jobs",
+						activeJobs, "max_active_jobs", maxActiveJobs));
+				throw new ThawJobsFullException("There are already " + activeJobs
+						+ " thaw jobs queued or running, which is the maximum.");
+			}
+			jobs.put(job.getId(), job);
+		}
+		logger.info(happened("Submitted thaw job", "job_id", job.getId(),
+				"index", index, "earliest_time", earliestTime, "latest_time",
+				latestTime));
+		executor.execute(job);
+		return job;
+	}
+
+	/**
+	 * @return the job, or null if there is no such job or if it has been
+	 *         forgotten.
+	 */
+	public synchronized ThawJob getJob(String id) {
+		forgetOldJobs();
+		return jobs.get(id);
+	}
+
+	/**
+	 * @return all jobs, in the order they were submitted.
+	 */
+	public synchronized List<ThawJob> getJobs() {
+		forgetOldJobs();
+		return new ArrayList<ThawJob>(jobs.values());
+	}
+
+	/**
+	 * @return the cancelled job, or null if there is no such job.
+	 */
+	public ThawJob cancel(String id) {
+		ThawJob job = getJob(id);
+		if (job != null) {
+			job.cancel();
+			logger.info(happened("Cancelled thaw job", "job_id", id));
+		}
+		return job;
+	}
+
+	private int countActiveJobs() {
+		int activeJobs = 0;
+		for (ThawJob job : jobs.values())
+			if (!job.getState().isDone())
+				activeJobs++;
+		return activeJobs;
+	}
+
+	private void forgetOldJobs() {
+		long oldestToKeep = System.currentTimeMillis() - doneJobRetentionMillis;
+		int doneJobs = 0;
+		for (ThawJob job : jobs.values())
+			if (job.getState().isDone())
+				doneJobs++;
+
+		Iterator<ThawJob> it = jobs.values().iterator();
+		while (it.hasNext()) {
+			ThawJob job = it.next();
+			if (job.getState().isDone()
+					&& (doneJobs > maxDoneJobs || job.getFinishedMillis() < oldestToKeep)) {
+				it.remove();
+				doneJobs--;
+			}
+		}
+	}
+
+	private static ThawJobs sharedInstance;
+
+	/**
+	 * @return jobs shared by the whole Shuttl server.
+	 */
+	public static synchronized ThawJobs getSharedInstance() {
+		if (sharedInstance == null)
+			sharedInstance = new ThawJobs(Executors.newFixedThreadPool(
+					DEFAULT_JOB_THREADS, new NamedDaemonThreadFactory("shuttl-thaw-job")),
+					DEFAULT_MAX_ACTIVE_JOBS, DEFAULT_MAX_DONE_JOBS, DEFAULT_DONE_JOB_RETENTION_MILLIS);
+		return sharedInstance;
+	}
+}
@@ -0,0 +1,29 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+/**
+ * Thrown when {@link ThawJobs} cannot accept any more jobs, because as many
+ * jobs as allowed are already queued or running.
+ */
+public class ThawJobsFullException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ThawJobsFullException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,184 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferListener;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferListeners;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
+import com.splunk.shuttl.archiver.metrics.Phase;
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
+import com.splunk.shuttl.archiver.util.NamedDaemonThreadFactory;
+
+/**
+ * Stages that a bucket goes through when it's thawed. Every stage runs on its
+ * own threads, so that while one bucket is imported the next bucket can be
+ * downloaded. A stage has a bounded queue, and a bucket waits for room in the
+ * queue when the stage is busy. The time a bucket waits for a stage is
+ * recorded as {@link Phase#THAW_STAGE_WAIT} in the {@link ArchiverMetrics}.
+ * The stages report their transfers to the {@link TransferListener} of the
+ * thread that runs the bucket through them.
+ */
+public class ThawPipeline {
+
+	private static final Logger logger = Logger.getLogger(ThawPipeline.class);
+
+	public enum Stage {
+		DOWNLOAD, IMPORT, FINALIZE
+	}
+
+	private final Map<Stage, Executor> executors;
+	private final ArchiverMetrics archiverMetrics;
+	private final String backendName;
+
+	public ThawPipeline(Executor downloadExecutor, Executor importExecutor,
+			Executor finalizeExecutor) {
+		this(downloadExecutor, importExecutor, finalizeExecutor, null, null);
+	}
+
+	/**
+	 * @param archiverMetrics
+	 *          to record the time buckets wait for the stages in. Can be null.
+	 * @param backendName
+	 *          of the back-end the buckets are thawed from.
+	 */
+	public ThawPipeline(Executor downloadExecutor, Executor importExecutor,
+			Executor finalizeExecutor, ArchiverMetrics archiverMetrics,
+			String backendName) {
+		this.executors = new EnumMap<Stage, Executor>(Stage.class);
+		executors.put(Stage.DOWNLOAD, downloadExecutor);
+		executors.put(Stage.IMPORT, importExecutor);
+		executors.put(Stage.FINALIZE, finalizeExecutor);
+		this.archiverMetrics = archiverMetrics;
+		this.backendName = backendName;
+	}
+
+	/**
+	 * Runs the work on the stage's threads and waits for it to finish.
+	 * 
+	 * @return what the work returned.
+	 * @throws Exception
+	 *           what the work threw.
+	 */
+	public <T> T runStage(Stage stage, Callable<T> work) throws Exception {
+		FutureTask<T> task = new FutureTask<T>(new RunsStage<T>(work));
+		executors.get(stage).execute(task);
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw (Exception) cause;
+		}
+	}
+
+	private class RunsStage<T> implements Callable<T> {
+
+		private final Callable<T> work;
+		private final long queuedAt;
+		private final TransferListener transferListener;
+
+		public RunsStage(Callable<T> work) {
+			this.work = work;
+			this.queuedAt = System.currentTimeMillis();
+			this.transferListener = TransferListeners.getCurrent();
+		}
+
+		@Override
+		public T call() throws Exception {
+			if (archiverMetrics != null)
+				archiverMetrics.record(Phase.THAW_STAGE_WAIT, backendName, null,
+						System.currentTimeMillis() - queuedAt, -1);
+			TransferListener previous = TransferListeners
+					.setCurrent(transferListener);
+			try {
+				return work.call();
+			} finally {
+				TransferListeners.setCurrent(previous);
+			}
+		}
+	}
+
+	/**
+	 * @return pipeline that runs every stage on the calling thread.
+	 */
+	public static ThawPipeline createInline() {
+		return new ThawPipeline(new CallingThreadExecutor(),
+				new CallingThreadExecutor(), new CallingThreadExecutor());
+	}
+
+	/**
+	 * @return pipeline with the threads and queue size of the configuration,
+	 *         which records to the shared {@link ArchiverMetrics}.
+	 */
+	public static ThawPipeline create(String backendName,
+			ThawConfiguration config) {
+		logger.info(will("Create thaw pipeline", "backend", backendName,
+				"download_threads",
+				config.getDownloadThreads(), "import_threads",
+				config.getImportThreads(), "finalize_threads",
+				config.getFinalizeThreads(), "queue_size", config.getQueueSize()));
+		int queueSize = config.getQueueSize();
+		return new ThawPipeline(createStageExecutor("shuttl-thaw-download",
+				config.getDownloadThreads(), queueSize), createStageExecutor(
+				"shuttl-thaw-import", config.getImportThreads(), queueSize),
+				createStageExecutor("shuttl-thaw-finalize",
+						config.getFinalizeThreads(), queueSize),
+				ArchiverMetrics.getSharedInstance(), backendName);
+	}
+
+	private static Executor createStageExecutor(String name, int threads,
+			int queueSize) {
+		return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize),
+				new NamedDaemonThreadFactory(name), new WaitsForRoomInQueue());
+	}
+
+	/**
+	 * Makes the thread that adds work to a full stage wait until there is room
+	 * for it, instead of rejecting the work.
+	 */
+	private static class WaitsForRoomInQueue implements RejectedExecutionHandler {
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			if (executor.isShutdown())
+				throw new RejectedExecutionException("Thaw stage is shut down");
+			try {
+				executor.getQueue().put(r);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException(
+						"Interrupted while waiting for the thaw stage", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import java.util.List;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+
+/**
+ * Follows the progress of a {@link BucketThawer} and can cancel it. The
+ * methods can be called from several threads at the same time.
+ */
+public interface ThawProgress {
+
+	/**
+	 * Called once, with all the buckets that will be thawed.
+	 */
+	void thawStarted(List<Bucket> buckets);
+
+	/**
+	 * Called while a bucket is transferred from the archive, by the thread that
+	 * transfers it.
+	 */
+	void bytesTransferred(Bucket bucket, long byteCount);
+
+	void bucketThawed(LocalBucket thawedBucket);
+
+	void bucketSkipped(Bucket bucket);
+
+	void bucketFailed(Bucket bucket, Exception exception);
+
+	/**
+	 * @return true if the buckets that have not started thawing should not be
+	 *         thawed.
+	 */
+	boolean isCancelled();
+
+	/**
+	 * Progress that does nothing and is never cancelled.
+	 */
+	ThawProgress NONE = new ThawProgress() {
+
+		@Override
+		public void thawStarted(List<Bucket> buckets) {
+		}
+
+		@Override
+		public void bytesTransferred(Bucket bucket, long byteCount) {
+		}
+
+		@Override
+		public void bucketThawed(LocalBucket thawedBucket) {
+		}
+
+		@Override
+		public void bucketSkipped(Bucket bucket) {
+		}
+
+		@Override
+		public void bucketFailed(Bucket bucket, Exception exception) {
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	};
+}
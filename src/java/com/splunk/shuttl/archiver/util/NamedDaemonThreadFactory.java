@@ -0,0 +1,39 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates daemon threads with a readable name prefix, so that Shuttl's worker
+ * threads can be identified in thread dumps and don't keep the JVM alive.
+ */
+public class NamedDaemonThreadFactory implements ThreadFactory {
+
+	private final String namePrefix;
+	private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+	public NamedDaemonThreadFactory(String namePrefix) {
+		this.namePrefix = namePrefix;
+	}
+
+	@Override
+	public Thread newThread(Runnable r) {
+		Thread t = new Thread(r, namePrefix + "-" + threadNumber.getAndIncrement());
+		t.setDaemon(true);
+		return t;
+	}
+}
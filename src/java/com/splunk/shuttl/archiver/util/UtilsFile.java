@@ -21,9 +21,13 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.hadoop.io.MD5Hash;
 import org.apache.log4j.Logger;
 
 /**
@@ -95,4 +99,19 @@ public class UtilsFile {
 		int extensionIndex = fileName.lastIndexOf("." + extension);
 		return fileName.substring(0, extensionIndex);
 	}
+
+	/**
+	 * @return a file name that's unique for the key, for keys like paths that
+	 *         can't be used as file names themselves.
+	 */
+	public static String getFileNameForKey(String key) {
+		try {
+			return new MD5Hash(MessageDigest.getInstance("MD5").digest(
+					key.getBytes("UTF-8"))).toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
 }
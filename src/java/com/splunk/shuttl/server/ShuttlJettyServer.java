@@ -15,15 +15,20 @@
 package com.splunk.shuttl.server;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.AbstractLifeCycle.AbstractLifeCycleListener;
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.webapp.WebAppContext;
 import org.eclipse.jetty.xml.XmlConfiguration;
 
 import com.splunk.shuttl.archiver.StartUpCleaner;
+import com.splunk.shuttl.archiver.archive.ArchivingScheduler;
 import com.splunk.shuttl.server.mbeans.ShuttlServer;
+import com.splunk.shuttl.server.mbeans.util.RegistersMBeans;
 
 /**
  * Main class that starts the integrated Jetty server
@@ -32,6 +37,12 @@ import com.splunk.shuttl.server.mbeans.ShuttlServer;
  * 
  */
 public class ShuttlJettyServer {
+
+	/**
+	 * How long a stopping server waits for archiving that has already started.
+	 */
+	public static final long ARCHIVING_SHUTDOWN_TIMEOUT_SECONDS = 60;
+
 	public static void main(String args[]) {
 		org.apache.log4j.Logger logger = Logger.getLogger("ShuttlServer");
 		try {
@@ -45,6 +56,8 @@ public class ShuttlJettyServer {
 			// TODO: Replace paths relative to /bin/
 			server.setHandler(new WebAppContext("../webapps/shuttl", "/shuttl"));
 			ShuttlServer servermbean = new ShuttlServer();
+			RegistersMBeans.create().registerMBean(ShuttlServer.OBJECT_NAME,
+					servermbean);
 			Connector connectors[] = server.getConnectors();
 			for (Connector c : connectors) {
 				logger.debug("Connector Name: " + c.getName());
@@ -54,6 +67,8 @@ public class ShuttlJettyServer {
 					c.setPort(servermbean.getHttpPort());
 				}
 			}
+			server.setStopAtShutdown(true);
+			server.addLifeCycleListener(new ShutsDownArchivingScheduler());
 			StartUpCleaner.create().clean();
 			server.start();
 		} catch (Exception e) {
@@ -61,4 +76,14 @@ public class ShuttlJettyServer {
 			System.exit(1);
 		}
 	}
+
+	private static class ShutsDownArchivingScheduler extends
+			AbstractLifeCycleListener {
+
+		@Override
+		public void lifeCycleStopping(LifeCycle event) {
+			ArchivingScheduler.shutdownSharedInstance(
+					ARCHIVING_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		}
+	}
 }
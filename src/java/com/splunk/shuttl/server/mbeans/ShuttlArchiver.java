@@ -19,6 +19,10 @@ import java.util.List;
 
 import javax.management.InstanceNotFoundException;
 
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemRegistry;
+import com.splunk.shuttl.archiver.filesystem.throttle.ThrottleSchedule;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferLimits;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottles;
 import com.splunk.shuttl.server.mbeans.util.MBeanUtils;
 import com.splunk.shuttl.server.model.ArchiverConf;
 
@@ -59,6 +63,7 @@ public class ShuttlArchiver extends MBeanBase<ArchiverConf> implements
 	@Override
 	public void setLocalArchiverDir(String localArchiverDir) {
 		conf.setLocalArchiverDir(localArchiverDir);
+		ArchiveFileSystemRegistry.getSharedInstance().invalidateAll();
 	}
 
 	@Override
@@ -109,6 +114,8 @@ public class ShuttlArchiver extends MBeanBase<ArchiverConf> implements
 	@Override
 	public void setBackendName(String backendName) {
 		conf.setBackendName(backendName);
+		ArchiveFileSystemRegistry.getSharedInstance().invalidateAll();
+		configureTransferThrottles();
 	}
 
 	@Override
@@ -121,6 +128,96 @@ public class ShuttlArchiver extends MBeanBase<ArchiverConf> implements
 		conf.setArchivePath(archivePath);
 	}
 
+	@Override
+	public Integer getCompressionLevel() {
+		return conf.getCompressionLevel();
+	}
+
+	@Override
+	public void setCompressionLevel(Integer compressionLevel) {
+		conf.setCompressionLevel(compressionLevel);
+	}
+
+	@Override
+	public Integer getCompressionThreads() {
+		return conf.getCompressionThreads();
+	}
+
+	@Override
+	public void setCompressionThreads(Integer compressionThreads) {
+		conf.setCompressionThreads(compressionThreads);
+	}
+
+	@Override
+	public Long getMaxArchiveBytesPerSec() {
+		return conf.getMaxArchiveBytesPerSec();
+	}
+
+	@Override
+	public void setMaxArchiveBytesPerSec(Long maxArchiveBytesPerSec) {
+		conf.setMaxArchiveBytesPerSec(maxArchiveBytesPerSec);
+		configureTransferThrottles();
+	}
+
+	@Override
+	public Long getMaxThawBytesPerSec() {
+		return conf.getMaxThawBytesPerSec();
+	}
+
+	@Override
+	public void setMaxThawBytesPerSec(Long maxThawBytesPerSec) {
+		conf.setMaxThawBytesPerSec(maxThawBytesPerSec);
+		configureTransferThrottles();
+	}
+
+	@Override
+	public Integer getMaxArchiveOpsPerSec() {
+		return conf.getMaxArchiveOpsPerSec();
+	}
+
+	@Override
+	public void setMaxArchiveOpsPerSec(Integer maxArchiveOpsPerSec) {
+		conf.setMaxArchiveOpsPerSec(maxArchiveOpsPerSec);
+		configureTransferThrottles();
+	}
+
+	@Override
+	public Integer getMaxThawOpsPerSec() {
+		return conf.getMaxThawOpsPerSec();
+	}
+
+	@Override
+	public void setMaxThawOpsPerSec(Integer maxThawOpsPerSec) {
+		conf.setMaxThawOpsPerSec(maxThawOpsPerSec);
+		configureTransferThrottles();
+	}
+
+	@Override
+	public String getThrottleSchedule() {
+		return conf.getThrottleSchedule();
+	}
+
+	@Override
+	public void setThrottleSchedule(String throttleSchedule) {
+		ThrottleSchedule.parse(throttleSchedule);
+		conf.setThrottleSchedule(throttleSchedule);
+		configureTransferThrottles();
+	}
+
+	/**
+	 * The throttles are changed in place, so that transfers that are running
+	 * get the new limits too.
+	 */
+	private void configureTransferThrottles() {
+		String schedule = conf.getThrottleSchedule();
+		TransferThrottles.getSharedInstance().configure(
+				conf.getBackendName(),
+				TransferLimits.create(conf.getMaxArchiveBytesPerSec(),
+						conf.getMaxArchiveOpsPerSec(), schedule),
+				TransferLimits.create(conf.getMaxThawBytesPerSec(),
+						conf.getMaxThawOpsPerSec(), schedule));
+	}
+
 	@Override
 	protected ArchiverConf getConfObject() {
 		return this.conf;
@@ -131,6 +228,8 @@ public class ShuttlArchiver extends MBeanBase<ArchiverConf> implements
 		this.conf = conf;
 		if (conf.getArchiverRootURI() != null)
 			new OverrideWithOldArchiverRootURIConfiguration(conf).override();
+		ArchiveFileSystemRegistry.getSharedInstance().invalidateAll();
+		configureTransferThrottles();
 	}
 
 	@Override
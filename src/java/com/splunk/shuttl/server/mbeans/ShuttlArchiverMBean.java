@@ -52,4 +52,64 @@ public interface ShuttlArchiverMBean {
 
 	public void setArchivePath(String archivePath);
 
+	/**
+	 * @return gzip compression level, 1-9, for compressed formats. null if not
+	 *         configured.
+	 */
+	public Integer getCompressionLevel();
+
+	public void setCompressionLevel(Integer compressionLevel);
+
+	/**
+	 * @return number of threads used for compressing buckets. null if not
+	 *         configured.
+	 */
+	public Integer getCompressionThreads();
+
+	public void setCompressionThreads(Integer compressionThreads);
+
+	/**
+	 * @return bytes per second that may be archived to the back-end. null if
+	 *         not limited.
+	 */
+	public Long getMaxArchiveBytesPerSec();
+
+	public void setMaxArchiveBytesPerSec(Long maxArchiveBytesPerSec);
+
+	/**
+	 * @return bytes per second that may be thawed from the back-end. null if
+	 *         not limited.
+	 */
+	public Long getMaxThawBytesPerSec();
+
+	public void setMaxThawBytesPerSec(Long maxThawBytesPerSec);
+
+	/**
+	 * @return requests to the back-end per second when archiving. null if not
+	 *         limited.
+	 */
+	public Integer getMaxArchiveOpsPerSec();
+
+	public void setMaxArchiveOpsPerSec(Integer maxArchiveOpsPerSec);
+
+	/**
+	 * @return requests to the back-end per second when thawing. null if not
+	 *         limited.
+	 */
+	public Integer getMaxThawOpsPerSec();
+
+	public void setMaxThawOpsPerSec(Integer maxThawOpsPerSec);
+
+	/**
+	 * @return comma separated HH:mm-HH:mm windows when the transfer limits
+	 *         apply. null if they always apply.
+	 */
+	public String getThrottleSchedule();
+
+	/**
+	 * @throws IllegalArgumentException
+	 *           if the schedule can't be parsed.
+	 */
+	public void setThrottleSchedule(String throttleSchedule);
+
 }
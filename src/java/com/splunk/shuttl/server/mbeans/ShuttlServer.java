@@ -22,6 +22,7 @@ import javax.management.InstanceNotFoundException;
 
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.archive.ArchivingScheduler;
 import com.splunk.shuttl.server.mbeans.util.MBeanUtils;
 import com.splunk.shuttl.server.mbeans.util.RegistersMBeans;
 import com.splunk.shuttl.server.model.ServerConf;
@@ -79,6 +80,64 @@ public class ShuttlServer extends MBeanBase<ServerConf> implements
 		this.conf.setHttpPort(port);
 	}
 
+	@Override
+	public int getArchiverWorkers() {
+		Integer workers = this.conf.getArchiverWorkers();
+		return workers == null ? ArchivingScheduler.DEFAULT_WORKERS : workers;
+	}
+
+	@Override
+	public void setArchiverWorkers(int workers) {
+		this.conf.setArchiverWorkers(workers);
+	}
+
+	@Override
+	public int getArchiverQueueSize() {
+		Integer queueSize = this.conf.getArchiverQueueSize();
+		return queueSize == null ? ArchivingScheduler.DEFAULT_QUEUE_SIZE
+				: queueSize;
+	}
+
+	@Override
+	public void setArchiverQueueSize(int queueSize) {
+		this.conf.setArchiverQueueSize(queueSize);
+	}
+
+	@Override
+	public int getArchiverQueueDepth() {
+		ArchivingScheduler scheduler = ArchivingScheduler
+				.getSharedInstanceIfCreated();
+		return scheduler == null ? 0 : scheduler.getQueueDepth();
+	}
+
+	@Override
+	public int getArchiverActiveWorkers() {
+		ArchivingScheduler scheduler = ArchivingScheduler
+				.getSharedInstanceIfCreated();
+		return scheduler == null ? 0 : scheduler.getActiveCount();
+	}
+
+	@Override
+	public long getArchiverRejectedRequests() {
+		ArchivingScheduler scheduler = ArchivingScheduler
+				.getSharedInstanceIfCreated();
+		return scheduler == null ? 0 : scheduler.getRejectedCount();
+	}
+
+	@Override
+	public long getArchiverAverageQueueLatency() {
+		ArchivingScheduler scheduler = ArchivingScheduler
+				.getSharedInstanceIfCreated();
+		return scheduler == null ? 0 : scheduler.getAverageQueueLatencyMillis();
+	}
+
+	@Override
+	public long getArchiverMaxQueueLatency() {
+		ArchivingScheduler scheduler = ArchivingScheduler
+				.getSharedInstanceIfCreated();
+		return scheduler == null ? 0 : scheduler.getMaxQueueLatencyMillis();
+	}
+
 	@Override
 	protected ServerConf getConfObject() {
 		return conf;
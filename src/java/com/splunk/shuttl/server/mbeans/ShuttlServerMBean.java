@@ -51,4 +51,54 @@ public interface ShuttlServerMBean {
 	 */
 	public void setHttpPort(int port);
 
+	/**
+	 * @return number of worker threads that archive buckets.
+	 */
+	public int getArchiverWorkers();
+
+	/**
+	 * Sets the number of worker threads that archive buckets. Takes effect when
+	 * the server is restarted.
+	 */
+	public void setArchiverWorkers(int workers);
+
+	/**
+	 * @return maximum number of buckets waiting to be archived, before new
+	 *         archive requests are rejected.
+	 */
+	public int getArchiverQueueSize();
+
+	/**
+	 * Sets the maximum number of buckets waiting to be archived. Takes effect
+	 * when the server is restarted.
+	 */
+	public void setArchiverQueueSize(int queueSize);
+
+	/**
+	 * @return number of buckets waiting to be archived.
+	 */
+	public int getArchiverQueueDepth();
+
+	/**
+	 * @return number of buckets being archived right now.
+	 */
+	public int getArchiverActiveWorkers();
+
+	/**
+	 * @return number of archive requests rejected because the queue was full.
+	 */
+	public long getArchiverRejectedRequests();
+
+	/**
+	 * @return average milliseconds a bucket waited in the queue before being
+	 *         archived.
+	 */
+	public long getArchiverAverageQueueLatency();
+
+	/**
+	 * @return maximum milliseconds a bucket waited in the queue before being
+	 *         archived.
+	 */
+	public long getArchiverMaxQueueLatency();
+
 }
@@ -27,6 +27,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
@@ -49,7 +50,7 @@ public class ArchiveBucketEndpoint {
 
 	@POST
 	@Produces(MediaType.TEXT_PLAIN)
-	public void archiveBucket(@FormParam("path") String path,
+	public Response archiveBucket(@FormParam("path") String path,
 			@FormParam("index") String index) {
 		try {
 			ArchiveConfiguration config = ArchiveConfiguration.getSharedInstance();
@@ -60,8 +61,9 @@ public class ArchiveBucketEndpoint {
 				} catch (IOException e) {
 					logDeleteException(path, index, e);
 				}
+				return Response.ok().build();
 			} else {
-				ShuttlBucketEndpointHelper.shuttlBucket(path, index,
+				return ShuttlBucketEndpointHelper.shuttlBucket(path, index,
 						new BucketArchiverProvider(),
 						ConfigProviderForBothNormalAndReplicatedBuckets.create(config),
 						new RenamesReplicatedBucketAsNormalBucket(),
@@ -0,0 +1,109 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import com.splunk.shuttl.archiver.listers.BucketPage;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.server.model.BucketBean;
+
+/**
+ * Writes buckets as a JSON response, one bucket at a time, while the response
+ * is sent. Neither the beans of all the buckets nor the whole response is ever
+ * kept in memory. The response has the buckets in the "buckets" array, and
+ * optionally their total size, a "failed" value and a "next_cursor" to the
+ * next page of buckets.
+ */
+public class BucketsJsonOutput implements StreamingOutput {
+
+	private final List<? extends Bucket> buckets;
+	private final boolean writeTotalSize;
+	private final Object failed;
+	private final boolean writeNextCursor;
+	private final String nextCursor;
+
+	private BucketsJsonOutput(List<? extends Bucket> buckets,
+			boolean writeTotalSize, Object failed, boolean writeNextCursor,
+			String nextCursor) {
+		this.buckets = buckets;
+		this.writeTotalSize = writeTotalSize;
+		this.failed = failed;
+		this.writeNextCursor = writeNextCursor;
+		this.nextCursor = nextCursor;
+	}
+
+	@Override
+	public void write(OutputStream out) throws IOException {
+		ObjectMapper mapper = RestUtil.getObjectMapper();
+		JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(
+				out, JsonEncoding.UTF8);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+		generator.writeStartObject();
+		generator.writeArrayFieldStart("buckets");
+		long totalBucketsSize = 0;
+		for (Bucket bucket : buckets) {
+			mapper.writeValue(generator, BucketBean.createBeanFromBucket(bucket));
+			totalBucketsSize += bucket.getSize() == null ? 0 : bucket.getSize();
+		}
+		generator.writeEndArray();
+		if (writeTotalSize)
+			generator.writeStringField("buckets_TOTAL_SIZE",
+					FileUtils.byteCountToDisplaySize(totalBucketsSize));
+		if (failed != null) {
+			generator.writeFieldName("failed");
+			mapper.writeValue(generator, failed);
+		}
+		if (writeNextCursor)
+			generator.writeStringField("next_cursor", nextCursor);
+		generator.writeEndObject();
+		generator.close();
+	}
+
+	/**
+	 * @return output with the buckets and their total size.
+	 */
+	public static BucketsJsonOutput withTotalSize(List<? extends Bucket> buckets) {
+		return new BucketsJsonOutput(buckets, true, null, false, null);
+	}
+
+	/**
+	 * @return output with the buckets that an action succeeded with, and what it
+	 *         failed with.
+	 */
+	public static BucketsJsonOutput withFailed(List<? extends Bucket> buckets,
+			Object failed) {
+		return new BucketsJsonOutput(buckets, false, failed, false, null);
+	}
+
+	/**
+	 * @return output with the buckets in the page, their total size and the
+	 *         cursor to the next page, which is null on the last page.
+	 */
+	public static BucketsJsonOutput withNextCursor(BucketPage page) {
+		return new BucketsJsonOutput(page.getBuckets(), true, null, true,
+				page.getNextCursor());
+	}
+}
@@ -22,6 +22,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import org.apache.log4j.Logger;
 
@@ -43,12 +44,12 @@ public class CopyBucketEndpoint {
 
 	@POST
 	@Produces(MediaType.TEXT_PLAIN)
-	public void copyBucket(@FormParam("path") String path,
+	public Response copyBucket(@FormParam("path") String path,
 			@FormParam("index") String index) {
 		logger.info(did("Call copyBucket endpoint", "nothing yet", "", "path",
 				path, "index", index));
 
-		ShuttlBucketEndpointHelper.shuttlBucket(path, index,
+		return ShuttlBucketEndpointHelper.shuttlBucket(path, index,
 				new BucketCopierProvider(), new NormalSharedConfigProvider(),
 				new NoOpBucketModifier(),
 				new CopyBucketLocker(LocalFileSystemPaths.create()));
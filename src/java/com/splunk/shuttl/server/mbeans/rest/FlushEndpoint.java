@@ -20,13 +20,16 @@ import static java.util.Arrays.*;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.FormParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.log4j.Logger;
 
@@ -35,6 +38,7 @@ import com.splunk.shuttl.archiver.listers.ArchivedIndexesListerFactory;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.IllegalIndexException;
 import com.splunk.shuttl.archiver.thaw.SplunkIndexedLayerFactory;
+import com.splunk.shuttl.archiver.util.IllegalRegexGroupException;
 import com.splunk.shuttl.server.model.BucketBean;
 
 /**
@@ -48,7 +52,7 @@ public class FlushEndpoint {
 
 	@POST
 	@Produces(MediaType.APPLICATION_JSON)
-	public String flushBuckets(@FormParam("index") final String index,
+	public StreamingOutput flushBuckets(@FormParam("index") final String index,
 			@FormParam("from") String from, @FormParam("to") String to) {
 		logger.info(happened("Received REST request to list buckets", "endpoint",
 				ENDPOINT_LIST_BUCKETS, "index", index, "from", from, "to", to));
@@ -74,15 +78,21 @@ public class FlushEndpoint {
 			}
 		}
 
-		return respondWithFlushedBuckets(flusher.getFlushedBuckets(), errors);
+		return respondWithFlushedBuckets(flusher.getFlushedBuckets(),
+				flusher.getUnparsableBuckets());
 	}
 
-	private String respondWithFlushedBuckets(List<Bucket> flushedBuckets,
-			List<Exception> errors) {
-		List<BucketBean> responseBeans = new ArrayList<BucketBean>();
-		for (Bucket b : flushedBuckets)
-			responseBeans.add(BucketBean.createBeanFromBucket(b));
-
-		return RestUtil.writeBucketAction(responseBeans, new ArrayList<Object>());
+	private StreamingOutput respondWithFlushedBuckets(
+			List<Bucket> flushedBuckets, List<Bucket> unparsableBuckets) {
+		List<Map<String, Object>> failedBucketBeans = new ArrayList<Map<String, Object>>();
+		for (Bucket bucket : unparsableBuckets) {
+			Map<String, Object> failed = new HashMap<String, Object>();
+			failed.put("bucket", new BucketBean(bucket.getFormat().name(),
+					bucket.getIndex(), bucket.getName(), bucket.getPath(), null, null,
+					null));
+			failed.put("reason", IllegalRegexGroupException.class.getSimpleName());
+			failedBucketBeans.add(failed);
+		}
+		return RestUtil.writeBucketAction(flushedBuckets, failedBucketBeans);
 	}
 }
@@ -0,0 +1,121 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static com.splunk.shuttl.ShuttlConstants.*;
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
+import com.splunk.shuttl.archiver.filesystem.glacier.GlacierArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.glacier.GlacierClient;
+
+/**
+ * Endpoint for reconciling the local archiveId index of the glacier vault
+ * with the vault's inventory, for when the index has lost archiveIds. The
+ * inventory is retrieved by a job that takes hours: start it with a POST,
+ * follow it with a GET of its id and reconcile with a POST to
+ * <code>{id}/reconcile</code> once it has completed.
+ */
+@Path(ENDPOINT_ARCHIVER + ENDPOINT_GLACIER_INVENTORY)
+public class GlacierInventoryEndpoint {
+
+	private static final Logger logger = Logger
+			.getLogger(GlacierInventoryEndpoint.class);
+
+	/**
+	 * Starts a job that retrieves the inventory of the configured vault.
+	 * 
+	 * @return status of the inventory retrieval job.
+	 */
+	@POST
+	@Produces(MediaType.APPLICATION_JSON)
+	public String initiateInventoryRetrieval() {
+		logger.info(happened("Received REST request to retrieve glacier "
+				+ "inventory", "endpoint", ENDPOINT_GLACIER_INVENTORY));
+		String jobId = getGlacierClient().initiateInventoryRetrieval();
+		return RestUtil.writeMapAsJson(getJobStatus(jobId, false));
+	}
+
+	/**
+	 * @return status of the inventory retrieval job.
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("{id}")
+	public String getInventoryRetrieval(@PathParam("id") String id) {
+		return RestUtil.writeMapAsJson(getJobStatus(id, getGlacierClient()
+				.isJobCompleted(id)));
+	}
+
+	/**
+	 * Adds the archiveIds in the inventory to the archiveId index. Responds
+	 * with 409 if the job has not completed yet.
+	 * 
+	 * @return status of the job, with the number of archiveIds that were added.
+	 */
+	@POST
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("{id}/reconcile")
+	public String reconcileWithInventory(@PathParam("id") String id)
+			throws IOException {
+		logger.info(happened("Received REST request to reconcile archiveIds "
+				+ "with glacier inventory", "endpoint", ENDPOINT_GLACIER_INVENTORY,
+				"job_id", id));
+		GlacierClient client = getGlacierClient();
+		if (!client.isJobCompleted(id))
+			throw new WebApplicationException(Response.status(409)
+					.entity("Inventory retrieval job has not completed: " + id)
+					.type(MediaType.TEXT_PLAIN).build());
+		int added = client.reconcileArchiveIdsWithInventory(id);
+		logger.info(done("Reconciled archiveIds with glacier inventory",
+				"job_id", id, "archive_ids_added", added));
+		Map<String, Object> status = getJobStatus(id, true);
+		status.put("archive_ids_added", added);
+		return RestUtil.writeMapAsJson(status);
+	}
+
+	private static Map<String, Object> getJobStatus(String id, boolean completed) {
+		Map<String, Object> status = new LinkedHashMap<String, Object>();
+		status.put("job_id", id);
+		status.put("completed", completed);
+		return status;
+	}
+
+	private static GlacierClient getGlacierClient() {
+		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
+				.getConfiguredArchiveFileSystem();
+		if (!(archiveFileSystem instanceof GlacierArchiveFileSystem))
+			throw new WebApplicationException(Response.status(400)
+					.entity("The configured back-end is not glacier")
+					.type(MediaType.TEXT_PLAIN).build());
+		return ((GlacierArchiveFileSystem) archiveFileSystem).getGlacierClient();
+	}
+}
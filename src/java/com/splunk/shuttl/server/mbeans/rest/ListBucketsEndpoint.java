@@ -26,6 +26,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.log4j.Logger;
 import org.eclipse.jetty.util.ajax.JSON;
@@ -34,13 +35,15 @@ import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
-import com.splunk.shuttl.archiver.filesystem.PathResolver;
 import com.splunk.shuttl.archiver.listers.ArchivedIndexesLister;
+import com.splunk.shuttl.archiver.listers.ArchivedIndexesListerFactory;
+import com.splunk.shuttl.archiver.listers.BucketPage;
+import com.splunk.shuttl.archiver.listers.BucketSort;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFiltered;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFilteredFactory;
-import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.thaw.BucketSizeResolver;
+import com.splunk.shuttl.archiver.thaw.BucketSizeResolverFactory;
 
 /**
  * Endpoint for listing buckets in the archive.
@@ -58,13 +61,8 @@ public class ListBucketsEndpoint {
 		logger.info(happened("Received REST request to list indexes", "endpoint",
 				ENDPOINT_LIST_INDEXES));
 
-		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
-				.getConfiguredArchiveFileSystem();
-		ArchiveConfiguration archiveConfiguration = ArchiveConfiguration
-				.getSharedInstance();
-		PathResolver pathResolver = new PathResolver(archiveConfiguration);
-		ArchivedIndexesLister indexesLister = new ArchivedIndexesLister(
-				pathResolver, archiveFileSystem);
+		ArchivedIndexesLister indexesLister = ArchivedIndexesListerFactory
+				.create(ArchiveConfiguration.getSharedInstance());
 
 		return JSON.getDefault().toJSON(indexesLister.listIndexes());
 	}
@@ -72,25 +70,39 @@ public class ListBucketsEndpoint {
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
 	@Path(ENDPOINT_LIST_BUCKETS)
-	public String listBucketsForIndex(@QueryParam("index") String index,
-			@QueryParam("from") String from, @QueryParam("to") String to) {
+	public StreamingOutput listBucketsForIndex(@QueryParam("index") String index,
+			@QueryParam("from") String from, @QueryParam("to") String to,
+			@QueryParam("limit") String limit, @QueryParam("cursor") String cursor,
+			@QueryParam("sort") String sort) {
 		logger.info(happened("Received REST request to list buckets", "endpoint",
-				ENDPOINT_LIST_BUCKETS, "index", index, "from", from, "to", to));
+				ENDPOINT_LIST_BUCKETS, "index", index, "from", from, "to", to,
+				"limit", limit, "cursor", cursor, "sort", sort));
 
 		Date fromDate = RestUtil.getValidFromDate(from);
 		Date toDate = RestUtil.getValidToDate(to);
+		if (RestUtil.isPaged(limit, cursor, sort))
+			return listBucketsPage(index, fromDate, toDate, limit, cursor, sort);
 
 		List<Bucket> filteredBucketsAtIndex = getFilteredBucketsAtIndex(index,
 				fromDate, toDate);
 
-		List<Bucket> buckets = filteredBucketsAtIndex;
-		List<Bucket> bucketsWithSize = new java.util.ArrayList<Bucket>();
-		for (Bucket b : buckets)
-			bucketsWithSize.add(getBucketWithSize(b));
+		List<Bucket> bucketsWithSize = getBucketSizeResolver().resolveBucketSizes(
+				filteredBucketsAtIndex);
 
 		return RestUtil.respondWithBuckets(bucketsWithSize);
 	}
 
+	private StreamingOutput listBucketsPage(String index, Date fromDate,
+			Date toDate, String limit, String cursor, String sort) {
+		BucketSort bucketSort = RestUtil.getValidSort(sort);
+		int pageLimit = RestUtil.getValidLimit(limit);
+		RestUtil.validateCursor(bucketSort, cursor);
+
+		BucketPage page = getListsBucketsFiltered().listFilteredBucketsPage(index,
+				fromDate, toDate, bucketSort, pageLimit, cursor);
+		return RestUtil.respondWithBucketPage(page);
+	}
+
 	private List<Bucket> getFilteredBucketsAtIndex(String index, Date fromDate,
 			Date toDate) {
 		ListsBucketsFiltered listsBucketsFiltered = getListsBucketsFiltered();
@@ -106,17 +118,11 @@ public class ListBucketsEndpoint {
 				.getSharedInstance());
 	}
 
-	private static Bucket getBucketWithSize(Bucket bucket) {
-		BucketSizeResolver bucketSizeResolver = getBucketSizeResolver();
-		return bucketSizeResolver.resolveBucketSize(bucket);
-	}
-
 	private static BucketSizeResolver getBucketSizeResolver() {
 		ArchiveConfiguration config = ArchiveConfiguration.getSharedInstance();
 		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
 				.getWithConfiguration(config);
-		LocalFileSystemPaths localFileSystemPaths = LocalFileSystemPaths.create();
-		return new BucketSizeResolver(ArchiveBucketSize.create(new PathResolver(
-				config), archiveFileSystem, localFileSystemPaths));
+		return BucketSizeResolverFactory.create(config, archiveFileSystem,
+				LocalFileSystemPaths.create());
 	}
 }
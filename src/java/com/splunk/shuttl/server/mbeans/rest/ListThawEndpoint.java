@@ -25,9 +25,13 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.splunk.shuttl.archiver.flush.ThawedBuckets;
 import com.splunk.shuttl.archiver.listers.ArchivedIndexesListerFactory;
+import com.splunk.shuttl.archiver.listers.BucketPage;
+import com.splunk.shuttl.archiver.listers.BucketSort;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.IllegalIndexException;
 import com.splunk.shuttl.archiver.model.LocalBucket;
@@ -40,8 +44,10 @@ public class ListThawEndpoint {
 
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
-	public String listThawedBuckets(@QueryParam("index") String index,
-			@QueryParam("from") String from, @QueryParam("to") String to) {
+	public Response listThawedBuckets(@QueryParam("index") String index,
+			@QueryParam("from") String from, @QueryParam("to") String to,
+			@QueryParam("limit") String limit, @QueryParam("cursor") String cursor,
+			@QueryParam("sort") String sort) {
 
 		Date earliest = RestUtil.getValidFromDate(from);
 		Date latest = RestUtil.getValidToDate(to);
@@ -54,12 +60,24 @@ public class ListThawEndpoint {
 		try {
 			List<Bucket> filteredBuckets = filteredBucketsInThaw(indexes, earliest,
 					latest);
-			return RestUtil.respondWithBuckets(filteredBuckets);
+			if (RestUtil.isPaged(limit, cursor, sort))
+				return Response.ok(
+						listThawedPage(filteredBuckets, limit, cursor, sort)).build();
+			return Response.ok(RestUtil.respondWithBuckets(filteredBuckets)).build();
 		} catch (IllegalIndexException e) {
-			return RestUtil.respondWithIndexError(index);
+			return Response.ok(RestUtil.respondWithIndexError(index)).build();
 		}
 	}
 
+	private StreamingOutput listThawedPage(List<Bucket> buckets, String limit,
+			String cursor, String sort) {
+		BucketSort bucketSort = RestUtil.getValidSort(sort);
+		int pageLimit = RestUtil.getValidLimit(limit);
+		RestUtil.validateCursor(bucketSort, cursor);
+		return RestUtil.respondWithBucketPage(BucketPage.pageOf(buckets,
+				bucketSort, pageLimit, cursor));
+	}
+
 	private List<Bucket> filteredBucketsInThaw(List<String> indexes,
 			Date earliest, Date latest) throws IllegalIndexException {
 		SplunkIndexesLayer splunkIndexesLayer = SplunkIndexedLayerFactory.create();
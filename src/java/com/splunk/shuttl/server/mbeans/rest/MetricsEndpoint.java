@@ -0,0 +1,45 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static com.splunk.shuttl.ShuttlConstants.*;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
+import com.splunk.shuttl.archiver.metrics.PhaseMetrics;
+
+/**
+ * Endpoint for the latencies, failures, bytes and throughput of every phase of
+ * archiving and thawing, per back-end and bucket format. Phases that run in
+ * the freezing process, such as moving a bucket to the safe directory, are
+ * not measured by the server.
+ */
+@Path(ENDPOINT_ARCHIVER + ENDPOINT_METRICS)
+public class MetricsEndpoint {
+
+	/**
+	 * @return the series of metrics, as in {@link PhaseMetrics#toMap()}.
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public String getMetrics() {
+		return RestUtil.writeMapAsJson(ArchiverMetrics.getSharedInstance()
+				.toMap());
+	}
+}
@@ -16,24 +16,39 @@ package com.splunk.shuttl.server.mbeans.rest;
 
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.io.FileUtils;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
 import org.apache.log4j.Logger;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
 
+import com.splunk.shuttl.archiver.listers.BucketPage;
+import com.splunk.shuttl.archiver.listers.BucketSort;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.thaw.StringDateConverter;
-import com.splunk.shuttl.server.model.BucketBean;
 
 public class RestUtil {
 
 	private static final Logger logger = Logger.getLogger(RestUtil.class);
 
+	public static final int DEFAULT_PAGE_LIMIT = 100;
+	public static final int MAX_PAGE_LIMIT = 10000;
+
+	/**
+	 * Configured once and shared, which is thread safe. Does not flush after
+	 * every value, so that values written to a streamed response are buffered.
+	 */
+	private static final ObjectMapper objectMapper = new ObjectMapper()
+			.configure(SerializationConfig.Feature.FLUSH_AFTER_WRITE_VALUE, false);
+
 	public static Date getValidFromDate(String from) {
 		if (from == null) {
 			logger.info("No from time provided - defaulting to 0001-01-01");
@@ -50,28 +65,85 @@ public class RestUtil {
 		return StringDateConverter.convert(to);
 	}
 
+	public static ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
+	/**
+	 * @return JSON response with buckets and their total size, which is written
+	 *         while it is sent.
+	 */
+	public static StreamingOutput respondWithBuckets(List<Bucket> buckets) {
+		return BucketsJsonOutput.withTotalSize(buckets);
+	}
+
+	/**
+	 * @return JSON response with the buckets in the page, their total size and
+	 *         the cursor to the next page.
+	 */
+	public static StreamingOutput respondWithBucketPage(BucketPage page) {
+		return BucketsJsonOutput.withNextCursor(page);
+	}
+
 	/**
-	 * @return JSON response with buckets and their total size.
+	 * @return true if any of the paging parameters are given.
 	 */
-	public static String respondWithBuckets(List<Bucket> buckets) {
-		List<BucketBean> beans = new ArrayList<BucketBean>();
-		long totalBucketsSize = 0;
+	public static boolean isPaged(String limit, String cursor, String sort) {
+		return limit != null || cursor != null || sort != null;
+	}
 
-		for (Bucket bucket : buckets) {
-			beans.add(getBucketBean(bucket));
-			totalBucketsSize += bucket.getSize() == null ? 0 : bucket.getSize();
+	/**
+	 * @return page size to list buckets with.
+	 * @throws WebApplicationException
+	 *           with status 400 if the limit is not a positive number.
+	 */
+	public static int getValidLimit(String limit) {
+		if (limit == null)
+			return DEFAULT_PAGE_LIMIT;
+		try {
+			int parsed = Integer.parseInt(limit);
+			if (parsed > 0)
+				return Math.min(parsed, MAX_PAGE_LIMIT);
+		} catch (NumberFormatException e) {
+			// Falls through to the bad request.
 		}
+		throw badRequest("Limit has to be a positive number, was: " + limit);
+	}
 
-		Map<String, Object> response = new HashMap<String, Object>();
-		response.put("buckets_TOTAL_SIZE",
-				FileUtils.byteCountToDisplaySize(totalBucketsSize));
-		response.put("buckets", beans);
+	/**
+	 * @return sort to list buckets with, by earliest time if no sort is given.
+	 * @throws WebApplicationException
+	 *           with status 400 if the sort is unknown.
+	 */
+	public static BucketSort getValidSort(String sort) {
+		if (sort == null)
+			return new BucketSort(BucketSort.By.EARLIEST, false);
+		try {
+			return BucketSort.parse(sort);
+		} catch (IllegalArgumentException e) {
+			throw badRequest(e.getMessage());
+		}
+	}
 
-		return RestUtil.writeMapAsJson(response);
+	/**
+	 * @throws WebApplicationException
+	 *           with status 400 if the cursor is not from a page with the sort.
+	 */
+	public static void validateCursor(BucketSort sort, String cursor) {
+		if (cursor != null)
+			try {
+				sort.parseCursor(cursor);
+			} catch (IllegalArgumentException e) {
+				throw badRequest(e.getMessage());
+			}
 	}
 
-	private static BucketBean getBucketBean(Bucket bucket) {
-		return BucketBean.createBeanFromBucket(bucket);
+	/**
+	 * @return WebApplicationException with status 400 and the message.
+	 */
+	public static WebApplicationException badRequest(String message) {
+		return new WebApplicationException(Response.status(400).entity(message)
+				.type(MediaType.TEXT_PLAIN).build());
 	}
 
 	public static String respondWithIndexError(String index) {
@@ -82,22 +154,17 @@ public class RestUtil {
 	}
 
 	/**
-	 * @param thawedBucketBeans
-	 * @param failedBucketBeans
-	 * @return
+	 * @return JSON response with the buckets an action succeeded with and what
+	 *         it failed with, which is written while it is sent.
 	 */
-	public static String writeBucketAction(List<BucketBean> successfulBuckets,
-			Object failedObjects) {
-		HashMap<String, Object> response = new HashMap<String, Object>();
-		response.put("buckets", successfulBuckets);
-		response.put("failed", failedObjects);
-
-		return RestUtil.writeMapAsJson(response);
+	public static StreamingOutput writeBucketAction(
+			List<? extends Bucket> successfulBuckets, Object failedObjects) {
+		return BucketsJsonOutput.withFailed(successfulBuckets, failedObjects);
 	}
 
 	public static String writeMapAsJson(Map<String, Object> ret) {
 		try {
-			return new ObjectMapper().writeValueAsString(ret);
+			return objectMapper.writeValueAsString(ret);
 		} catch (Exception e) {
 			logger.error(did("attempted to convert thawed/failed "
 					+ "buckets to JSON string", e, null));
@@ -21,6 +21,8 @@ import java.io.File;
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.ArchivingQueueFullException;
+import com.splunk.shuttl.archiver.archive.ArchivingScheduler;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.archive.BucketShuttler;
 import com.splunk.shuttl.archiver.archive.BucketShuttlerRunner;
@@ -51,21 +53,35 @@ public class ShuttlBucketEndpoint {
 	private BucketModifier bucketModifier;
 	private BucketFactory bucketFactory;
 	private BucketLocker bucketLocker;
+	private ArchivingScheduler archivingScheduler;
 
 	public ShuttlBucketEndpoint(ShuttlProvider shuttlProvider,
 			ConfigProvider configProvider, BucketModifier bucketModifier,
-			BucketFactory bucketFactory, BucketLocker bucketLocker) {
+			BucketFactory bucketFactory, BucketLocker bucketLocker,
+			ArchivingScheduler archivingScheduler) {
 		this.shuttlProvider = shuttlProvider;
 		this.configProvider = configProvider;
 		this.bucketModifier = bucketModifier;
 		this.bucketFactory = bucketFactory;
 		this.bucketLocker = bucketLocker;
+		this.archivingScheduler = archivingScheduler;
 	}
 
+	/**
+	 * Queues the bucket to be shuttled by the {@link ArchivingScheduler}.
+	 * 
+	 * @throws ArchivingQueueFullException
+	 *           if the bucket could not be queued, because the queue is full.
+	 */
 	public void shuttlBucket(String path, String index) {
 		verifyPathAndIndex(path, index);
 		try {
 			createAndRunBucketShuttling(path, index);
+		} catch (ArchivingQueueFullException e) {
+			logger.warn(warn("Tried queueing bucket for archiving", e,
+					"Will reject the bucket. It will be retried later.", "index",
+					index, "bucket_path", path));
+			throw e;
 		} catch (Throwable e) {
 			logger.error(did("Tried archiving a bucket", e, "To archive the bucket",
 					"index", index, "bucket_path", path));
@@ -88,15 +104,61 @@ public class ShuttlBucketEndpoint {
 		LocalBucket bucket = createBucket(path, index);
 		BucketLock bucketLock = createBucketLock(bucket);
 		BucketShuttler bucketShuttler = createShuttler(bucket);
-		bucket = bucketModifier.modifyLocalBucket(bucket);
 
-		runShuttlerOnASeparateThread(bucket, bucketLock, bucketShuttler);
+		scheduleShuttler(bucket, bucketLock, bucketShuttler);
 	}
 
-	private void runShuttlerOnASeparateThread(LocalBucket bucket,
-			BucketLock bucketLock, BucketShuttler bucketShuttler) {
-		Runnable r = new BucketShuttlerRunner(bucketShuttler, bucket, bucketLock);
-		new Thread(r).run();
+	/**
+	 * The bucket is modified by the scheduled work, so that a bucket that is
+	 * rejected is left as it was.
+	 */
+	private void scheduleShuttler(LocalBucket bucket, BucketLock bucketLock,
+			BucketShuttler bucketShuttler) {
+		Runnable r = new ModifiesThenShuttlsBucket(bucketModifier, bucket,
+				bucketShuttler, bucketLock);
+		try {
+			archivingScheduler.schedule(bucket.getIndex(), r);
+		} catch (ArchivingQueueFullException e) {
+			bucketLock.deleteLockFile();
+			bucketLock.closeLock();
+			throw e;
+		}
+	}
+
+	private static class ModifiesThenShuttlsBucket implements Runnable {
+
+		private final BucketModifier bucketModifier;
+		private final LocalBucket bucket;
+		private final BucketShuttler bucketShuttler;
+		private final BucketLock bucketLock;
+
+		public ModifiesThenShuttlsBucket(BucketModifier bucketModifier,
+				LocalBucket bucket, BucketShuttler bucketShuttler,
+				BucketLock bucketLock) {
+			this.bucketModifier = bucketModifier;
+			this.bucket = bucket;
+			this.bucketShuttler = bucketShuttler;
+			this.bucketLock = bucketLock;
+		}
+
+		@Override
+		public void run() {
+			LocalBucket modifiedBucket;
+			try {
+				modifiedBucket = bucketModifier.modifyLocalBucket(bucket);
+			} catch (RuntimeException e) {
+				bucketLock.deleteLockFile();
+				bucketLock.closeLock();
+				throw e;
+			}
+			new BucketShuttlerRunner(bucketShuttler, modifiedBucket, bucketLock)
+					.run();
+		}
+
+		@Override
+		public String toString() {
+			return "ModifiesThenShuttlsBucket [bucket=" + bucket + "]";
+		}
 	}
 
 	private BucketShuttler createShuttler(LocalBucket bucket) {
@@ -14,6 +14,11 @@
 // limitations under the License.
 package com.splunk.shuttl.server.mbeans.rest;
 
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.splunk.shuttl.archiver.archive.ArchivingQueueFullException;
+import com.splunk.shuttl.archiver.archive.ArchivingScheduler;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
 import com.splunk.shuttl.archiver.model.BucketFactory;
 import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.BucketModifier;
@@ -22,14 +27,30 @@ import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.ShuttlProvider;
 
 public class ShuttlBucketEndpointHelper {
 
-	public static void shuttlBucket(String path, String index,
+	/**
+	 * HTTP status code for Too Many Requests, which is not part of
+	 * {@link Status}.
+	 */
+	public static final int SC_TOO_MANY_REQUESTS = 429;
+
+	/**
+	 * @return {@link Status#ACCEPTED} when the bucket was queued to be shuttled,
+	 *         or {@link #SC_TOO_MANY_REQUESTS} when the queue was full.
+	 */
+	public static Response shuttlBucket(String path, String index,
 			ShuttlProvider shuttlProvider, ConfigProvider configProvider,
 			BucketModifier bucketModifier, BucketLocker bucketLocker) {
 		BucketFactory bucketFactory = new BucketFactory();
 		ShuttlBucketEndpoint shuttlBucketEndpoint = new ShuttlBucketEndpoint(
 				shuttlProvider, configProvider, bucketModifier, bucketFactory,
-				bucketLocker);
+				bucketLocker, ArchivingScheduler.getSharedInstance());
 
-		shuttlBucketEndpoint.shuttlBucket(path, index);
+		try {
+			shuttlBucketEndpoint.shuttlBucket(path, index);
+			return Response.status(Status.ACCEPTED).build();
+		} catch (ArchivingQueueFullException e) {
+			return Response.status(SC_TOO_MANY_REQUESTS).entity(e.getMessage())
+					.build();
+		}
 	}
 }
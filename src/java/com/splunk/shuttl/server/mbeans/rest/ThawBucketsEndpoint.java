@@ -28,10 +28,10 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.log4j.Logger;
 
-import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.thaw.BucketThawer;
 import com.splunk.shuttl.archiver.thaw.BucketThawer.FailedBucket;
 import com.splunk.shuttl.archiver.thaw.BucketThawerFactory;
@@ -64,7 +64,7 @@ public class ThawBucketsEndpoint {
 	 */
 	@POST
 	@Produces(MediaType.APPLICATION_JSON)
-	public String thawBuckets(@FormParam("index") String index,
+	public StreamingOutput thawBuckets(@FormParam("index") String index,
 			@FormParam("from") String from, @FormParam("to") String to) {
 
 		logger.info(happened("Received REST request to thaw buckets", "endpoint",
@@ -112,13 +112,9 @@ public class ThawBucketsEndpoint {
 	 * @param thawInfos
 	 * @return JSON object conforming to the above schema (as a string).
 	 */
-	private String convertThawInfoToJSON(BucketThawer bucketThawer) {
-		List<BucketBean> thawedBucketBeans = new ArrayList<BucketBean>();
+	private StreamingOutput convertThawInfoToJSON(BucketThawer bucketThawer) {
 		List<Map<String, Object>> failedBucketBeans = new ArrayList<Map<String, Object>>();
 
-		for (Bucket bucket : bucketThawer.getThawedBuckets())
-			thawedBucketBeans.add(BucketBean.createBeanFromBucket(bucket));
-
 		for (FailedBucket failedBucket : bucketThawer.getFailedBuckets()) {
 			Map<String, Object> temp = new HashMap<String, Object>();
 			temp.put("bucket", BucketBean.createBeanFromBucket(failedBucket.bucket));
@@ -126,7 +122,8 @@ public class ThawBucketsEndpoint {
 			failedBucketBeans.add(temp);
 		}
 
-		return RestUtil.writeBucketAction(thawedBucketBeans, failedBucketBeans);
+		return RestUtil.writeBucketAction(bucketThawer.getThawedBuckets(),
+				failedBucketBeans);
 	}
 
 }
@@ -0,0 +1,178 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static com.splunk.shuttl.ShuttlConstants.*;
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.FormParam;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.thaw.BucketThawer.FailedBucket;
+import com.splunk.shuttl.archiver.thaw.BucketThawerFactory;
+import com.splunk.shuttl.archiver.thaw.ThawJob;
+import com.splunk.shuttl.archiver.thaw.ThawJobs;
+import com.splunk.shuttl.archiver.thaw.ThawJobsFullException;
+import com.splunk.shuttl.server.model.BucketBean;
+
+/**
+ * Endpoint for thawing buckets as jobs in the background. Submitting a job
+ * responds with the job's id right away, which is used to follow the job's
+ * progress and to cancel it.
+ */
+@Path(ENDPOINT_ARCHIVER + ENDPOINT_THAW_JOBS)
+public class ThawJobsEndpoint {
+
+	private static final Logger logger = Logger.getLogger(ThawJobsEndpoint.class);
+
+	/**
+	 * Submits a job that thaws a range of buckets. Takes the same parameters as
+	 * {@link ThawBucketsEndpoint#thawBuckets(String, String, String)}.
+	 * 
+	 * @return status of the submitted job. Responds with 429 when too many thaw
+	 *         jobs are already queued or running.
+	 */
+	@POST
+	@Produces(MediaType.APPLICATION_JSON)
+	public String submitThawJob(@FormParam("index") String index,
+			@FormParam("from") String from, @FormParam("to") String to) {
+		logger.info(happened("Received REST request to submit thaw job",
+				"endpoint", ENDPOINT_THAW_JOBS, "index", index, "from", from, "to", to));
+
+		Date fromDate = RestUtil.getValidFromDate(from);
+		Date toDate = RestUtil.getValidToDate(to);
+		if (fromDate == null || toDate == null) {
+			logger.error(happened("Invalid time interval provided."));
+			throw new IllegalArgumentException(
+					"From and to date must be provided on the form yyyy-DD-mm");
+		}
+
+		ThawJob job;
+		try {
+			job = ThawJobs.getSharedInstance().submit(
+					BucketThawerFactory.createDefaultThawer(), index, fromDate, toDate);
+		} catch (ThawJobsFullException e) {
+			throw new WebApplicationException(Response
+					.status(ShuttlBucketEndpointHelper.SC_TOO_MANY_REQUESTS)
+					.entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build());
+		}
+		return RestUtil.writeMapAsJson(getJobStatus(job));
+	}
+
+	/**
+	 * @return status of all the jobs that are kept.
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public String listThawJobs() {
+		List<Map<String, Object>> statuses = new ArrayList<Map<String, Object>>();
+		for (ThawJob job : ThawJobs.getSharedInstance().getJobs())
+			statuses.add(getJobStatus(job));
+		Map<String, Object> response = new HashMap<String, Object>();
+		response.put("jobs", statuses);
+		return RestUtil.writeMapAsJson(response);
+	}
+
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("{id}")
+	public String getThawJob(@PathParam("id") String id) {
+		return RestUtil.writeMapAsJson(getJobStatus(getExistingJob(ThawJobs
+				.getSharedInstance().getJob(id), id)));
+	}
+
+	/**
+	 * Cancels the job. Buckets that are thawing when the job is cancelled will
+	 * finish thawing.
+	 */
+	@DELETE
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("{id}")
+	public String cancelThawJob(@PathParam("id") String id) {
+		logger.info(happened("Received REST request to cancel thaw job",
+				"endpoint", ENDPOINT_THAW_JOBS, "job_id", id));
+		return RestUtil.writeMapAsJson(getJobStatus(getExistingJob(ThawJobs
+				.getSharedInstance().cancel(id), id)));
+	}
+
+	private ThawJob getExistingJob(ThawJob job, String id) {
+		if (job == null)
+			throw new WebApplicationException(Response.status(404)
+					.entity("No thaw job with id: " + id).type(MediaType.TEXT_PLAIN)
+					.build());
+		return job;
+	}
+
+	/**
+	 * @return status of the job, with the properties: id, state, index, from,
+	 *         to, submitted, started, finished, buckets_total, buckets_done,
+	 *         buckets_thawed, buckets_skipped, buckets_failed,
+	 *         bytes_transferred, throughput_bytes_per_second, eta_seconds, error
+	 *         and failed, which are the failed buckets with the reason they
+	 *         failed.
+	 */
+	private static Map<String, Object> getJobStatus(ThawJob job) {
+		Map<String, Object> status = new LinkedHashMap<String, Object>();
+		status.put("id", job.getId());
+		status.put("state", job.getState().name().toLowerCase());
+		status.put("index", job.getIndex());
+		status.put("from", job.getEarliestTime().getTime());
+		status.put("to", job.getLatestTime().getTime());
+		status.put("submitted", job.getSubmittedMillis());
+		status.put("started", nullIfZero(job.getStartedMillis()));
+		status.put("finished", nullIfZero(job.getFinishedMillis()));
+		status.put("buckets_total", job.getBucketsTotal());
+		status.put("buckets_done", job.getBucketsDone());
+		status.put("buckets_thawed", job.getBucketsThawed());
+		status.put("buckets_skipped", job.getBucketsSkipped());
+		status.put("buckets_failed", job.getBucketsFailed());
+		status.put("bytes_transferred", job.getBytesTransferred());
+		status.put("throughput_bytes_per_second",
+				job.getThroughputBytesPerSecond());
+		status.put("eta_seconds", job.getEstimatedSecondsLeft());
+		status.put("error", job.getError());
+
+		List<Map<String, Object>> failed = new ArrayList<Map<String, Object>>();
+		for (FailedBucket failedBucket : job.getFailedBuckets()) {
+			Map<String, Object> bucket = new HashMap<String, Object>();
+			bucket.put("bucket", BucketBean.createBeanFromBucket(failedBucket.bucket));
+			bucket.put("reason", failedBucket.exception.getClass().getSimpleName());
+			failed.add(bucket);
+		}
+		status.put("failed", failed);
+		return status;
+	}
+
+	private static Long nullIfZero(long millis) {
+		return millis == 0 ? null : millis;
+	}
+}
@@ -15,6 +15,7 @@
 package com.splunk.shuttl.server.model;
 
 import java.util.List;
+import java.util.zip.Deflater;
 
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
@@ -30,7 +31,9 @@ import javax.xml.bind.annotation.XmlType;
 @XmlRootElement(namespace = "com.splunk.shuttl.server.model")
 @XmlType(propOrder = { "localArchiverDir", "archiveFormats", "clusterName",
 		"serverName", "bucketFormatPriority", "backendName", "archivePath",
-		"archiverRootURI" })
+		"compressionLevel", "compressionThreads", "maxArchiveBytesPerSec",
+		"maxThawBytesPerSec", "maxArchiveOpsPerSec", "maxThawOpsPerSec",
+		"throttleSchedule", "archiverRootURI" })
 public class ArchiverConf {
 	private String localArchiverDir;
 	private List<String> archiveFormats;
@@ -39,6 +42,13 @@ public class ArchiverConf {
 	private List<String> bucketFormatPriority;
 	private String backendName;
 	private String archivePath;
+	private Integer compressionLevel;
+	private Integer compressionThreads;
+	private Long maxArchiveBytesPerSec;
+	private Long maxThawBytesPerSec;
+	private Integer maxArchiveOpsPerSec;
+	private Integer maxThawOpsPerSec;
+	private String throttleSchedule;
 	private String archiverRootURI;
 
 	public String getLocalArchiverDir() {
@@ -99,6 +109,72 @@ public class ArchiverConf {
 		this.archivePath = archivePath;
 	}
 
+	public Integer getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *           if the level is not a gzip level, 1-9.
+	 */
+	public void setCompressionLevel(Integer compressionLevel) {
+		if (compressionLevel != null
+				&& (compressionLevel < Deflater.BEST_SPEED
+						|| compressionLevel > Deflater.BEST_COMPRESSION))
+			throw new IllegalArgumentException("compressionLevel must be between "
+					+ Deflater.BEST_SPEED + " and " + Deflater.BEST_COMPRESSION
+					+ ", was: " + compressionLevel);
+		this.compressionLevel = compressionLevel;
+	}
+
+	public Integer getCompressionThreads() {
+		return compressionThreads;
+	}
+
+	public void setCompressionThreads(Integer compressionThreads) {
+		this.compressionThreads = compressionThreads;
+	}
+
+	public Long getMaxArchiveBytesPerSec() {
+		return maxArchiveBytesPerSec;
+	}
+
+	public void setMaxArchiveBytesPerSec(Long maxArchiveBytesPerSec) {
+		this.maxArchiveBytesPerSec = maxArchiveBytesPerSec;
+	}
+
+	public Long getMaxThawBytesPerSec() {
+		return maxThawBytesPerSec;
+	}
+
+	public void setMaxThawBytesPerSec(Long maxThawBytesPerSec) {
+		this.maxThawBytesPerSec = maxThawBytesPerSec;
+	}
+
+	public Integer getMaxArchiveOpsPerSec() {
+		return maxArchiveOpsPerSec;
+	}
+
+	public void setMaxArchiveOpsPerSec(Integer maxArchiveOpsPerSec) {
+		this.maxArchiveOpsPerSec = maxArchiveOpsPerSec;
+	}
+
+	public Integer getMaxThawOpsPerSec() {
+		return maxThawOpsPerSec;
+	}
+
+	public void setMaxThawOpsPerSec(Integer maxThawOpsPerSec) {
+		this.maxThawOpsPerSec = maxThawOpsPerSec;
+	}
+
+	public String getThrottleSchedule() {
+		return throttleSchedule;
+	}
+
+	public void setThrottleSchedule(String throttleSchedule) {
+		this.throttleSchedule = throttleSchedule;
+	}
+
 	public String getArchiverRootURI() {
 		return archiverRootURI;
 	}
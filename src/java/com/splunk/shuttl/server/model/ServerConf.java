@@ -33,6 +33,24 @@ public class ServerConf {
 	private String httpHost;
 	private int httpPort;
 	private String splunkClusterName;
+	private Integer archiverWorkers;
+	private Integer archiverQueueSize;
+
+	public Integer getArchiverWorkers() {
+		return archiverWorkers;
+	}
+
+	public void setArchiverWorkers(Integer archiverWorkers) {
+		this.archiverWorkers = archiverWorkers;
+	}
+
+	public Integer getArchiverQueueSize() {
+		return archiverQueueSize;
+	}
+
+	public void setArchiverQueueSize(Integer archiverQueueSize) {
+		this.archiverQueueSize = archiverQueueSize;
+	}
 
 	public String getSplunkClusterName() {
 		return splunkClusterName;
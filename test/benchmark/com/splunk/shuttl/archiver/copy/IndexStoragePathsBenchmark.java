@@ -0,0 +1,75 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.copy;
+
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.splunk.Index;
+import com.splunk.shuttl.archiver.thaw.SplunkIndexesLayer;
+
+/**
+ * Mapping the home and cold paths of Splunk's indexes to the index names.
+ * The indexes are mocked, since they can't be created without a Splunk
+ * server, so the time includes calling the mocks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IndexStoragePathsBenchmark {
+
+	@Param({ "10", "1000" })
+	private int indexCount;
+
+	private IndexStoragePaths indexStoragePaths;
+
+	@Setup
+	public void setUp() {
+		final Map<String, Index> indexes = new HashMap<String, Index>();
+		for (int i = 0; i < indexCount; i++) {
+			String name = "index" + i;
+			Index index = mock(Index.class);
+			when(index.getName()).thenReturn(name);
+			when(index.getHomePathExpanded()).thenReturn(
+					"/opt/splunk/var/lib/splunk/" + name + "/db");
+			when(index.getColdPathExpanded()).thenReturn(
+					"/opt/splunk/var/lib/splunk/" + name + "/colddb");
+			indexes.put(name, index);
+		}
+		indexStoragePaths = new IndexStoragePaths(new SplunkIndexesLayer(null) {
+			@Override
+			public Map<String, Index> getIndexes() {
+				return indexes;
+			}
+		});
+	}
+
+	@Benchmark
+	public Map<String, String> getIndexPaths() {
+		return indexStoragePaths.getIndexPaths();
+	}
+}
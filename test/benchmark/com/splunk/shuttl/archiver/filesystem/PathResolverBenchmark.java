@@ -0,0 +1,80 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import static java.util.Arrays.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+/**
+ * Constructing the archive paths of a bucket, which is done several times
+ * for every bucket that is archived, listed or thawed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PathResolverBenchmark {
+
+	private PathResolver pathResolver;
+	private Bucket bucket;
+	private String bucketPath;
+
+	@Setup
+	public void setUp() {
+		pathResolver = new PathResolver(
+				ArchiveConfiguration.createSafeConfiguration("/tmp/shuttl",
+						"hdfs://localhost:9000/archive",
+						asList(BucketFormat.SPLUNK_BUCKET), "cluster", "server",
+						Collections.<BucketFormat> emptyList(), "hdfs"));
+		bucket = TUtilsBucket.createRemoteBucket(0);
+		bucketPath = pathResolver.getFormatsHome(bucket.getIndex(),
+				bucket.getName());
+	}
+
+	@Benchmark
+	public String resolveArchivePath() {
+		return pathResolver.resolveArchivePath(bucket);
+	}
+
+	@Benchmark
+	public String resolveTempPathForBucket() {
+		return pathResolver.resolveTempPathForBucket(bucket);
+	}
+
+	@Benchmark
+	public String resolveArchivedBucketPath() {
+		return pathResolver.resolveArchivedBucketPath(bucket.getIndex(),
+				bucket.getName(), bucket.getFormat());
+	}
+
+	@Benchmark
+	public String resolveIndexFromPathToBucket() {
+		return pathResolver.resolveIndexFromPathToBucket(bucketPath);
+	}
+}
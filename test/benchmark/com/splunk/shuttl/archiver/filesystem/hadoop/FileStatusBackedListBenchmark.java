@@ -0,0 +1,74 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.hadoop;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Getting the paths of a listing from a hadoop file system, both the first
+ * time, when the paths are resolved, and again, when they are cached.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FileStatusBackedListBenchmark {
+
+	@Param({ "100", "10000" })
+	private int size;
+
+	private FileStatus[] fileStatuses;
+	private List<String> cachedList;
+
+	@Setup
+	public void setUp() {
+		fileStatuses = new FileStatus[size];
+		for (int i = 0; i < size; i++)
+			fileStatuses[i] = new FileStatus(1024, true, 3, 64 * 1024 * 1024,
+					System.currentTimeMillis(), new Path(
+							"hdfs://localhost:9000/archive/cluster/server/index/db_"
+									+ (1300003599 + i) + "_" + (1300000000 + i) + "_" + i));
+		cachedList = new FileStatusBackedList(fileStatuses);
+		for (int i = 0; i < size; i++)
+			cachedList.get(i);
+	}
+
+	@Benchmark
+	public void getAllFirstTime(Blackhole blackhole) {
+		getAll(new FileStatusBackedList(fileStatuses), blackhole);
+	}
+
+	@Benchmark
+	public void getAllCached(Blackhole blackhole) {
+		getAll(cachedList, blackhole);
+	}
+
+	private static void getAll(List<String> paths, Blackhole blackhole) {
+		for (int i = 0; i < paths.size(); i++)
+			blackhole.consume(paths.get(i));
+	}
+}
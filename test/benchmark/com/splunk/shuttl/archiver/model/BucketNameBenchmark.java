@@ -0,0 +1,90 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.splunk.shuttl.archiver.util.GroupRegex;
+
+/**
+ * Parsing bucket names, which is done for every bucket that is listed,
+ * filtered or thawed. Compared with matching the name against
+ * {@link BucketName#LEGAL_NAME_REGEX} for every getter, which is how bucket
+ * names were parsed before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BucketNameBenchmark {
+
+	private final String name = "db_1336330530_1336330530_6";
+	private final String replicatedName = "rb_1336330530_1336330530_6_"
+			+ "4A4A5BEE-A9E7-4F2C-BEF2-C7A3AC0E8E27";
+	private final String invalidName = "not-a-bucket_name";
+
+	@Benchmark
+	public void parseName(Blackhole blackhole) {
+		consumeParsed(new BucketName(name), blackhole);
+	}
+
+	@Benchmark
+	public void parseReplicatedName(Blackhole blackhole) {
+		BucketName bucketName = new BucketName(replicatedName);
+		consumeParsed(bucketName, blackhole);
+		blackhole.consume(bucketName.getGuid());
+	}
+
+	@Benchmark
+	public void parseNameWithRegex(Blackhole blackhole) {
+		consumeMatched(name, BucketName.LEGAL_NAME_REGEX, blackhole);
+	}
+
+	@Benchmark
+	public void parseReplicatedNameWithRegex(Blackhole blackhole) {
+		consumeMatched(replicatedName, BucketName.LEGAL_NAME_REGEX
+				+ BucketName.GUID_ADDITION, blackhole);
+	}
+
+	@Benchmark
+	public boolean parseInvalidName() {
+		return new BucketName(invalidName).isValid();
+	}
+
+	private void consumeParsed(BucketName bucketName, Blackhole blackhole) {
+		blackhole.consume(bucketName.getDB());
+		blackhole.consume(bucketName.getIndex());
+		blackhole.consume(bucketName.getEarliest());
+		blackhole.consume(bucketName.getLatest());
+	}
+
+	/**
+	 * Each getter matched the regex again.
+	 */
+	private void consumeMatched(String name, String regex, Blackhole blackhole) {
+		GroupRegex groupRegex = new GroupRegex(regex, name);
+		blackhole.consume(groupRegex.getValue(1));
+		blackhole.consume(Long.parseLong(groupRegex.getValue(2)));
+		blackhole.consume(Long.parseLong(groupRegex.getValue(3)));
+		blackhole.consume(groupRegex.getValue(4));
+	}
+}
@@ -0,0 +1,91 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import static com.splunk.shuttl.testutil.TUtilsBucket.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Filtering the buckets of an index by a time range, as when listing or
+ * thawing buckets. Listings from the archive are scanned, while listings from
+ * a complete catalog query the {@link BucketTimeIndex} that the catalog keeps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BucketFilterBenchmark {
+
+	@Param({ "100", "10000" })
+	private int bucketCount;
+
+	private List<Bucket> buckets;
+	private BucketTimeIndex<Bucket> index;
+	private Date earliest;
+	private Date latest;
+	private Date allEarliest;
+	private Date allLatest;
+
+	@Setup
+	public void setUp() {
+		buckets = createRemoteBuckets(bucketCount);
+		index = BucketTimeIndex.create(buckets);
+		long span = bucketCount * REMOTE_BUCKET_SPAN;
+		earliest = toDate(REMOTE_BUCKETS_FIRST_EARLIEST + span / 2);
+		latest = toDate(REMOTE_BUCKETS_FIRST_EARLIEST + span / 2 + span / 10);
+		allEarliest = toDate(REMOTE_BUCKETS_FIRST_EARLIEST);
+		allLatest = toDate(REMOTE_BUCKETS_FIRST_EARLIEST + span);
+	}
+
+	private static Date toDate(long epochSeconds) {
+		return new Date(epochSeconds * 1000);
+	}
+
+	/**
+	 * A tenth of the buckets are within the range.
+	 */
+	@Benchmark
+	public List<Bucket> filterTenthOfBuckets() {
+		return BucketFilter.filterBuckets(buckets, earliest, latest);
+	}
+
+	@Benchmark
+	public List<Bucket> filterAllBuckets() {
+		return BucketFilter.filterBuckets(buckets, allEarliest, allLatest);
+	}
+
+	@Benchmark
+	public List<Bucket> filterTenthOfBucketsWithCachedIndex() {
+		return BucketFilter.filterBuckets(index, earliest, latest);
+	}
+
+	@Benchmark
+	public List<Bucket> filterAllBucketsWithCachedIndex() {
+		return BucketFilter.filterBuckets(index, allEarliest, allLatest);
+	}
+}
@@ -0,0 +1,80 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import static java.util.Arrays.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+
+/**
+ * Choosing which of a bucket's archived formats to thaw.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BucketFormatChooserBenchmark {
+
+	private BucketFormatChooser prioritizingChooser;
+	private BucketFormatChooser defaultChooser;
+	private List<BucketFormat> oneFormat;
+	private List<BucketFormat> allFormats;
+
+	@Setup
+	public void setUp() {
+		prioritizingChooser = new BucketFormatChooser(createConfiguration(asList(
+				BucketFormat.CSV, BucketFormat.SPLUNK_BUCKET_TGZ,
+				BucketFormat.SPLUNK_BUCKET)));
+		defaultChooser = new BucketFormatChooser(
+				createConfiguration(Collections.<BucketFormat> emptyList()));
+		oneFormat = asList(BucketFormat.SPLUNK_BUCKET);
+		allFormats = asList(BucketFormat.SPLUNK_BUCKET,
+				BucketFormat.SPLUNK_BUCKET_TGZ, BucketFormat.CSV);
+	}
+
+	private static ArchiveConfiguration createConfiguration(
+			List<BucketFormat> formatPriority) {
+		return ArchiveConfiguration.createSafeConfiguration("/tmp/shuttl",
+				"hdfs://localhost:9000/archive", asList(BucketFormat.SPLUNK_BUCKET),
+				"cluster", "server", formatPriority, "hdfs");
+	}
+
+	@Benchmark
+	public BucketFormat chooseOnlyFormat() {
+		return prioritizingChooser.chooseBucketFormat(oneFormat);
+	}
+
+	@Benchmark
+	public BucketFormat chooseByPriority() {
+		return prioritizingChooser.chooseBucketFormat(allFormats);
+	}
+
+	@Benchmark
+	public BucketFormat chooseByDefault() {
+		return defaultChooser.chooseBucketFormat(allFormats);
+	}
+}
@@ -0,0 +1,122 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.RemoteBucket;
+
+/**
+ * Compares the two ways buckets are filtered by time range in production: a
+ * listing from the archive is filtered once with a linear scan, and a listing
+ * from a complete catalog is filtered with the {@link BucketTimeIndex} the
+ * catalog keeps until it changes. Every query is one listing request, with
+ * buckets of overlapping time ranges like those of a real index. Building the
+ * index is measured on its own, to see how many requests it takes to pay off.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BucketTimeIndexBenchmark {
+
+	private static final int QUERIES = 100;
+	private static final long ONE_DAY_IN_SECONDS = 24 * 60 * 60;
+
+	@Param({ "100000", "1000000" })
+	private int bucketCount;
+
+	private List<Bucket> buckets;
+	private BucketTimeIndex<Bucket> index;
+	private List<Date[]> ranges;
+
+	@Setup
+	public void setUp() {
+		buckets = createBuckets(bucketCount);
+		index = BucketTimeIndex.create(buckets);
+		ranges = createRanges();
+	}
+
+	private static List<Bucket> createBuckets(int bucketCount) {
+		Random random = new Random(bucketCount);
+		List<Bucket> buckets = new ArrayList<Bucket>(bucketCount);
+		long earliest = 1330000000;
+		for (int i = 0; i < bucketCount; i++) {
+			long latest = earliest + random.nextInt((int) ONE_DAY_IN_SECONDS);
+			buckets.add(new RemoteBucket("/path", "index", "db_" + latest + "_"
+					+ earliest + "_" + i, BucketFormat.SPLUNK_BUCKET));
+			earliest += random.nextInt(600);
+		}
+		return buckets;
+	}
+
+	private static List<Date[]> createRanges() {
+		Random random = new Random(QUERIES);
+		List<Date[]> ranges = new ArrayList<Date[]>();
+		for (int i = 0; i < QUERIES; i++) {
+			long from = 1330000000 + random.nextInt(100 * (int) ONE_DAY_IN_SECONDS);
+			ranges.add(new Date[] { new Date(from * 1000),
+					new Date((from + ONE_DAY_IN_SECONDS) * 1000) });
+		}
+		return ranges;
+	}
+
+	/**
+	 * @return buckets found, per listing request.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public int linearScanPerListing() {
+		int found = 0;
+		for (Date[] range : ranges)
+			found += BucketFilter.filterBuckets(buckets, range[0], range[1]).size();
+		return found;
+	}
+
+	/**
+	 * @return buckets found, per listing request.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public int cachedIndexPerListing() {
+		int found = 0;
+		for (Date[] range : ranges)
+			found += BucketFilter.filterBuckets(index, range[0], range[1]).size();
+		return found;
+	}
+
+	/**
+	 * Done once every time the catalog changes.
+	 */
+	@Benchmark
+	public BucketTimeIndex<Bucket> buildIndex() {
+		return BucketTimeIndex.create(buckets);
+	}
+}
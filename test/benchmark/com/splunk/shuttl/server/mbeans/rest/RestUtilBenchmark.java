@@ -0,0 +1,65 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+/**
+ * Serializing buckets to the JSON that the list and thaw endpoints respond
+ * with. The JSON is counted and thrown away, so only the serialization is
+ * measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RestUtilBenchmark {
+
+	@Param({ "100", "10000" })
+	private int bucketCount;
+
+	private List<Bucket> buckets;
+
+	@Setup
+	public void setUp() {
+		buckets = TUtilsBucket.createRemoteBuckets(bucketCount);
+	}
+
+	/**
+	 * @return number of bytes written.
+	 */
+	@Benchmark
+	public long respondWithBuckets() throws IOException {
+		CountingOutputStream out = new CountingOutputStream(
+				NullOutputStream.NULL_OUTPUT_STREAM);
+		RestUtil.respondWithBuckets(buckets).write(out);
+		return out.getByteCount();
+	}
+}
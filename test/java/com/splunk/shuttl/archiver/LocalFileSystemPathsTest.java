@@ -177,4 +177,29 @@ public class LocalFileSystemPathsTest {
 		assertBucketUniquePathInsideArchiverDirectory(localFileSystemPaths
 				.getCopyLocksDirectory(bucket));
 	}
+
+	public void getTransferCheckpointsDirectory__existsInArchiverDirectory() {
+		assertExistsInParentArchiverDirectory(localFileSystemPaths
+				.getTransferCheckpointsDirectory());
+	}
+
+	public void getArchiveCatalogDirectory__existsInArchiverDirectory() {
+		assertExistsInParentArchiverDirectory(localFileSystemPaths
+				.getArchiveCatalogDirectory());
+	}
+
+	public void getGlacierArchiveIdsDirectory__existsInArchiverDirectory() {
+		assertExistsInParentArchiverDirectory(localFileSystemPaths
+				.getGlacierArchiveIdsDirectory());
+	}
+
+	public void getGlacierRetrievalsDirectory__existsInArchiverDirectory() {
+		assertExistsInParentArchiverDirectory(localFileSystemPaths
+				.getGlacierRetrievalsDirectory());
+	}
+
+	public void getUploadPartsDirectory__existsInArchiverDirectory() {
+		assertExistsInParentArchiverDirectory(localFileSystemPaths
+				.getUploadPartsDirectory());
+	}
 }
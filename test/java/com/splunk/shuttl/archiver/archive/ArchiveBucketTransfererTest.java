@@ -20,23 +20,36 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
-import java.io.FileNotFoundException;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
-import com.splunk.shuttl.archiver.filesystem.FileOverwriteException;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.hadoop.HadoopArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.transaction.AbstractTransaction;
+import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionException;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.PutBucketTransaction;
+import com.splunk.shuttl.archiver.importexport.BucketStreamExporter;
 import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
+import com.splunk.shuttl.archiver.metrics.MeasuredTransaction;
+import com.splunk.shuttl.archiver.metrics.Phase;
 import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
+import com.splunk.shuttl.testutil.TUtilsFile;
+import com.splunk.shuttl.testutil.TUtilsFileSystem;
 
 @Test(groups = { "fast-unit" })
 public class ArchiveBucketTransfererTest {
@@ -66,33 +79,111 @@ public class ArchiveBucketTransfererTest {
 		when(pathResolver.resolveTempPathForBucket(bucket)).thenReturn(temp);
 		archiveBucketTransferer.transferBucketToArchive(bucket);
 		verify(transactionExecuter).execute(
-				eq(PutBucketTransaction.create(archive, bucket, temp, destination)));
+				eq(PutBucketTransaction.create(archive, bucket, temp, destination)),
+				any(Transaction.class));
 	}
 
-	public void transferBucketToArchive_givenSuccessfulBucketTransfer_startBucketSizeTransaction() {
+	public void transferBucketToArchive_givenBucket_executesBucketAndBucketSizeTransactionsTogether() {
 		Bucket bucket = mock(Bucket.class);
+		Transaction bucketSizeTransaction = mock(Transaction.class);
+		when(archiveBucketSize.createPersistBucketSizeTransaction(bucket))
+				.thenReturn(bucketSizeTransaction);
 		archiveBucketTransferer.transferBucketToArchive(bucket);
-		verify(archiveBucketSize).persistBucketSize(bucket);
+		verify(transactionExecuter).execute(any(PutBucketTransaction.class),
+				eq(bucketSizeTransaction));
 	}
 
-	public void transferBucketToArchive_whenBucketTransferIsUnsuccessful_dontPutBucketSizeInArchive()
-			throws FileNotFoundException, FileOverwriteException, IOException {
-		doThrow(Exception.class).when(transactionExecuter).execute(
-				any(AbstractTransaction.class));
+	@Test(expectedExceptions = { FailedToArchiveBucketException.class })
+	public void _archiveFileSystemThrowsFileNotFoundException_throwFailedToArchiveBucketException()
+			throws IOException {
+		doThrow(TransactionException.class).when(transactionExecuter).execute(
+				any(AbstractTransaction.class), any(Transaction.class));
+		archiveBucketTransferer.transferBucketToArchive(mock(Bucket.class));
+	}
+
+	public void transferBucketToArchive_givenCatalog_catalogsBucketAtDestination()
+			throws IOException {
+		ArchiveCatalog catalog = mock(ArchiveCatalog.class);
+		Bucket bucket = TUtilsBucket.createBucket();
+		when(pathResolver.resolveArchivePath(bucket)).thenReturn("/some/path");
+		new ArchiveBucketTransferer(archive, pathResolver, archiveBucketSize,
+				transactionExecuter, catalog).transferBucketToArchive(bucket);
+
+		ArgumentCaptor<Bucket> cataloged = ArgumentCaptor.forClass(Bucket.class);
+		verify(catalog).putArchivedBucket(cataloged.capture());
+		assertEquals(cataloged.getValue().getPath(), "/some/path");
+		assertEquals(cataloged.getValue().getName(), bucket.getName());
+	}
+
+	public void transferBucketToArchive_transactionFails_doesNotCatalogBucket()
+			throws IOException {
+		ArchiveCatalog catalog = mock(ArchiveCatalog.class);
+		doThrow(TransactionException.class).when(transactionExecuter).execute(
+				any(AbstractTransaction.class), any(Transaction.class));
 		try {
-			archiveBucketTransferer.transferBucketToArchive(mock(Bucket.class));
+			new ArchiveBucketTransferer(archive, pathResolver, archiveBucketSize,
+					transactionExecuter, catalog).transferBucketToArchive(TUtilsBucket
+					.createBucket());
 			fail();
-		} catch (Exception e) {
+		} catch (FailedToArchiveBucketException e) {
 		}
-		verifyZeroInteractions(archiveBucketSize);
+		verifyZeroInteractions(catalog);
 	}
 
-	@Test(expectedExceptions = { FailedToArchiveBucketException.class })
-	public void _archiveFileSystemThrowsFileNotFoundException_throwFailedToArchiveBucketException()
+	public void transferBucketToArchive_givenMetrics_measuresBucketAndBucketSizeTransactions() {
+		Bucket bucket = TUtilsBucket.createBucket();
+		Transaction bucketSizeTransaction = mock(Transaction.class);
+		when(archiveBucketSize.createPersistBucketSizeTransaction(bucket))
+				.thenReturn(bucketSizeTransaction);
+		new ArchiveBucketTransferer(archive, pathResolver, archiveBucketSize,
+				transactionExecuter, null, new ArchiverMetrics(), "s3n")
+				.transferBucketToArchive(bucket);
+
+		ArgumentCaptor<Transaction> bucketTransaction = ArgumentCaptor
+				.forClass(Transaction.class);
+		ArgumentCaptor<Transaction> sizeTransaction = ArgumentCaptor
+				.forClass(Transaction.class);
+		verify(transactionExecuter).execute(bucketTransaction.capture(),
+				sizeTransaction.capture());
+		assertTrue(((MeasuredTransaction) bucketTransaction.getValue())
+				.getTransaction() instanceof PutBucketTransaction);
+		assertEquals(((MeasuredTransaction) sizeTransaction.getValue())
+				.getTransaction(), bucketSizeTransaction);
+	}
+
+	public void streamBucketToArchive_givenMetrics_countsStreamedBytesAsUploadBytes()
 			throws IOException {
-		doThrow(TransactionException.class).when(transactionExecuter).execute(
-				any(AbstractTransaction.class));
-		archiveBucketTransferer.transferBucketToArchive(mock(Bucket.class));
+		File bucketDir = TUtilsBucket.createBucket().getDirectory();
+		TUtilsFile.populateFileWithRandomContent(TUtilsFile.createFileInParent(
+				bucketDir, "rawdata.bin"));
+		LocalBucket bucket = new LocalBucket(bucketDir, "index",
+				BucketFormat.SPLUNK_BUCKET, null);
+		File archiveDir = TUtilsFile.createDirectory();
+		when(pathResolver.resolveArchivePath(any(Bucket.class))).thenReturn(
+				new File(archiveDir, "bucket").getAbsolutePath());
+		when(pathResolver.resolveTempPathForBucket(any(Bucket.class))).thenReturn(
+				new File(archiveDir, "temp").getAbsolutePath());
+		when(archiveBucketSize.createPersistBucketSizeTransaction(any(Bucket.class)))
+				.thenReturn(mock(Transaction.class));
+		BucketStreamExporter tgzExporter = mock(BucketStreamExporter.class);
+		when(tgzExporter.getFormat()).thenReturn(BucketFormat.SPLUNK_BUCKET_TGZ);
+		when(tgzExporter.getFileName(bucket)).thenReturn("bucket.tgz");
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				((OutputStream) invocation.getArguments()[1]).write(new byte[123]);
+				return null;
+			}
+		}).when(tgzExporter).exportBucket(eq(bucket), any(OutputStream.class));
+		ArchiverMetrics metrics = new ArchiverMetrics();
+
+		new ArchiveBucketTransferer(new HadoopArchiveFileSystem(
+				TUtilsFileSystem.getLocalFileSystem()), pathResolver,
+				archiveBucketSize, new TransactionExecuter(), null, metrics, "hdfs")
+				.streamBucketToArchive(bucket, tgzExporter);
+
+		assertTrue(bucket.getSize() > 123);
+		assertEquals(metrics.getPhaseBytes(Phase.UPLOAD.getName()), 123);
 	}
 
 	public void isArchived_bucketInFormatIsNotInArchiveFileSystem_false()
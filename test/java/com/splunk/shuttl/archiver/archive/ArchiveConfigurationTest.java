@@ -36,6 +36,7 @@ public class ArchiveConfigurationTest {
 	@BeforeMethod
 	public void setUp() {
 		mBean = mock(ShuttlArchiverMBean.class);
+		when(mBean.getCompressionLevel()).thenReturn(null);
 	}
 
 	private ArchiveConfiguration createConfiguration() {
@@ -183,4 +184,53 @@ public class ArchiveConfigurationTest {
 
 		assertNotEquals(originalConf.getServerName(), newConf.getServerName());
 	}
+
+	public void getCompressionLevel_notConfigured_defaultLevel() {
+		when(mBean.getCompressionLevel()).thenReturn(null);
+		assertEquals(createConfiguration().getCompressionLevel(),
+				ArchiveConfiguration.DEFAULT_COMPRESSION_LEVEL);
+	}
+
+	public void getCompressionLevel_stubbedMBeanCompressionLevel_sameAsInMBean() {
+		when(mBean.getCompressionLevel()).thenReturn(9);
+		assertEquals(createConfiguration().getCompressionLevel(), 9);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void createWithMBean_compressionLevelAboveNine_throws() {
+		when(mBean.getCompressionLevel()).thenReturn(10);
+		createConfiguration();
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void createWithMBean_compressionLevelZero_throws() {
+		when(mBean.getCompressionLevel()).thenReturn(0);
+		createConfiguration();
+	}
+
+	public void getCompressionThreads_notConfigured_numberOfProcessors() {
+		when(mBean.getCompressionThreads()).thenReturn(null);
+		assertEquals(createConfiguration().getCompressionThreads(), Runtime
+				.getRuntime().availableProcessors());
+	}
+
+	public void newWithServerName_compressionConfigured_keepsCompressionConfiguration() {
+		when(mBean.getCompressionLevel()).thenReturn(1);
+		when(mBean.getCompressionThreads()).thenReturn(3);
+		ArchiveConfiguration newConf = createConfiguration()
+				.newConfigWithServerName("newServerName");
+		assertEquals(newConf.getCompressionLevel(), 1);
+		assertEquals(newConf.getCompressionThreads(), 3);
+	}
+
+	public void isForConfiguredServer_configuredConfig_true() {
+		when(mBean.getServerName()).thenReturn("server");
+		assertTrue(createConfiguration().isForConfiguredServer());
+	}
+
+	public void isForConfiguredServer_newConfigWithOtherServerName_false() {
+		when(mBean.getServerName()).thenReturn("server");
+		assertFalse(createConfiguration().newConfigWithServerName("other")
+				.isForConfiguredServer());
+	}
 }
@@ -0,0 +1,130 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive;
+
+import static java.util.Arrays.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class ArchivingSchedulerTest {
+
+	private ArchivingScheduler scheduler;
+	private ExecutorService workers;
+	private List<String> ranWork;
+
+	@BeforeMethod
+	public void setUp() {
+		workers = mock(ExecutorService.class);
+		scheduler = new ArchivingScheduler(workers, 3);
+		ranWork = new ArrayList<String>();
+	}
+
+	public void schedule_givenWork_executesWorkOnWorkers() {
+		scheduler.schedule("index", new RecordsWork("work"));
+		runAllDispatchedWork();
+		assertEquals(ranWork, asList("work"));
+	}
+
+	@Test(expectedExceptions = { ArchivingQueueFullException.class })
+	public void schedule_queueIsFull_throws() {
+		for (int i = 0; i < 4; i++)
+			scheduler.schedule("index", new RecordsWork("work" + i));
+	}
+
+	public void schedule_queueIsFull_countsRejectedWork() {
+		for (int i = 0; i < 3; i++)
+			scheduler.schedule("index", new RecordsWork("work" + i));
+		try {
+			scheduler.schedule("index", new RecordsWork("rejected"));
+			fail();
+		} catch (ArchivingQueueFullException e) {
+		}
+		assertEquals(scheduler.getRejectedCount(), 1);
+		assertEquals(scheduler.getQueueDepth(), 3);
+	}
+
+	public void schedule_workersRejectWork_throwsAndTakesBackWork() {
+		doThrow(new RejectedExecutionException()).when(workers).execute(
+				any(Runnable.class));
+		try {
+			scheduler.schedule("index", new RecordsWork("work"));
+			fail();
+		} catch (ArchivingQueueFullException e) {
+		}
+		assertEquals(scheduler.getQueueDepth(), 0);
+		assertEquals(scheduler.getRejectedCount(), 1);
+	}
+
+	public void schedule_workForTwoIndexes_takesWorkFromIndexesInTurn() {
+		scheduler.schedule("a", new RecordsWork("a1"));
+		scheduler.schedule("a", new RecordsWork("a2"));
+		scheduler.schedule("b", new RecordsWork("b1"));
+		runAllDispatchedWork();
+		assertEquals(ranWork, asList("a1", "b1", "a2"));
+	}
+
+	public void getQueueDepth_afterWorkHasRun_isZero() {
+		scheduler.schedule("index", new RecordsWork("work"));
+		assertEquals(scheduler.getQueueDepth(), 1);
+		runAllDispatchedWork();
+		assertEquals(scheduler.getQueueDepth(), 0);
+		assertEquals(scheduler.getActiveCount(), 0);
+	}
+
+	public void run_workThrows_queueCanTakeNewWork() {
+		scheduler = new ArchivingScheduler(workers, 1);
+		scheduler.schedule("index", new Runnable() {
+
+			@Override
+			public void run() {
+				throw new RuntimeException();
+			}
+		});
+		runAllDispatchedWork();
+		scheduler.schedule("index", new RecordsWork("work"));
+		assertEquals(scheduler.getActiveCount(), 0);
+	}
+
+	private void runAllDispatchedWork() {
+		ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+		verify(workers, atLeastOnce()).execute(captor.capture());
+		for (Runnable r : captor.getAllValues())
+			r.run();
+	}
+
+	private class RecordsWork implements Runnable {
+
+		private final String name;
+
+		public RecordsWork(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void run() {
+			ranWork.add(name);
+		}
+	}
+}
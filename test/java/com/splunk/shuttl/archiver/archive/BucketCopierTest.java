@@ -18,6 +18,7 @@ package com.splunk.shuttl.archiver.archive;
 import static java.util.Arrays.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
 
 import java.util.List;
 
@@ -25,7 +26,12 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.importexport.BucketExportController;
+import com.splunk.shuttl.archiver.importexport.BucketStreamExporter;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
+import com.splunk.shuttl.archiver.metrics.Phase;
+import com.splunk.shuttl.archiver.metrics.PhaseMetrics;
 import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
 @Test(groups = { "fast-unit" })
@@ -83,6 +89,14 @@ public class BucketCopierTest {
 		verify(deletesBuckets).deleteBucket(exportedBucket);
 	}
 
+	@Test(expectedExceptions = { AssertionError.class })
+	public void copyBucket_copyThrowsError_rethrowsErrorAsIs() {
+		LocalBucket exportedBucket = getMockedBucketReturnFromExporter();
+		doThrow(new AssertionError()).when(archiveBucketTransferer)
+				.transferBucketToArchive(exportedBucket);
+		bucketCopier.copyBucket(bucket);
+	}
+
 	public void copyBucket_whenExportBucketIsSameAsOriginalBucket_doesNotDelete() {
 		when(exporter.exportBucket(eq(bucket), any(BucketFormat.class)))
 				.thenReturn(bucket);
@@ -97,4 +111,42 @@ public class BucketCopierTest {
 		verify(exporter, never()).exportBucket(bucket, format);
 	}
 
+	public void copyBucket_formatCanBeStreamedToArchive_streamsBucketInsteadOfExporting() {
+		BucketFormat format = bucketFormats.get(0);
+		BucketStreamExporter streamExporter = mock(BucketStreamExporter.class);
+		when(exporter.getStreamExporter(bucket, format)).thenReturn(streamExporter);
+		when(archiveBucketTransferer.canStreamToArchive()).thenReturn(true);
+
+		bucketCopier.copyBucket(bucket);
+
+		verify(archiveBucketTransferer).streamBucketToArchive(bucket,
+				streamExporter);
+		verify(exporter, never()).exportBucket(bucket, format);
+	}
+
+	public void copyBucket_archiveCannotBeStreamedTo_exportsBucket() {
+		BucketFormat format = bucketFormats.get(0);
+		when(exporter.getStreamExporter(bucket, format)).thenReturn(
+				mock(BucketStreamExporter.class));
+		when(archiveBucketTransferer.canStreamToArchive()).thenReturn(false);
+
+		bucketCopier.copyBucket(bucket);
+
+		verify(exporter).exportBucket(bucket, format);
+	}
+
+	public void copyBucket_givenMetrics_measuresExportForTheBackend() {
+		ArchiverMetrics metrics = new ArchiverMetrics();
+		bucketCopier = new BucketCopier(exporter, archiveBucketTransferer,
+				bucketFormats, deletesBuckets, new CallingThreadExecutor(), metrics,
+				"s3n");
+		getMockedBucketReturnFromExporter();
+
+		bucketCopier.copyBucket(bucket);
+
+		assertEquals(metrics.getPhaseCount(Phase.EXPORT.getName()), 1);
+		PhaseMetrics export = metrics.getAllSeries().get(0);
+		assertEquals(export.getPhase(), Phase.EXPORT);
+		assertEquals(export.getBackend(), "s3n");
+	}
 }
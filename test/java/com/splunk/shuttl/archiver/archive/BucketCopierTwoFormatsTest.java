@@ -15,16 +15,19 @@
 package com.splunk.shuttl.archiver.archive;
 
 import static java.util.Arrays.*;
+import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.importexport.BucketExportController;
 import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
 
 @Test(groups = { "fast-unit" })
 public class BucketCopierTwoFormatsTest {
@@ -125,4 +128,31 @@ public class BucketCopierTwoFormatsTest {
 		verify(bucketDeleter).deleteBucket(exportedBucket1);
 		verify(bucketDeleter).deleteBucket(exportedBucket2);
 	}
+
+	public void copyBucket_givenExecutor_copiesEachFormatOnTheExecutor() {
+		Executor executor = spy(new CallingThreadExecutor());
+		bucketCopier = new BucketCopier(exporter, archiveBucketTransferer, formats,
+				bucketDeleter, executor);
+		setUpTwoFormatsAndTwoExportedBuckets();
+
+		bucketCopier.copyBucket(bucket);
+
+		verify(executor, times(2)).execute(any(Runnable.class));
+		verify(archiveBucketTransferer).transferBucketToArchive(exportedBucket1);
+		verify(archiveBucketTransferer).transferBucketToArchive(exportedBucket2);
+	}
+
+	public void copyBucket_firstFormatFailsToExport_stillArchivesTheSecondOneAndThrows() {
+		setUpTwoFormatsAndTwoExportedBuckets();
+		when(exporter.exportBucket(bucket, formats.get(0))).thenThrow(
+				new RuntimeException());
+
+		try {
+			bucketCopier.copyBucket(bucket);
+			fail("should have gotten exception");
+		} catch (RuntimeException e) {
+		}
+
+		verify(archiveBucketTransferer).transferBucketToArchive(exportedBucket2);
+	}
 }
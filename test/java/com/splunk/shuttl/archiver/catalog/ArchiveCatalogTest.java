@@ -0,0 +1,233 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.catalog;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.RemoteBucket;
+import com.splunk.shuttl.archiver.thaw.BucketTimeIndex;
+
+@Test(groups = { "fast-unit" })
+public class ArchiveCatalogTest {
+
+	private static final String NAME = "db_1336330530_1336330500_0";
+
+	private File journal;
+	private ArchiveCatalog catalog;
+
+	@BeforeMethod
+	public void setUp() {
+		journal = new File(createDirectory(), "archive.catalog");
+		catalog = new ArchiveCatalog(journal);
+	}
+
+	private Bucket archivedBucket(String index, String name,
+			BucketFormat format, Long size) {
+		return new RemoteBucket("/archive/" + index + "/" + name + "/" + format,
+				index, name, format, size);
+	}
+
+	public void getBucket_archivedBucket_catalogsTimesFormatPathAndSize()
+			throws IOException {
+		Bucket bucket = archivedBucket("index", NAME,
+				BucketFormat.SPLUNK_BUCKET, 17L);
+		catalog.putArchivedBucket(bucket);
+
+		CatalogedBucket cataloged = catalog.getBucket("index", NAME);
+		assertEquals(cataloged.getEarliest(), bucket.getEarliest());
+		assertEquals(cataloged.getLatest(), bucket.getLatest());
+		assertEquals(cataloged.getFormats(), asList(BucketFormat.SPLUNK_BUCKET));
+		assertEquals(cataloged.getPath(BucketFormat.SPLUNK_BUCKET),
+				bucket.getPath());
+		assertEquals(cataloged.getSize(BucketFormat.SPLUNK_BUCKET), (Long) 17L);
+	}
+
+	public void getBucket_sameBucketInTwoFormats_catalogsBothFormats()
+			throws IOException {
+		catalog.putArchivedBucket(archivedBucket("index", NAME,
+				BucketFormat.SPLUNK_BUCKET, 17L));
+		catalog.putArchivedBucket(archivedBucket("index", NAME, BucketFormat.CSV,
+				null));
+
+		CatalogedBucket cataloged = catalog.getBucket("index", NAME);
+		assertEquals(cataloged.getFormats().size(), 2);
+		assertNull(cataloged.getSize(BucketFormat.CSV));
+		assertEquals(catalog.getBuckets("index").size(), 1);
+	}
+
+	public void getBucket_anotherInstanceOnSameJournal_readsArchivedBuckets()
+			throws IOException {
+		catalog.putArchivedBucket(archivedBucket("index", NAME,
+				BucketFormat.SPLUNK_BUCKET, 17L));
+
+		ArchiveCatalog reopened = new ArchiveCatalog(journal);
+		assertEquals(reopened.getIndexes(), asList("index"));
+		assertEquals(reopened.getBucket("index", NAME).getSize(
+				BucketFormat.SPLUNK_BUCKET), (Long) 17L);
+	}
+
+	public void getBuckets_journalEndsWithPartlyWrittenLine_ignoresThatLine()
+			throws IOException {
+		catalog.putArchivedBucket(archivedBucket("index", NAME,
+				BucketFormat.SPLUNK_BUCKET, 17L));
+		FileOutputStream out = new FileOutputStream(journal, true);
+		out.write("BUCKET\tindex\tdb_13363".getBytes("UTF-8"));
+		out.close();
+
+		assertEquals(new ArchiveCatalog(journal).getBuckets("index").size(), 1);
+	}
+
+	public void isComplete_newCatalog_false() {
+		assertFalse(catalog.isComplete());
+	}
+
+	public void isComplete_afterRebuild_trueAlsoWhenReopened()
+			throws IOException {
+		catalog.startRebuild();
+		catalog.finishRebuild(Collections.<Bucket> emptyList());
+		assertTrue(catalog.isComplete());
+		assertTrue(new ArchiveCatalog(journal).isComplete());
+	}
+
+	public void finishRebuild_bucketArchivedDuringRebuild_keepsThatBucket()
+			throws IOException {
+		catalog.putArchivedBucket(archivedBucket("deleted", NAME,
+				BucketFormat.SPLUNK_BUCKET, 1L));
+		catalog.startRebuild();
+		catalog.putArchivedBucket(archivedBucket("during", NAME,
+				BucketFormat.SPLUNK_BUCKET, 2L));
+		catalog.finishRebuild(asList(archivedBucket("scanned", NAME,
+				BucketFormat.SPLUNK_BUCKET, 3L)));
+
+		assertEquals(catalog.getIndexes(), asList("during", "scanned"));
+		assertFalse(catalog.isRebuilding());
+	}
+
+	public void abortRebuild_rebuilding_staysIncomplete() {
+		assertTrue(catalog.startRebuild());
+		assertFalse(catalog.startRebuild());
+		catalog.abortRebuild();
+		assertFalse(catalog.isRebuilding());
+		assertFalse(catalog.isComplete());
+	}
+
+	public void isStale_newCatalog_true() {
+		assertTrue(catalog.isStale());
+	}
+
+	public void isStale_rebuiltWithinReconcileInterval_false() throws IOException {
+		catalog.startRebuild();
+		catalog.finishRebuild(Collections.<Bucket> emptyList());
+		assertFalse(catalog.isStale());
+		assertFalse(new ArchiveCatalog(journal).isStale());
+	}
+
+	public void isStale_rebuiltLongerAgoThanReconcileInterval_trueButComplete()
+			throws IOException {
+		catalog.startRebuild();
+		catalog.finishRebuild(Collections.<Bucket> emptyList());
+		ArchiveCatalog later = new ArchiveCatalog(journal) {
+			@Override
+			protected long currentTimeMillis() {
+				return System.currentTimeMillis()
+						+ ArchiveCatalog.RECONCILE_INTERVAL_MILLIS + 1;
+			}
+		};
+		assertTrue(later.isStale());
+		assertTrue(later.isComplete());
+	}
+
+	public void isStale_journalCompletedWithoutTime_true() throws IOException {
+		FileOutputStream out = new FileOutputStream(journal);
+		out.write("COMPLETE\n".getBytes("UTF-8"));
+		out.close();
+		ArchiveCatalog old = new ArchiveCatalog(journal);
+		assertTrue(old.isComplete());
+		assertTrue(old.isStale());
+	}
+
+	public void finishRebuild_bucketRemovedFromArchive_removesItFromCatalog()
+			throws IOException {
+		catalog.putArchivedBucket(archivedBucket("index", NAME,
+				BucketFormat.SPLUNK_BUCKET, 1L));
+		catalog.startRebuild();
+		catalog.finishRebuild(Collections.<Bucket> emptyList());
+
+		assertNull(catalog.getBucket("index", NAME));
+		assertNull(new ArchiveCatalog(journal).getBucket("index", NAME));
+	}
+
+	private static class CountsCreatedBuckets implements
+			ArchiveCatalog.CreatesBuckets {
+
+		int created;
+
+		@Override
+		public Bucket createBucket(CatalogedBucket catalogedBucket) {
+			created++;
+			BucketFormat format = catalogedBucket.getFormats().get(0);
+			return new RemoteBucket(catalogedBucket.getPath(format),
+					catalogedBucket.getIndex(), catalogedBucket.getName(), format);
+		}
+	}
+
+	public void getTimeIndex_askedTwiceWithoutChanges_createsBucketsOnce()
+			throws IOException {
+		catalog.putArchivedBucket(archivedBucket("index", NAME,
+				BucketFormat.SPLUNK_BUCKET, 1L));
+		CountsCreatedBuckets createsBuckets = new CountsCreatedBuckets();
+
+		BucketTimeIndex<Bucket> first = catalog.getTimeIndex("index",
+				createsBuckets);
+		assertSame(catalog.getTimeIndex("index", createsBuckets), first);
+		assertEquals(createsBuckets.created, 1);
+		assertEquals(first.size(), 1);
+	}
+
+	public void getTimeIndex_bucketArchivedInIndex_indexesAgain()
+			throws IOException {
+		catalog.putArchivedBucket(archivedBucket("index", NAME,
+				BucketFormat.SPLUNK_BUCKET, 1L));
+		CountsCreatedBuckets createsBuckets = new CountsCreatedBuckets();
+		catalog.getTimeIndex("index", createsBuckets);
+		catalog.putArchivedBucket(archivedBucket("index",
+				"db_1336330630_1336330600_1", BucketFormat.SPLUNK_BUCKET, 1L));
+
+		assertEquals(catalog.getTimeIndex("index", createsBuckets).size(), 2);
+	}
+
+	public void getTimeIndex_catalogRebuilt_indexesAgain() throws IOException {
+		catalog.putArchivedBucket(archivedBucket("index", NAME,
+				BucketFormat.SPLUNK_BUCKET, 1L));
+		CountsCreatedBuckets createsBuckets = new CountsCreatedBuckets();
+		catalog.getTimeIndex("index", createsBuckets);
+		catalog.startRebuild();
+		catalog.finishRebuild(Collections.<Bucket> emptyList());
+
+		assertEquals(catalog.getTimeIndex("index", createsBuckets).size(), 0);
+	}
+}
@@ -0,0 +1,121 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+
+@Test(groups = { "fast-unit" })
+public class ArchiveFileSystemRegistryTest {
+
+	private ArchiveFileSystemRegistry registry;
+	private int created;
+	private long now;
+
+	@BeforeMethod
+	public void setUp() {
+		created = 0;
+		now = 0;
+		registry = new ArchiveFileSystemRegistry() {
+			@Override
+			protected long currentTimeMillis() {
+				return now;
+			}
+
+			@Override
+			protected ArchiveFileSystem create(String backend,
+					LocalFileSystemPaths localFileSystemPaths) {
+				created++;
+				return mock(ArchiveFileSystem.class,
+						withSettings().extraInterfaces(Closeable.class));
+			}
+		};
+	}
+
+	private ArchiveConfiguration config(String backend, String localArchiverDir) {
+		ArchiveConfiguration config = mock(ArchiveConfiguration.class);
+		when(config.getBackendName()).thenReturn(backend);
+		when(config.getLocalArchiverDir()).thenReturn(localArchiverDir);
+		return config;
+	}
+
+	public void get_sameConfigurationTwice_createsFileSystemOnce() {
+		ArchiveFileSystem first = registry.get(config("hdfs", "/archiver"));
+		ArchiveFileSystem second = registry.get(config("hdfs", "/archiver"));
+		assertSame(first, second);
+		assertEquals(created, 1);
+	}
+
+	public void get_differentBackends_differentFileSystems() {
+		ArchiveFileSystem hdfs = registry.get(config("hdfs", "/archiver"));
+		ArchiveFileSystem s3 = registry.get(config("s3", "/archiver"));
+		assertNotSame(hdfs, s3);
+	}
+
+	public void invalidateAll_fileSystemCreated_createsNewWithoutClosingOld()
+			throws IOException {
+		ArchiveFileSystem old = registry.get(config("hdfs", "/archiver"));
+		registry.invalidateAll();
+		assertNotSame(registry.get(config("hdfs", "/archiver")), old);
+		verify((Closeable) old, never()).close();
+	}
+
+	public void closeAll_currentAndInvalidatedFileSystems_closesBoth()
+			throws IOException {
+		ArchiveFileSystem old = registry.get(config("hdfs", "/archiver"));
+		registry.invalidateAll();
+		ArchiveFileSystem current = registry.get(config("hdfs", "/archiver"));
+		registry.closeAll();
+		verify((Closeable) old).close();
+		verify((Closeable) current).close();
+	}
+
+	public void get_invalidatedLongerThanCloseTime_closesAndForgetsInvalidated()
+			throws IOException {
+		ArchiveFileSystem old = registry.get(config("hdfs", "/archiver"));
+		registry.invalidateAll();
+		now += ArchiveFileSystemRegistry.CLOSE_INVALIDATED_AFTER_MILLIS;
+		registry.get(config("hdfs", "/archiver"));
+		verify((Closeable) old).close();
+		assertEquals(registry.getInvalidatedCount(), 0);
+	}
+
+	public void invalidateAll_invalidatedManyTimesWithinCloseTime_keepsInvalidatedOpen()
+			throws IOException {
+		ArchiveFileSystem old = registry.get(config("hdfs", "/archiver"));
+		registry.invalidateAll();
+		now += ArchiveFileSystemRegistry.CLOSE_INVALIDATED_AFTER_MILLIS - 1;
+		registry.get(config("hdfs", "/archiver"));
+		registry.invalidateAll();
+		verify((Closeable) old, never()).close();
+		assertEquals(registry.getInvalidatedCount(), 2);
+	}
+
+	public void closeAll_invalidatedFileSystems_forgetsThem() {
+		registry.get(config("hdfs", "/archiver"));
+		registry.invalidateAll();
+		registry.closeAll();
+		assertEquals(registry.getInvalidatedCount(), 0);
+	}
+}
@@ -0,0 +1,220 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.commons.io.IOUtils;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.glacier.AmazonGlacierClient;
+import com.amazonaws.services.glacier.TreeHashGenerator;
+import com.amazonaws.services.glacier.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.glacier.model.ListPartsRequest;
+import com.amazonaws.services.glacier.model.ListPartsResult;
+import com.amazonaws.services.glacier.model.PartListElement;
+import com.amazonaws.services.glacier.model.ResourceNotFoundException;
+import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
+import com.amazonaws.services.glacier.model.UploadMultipartPartResult;
+
+/**
+ * Fake implementation of the glacier multipart upload operations, that keeps
+ * the uploads and archives in memory instead of in a real vault. It checks the
+ * tree hashes like glacier does, with the tree hash implementation of the aws
+ * sdk, and lists parts two at a time so that listings have to be paged.
+ */
+public class FakeAmazonGlacier extends AmazonGlacierClient {
+
+	private static final int PARTS_PER_LISTING = 2;
+
+	private final Map<String, Upload> uploads;
+	private final Map<String, byte[]> archives;
+	private final Map<String, String> descriptions;
+	private final Map<Long, Integer> failuresByPartStart;
+
+	private int uploadedParts;
+
+	public FakeAmazonGlacier() {
+		super(new BasicAWSCredentials("id", "secret"));
+		this.uploads = new HashMap<String, Upload>();
+		this.archives = new HashMap<String, byte[]>();
+		this.descriptions = new HashMap<String, String>();
+		this.failuresByPartStart = new HashMap<Long, Integer>();
+	}
+
+	private static class Upload {
+		private final String description;
+		private final long partSize;
+		private final TreeMap<Long, byte[]> parts = new TreeMap<Long, byte[]>();
+		private final Map<Long, String> checksums = new HashMap<Long, String>();
+
+		public Upload(String description, long partSize) {
+			this.description = description;
+			this.partSize = partSize;
+		}
+	}
+
+	/**
+	 * Makes the uploads of the part that starts at the byte fail a number of
+	 * times.
+	 */
+	public synchronized void failPartUploads(long start, int times) {
+		failuresByPartStart.put(start, times);
+	}
+
+	public synchronized int getUploadedPartCount() {
+		return uploadedParts;
+	}
+
+	public synchronized int getUploadCount() {
+		return uploads.size();
+	}
+
+	public synchronized byte[] getArchive(String archiveId) {
+		return archives.get(archiveId);
+	}
+
+	public synchronized String getDescription(String archiveId) {
+		return descriptions.get(archiveId);
+	}
+
+	@Override
+	public synchronized InitiateMultipartUploadResult initiateMultipartUpload(
+			InitiateMultipartUploadRequest request) {
+		long partSize = Long.parseLong(request.getPartSize());
+		if (partSize < 1024 * 1024 || Long.bitCount(partSize) != 1)
+			throw new AmazonServiceException("Invalid part size: " + partSize);
+		String uploadId = UUID.randomUUID().toString();
+		uploads.put(uploadId, new Upload(request.getArchiveDescription(),
+				partSize));
+		return new InitiateMultipartUploadResult().withUploadId(uploadId);
+	}
+
+	@Override
+	public UploadMultipartPartResult uploadMultipartPart(
+			UploadMultipartPartRequest request) {
+		byte[] data = read(request);
+		String[] range = request.getRange().replace("bytes ", "")
+				.replace("/*", "").split("-");
+		long start = Long.parseLong(range[0]);
+		long end = Long.parseLong(range[1]);
+		String checksum = TreeHashGenerator
+				.calculateTreeHash(new ByteArrayInputStream(data));
+		synchronized (this) {
+			Upload upload = getUpload(request.getUploadId());
+			Integer failures = failuresByPartStart.get(start);
+			if (failures != null && failures > 0) {
+				failuresByPartStart.put(start, failures - 1);
+				throw new AmazonClientException("Failed part starting at " + start);
+			}
+			if (start % upload.partSize != 0 || data.length != end - start + 1
+					|| data.length > upload.partSize)
+				throw new AmazonServiceException("Invalid range: "
+						+ request.getRange());
+			if (!checksum.equals(request.getChecksum()))
+				throw new AmazonServiceException("Checksum mismatch. Expected "
+						+ checksum + ", got " + request.getChecksum());
+			upload.parts.put(start, data);
+			upload.checksums.put(start, checksum);
+			uploadedParts++;
+		}
+		return new UploadMultipartPartResult().withChecksum(checksum);
+	}
+
+	private static byte[] read(UploadMultipartPartRequest request) {
+		try {
+			return IOUtils.toByteArray(request.getBody());
+		} catch (IOException e) {
+			throw new AmazonClientException("Could not read part", e);
+		}
+	}
+
+	@Override
+	public synchronized ListPartsResult listParts(ListPartsRequest request) {
+		Upload upload = getUpload(request.getUploadId());
+		long marker = request.getMarker() == null ? 0 : Long.parseLong(request
+				.getMarker());
+		List<PartListElement> parts = new ArrayList<PartListElement>();
+		String nextMarker = null;
+		for (Entry<Long, byte[]> part : upload.parts.tailMap(marker).entrySet()) {
+			if (parts.size() == PARTS_PER_LISTING) {
+				nextMarker = "" + part.getKey();
+				break;
+			}
+			long start = part.getKey();
+			parts.add(new PartListElement().withRangeInBytes(
+					start + "-" + (start + part.getValue().length - 1))
+					.withSHA256TreeHash(upload.checksums.get(start)));
+		}
+		return new ListPartsResult().withParts(parts).withMarker(nextMarker);
+	}
+
+	@Override
+	public synchronized CompleteMultipartUploadResult completeMultipartUpload(
+			CompleteMultipartUploadRequest request) {
+		Upload upload = getUpload(request.getUploadId());
+		ByteArrayOutputStream archive = new ByteArrayOutputStream();
+		long expectedStart = 0;
+		for (Entry<Long, byte[]> part : upload.parts.entrySet()) {
+			if (part.getKey() != expectedStart)
+				throw new AmazonServiceException("Missing part at " + expectedStart);
+			archive.write(part.getValue(), 0, part.getValue().length);
+			expectedStart += part.getValue().length;
+		}
+		byte[] data = archive.toByteArray();
+		if (data.length != Long.parseLong(request.getArchiveSize()))
+			throw new AmazonServiceException("Archive size mismatch");
+		String checksum = TreeHashGenerator
+				.calculateTreeHash(new ByteArrayInputStream(data));
+		if (!checksum.equals(request.getChecksum()))
+			throw new AmazonServiceException("Archive checksum mismatch. Expected "
+					+ checksum + ", got " + request.getChecksum());
+		String archiveId = UUID.randomUUID().toString();
+		archives.put(archiveId, data);
+		descriptions.put(archiveId, upload.description);
+		uploads.remove(request.getUploadId());
+		return new CompleteMultipartUploadResult().withArchiveId(archiveId)
+				.withChecksum(checksum);
+	}
+
+	@Override
+	public synchronized void abortMultipartUpload(
+			AbortMultipartUploadRequest request) {
+		getUpload(request.getUploadId());
+		uploads.remove(request.getUploadId());
+	}
+
+	private Upload getUpload(String uploadId) {
+		Upload upload = uploads.get(uploadId);
+		if (upload == null)
+			throw new ResourceNotFoundException("No upload with id: " + uploadId);
+		return upload;
+	}
+}
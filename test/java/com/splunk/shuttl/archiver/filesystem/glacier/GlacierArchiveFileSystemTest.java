@@ -15,11 +15,17 @@
 package com.splunk.shuttl.archiver.filesystem.glacier;
 
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
 
 import org.apache.log4j.Logger;
 import org.mockito.InOrder;
@@ -48,6 +54,7 @@ public class GlacierArchiveFileSystemTest {
 	private Logger logger;
 	private BucketDeleter bucketDeleter;
 	private GlacierArchiveIdStore glacierArchiveIdStore;
+	private GlacierRetrievalScheduler retrievalScheduler;
 
 	@BeforeMethod
 	public void setUp() {
@@ -56,6 +63,7 @@ public class GlacierArchiveFileSystemTest {
 		logger = mock(Logger.class);
 		bucketDeleter = mock(BucketDeleter.class);
 		glacierArchiveIdStore = mock(GlacierArchiveIdStore.class);
+		retrievalScheduler = mock(GlacierRetrievalScheduler.class);
 		glacierBucketTransferer = new GlacierArchiveFileSystem(null, glacierClient,
 				tgzFormatExporter, logger, bucketDeleter, glacierArchiveIdStore)
 				.getBucketTransferer();
@@ -162,4 +170,50 @@ public class GlacierArchiveFileSystemTest {
 		glacierBucketTransferer.get(TUtilsBucket.createRemoteBucket(),
 				createDirectory(), mock(File.class));
 	}
+
+	public void prepareRetrievals_buckets_requestsRetrievalsWithTheirArchiveIds() {
+		Bucket indexed = TUtilsBucket.createBucket();
+		Bucket persisted = TUtilsBucket.createBucket();
+		Map<String, String> indexedIds = new HashMap<String, String>();
+		indexedIds.put(indexed.getPath(), "indexedId");
+		when(glacierClient.getArchiveIds(
+				asList(indexed.getPath(), persisted.getPath()))).thenReturn(
+				indexedIds);
+		when(glacierArchiveIdStore.getArchiveId(persisted)).thenReturn(
+				"persistedId");
+
+		newFileSystem().prepareRetrievals(
+				asList(indexed, persisted));
+		Map<String, String> expected = new HashMap<String, String>();
+		expected.put(indexed.getPath(), "indexedId");
+		expected.put(persisted.getPath(), "persistedId");
+		verify(retrievalScheduler).requestRetrievals(expected);
+		verify(glacierClient).putArchiveId(persisted.getPath(), "persistedId");
+	}
+
+	public void getBucket_bucketIsRetrieved_movesRetrievedArchiveToBucketFile()
+			throws Exception {
+		Bucket tgzBucket = TUtilsBucket.createTgzBucket();
+		File retrieved = createFile();
+		FileUtils.writeStringToFile(retrieved, "archive");
+		when(retrievalScheduler.hasRetrieval(tgzBucket.getPath())).thenReturn(
+				true);
+		when(retrievalScheduler.awaitDownload(tgzBucket.getPath())).thenReturn(
+				retrieved);
+
+		File temp = createDirectory();
+		newFileSystem().getBucketTransferer().get(tgzBucket,
+				temp, createDirectory());
+		File bucketFile = new File(temp, tgzBucket.getName()
+				+ BucketFormat.extensionOfFormat(tgzBucket.getFormat()));
+		assertEquals(FileUtils.readFileToString(bucketFile), "archive");
+		verify(glacierClient, never()).downloadArchiveToFile(anyString(),
+				any(File.class));
+	}
+
+	private GlacierArchiveFileSystem newFileSystem() {
+		return new GlacierArchiveFileSystem(null, glacierClient,
+				tgzFormatExporter, logger, bucketDeleter, glacierArchiveIdStore,
+				retrievalScheduler);
+	}
 }
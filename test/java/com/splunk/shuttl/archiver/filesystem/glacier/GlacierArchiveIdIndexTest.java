@@ -0,0 +1,126 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class GlacierArchiveIdIndexTest {
+
+	private File journal;
+	private GlacierArchiveIdIndex index;
+
+	@BeforeMethod
+	public void setUp() {
+		journal = new File(createDirectory(), "vault.archiveids");
+		index = new GlacierArchiveIdIndex(journal);
+	}
+
+	public void get_putArchiveId_getsArchiveId() {
+		index.put("/path", "id");
+		assertEquals(index.get("/path"), "id");
+	}
+
+	public void get_pathNotInIndex_null() {
+		assertNull(index.get("/path"));
+	}
+
+	public void get_archiveIdPutBeforeReopening_getsPersistedArchiveId() {
+		index.put("/path", "id");
+		assertEquals(new GlacierArchiveIdIndex(journal).get("/path"), "id");
+	}
+
+	public void get_journalWithPartlyWrittenLastLine_ignoresThatLine()
+			throws IOException {
+		index.put("/path", "id");
+		FileUtils.writeStringToFile(journal, "ARCHIVE\t/other", true);
+
+		GlacierArchiveIdIndex reopened = new GlacierArchiveIdIndex(journal);
+		assertEquals(reopened.get("/path"), "id");
+		assertNull(reopened.get("/other"));
+	}
+
+	public void getAll_somePathsInIndex_getsTheArchiveIdsOfThosePaths() {
+		index.put("/a", "idA");
+		index.put("/b", "idB");
+
+		Map<String, String> archiveIds = index.getAll(asList("/a", "/b", "/c"));
+		assertEquals(archiveIds.size(), 2);
+		assertEquals(archiveIds.get("/a"), "idA");
+		assertEquals(archiveIds.get("/b"), "idB");
+	}
+
+	public void reconcileWithInventory_pathUploadedTwice_usesNewestArchive()
+			throws IOException {
+		int added = index.reconcileWithInventory(inventory(
+				archive("old", "/path", "2012-09-01T10:00:00Z"),
+				archive("new", "/path", "2012-09-02T10:00:00Z")));
+
+		assertEquals(added, 1);
+		assertEquals(index.get("/path"), "new");
+	}
+
+	public void reconcileWithInventory_pathAlreadyInIndex_keepsArchiveIdInIndex()
+			throws IOException {
+		index.put("/path", "uploaded");
+		int added = index.reconcileWithInventory(inventory(archive("inventoried",
+				"/path", "2012-09-01T10:00:00Z")));
+
+		assertEquals(added, 0);
+		assertEquals(index.get("/path"), "uploaded");
+	}
+
+	public void reconcileWithInventory_archives_arePersisted() throws IOException {
+		index.reconcileWithInventory(inventory(archive("id", "/path",
+				"2012-09-01T10:00:00Z")));
+		assertEquals(new GlacierArchiveIdIndex(journal).get("/path"), "id");
+	}
+
+	public void reconcileWithInventory_archiveWithoutDescription_isIgnored()
+			throws IOException {
+		int added = index.reconcileWithInventory(inventory(archive("id", "",
+				"2012-09-01T10:00:00Z")));
+		assertEquals(added, 0);
+		assertEquals(index.size(), 0);
+	}
+
+	private static String archive(String archiveId, String description,
+			String creationDate) {
+		return "{\"ArchiveId\":\"" + archiveId + "\",\"ArchiveDescription\":\""
+				+ description + "\",\"CreationDate\":\"" + creationDate
+				+ "\",\"Size\":1024,\"SHA256TreeHash\":\"abc\"}";
+	}
+
+	private static ByteArrayInputStream inventory(String... archives)
+			throws IOException {
+		StringBuilder json = new StringBuilder("{\"VaultARN\":\"arn\","
+				+ "\"InventoryDate\":\"2012-09-03T00:00:00Z\",\"ArchiveList\":[");
+		for (int i = 0; i < archives.length; i++)
+			json.append(i == 0 ? "" : ",").append(archives[i]);
+		json.append("]}");
+		return new ByteArrayInputStream(json.toString().getBytes("UTF-8"));
+	}
+}
@@ -15,11 +15,12 @@
 package com.splunk.shuttl.archiver.filesystem.glacier;
 
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -49,8 +50,7 @@ public class GlacierClientTest {
 	}
 
 	public void upload_givenPath_canGetArchiveIdWithPath()
-			throws AmazonServiceException, AmazonClientException,
-			FileNotFoundException {
+			throws AmazonServiceException, AmazonClientException, IOException {
 		File file = createFile();
 		String dst = "/path/dst";
 		UploadResult uploadResult = mock(UploadResult.class);
@@ -68,6 +68,39 @@ public class GlacierClientTest {
 		glacierClient.getArchiveId("/path/doesNotExist");
 	}
 
+	public void getArchiveId_doesNotContainPath_tellsHowToReconcileWithInventory() {
+		try {
+			glacierClient.getArchiveId("/path/doesNotExist");
+			fail();
+		} catch (GlacierArchiveIdDoesNotExist e) {
+			assertTrue(e.getMessage().contains(
+					"/shuttl/rest/archiver/glacier/inventory"), e.getMessage());
+		}
+	}
+
+	public void upload_withMultipartUploader_uploadsWithMultipartUploader()
+			throws IOException {
+		GlacierMultipartUploader uploader = mock(GlacierMultipartUploader.class);
+		File file = createFile();
+		when(uploader.upload(file, "/path")).thenReturn("archiveId");
+		GlacierClient client = new GlacierClient(transferManager, vault,
+				GlacierArchiveIdIndex.createInMemory(archiveIds), null,
+				uploader);
+
+		client.upload(file, "/path");
+		assertEquals(client.getArchiveId("/path"), "archiveId");
+		verifyZeroInteractions(transferManager);
+	}
+
+	public void getArchiveIds_somePathsHaveArchiveIds_getsThoseArchiveIds() {
+		glacierClient.putArchiveId("/a", "idA");
+
+		Map<String, String> found = glacierClient.getArchiveIds(asList("/a",
+				"/b"));
+		assertEquals(found.size(), 1);
+		assertEquals(found.get("/a"), "idA");
+	}
+
 	public void download_givenArchiveIdWithKey_downloadsArchiveToFile() {
 		String path = "/some/key/";
 		String archiveId = "archiveId";
@@ -0,0 +1,141 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoints;
+
+@Test(groups = { "fast-unit" })
+public class GlacierMultipartUploaderTest {
+
+	private static final int PART_SIZE = GlacierTreeHash.CHUNK_SIZE;
+
+	private FakeAmazonGlacier glacier;
+	private ExecutorService executor;
+	private TransferCheckpoints transferCheckpoints;
+	private File file;
+	private byte[] data;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		glacier = new FakeAmazonGlacier();
+		executor = Executors.newFixedThreadPool(3);
+		transferCheckpoints = new TransferCheckpoints(createDirectory());
+		data = new byte[3 * PART_SIZE + 100];
+		new Random(0).nextBytes(data);
+		file = createFile();
+		FileUtils.writeByteArrayToFile(file, data);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private GlacierMultipartUploader newUploader(int partRetries) {
+		return new GlacierMultipartUploader(glacier, "vault", executor,
+				PART_SIZE, partRetries, transferCheckpoints);
+	}
+
+	public void upload_fileOfSeveralParts_archivesFileWithDescription()
+			throws IOException {
+		String archiveId = newUploader(0).upload(file, "/path");
+
+		assertEquals(glacier.getArchive(archiveId), data);
+		assertEquals(glacier.getDescription(archiveId), "/path");
+		assertEquals(glacier.getUploadedPartCount(), 4);
+	}
+
+	public void upload_fileSmallerThanOnePart_archivesFile() throws IOException {
+		FileUtils.writeByteArrayToFile(file, new byte[] { 1, 2, 3 });
+		String archiveId = newUploader(0).upload(file, "/path");
+		assertEquals(glacier.getArchive(archiveId), new byte[] { 1, 2, 3 });
+	}
+
+	public void upload_partFailsFewerTimesThanRetries_archivesFile()
+			throws IOException {
+		glacier.failPartUploads(PART_SIZE, 2);
+		String archiveId = newUploader(2).upload(file, "/path");
+		assertEquals(glacier.getArchive(archiveId), data);
+	}
+
+	public void upload_partFailedInEarlierUpload_resumesUploadWithOnlyTheFailedPart()
+			throws IOException {
+		glacier.failPartUploads(2 * PART_SIZE, 1);
+		try {
+			newUploader(0).upload(file, "/path");
+			fail("Upload should fail");
+		} catch (IOException e) {
+		}
+		assertEquals(glacier.getUploadCount(), 1);
+
+		String archiveId = newUploader(0).upload(file, "/path");
+		assertEquals(glacier.getArchive(archiveId), data);
+		assertEquals(glacier.getUploadedPartCount(), 4);
+	}
+
+	public void upload_fileChangedSinceFailedUpload_uploadsChangedParts()
+			throws IOException {
+		glacier.failPartUploads(2 * PART_SIZE, 1);
+		try {
+			newUploader(0).upload(file, "/path");
+			fail("Upload should fail");
+		} catch (IOException e) {
+		}
+		data[10] = (byte) (data[10] + 1);
+		FileUtils.writeByteArrayToFile(file, data);
+
+		String archiveId = newUploader(0).upload(file, "/path");
+		assertEquals(glacier.getArchive(archiveId), data);
+		assertEquals(glacier.getUploadedPartCount(), 5);
+	}
+
+	public void upload_failsWithoutCheckpoints_abortsUpload() {
+		glacier.failPartUploads(0, 1);
+		try {
+			new GlacierMultipartUploader(glacier, "vault", executor, PART_SIZE, 0,
+					null).upload(file, "/path");
+			fail("Upload should fail");
+		} catch (IOException e) {
+		}
+		assertEquals(glacier.getUploadCount(), 0);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void constructor_partSizeNotPowerOfTwoMegabytes_throws() {
+		new GlacierMultipartUploader(glacier, "vault", executor,
+				3 * PART_SIZE, 0, null);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void constructor_partSizeLargerThanMax_throws() {
+		new GlacierMultipartUploader(glacier, "vault", executor,
+				2L * GlacierUploadConfiguration.MAX_PART_SIZE_MB * 1024 * 1024, 0,
+				null);
+	}
+}
@@ -0,0 +1,244 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.amazonaws.services.glacier.model.ResourceNotFoundException;
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
+
+@Test(groups = { "fast-unit" })
+public class GlacierRetrievalSchedulerTest {
+
+	private GlacierClient glacierClient;
+	private File journal;
+	private File downloadDirectory;
+	private GlacierRetrievalScheduler scheduler;
+	private long now;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		glacierClient = mock(GlacierClient.class);
+		File directory = createDirectory();
+		journal = new File(directory, "vault.jobs");
+		downloadDirectory = new File(directory, "vault");
+		scheduler = newScheduler();
+
+		when(glacierClient.initiateArchiveRetrieval("archiveId")).thenReturn(
+				"jobId");
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				File file = (File) invocation.getArguments()[1];
+				FileUtils.writeStringToFile(file, "archive");
+				return null;
+			}
+		}).when(glacierClient).downloadJobOutputToFile(anyString(),
+				any(File.class));
+	}
+
+	private GlacierRetrievalScheduler newScheduler() {
+		return new GlacierRetrievalScheduler(glacierClient, journal,
+				downloadDirectory, new CallingThreadExecutor(), 1000) {
+			@Override
+			protected long currentTimeMillis() {
+				return now;
+			}
+		};
+	}
+
+	private static Map<String, String> archive(String path, String archiveId) {
+		Map<String, String> archiveIds = new HashMap<String, String>();
+		archiveIds.put(path, archiveId);
+		return archiveIds;
+	}
+
+	public void requestRetrievals_archive_initiatesRetrievalJob() {
+		assertEquals(scheduler.requestRetrievals(archive("/path", "archiveId")), 1);
+		verify(glacierClient).initiateArchiveRetrieval("archiveId");
+		assertTrue(scheduler.hasRetrieval("/path"));
+	}
+
+	public void requestRetrievals_archiveAlreadyRequested_doesNotInitiateAnotherJob() {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		assertEquals(scheduler.requestRetrievals(archive("/path", "archiveId")), 0);
+		verify(glacierClient, times(1)).initiateArchiveRetrieval("archiveId");
+	}
+
+	public void requestRetrievals_initiatingJobFails_hasNoRetrievalForPath() {
+		when(glacierClient.initiateArchiveRetrieval("archiveId")).thenThrow(
+				new RuntimeException());
+		assertEquals(scheduler.requestRetrievals(archive("/path", "archiveId")), 0);
+		assertFalse(scheduler.hasRetrieval("/path"));
+	}
+
+	public void awaitDownload_jobSucceededWhenPolled_getsDownloadedArchive()
+			throws Exception {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		when(glacierClient.getJobStatusCode("jobId")).thenReturn("Succeeded");
+		scheduler.pollJobs();
+
+		File downloaded = scheduler.awaitDownload("/path");
+		assertEquals(FileUtils.readFileToString(downloaded), "archive");
+		assertFalse(scheduler.hasRetrieval("/path"));
+	}
+
+	public void pollJobs_jobInProgress_doesNotDownload() throws IOException {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		when(glacierClient.getJobStatusCode("jobId")).thenReturn("InProgress");
+		scheduler.pollJobs();
+
+		verify(glacierClient, never()).downloadJobOutputToFile(anyString(),
+				any(File.class));
+		assertTrue(scheduler.hasRetrieval("/path"));
+	}
+
+	public void jobCompleted_jobOfRetrieval_downloadsWithoutPolling()
+			throws Exception {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		scheduler.jobCompleted("jobId");
+
+		verify(glacierClient, never()).getJobStatusCode(anyString());
+		assertEquals(FileUtils.readFileToString(scheduler.awaitDownload("/path")),
+				"archive");
+	}
+
+	@Test(expectedExceptions = { GlacierThawingException.class })
+	public void awaitDownload_jobFailed_throws() throws InterruptedException {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		when(glacierClient.getJobStatusCode("jobId")).thenReturn("Failed");
+		scheduler.pollJobs();
+		scheduler.awaitDownload("/path");
+	}
+
+	@Test(expectedExceptions = { GlacierThawingException.class })
+	public void awaitDownload_jobExpired_throws() throws InterruptedException {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		when(glacierClient.getJobStatusCode("jobId")).thenThrow(
+				new ResourceNotFoundException("expired"));
+		scheduler.pollJobs();
+		scheduler.awaitDownload("/path");
+	}
+
+	@Test(expectedExceptions = { GlacierThawingException.class })
+	public void awaitDownload_downloadFails_throws() throws Exception {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		doThrow(new IOException()).when(glacierClient).downloadJobOutputToFile(
+				anyString(), any(File.class));
+		scheduler.jobCompleted("jobId");
+		scheduler.awaitDownload("/path");
+	}
+
+	public void hasRetrieval_jobRequestedBeforeRestart_isStillRetrieved()
+			throws Exception {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+
+		GlacierRetrievalScheduler restarted = newScheduler();
+		assertTrue(restarted.hasRetrieval("/path"));
+		restarted.jobCompleted("jobId");
+		assertEquals(FileUtils.readFileToString(restarted.awaitDownload("/path")),
+				"archive");
+	}
+
+	public void hasRetrieval_retrievalDownloadedBeforeRestart_isDone()
+			throws Exception {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		scheduler.jobCompleted("jobId");
+		scheduler.awaitDownload("/path");
+
+		assertFalse(newScheduler().hasRetrieval("/path"));
+	}
+
+	public void awaitDownload_downloadedBeforeRestart_getsDownloadWithoutDownloadingAgain()
+			throws Exception {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		scheduler.jobCompleted("jobId");
+
+		GlacierRetrievalScheduler restarted = newScheduler();
+		assertEquals(FileUtils.readFileToString(restarted.awaitDownload("/path")),
+				"archive");
+		verify(glacierClient, times(1)).downloadJobOutputToFile(anyString(),
+				any(File.class));
+	}
+
+	public void hasRetrieval_downloadDeletedBeforeRestart_isDownloadedAgain()
+			throws Exception {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		scheduler.jobCompleted("jobId");
+		FileUtils.cleanDirectory(downloadDirectory);
+
+		GlacierRetrievalScheduler restarted = newScheduler();
+		restarted.jobCompleted("jobId");
+		assertEquals(FileUtils.readFileToString(restarted.awaitDownload("/path")),
+				"archive");
+		verify(glacierClient, times(2)).downloadJobOutputToFile(anyString(),
+				any(File.class));
+	}
+
+	public void pollJobs_downloadNotAwaitedBeforeExpiry_forgetsRetrievalAndDeletesDownload() {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		scheduler.jobCompleted("jobId");
+		now += 1001;
+		scheduler.pollJobs();
+
+		assertFalse(scheduler.hasRetrieval("/path"));
+		assertEquals(downloadDirectory.listFiles().length, 0);
+		assertFalse(newScheduler().hasRetrieval("/path"));
+	}
+
+	public void pollJobs_downloadWithinExpiry_keepsRetrieval() {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		scheduler.jobCompleted("jobId");
+		now += 1000;
+		scheduler.pollJobs();
+
+		assertTrue(scheduler.hasRetrieval("/path"));
+	}
+
+	public void pollJobs_failedRetrievalNotAwaitedBeforeExpiry_forgetsRetrieval() {
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+		when(glacierClient.getJobStatusCode("jobId")).thenReturn("Failed");
+		scheduler.pollJobs();
+		now += 1001;
+		scheduler.pollJobs();
+
+		assertFalse(scheduler.hasRetrieval("/path"));
+	}
+
+	public void create_fileInDownloadDirectoryWithoutRetrieval_deletesIt()
+			throws IOException {
+		File stray = new File(downloadDirectory, "stray");
+		FileUtils.writeStringToFile(stray, "partly downloaded");
+		scheduler.requestRetrievals(archive("/path", "archiveId"));
+
+		newScheduler();
+		assertFalse(stray.exists());
+	}
+}
@@ -0,0 +1,82 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.amazonaws.services.glacier.TreeHashGenerator;
+
+@Test(groups = { "fast-unit" })
+public class GlacierTreeHashTest {
+
+	private static final int MB = GlacierTreeHash.CHUNK_SIZE;
+
+	private static byte[] randomBytes(int length) {
+		byte[] data = new byte[length];
+		new Random(length).nextBytes(data);
+		return data;
+	}
+
+	private static String sdkTreeHash(byte[] data) {
+		return TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(data));
+	}
+
+	private static String treeHash(byte[] data, int updateSize) {
+		GlacierTreeHash treeHash = new GlacierTreeHash();
+		for (int off = 0; off < data.length; off += updateSize)
+			treeHash.update(data, off, Math.min(updateSize, data.length - off));
+		return GlacierTreeHash.toHex(treeHash.digest());
+	}
+
+	public void digest_lessThanOneChunk_sameAsTheSdk() {
+		byte[] data = randomBytes(1000);
+		assertEquals(treeHash(data, 100), sdkTreeHash(data));
+	}
+
+	public void digest_oddNumberOfChunks_sameAsTheSdk() {
+		byte[] data = randomBytes(3 * MB + 17);
+		assertEquals(treeHash(data, 64 * 1024 + 3), sdkTreeHash(data));
+	}
+
+	public void digest_exactlyTwoChunks_sameAsTheSdk() {
+		byte[] data = randomBytes(2 * MB);
+		assertEquals(treeHash(data, MB), sdkTreeHash(data));
+	}
+
+	public void combine_treeHashesOfPowerOfTwoParts_sameAsTreeHashOfAllData() {
+		byte[] data = randomBytes(5 * MB + 1);
+		GlacierTreeHash first = new GlacierTreeHash();
+		first.update(data, 0, 2 * MB);
+		GlacierTreeHash second = new GlacierTreeHash();
+		second.update(data, 2 * MB, 2 * MB);
+		GlacierTreeHash last = new GlacierTreeHash();
+		last.update(data, 4 * MB, MB + 1);
+
+		byte[] combined = GlacierTreeHash.combine(asList(first.digest(),
+				second.digest(), last.digest()));
+		assertEquals(GlacierTreeHash.toHex(combined), sdkTreeHash(data));
+	}
+
+	public void fromHex_toHex_getsSameBytes() {
+		byte[] hash = randomBytes(32);
+		assertEquals(GlacierTreeHash.fromHex(GlacierTreeHash.toHex(hash)), hash);
+	}
+}
@@ -0,0 +1,64 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class GlacierUploadConfigurationTest {
+
+	private static final long MB = 1024 * 1024;
+	private static final long GB = 1024 * MB;
+
+	public void createWithPropertyFile_partSizeConfigured_partSizeInBytes() {
+		File properties = createFile();
+		writeKeyValueProperties(properties, "glacier.upload.part.size.mb=8",
+				"glacier.upload.threads=2");
+		GlacierUploadConfiguration config = GlacierUploadConfiguration
+				.createWithPropertyFile(properties);
+		assertEquals(config.getPartSize(), 8 * MB);
+		assertEquals(config.getThreads(), 2);
+	}
+
+	public void constructor_partSizeAboveMax_max() {
+		GlacierUploadConfiguration config = new GlacierUploadConfiguration(4096,
+				1, 0, 64 * GB);
+		assertEquals(config.getPartSize(),
+				GlacierUploadConfiguration.MAX_PART_SIZE_MB * MB);
+	}
+
+	public void constructor_partsOfAllThreadsDoNotFitInHalfTheHeap_halvesPartSize() {
+		GlacierUploadConfiguration config = new GlacierUploadConfiguration(256,
+				4, 0, 1 * GB);
+		assertEquals(config.getPartSize(), 128 * MB);
+	}
+
+	public void constructor_partsFitInHalfTheHeap_keepsPartSize() {
+		GlacierUploadConfiguration config = new GlacierUploadConfiguration(128,
+				4, 0, 1 * GB);
+		assertEquals(config.getPartSize(), 128 * MB);
+	}
+
+	public void constructor_tinyHeap_atLeastOneMegabyte() {
+		GlacierUploadConfiguration config = new GlacierUploadConfiguration(16, 4,
+				0, MB);
+		assertEquals(config.getPartSize(), MB);
+	}
+}
@@ -19,7 +19,9 @@ import static org.testng.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
@@ -44,4 +46,14 @@ public class HadoopArchiveFileSystemFactoryTest {
 		assertEquals(hadoopPort, "" + fs.getUri().getPort());
 	}
 
+	@Test(groups = { "fast-unit" })
+	public void newFileSystem_closed_doesNotCloseHadoopsCachedFileSystem()
+			throws IOException {
+		URI uri = URI.create("file:/");
+		FileSystem cached = FileSystem.get(uri, new Configuration());
+		FileSystem fileSystem = HadoopArchiveFileSystemFactory.newFileSystem(uri);
+		assertNotSame(fileSystem, cached);
+		fileSystem.close();
+		assertSame(FileSystem.get(uri, new Configuration()), cached);
+	}
 }
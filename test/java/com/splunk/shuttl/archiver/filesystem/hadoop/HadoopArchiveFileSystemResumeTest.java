@@ -0,0 +1,111 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.hadoop;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoint;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoints;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+import com.splunk.shuttl.testutil.TUtilsFileSystem;
+
+@Test(groups = { "fast-unit" })
+public class HadoopArchiveFileSystemResumeTest {
+
+	private FileSystem fileSystem;
+	private TransferCheckpoints checkpoints;
+	private HadoopArchiveFileSystem hadoopArchiveFileSystem;
+	private File temp;
+	private File dst;
+
+	@BeforeMethod
+	public void setUp() {
+		fileSystem = TUtilsFileSystem.getLocalFileSystem();
+		checkpoints = new TransferCheckpoints(createDirectory());
+		hadoopArchiveFileSystem = new HadoopArchiveFileSystem(fileSystem,
+				checkpoints);
+		temp = createFilePath();
+		dst = createFilePath();
+	}
+
+	private TransferCheckpoint getCheckpoint() {
+		return checkpoints.getCheckpoint(new Path(temp.getAbsolutePath())
+				.toString());
+	}
+
+	public void putBucket_checkpointedFileAlreadyAtTemp_isNotPutAgain()
+			throws IOException {
+		LocalBucket bucket = TUtilsBucket.createBucket();
+		File checkpointed = createFileInParent(bucket.getDirectory(),
+				"checkpointed");
+		File alreadyPut = new File(temp, checkpointed.getName());
+		FileUtils.writeStringToFile(alreadyPut, "put earlier");
+		FileUtils.writeStringToFile(checkpointed, "same length");
+		getCheckpoint().put("/" + checkpointed.getName(),
+				checkpointed.length() + ":" + checkpointed.lastModified());
+
+		hadoopArchiveFileSystem.getBucketTransferer().put(bucket,
+				temp.getAbsolutePath(), dst.getAbsolutePath());
+
+		assertEquals(FileUtils.readFileToString(alreadyPut), "put earlier");
+		for (File file : bucket.getDirectory().listFiles())
+			assertTrue(new File(temp, file.getName()).exists());
+	}
+
+	public void putBucket_noCheckpoint_putsEverythingAndRecordsTheFiles()
+			throws IOException {
+		LocalBucket bucket = TUtilsBucket.createBucket();
+		File leftover = new File(temp, "leftover");
+		FileUtils.writeStringToFile(leftover, "from an unrelated attempt");
+
+		hadoopArchiveFileSystem.getBucketTransferer().put(bucket,
+				temp.getAbsolutePath(), dst.getAbsolutePath());
+
+		assertFalse(leftover.exists());
+		assertFalse(getCheckpoint().isEmpty());
+	}
+
+	public void cleanTransaction_tempWithCheckpoint_keepsTempForResuming()
+			throws IOException {
+		FileUtils.writeStringToFile(new File(temp, "file"), "data");
+		getCheckpoint().put("/file", "4:0");
+
+		hadoopArchiveFileSystem.getBucketTransactionCleaner().cleanTransaction(
+				null, temp.getAbsolutePath());
+
+		assertTrue(temp.exists());
+	}
+
+	public void cleanTransaction_tempCommitted_deletesCheckpoint()
+			throws IOException {
+		getCheckpoint().put("/file", "4:0");
+
+		hadoopArchiveFileSystem.getBucketTransactionCleaner().cleanTransaction(
+				null, temp.getAbsolutePath());
+
+		assertTrue(getCheckpoint().isEmpty());
+	}
+}
@@ -0,0 +1,357 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.s3;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.io.MD5Hash;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransferCheckpoints;
+
+@Test(groups = { "fast-unit" })
+public class S3MultipartUploaderTest {
+
+	private static final long PART_SIZE = 10;
+	private static final int PART_RETRIES = 2;
+
+	private AmazonS3 s3;
+	private ExecutorService executor;
+	private S3MultipartUploader uploader;
+	private Map<Integer, byte[]> uploadedParts;
+	private byte[] completedObject;
+
+	@BeforeMethod
+	public void setUp() {
+		s3 = mock(AmazonS3.class);
+		executor = Executors.newFixedThreadPool(3);
+		uploader = new S3MultipartUploader(s3, "bucket", executor, PART_SIZE,
+				PART_RETRIES);
+		uploadedParts = new ConcurrentHashMap<Integer, byte[]>();
+		completedObject = null;
+		standInForS3();
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Keeps the uploaded parts in memory and puts them together on complete,
+	 * like S3 would.
+	 */
+	private void standInForS3() {
+		InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+		initiated.setUploadId("uploadId");
+		when(
+				s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+				.thenReturn(initiated);
+		when(s3.uploadPart(any(UploadPartRequest.class))).thenAnswer(
+				new Answer<UploadPartResult>() {
+					@Override
+					public UploadPartResult answer(InvocationOnMock invocation)
+							throws IOException {
+						return storePart((UploadPartRequest) invocation.getArguments()[0]);
+					}
+				});
+		when(
+				s3.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+				.thenAnswer(new Answer<Object>() {
+					@Override
+					public Object answer(InvocationOnMock invocation) {
+						completeUpload((CompleteMultipartUploadRequest) invocation
+								.getArguments()[0]);
+						return null;
+					}
+				});
+		when(s3.listParts(any(ListPartsRequest.class))).thenAnswer(
+				new Answer<PartListing>() {
+					@Override
+					public PartListing answer(InvocationOnMock invocation) {
+						return listParts();
+					}
+				});
+	}
+
+	private PartListing listParts() {
+		List<PartSummary> parts = new ArrayList<PartSummary>();
+		for (Entry<Integer, byte[]> uploaded : new TreeMap<Integer, byte[]>(
+				uploadedParts).entrySet()) {
+			PartSummary part = new PartSummary();
+			part.setPartNumber(uploaded.getKey());
+			part.setSize(uploaded.getValue().length);
+			part.setETag("\"" + MD5Hash.digest(uploaded.getValue()) + "\"");
+			parts.add(part);
+		}
+		PartListing listing = new PartListing();
+		listing.setParts(parts);
+		return listing;
+	}
+
+	private UploadPartResult storePart(UploadPartRequest request)
+			throws IOException {
+		byte[] part = new byte[(int) request.getPartSize()];
+		RandomAccessFile file = new RandomAccessFile(request.getFile(), "r");
+		try {
+			file.seek(request.getFileOffset());
+			file.readFully(part);
+		} finally {
+			file.close();
+		}
+		String eTag = "\"" + MD5Hash.digest(part) + "\"";
+		uploadedParts.put(request.getPartNumber(), part);
+		UploadPartResult result = new UploadPartResult();
+		result.setPartNumber(request.getPartNumber());
+		result.setETag(eTag);
+		return result;
+	}
+
+	private void completeUpload(CompleteMultipartUploadRequest request) {
+		ByteArrayOutputStream object = new ByteArrayOutputStream();
+		List<PartETag> partETags = request.getPartETags();
+		for (int i = 0; i < partETags.size(); i++) {
+			assertEquals(partETags.get(i).getPartNumber(), i + 1);
+			byte[] part = uploadedParts.get(i + 1);
+			assertEquals(partETags.get(i).getETag(), "\"" + MD5Hash.digest(part)
+					+ "\"");
+			object.write(part, 0, part.length);
+		}
+		completedObject = object.toByteArray();
+	}
+
+	private File createFileWithBytes(int length) throws IOException {
+		File file = createFile();
+		FileUtils.writeByteArrayToFile(file, createBytes(length));
+		return file;
+	}
+
+	private static byte[] createBytes(int length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++)
+			data[i] = (byte) i;
+		return data;
+	}
+
+	public void upload_fileFitsInOnePart_putsTheFileOnce() throws IOException {
+		File file = createFileWithBytes((int) PART_SIZE);
+		uploader.upload(file, "key");
+		verify(s3).putObject("bucket", "key", file);
+		verify(s3, never()).initiateMultipartUpload(
+				any(InitiateMultipartUploadRequest.class));
+	}
+
+	public void upload_fileLargerThanPart_partsPutTogetherAreTheFile()
+			throws IOException {
+		File file = createFileWithBytes(35);
+		uploader.upload(file, "key");
+		verify(s3, times(4)).uploadPart(any(UploadPartRequest.class));
+		assertEquals(completedObject, FileUtils.readFileToByteArray(file));
+	}
+
+	public void upload_partFailsOnce_retriesOnlyThatPart() throws IOException {
+		final AtomicInteger failures = new AtomicInteger();
+		doAnswer(new Answer<UploadPartResult>() {
+				@Override
+				public UploadPartResult answer(InvocationOnMock invocation)
+						throws IOException {
+					UploadPartRequest request = (UploadPartRequest) invocation
+							.getArguments()[0];
+					if (request.getPartNumber() == 2 && failures.getAndIncrement() == 0)
+						throw new AmazonClientException("connection reset");
+					return storePart(request);
+				}
+			}).when(s3).uploadPart(any(UploadPartRequest.class));
+		File file = createFileWithBytes(35);
+		uploader.upload(file, "key");
+		verify(s3, times(5)).uploadPart(any(UploadPartRequest.class));
+		assertEquals(completedObject, FileUtils.readFileToByteArray(file));
+	}
+
+	public void upload_partFailsMoreThanRetries_abortsAndThrowsIOException()
+			throws IOException {
+		doThrow(new AmazonClientException("down")).when(s3).uploadPart(
+				any(UploadPartRequest.class));
+		try {
+			uploader.upload(createFileWithBytes(35), "key");
+			fail();
+		} catch (IOException e) {
+		}
+		verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+		verify(s3, never()).completeMultipartUpload(
+				any(CompleteMultipartUploadRequest.class));
+	}
+
+	public void upload_withCheckpointsAfterFailedUpload_keepsUploadAndUploadsOnlyMissingParts()
+			throws IOException {
+		uploader = new S3MultipartUploader(s3, "bucket", executor, PART_SIZE,
+				PART_RETRIES, new TransferCheckpoints(createDirectory()));
+		File file = createFileWithBytes(35);
+		doAnswer(new Answer<UploadPartResult>() {
+			@Override
+			public UploadPartResult answer(InvocationOnMock invocation)
+					throws IOException {
+				UploadPartRequest request = (UploadPartRequest) invocation
+						.getArguments()[0];
+				if (request.getPartNumber() == 3)
+					throw new AmazonClientException("down");
+				return storePart(request);
+			}
+		}).when(s3).uploadPart(any(UploadPartRequest.class));
+		try {
+			uploader.upload(file, "key");
+			fail();
+		} catch (IOException e) {
+		}
+		verify(s3, never()).abortMultipartUpload(
+				any(AbortMultipartUploadRequest.class));
+		Set<Integer> missingParts = new HashSet<Integer>(asList(1, 2, 3, 4));
+		missingParts.removeAll(uploadedParts.keySet());
+
+		reset(s3);
+		standInForS3();
+		uploader.upload(file, "key");
+
+		verify(s3, never()).initiateMultipartUpload(
+				any(InitiateMultipartUploadRequest.class));
+		ArgumentCaptor<UploadPartRequest> resumed = ArgumentCaptor
+				.forClass(UploadPartRequest.class);
+		verify(s3, atLeastOnce()).uploadPart(resumed.capture());
+		Set<Integer> resumedParts = new HashSet<Integer>();
+		for (UploadPartRequest request : resumed.getAllValues())
+			resumedParts.add(request.getPartNumber());
+		assertTrue(missingParts.contains(3));
+		assertEquals(resumedParts, missingParts);
+		assertEquals(completedObject, FileUtils.readFileToByteArray(file));
+	}
+
+	public void getPartSize_fileNeedsMoreThanMaxParts_raisesPartSizeToFitMaxParts() {
+		long fileLength = PART_SIZE * S3MultipartUploader.MAX_PARTS + 1;
+		long partSize = uploader.getPartSize(fileLength);
+		assertTrue(partSize > PART_SIZE);
+		long parts = (fileLength + partSize - 1) / partSize;
+		assertTrue(parts <= S3MultipartUploader.MAX_PARTS);
+	}
+
+	public void getPartSize_fileFitsInMaxParts_configuredPartSize() {
+		assertEquals(uploader.getPartSize(PART_SIZE
+				* S3MultipartUploader.MAX_PARTS), PART_SIZE);
+	}
+
+	public void getStreamedPartSize_afterSizeStep_growsByPartSize() {
+		int step = S3MultipartUploader.STREAMED_PARTS_PER_SIZE_STEP;
+		assertEquals(uploader.getStreamedPartSize(1), PART_SIZE);
+		assertEquals(uploader.getStreamedPartSize(step), PART_SIZE);
+		assertEquals(uploader.getStreamedPartSize(step + 1), 2 * PART_SIZE);
+	}
+
+	public void openOutputStream_writtenMoreThanPart_partsPutTogetherAreTheData()
+			throws IOException {
+		File stagingDirectory = createDirectory();
+		byte[] data = createBytes(35);
+		OutputStream out = uploader.openOutputStream("key", stagingDirectory, 1);
+		out.write(data, 0, 12);
+		out.write(data, 12, 23);
+		out.close();
+
+		verify(s3, times(4)).uploadPart(any(UploadPartRequest.class));
+		assertEquals(completedObject, data);
+		assertEquals(stagingDirectory.list().length, 0);
+	}
+
+	public void openOutputStream_writtenLessThanPart_putsTheDataOnce()
+			throws IOException {
+		final List<byte[]> putObjects = new ArrayList<byte[]>();
+		when(s3.putObject(eq("bucket"), eq("key"), any(File.class))).thenAnswer(
+				new Answer<PutObjectResult>() {
+					@Override
+					public PutObjectResult answer(InvocationOnMock invocation)
+							throws IOException {
+						putObjects.add(FileUtils
+								.readFileToByteArray((File) invocation.getArguments()[2]));
+						return null;
+					}
+				});
+		File stagingDirectory = createDirectory();
+		OutputStream out = uploader.openOutputStream("key", stagingDirectory, 1);
+		out.write(createBytes(3));
+		out.close();
+
+		assertEquals(putObjects.size(), 1);
+		assertEquals(putObjects.get(0), createBytes(3));
+		verify(s3, never()).initiateMultipartUpload(
+				any(InitiateMultipartUploadRequest.class));
+		assertEquals(stagingDirectory.list().length, 0);
+	}
+
+	public void openOutputStream_partFails_abortsAndThrowsIOException()
+			throws IOException {
+		doThrow(new AmazonClientException("down")).when(s3).uploadPart(
+				any(UploadPartRequest.class));
+		File stagingDirectory = createDirectory();
+		OutputStream out = uploader.openOutputStream("key", stagingDirectory, 1);
+		try {
+			out.write(createBytes(35));
+			out.close();
+			fail();
+		} catch (IOException e) {
+			out.close();
+		}
+		verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+		verify(s3, never()).completeMultipartUpload(
+				any(CompleteMultipartUploadRequest.class));
+		assertEquals(stagingDirectory.list().length, 0);
+	}
+}
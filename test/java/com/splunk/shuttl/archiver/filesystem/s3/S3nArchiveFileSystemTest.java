@@ -0,0 +1,86 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.s3;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.testutil.TUtilsFileSystem;
+
+@Test(groups = { "fast-unit" })
+public class S3nArchiveFileSystemTest {
+
+	private FileSystem fileSystem;
+	private S3MultipartUploader uploader;
+	private S3nArchiveFileSystem s3n;
+
+	@BeforeMethod
+	public void setUp() {
+		fileSystem = TUtilsFileSystem.getLocalFileSystem();
+		uploader = mock(S3MultipartUploader.class);
+		s3n = new S3nArchiveFileSystem(fileSystem, uploader);
+	}
+
+	public void putFile_givenDirectory_uploadsEveryFileToItsKeyUnderTemp()
+			throws IOException {
+		File dir = createDirectory();
+		File file = createFileInParent(dir, "file");
+		File nested = createFileInParent(createDirectoryInParent(dir, "sub"),
+				"nested");
+		File temp = createFilePath();
+
+		s3n.getFileTransferer().put(dir.getAbsolutePath(),
+				temp.getAbsolutePath(), createFilePath().getAbsolutePath());
+
+		String tempKey = temp.getAbsolutePath().substring(1);
+		verify(uploader).upload(file, tempKey + "/file");
+		verify(uploader).upload(nested, tempKey + "/sub/nested");
+	}
+
+	public void putFile_givenEmptyDirectory_makesTheDirectory()
+			throws IOException {
+		File emptyDir = createDirectoryInParent(createDirectory(), "empty");
+		File temp = createFilePath();
+
+		s3n.getFileTransferer().put(emptyDir.getAbsolutePath(),
+				temp.getAbsolutePath(), createFilePath().getAbsolutePath());
+
+		assertTrue(fileSystem.exists(new Path(temp.getAbsolutePath())));
+		verifyZeroInteractions(uploader);
+	}
+
+	public void openOutputStream_givenPath_streamsToKeyWithUploader()
+			throws IOException {
+		File stagingDirectory = createDirectory();
+		s3n = new S3nArchiveFileSystem(fileSystem, uploader, null, null,
+				stagingDirectory, 2);
+		OutputStream out = mock(OutputStream.class);
+		String path = createFilePath().getAbsolutePath();
+		when(uploader.openOutputStream(path.substring(1), stagingDirectory, 2))
+				.thenReturn(out);
+		assertSame(s3n.openOutputStream(path), out);
+	}
+}
@@ -0,0 +1,84 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+import static org.testng.Assert.*;
+
+import java.util.Calendar;
+
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class ThrottleScheduleTest {
+
+	private Calendar at(int hour, int minute) {
+		Calendar time = Calendar.getInstance();
+		time.set(Calendar.HOUR_OF_DAY, hour);
+		time.set(Calendar.MINUTE, minute);
+		return time;
+	}
+
+	public void parse_null_alwaysActive() {
+		ThrottleSchedule schedule = ThrottleSchedule.parse(null);
+		assertTrue(schedule.isAlways());
+		assertTrue(schedule.isActive(at(3, 0)));
+	}
+
+	public void parse_blank_alwaysActive() {
+		assertTrue(ThrottleSchedule.parse("  ").isAlways());
+	}
+
+	public void isActive_withinWindow_true() {
+		ThrottleSchedule schedule = ThrottleSchedule.parse("08:00-18:00");
+		assertTrue(schedule.isActive(at(8, 0)));
+		assertTrue(schedule.isActive(at(17, 59)));
+	}
+
+	public void isActive_outsideWindow_false() {
+		ThrottleSchedule schedule = ThrottleSchedule.parse("08:00-18:00");
+		assertFalse(schedule.isActive(at(7, 59)));
+		assertFalse(schedule.isActive(at(18, 0)));
+	}
+
+	public void isActive_windowPastMidnight_activeOnBothSides() {
+		ThrottleSchedule schedule = ThrottleSchedule.parse("22:00-02:00");
+		assertTrue(schedule.isActive(at(23, 30)));
+		assertTrue(schedule.isActive(at(1, 0)));
+		assertFalse(schedule.isActive(at(12, 0)));
+	}
+
+	public void isActive_severalWindows_activeInAny() {
+		ThrottleSchedule schedule = ThrottleSchedule
+				.parse("08:00-12:00, 13:00-24:00");
+		assertTrue(schedule.isActive(at(9, 0)));
+		assertFalse(schedule.isActive(at(12, 30)));
+		assertTrue(schedule.isActive(at(23, 59)));
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void parse_missingDash_throws() {
+		ThrottleSchedule.parse("08:00");
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void parse_invalidHour_throws() {
+		ThrottleSchedule.parse("08:00-25:00");
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void parse_notANumber_throws() {
+		ThrottleSchedule.parse("eight-18:00");
+	}
+}
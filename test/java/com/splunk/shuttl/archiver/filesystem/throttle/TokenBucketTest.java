@@ -0,0 +1,124 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class TokenBucketTest {
+
+	private static final long SECOND = 1000L * 1000L * 1000L;
+
+	private long now;
+	private List<Long> sleeps;
+
+	@BeforeMethod
+	public void setUp() {
+		now = 0;
+		sleeps = new ArrayList<Long>();
+	}
+
+	private TokenBucket createBucket(long rate) {
+		return new TokenBucket(rate) {
+			@Override
+			protected long nanoTime() {
+				return now;
+			}
+
+			@Override
+			protected void sleepNanos(long nanos) {
+				sleeps.add(nanos);
+				now += nanos;
+			}
+		};
+	}
+
+	public void acquire_unlimited_neverSleeps() throws InterruptedException {
+		TokenBucket bucket = createBucket(0);
+		bucket.acquire(Long.MAX_VALUE / 2);
+		assertTrue(sleeps.isEmpty());
+		assertFalse(bucket.isLimited());
+	}
+
+	public void acquire_withinOneSecondOfTokens_doesNotSleep()
+			throws InterruptedException {
+		TokenBucket bucket = createBucket(100);
+		bucket.acquire(60);
+		bucket.acquire(40);
+		assertTrue(sleeps.isEmpty());
+	}
+
+	public void acquire_moreThanAvailable_sleepsUntilDebtIsPaid()
+			throws InterruptedException {
+		TokenBucket bucket = createBucket(100);
+		bucket.acquire(100);
+		bucket.acquire(50);
+		assertEquals(sleeps, asList(SECOND / 2));
+	}
+
+	public void acquire_afterWaiting_tokensAreRefilled()
+			throws InterruptedException {
+		TokenBucket bucket = createBucket(100);
+		bucket.acquire(100);
+		now += SECOND;
+		bucket.acquire(100);
+		assertTrue(sleeps.isEmpty());
+	}
+
+	public void acquire_afterLongIdle_refillsOnlyOneSecondOfTokens()
+			throws InterruptedException {
+		TokenBucket bucket = createBucket(100);
+		now += 10 * SECOND;
+		bucket.acquire(200);
+		assertEquals(sleeps, asList(SECOND));
+	}
+
+	public void acquire_manyBytes_averagesTheRate() throws InterruptedException {
+		TokenBucket bucket = createBucket(1000);
+		for (int i = 0; i < 100; i++)
+			bucket.acquire(100);
+		assertEquals(now, 9 * SECOND);
+	}
+
+	public void setRatePerSecond_toUnlimitedWhileInDebt_doesNotSleep()
+			throws InterruptedException {
+		TokenBucket bucket = createBucket(100);
+		bucket.take(1000);
+		bucket.setRatePerSecond(0);
+		bucket.acquire(1000);
+		assertTrue(sleeps.isEmpty());
+	}
+
+	public void setRatePerSecond_lowerRate_sleepsWithTheNewRate()
+			throws InterruptedException {
+		TokenBucket bucket = createBucket(100);
+		bucket.setRatePerSecond(10);
+		bucket.acquire(20);
+		assertEquals(sleeps, asList(SECOND));
+	}
+
+	private static List<Long> asList(long... values) {
+		List<Long> list = new ArrayList<Long>();
+		for (long value : values)
+			list.add(value);
+		return list;
+	}
+}
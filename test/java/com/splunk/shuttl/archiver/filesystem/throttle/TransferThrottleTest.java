@@ -0,0 +1,165 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Calendar;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class TransferThrottleTest {
+
+	private TokenBucket bytes;
+	private TokenBucket operations;
+	private TransferThrottle throttle;
+
+	@BeforeMethod
+	public void setUp() {
+		bytes = mock(TokenBucket.class);
+		operations = mock(TokenBucket.class);
+		when(bytes.isLimited()).thenReturn(true);
+		throttle = new TransferThrottle(bytes, operations,
+				ThrottleSchedule.always());
+	}
+
+	public void acquire_limited_acquiresBytesAndOneOperation()
+			throws Exception {
+		throttle.acquire(42);
+		verify(bytes).acquire(42);
+		verify(operations).acquire(1);
+	}
+
+	public void acquire_unlimited_acquiresNothing() throws Exception {
+		when(bytes.isLimited()).thenReturn(false);
+		throttle.acquire(42);
+		verify(bytes, never()).acquire(anyLong());
+		verify(operations, never()).acquire(anyLong());
+	}
+
+	public void acquire_outsideSchedule_acquiresNothing() throws Exception {
+		final Calendar midnight = Calendar.getInstance();
+		midnight.set(Calendar.HOUR_OF_DAY, 0);
+		midnight.set(Calendar.MINUTE, 0);
+		TransferThrottle scheduled = new TransferThrottle(bytes, operations,
+				ThrottleSchedule.parse("08:00-18:00")) {
+			@Override
+			protected Calendar now() {
+				return midnight;
+			}
+		};
+		scheduled.acquire(42);
+		verify(bytes, never()).acquire(anyLong());
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void acquire_interrupted_throwsIOExceptionAndKeepsInterruptFlag()
+			throws Exception {
+		doThrow(new InterruptedException()).when(bytes).acquire(anyLong());
+		try {
+			throttle.acquire(1);
+		} finally {
+			assertTrue(Thread.interrupted());
+		}
+	}
+
+	public void throttleInputStream_read_acquiresTheReadBytes()
+			throws Exception {
+		byte[] data = new byte[1000];
+		InputStream in = throttle.throttle(new ByteArrayInputStream(data));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		IOUtils.copy(in, out);
+		assertEquals(out.toByteArray(), data);
+		verify(bytes).acquire(1000);
+	}
+
+	public void throttleOutputStream_write_acquiresTheWrittenBytes()
+			throws Exception {
+		ByteArrayOutputStream sink = new ByteArrayOutputStream();
+		OutputStream out = throttle.throttle(sink);
+		out.write(new byte[300], 0, 300);
+		out.write(7);
+		assertEquals(sink.size(), 301);
+		verify(bytes).acquire(300);
+		verify(bytes).acquire(1);
+	}
+
+	public void acquireBytes_limited_acquiresBytesButNoOperation()
+			throws Exception {
+		throttle.acquireBytes(42);
+		verify(bytes).acquire(42);
+		verify(operations, never()).acquire(anyLong());
+	}
+
+	public void throttleInputStream_manyReads_acquiresOneOperation()
+			throws Exception {
+		InputStream in = throttle.throttle(new ByteArrayInputStream(
+				new byte[1000]));
+		byte[] buffer = new byte[10];
+		while (in.read(buffer) != -1)
+			;
+		verify(operations, times(1)).acquire(1);
+		verify(bytes, times(100)).acquire(10);
+	}
+
+	public void throttleOutputStream_manyWrites_acquiresOneOperation()
+			throws Exception {
+		OutputStream out = throttle.throttle(new ByteArrayOutputStream());
+		for (int i = 0; i < 100; i++)
+			out.write(new byte[10], 0, 10);
+		out.write(7);
+		verify(operations, times(1)).acquire(1);
+	}
+
+	public void throttleStreams_listenerOfThread_isToldTheTransferredBytes()
+			throws Exception {
+		TransferListener listener = mock(TransferListener.class);
+		TransferListener previous = TransferListeners.setCurrent(listener);
+		try {
+			InputStream in = throttle.throttle(new ByteArrayInputStream(
+					new byte[100]));
+			IOUtils.copy(in, throttle.throttle(new ByteArrayOutputStream()));
+		} finally {
+			TransferListeners.setCurrent(previous);
+		}
+		verify(listener, times(2)).bytesTransferred(100);
+	}
+
+	public void setCurrent_none_isTheCurrentListenerWhenNothingIsSet() {
+		TransferListener previous = TransferListeners.setCurrent(mock(
+				TransferListener.class));
+		TransferListeners.setCurrent(TransferListener.NONE);
+		assertSame(TransferListeners.getCurrent(), TransferListener.NONE);
+		TransferListeners.setCurrent(previous);
+	}
+
+	public void setLimits_newLimits_changesTheRates() {
+		TransferThrottle real = TransferThrottle.unlimited();
+		real.setLimits(TransferLimits.create(100L, 5, "08:00-18:00"));
+		TransferLimits limits = real.getLimits();
+		assertEquals(limits.getBytesPerSecond(), 100);
+		assertEquals(limits.getOperationsPerSecond(), 5);
+		assertFalse(limits.getSchedule().isAlways());
+	}
+}
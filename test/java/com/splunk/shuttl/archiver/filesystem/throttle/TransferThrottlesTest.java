@@ -0,0 +1,67 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.throttle;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottles.Direction;
+
+@Test(groups = { "fast-unit" })
+public class TransferThrottlesTest {
+
+	private TransferThrottles transferThrottles;
+
+	@BeforeMethod
+	public void setUp() {
+		transferThrottles = new TransferThrottles();
+	}
+
+	public void get_sameBackendAndDirection_sameThrottle() {
+		assertSame(transferThrottles.get("hdfs", Direction.ARCHIVE),
+				transferThrottles.get("hdfs", Direction.ARCHIVE));
+		assertNotSame(transferThrottles.get("hdfs", Direction.ARCHIVE),
+				transferThrottles.get("hdfs", Direction.THAW));
+	}
+
+	public void get_notConfigured_unlimited() {
+		assertEquals(transferThrottles.get("hdfs", Direction.THAW).getLimits()
+				.getBytesPerSecond(), 0);
+	}
+
+	public void configure_throttleGottenBefore_getsTheLimitsInPlace() {
+		TransferThrottle archive = transferThrottles.get("hdfs",
+				Direction.ARCHIVE);
+		TransferThrottle thaw = transferThrottles.get("hdfs", Direction.THAW);
+		transferThrottles.configure("hdfs",
+				TransferLimits.create(100L, null, null),
+				TransferLimits.create(200L, 10, null));
+		assertEquals(archive.getLimits().getBytesPerSecond(), 100);
+		assertEquals(thaw.getLimits().getBytesPerSecond(), 200);
+		assertEquals(thaw.getLimits().getOperationsPerSecond(), 10);
+	}
+
+	public void configure_otherBackend_removesLimitsOfPreviousBackend() {
+		TransferLimits limits = TransferLimits.create(100L, null, null);
+		transferThrottles.configure("hdfs", limits, limits);
+		transferThrottles.configure("s3n", limits, limits);
+		assertEquals(transferThrottles.get("hdfs", Direction.ARCHIVE)
+				.getLimits().getBytesPerSecond(), 0);
+		assertEquals(transferThrottles.get("s3n", Direction.ARCHIVE)
+				.getLimits().getBytesPerSecond(), 100);
+	}
+}
@@ -63,4 +63,43 @@ public class TransactionExecuterTest {
 		}
 		verify(transaction).clean();
 	}
+
+	public void execute_multipleTransactions_preparesAllBeforeCommittingAndCleansLast() {
+		Transaction other = mock(Transaction.class);
+		transactionExecuter.execute(transaction, other);
+
+		InOrder inOrder = inOrder(transaction, other);
+		inOrder.verify(transaction).prepare();
+		inOrder.verify(other).prepare();
+		inOrder.verify(transaction).commit();
+		inOrder.verify(other).commit();
+		inOrder.verify(other).clean();
+		inOrder.verify(transaction).clean();
+		inOrder.verifyNoMoreInteractions();
+	}
+
+	public void execute_oneOfMultipleTransactionsFailsToPrepare_commitNoneAndCleanAll() {
+		Transaction other = mock(Transaction.class);
+		doThrow(new TransactionException("fail")).when(other).prepare();
+		try {
+			transactionExecuter.execute(transaction, other);
+			fail();
+		} catch (TransactionException e) {
+		}
+		verify(transaction, never()).commit();
+		verify(other, never()).commit();
+		verify(transaction).clean();
+		verify(other).clean();
+	}
+
+	public void execute_cleaningOneOfMultipleTransactionsThrows_cleansTheOthers() {
+		Transaction other = mock(Transaction.class);
+		doThrow(new RuntimeException()).when(other).clean();
+		try {
+			transactionExecuter.execute(transaction, other);
+			fail();
+		} catch (RuntimeException e) {
+		}
+		verify(transaction).clean();
+	}
 }
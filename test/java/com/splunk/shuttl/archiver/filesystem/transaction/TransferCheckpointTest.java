@@ -0,0 +1,59 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.transaction;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class TransferCheckpointTest {
+
+	private File checkpointFile;
+
+	@BeforeMethod
+	public void setUp() {
+		checkpointFile = new File(createDirectory(), "checkpoint");
+	}
+
+	public void get_putInAnotherInstance_readsRecordedValue() throws IOException {
+		new TransferCheckpoint(checkpointFile).put("key", "value");
+		assertEquals(new TransferCheckpoint(checkpointFile).get("key"), "value");
+	}
+
+	public void isEmpty_nothingRecorded_true() {
+		assertTrue(new TransferCheckpoint(checkpointFile).isEmpty());
+	}
+
+	public void delete_recordedValues_forgetsThemOnDisk() throws IOException {
+		TransferCheckpoint checkpoint = new TransferCheckpoint(checkpointFile);
+		checkpoint.put("key", "value");
+		checkpoint.delete();
+		assertTrue(checkpoint.isEmpty());
+		assertTrue(new TransferCheckpoint(checkpointFile).isEmpty());
+	}
+
+	public void getCheckpoint_samePath_sameCheckpoint() throws IOException {
+		TransferCheckpoints checkpoints = new TransferCheckpoints(createDirectory());
+		checkpoints.getCheckpoint("/temp/path").put("key", "value");
+		assertEquals(checkpoints.getCheckpoint("/temp/path").get("key"), "value");
+		assertTrue(checkpoints.getCheckpoint("/other/path").isEmpty());
+	}
+}
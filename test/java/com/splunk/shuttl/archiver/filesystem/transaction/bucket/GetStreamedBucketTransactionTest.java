@@ -0,0 +1,85 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.transaction.bucket;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.filesystem.transaction.OpensInputStreams;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransactionException;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransactionalFileSystem;
+import com.splunk.shuttl.archiver.importexport.BucketStreamImporter;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+@Test(groups = { "fast-unit" })
+public class GetStreamedBucketTransactionTest {
+
+	private GetStreamedBucketTransaction transaction;
+	private TransactionalFileSystem localFileSystem;
+	private OpensInputStreams opensInputStreams;
+	private BucketStreamImporter streamImporter;
+	private Bucket remoteBucket;
+	private InputStream in;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		localFileSystem = mock(TransactionalFileSystem.class);
+		opensInputStreams = mock(OpensInputStreams.class);
+		streamImporter = mock(BucketStreamImporter.class);
+		remoteBucket = mock(Bucket.class);
+		in = mock(InputStream.class);
+		when(remoteBucket.getPath()).thenReturn("/archive/bucket");
+		when(streamImporter.getFileName(remoteBucket)).thenReturn("bucket.tgz");
+		when(opensInputStreams.openInputStream(anyString())).thenReturn(in);
+
+		transaction = GetStreamedBucketTransaction.create(localFileSystem,
+				opensInputStreams, streamImporter, remoteBucket, "/temp", "/dst");
+	}
+
+	public void prepare_destinationDoesNotExist_importsArchivedFileToTemp()
+			throws IOException {
+		transaction.prepare();
+
+		verify(opensInputStreams).openInputStream("/archive/bucket/bucket.tgz");
+		verify(streamImporter).importBucket(in, new File("/temp"));
+		verify(in).close();
+	}
+
+	public void prepare_importThrows_closesStreamAndThrowsTransactionException()
+			throws IOException {
+		doThrow(new IOException()).when(streamImporter).importBucket(
+				any(InputStream.class), any(File.class));
+		try {
+			transaction.prepare();
+			fail();
+		} catch (TransactionException e) {
+		}
+		verify(in).close();
+	}
+
+	public void prepare_destinationExists_doesNotImport() throws IOException {
+		when(localFileSystem.exists("/dst")).thenReturn(true);
+		transaction.prepare();
+		verifyZeroInteractions(opensInputStreams, streamImporter);
+	}
+}
@@ -0,0 +1,108 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.transaction.bucket;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.filesystem.transaction.OpensOutputStreams;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransactionException;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransactionalFileSystem;
+import com.splunk.shuttl.archiver.importexport.BucketStreamExporter;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class PutStreamedBucketTransactionTest {
+
+	private PutStreamedBucketTransaction transaction;
+	private TransactionalFileSystem fs;
+	private OpensOutputStreams opensOutputStreams;
+	private BucketStreamExporter streamExporter;
+	private LocalBucket localBucket;
+	private OutputStream out;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		fs = mock(TransactionalFileSystem.class);
+		opensOutputStreams = mock(OpensOutputStreams.class);
+		streamExporter = mock(BucketStreamExporter.class);
+		localBucket = TUtilsBucket.createBucket();
+		out = mock(OutputStream.class);
+		when(streamExporter.getFileName(localBucket)).thenReturn("file.tgz");
+		when(opensOutputStreams.openOutputStream(anyString())).thenReturn(out);
+
+		transaction = PutStreamedBucketTransaction.create(fs, opensOutputStreams,
+				streamExporter, localBucket, mock(Bucket.class), "/temp", "/dst");
+	}
+
+	public void prepare_destinationDoesNotExist_exportsBucketToFileInTemp()
+			throws IOException {
+		transaction.prepare();
+
+		verify(opensOutputStreams).openOutputStream("/temp/file.tgz");
+		verify(streamExporter).exportBucket(eq(localBucket),
+				any(OutputStream.class));
+		verify(out).close();
+	}
+
+	public void getBytesWritten_bucketExported_isBytesWrittenByExport()
+			throws IOException {
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				((OutputStream) invocation.getArguments()[1]).write(new byte[17]);
+				return null;
+			}
+		}).when(streamExporter).exportBucket(eq(localBucket),
+				any(OutputStream.class));
+		transaction.prepare();
+		assertEquals(transaction.getBytesWritten(), 17);
+	}
+
+	public void getBytesWritten_notExported_isNegative() throws IOException {
+		when(fs.exists("/dst")).thenReturn(true);
+		transaction.prepare();
+		assertTrue(transaction.getBytesWritten() < 0);
+	}
+
+	public void prepare_exportThrows_closesStreamAndThrowsTransactionException()
+			throws IOException {
+		doThrow(new IOException()).when(streamExporter).exportBucket(
+				eq(localBucket), any(OutputStream.class));
+		try {
+			transaction.prepare();
+			fail();
+		} catch (TransactionException e) {
+		}
+		verify(out).close();
+	}
+
+	public void prepare_destinationExists_doesNotExport() throws IOException {
+		when(fs.exists("/dst")).thenReturn(true);
+		transaction.prepare();
+		verifyZeroInteractions(opensOutputStreams, streamExporter);
+	}
+}
@@ -118,6 +118,15 @@ public class FlusherTest {
 		assertTrue(flusher.getFlushedBuckets().isEmpty());
 	}
 
+	public void _givenDirectoryThatIsNotABucket_countsItAsUnparsable()
+			throws IllegalIndexException {
+		createDirectoryInParent(thawDir, "dir.is.not.a.bucket");
+		flusher.flush(index, new Date(), new Date());
+		assertEquals(flusher.getUnparsableBuckets().size(), 1);
+		assertEquals(flusher.getUnparsableBuckets().get(0).getName(),
+				"dir.is.not.a.bucket");
+	}
+
 	@Test(expectedExceptions = { IllegalIndexException.class })
 	public void _givenIndexThatDoesNotExist_throwIllegalIndexException()
 			throws IllegalIndexException {
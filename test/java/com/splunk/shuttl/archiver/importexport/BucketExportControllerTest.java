@@ -86,4 +86,22 @@ public class BucketExportControllerTest {
 				new HashMap<BucketFormat, BucketExporter>());
 		exporter.exportBucket(TUtilsBucket.createBucket(), BucketFormat.CSV);
 	}
+
+	public void getStreamExporter_splunkBucketAndFormatWithStreamExporter_returnsStreamExporter() {
+		BucketStreamExporter streamExporter = mock(BucketStreamExporter.class);
+		Map<BucketFormat, BucketStreamExporter> streamExporters = new HashMap<BucketFormat, BucketStreamExporter>();
+		streamExporters.put(BucketFormat.SPLUNK_BUCKET_TGZ, streamExporter);
+		bucketExportController = new BucketExportController(
+				new HashMap<BucketFormat, BucketExporter>(), streamExporters);
+
+		LocalBucket bucket = TUtilsBucket.createBucket();
+		assertSame(streamExporter, bucketExportController.getStreamExporter(
+				bucket, BucketFormat.SPLUNK_BUCKET_TGZ));
+	}
+
+	public void getStreamExporter_noStreamExporterForFormat_null() {
+		LocalBucket bucket = TUtilsBucket.createBucket();
+		assertNull(bucketExportController.getStreamExporter(bucket,
+				BucketFormat.CSV));
+	}
 }
@@ -23,7 +23,6 @@ import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.importexport.GetsBucketsExportFile;
-import com.splunk.shuttl.archiver.importexport.ShellExecutor;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
@@ -32,7 +31,7 @@ public class CreatesBucketTgzIntegrationTest {
 
 	public void _usingRealClasses_tgzBucketFileExists() {
 		CreatesBucketTgz createsBucketTgz = new CreatesBucketTgz(
-				ShellExecutor.getInstance(), new GetsBucketsExportFile(
+				new TgzStreamExporter(), new GetsBucketsExportFile(
 						new LocalFileSystemPaths(createDirectory())));
 
 		LocalBucket bucket = TUtilsBucket.createBucket();
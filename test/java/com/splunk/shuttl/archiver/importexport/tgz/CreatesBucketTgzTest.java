@@ -15,19 +15,22 @@
 package com.splunk.shuttl.archiver.importexport.tgz;
 
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
-import static java.util.Arrays.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
 import java.io.File;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.OutputStream;
 
+import org.apache.commons.io.FileUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.importexport.GetsBucketsExportFile;
-import com.splunk.shuttl.archiver.importexport.ShellExecutor;
+import com.splunk.shuttl.archiver.importexport.tgz.CreatesBucketTgz.TgzBucketCreationFailedException;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
@@ -35,47 +38,49 @@ import com.splunk.shuttl.testutil.TUtilsBucket;
 public class CreatesBucketTgzTest {
 
 	private CreatesBucketTgz createsBucketTgz;
-	private ShellExecutor shellExecutor;
+	private TgzStreamExporter tgzStreamExporter;
 	private GetsBucketsExportFile getsBucketsExportFile;
 
-	private HashMap<String, String> emptyMap;
 	private LocalBucket bucket;
 	private File tgz;
 
 	@BeforeMethod
 	public void setUp() {
-		shellExecutor = mock(ShellExecutor.class);
+		tgzStreamExporter = mock(TgzStreamExporter.class);
 		getsBucketsExportFile = mock(GetsBucketsExportFile.class);
-		createsBucketTgz = new CreatesBucketTgz(shellExecutor,
+		createsBucketTgz = new CreatesBucketTgz(tgzStreamExporter,
 				getsBucketsExportFile);
 
-		emptyMap = new HashMap<String, String>();
 		bucket = TUtilsBucket.createBucket();
-		tgz = createFile();
+		tgz = new File(createDirectory(), bucket.getName() + ".tgz");
 		when(getsBucketsExportFile.getExportFile(bucket, "tgz")).thenReturn(tgz);
 	}
 
-	public void _givenBucket_createsTarWithBucketNameAndTarExtension() {
-		String tgzBucketCmd = "tar -C "
-				+ bucket.getDirectory().getParentFile().getAbsolutePath() + " -c "
-				+ bucket.getDirectory().getName() + " | gzip -c > "
-				+ tgz.getAbsolutePath();
-		String[] cmd = { "/bin/sh", "-c", tgzBucketCmd };
+	public void _givenBucket_exportsTheBucketToTheTgzFile() throws IOException {
+		doAnswer(new Answer<Void>() {
 
-		when(shellExecutor.executeCommand(emptyMap, asList(cmd))).thenReturn(0);
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				((OutputStream) invocation.getArguments()[1]).write("tgz".getBytes());
+				return null;
+			}
+		}).when(tgzStreamExporter).exportBucket(eq(bucket),
+				any(OutputStream.class));
 
-		createsBucketTgz.createTgz(bucket);
+		File created = createsBucketTgz.createTgz(bucket);
 
-		verify(shellExecutor).executeCommand(emptyMap, asList(cmd));
+		assertEquals(created, tgz);
+		assertEquals(FileUtils.readFileToString(tgz), "tgz");
 	}
 
-	@SuppressWarnings("unchecked")
-	public void _tarFails_throwsAndNoTrashFilesExist() {
-		when(shellExecutor.executeCommand(anyMap(), anyList())).thenReturn(1);
+	public void _exportFails_throwsAndNoTrashFilesExist() throws IOException {
+		doThrow(new IOException()).when(tgzStreamExporter).exportBucket(
+				eq(bucket), any(OutputStream.class));
 
 		try {
 			createsBucketTgz.createTgz(bucket);
-		} catch (RuntimeException e) {
+			fail("Should have thrown");
+		} catch (TgzBucketCreationFailedException e) {
 			assertFalse(tgz.exists());
 		}
 	}
@@ -0,0 +1,120 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
+
+@Test(groups = { "fast-unit" })
+public class GzipMembersInputStreamTest {
+
+	private static final int BLOCK_SIZE = 1024;
+
+	public void read_manyMembersFromStreamWithNothingAvailable_readsAllMembers()
+			throws IOException {
+		byte[] data = randomData(BLOCK_SIZE * 10 + 17);
+		byte[] gzipped = parallelGzip(data);
+
+		InputStream in = new GzipMembersInputStream(new NothingAvailable(
+				new ByteArrayInputStream(gzipped)), 64);
+		assertEquals(IOUtils.toByteArray(in), data);
+	}
+
+	public void read_singleMember_readsIt() throws IOException {
+		byte[] data = randomData(5000);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(out);
+		gzip.write(data);
+		gzip.close();
+
+		assertEquals(IOUtils.toByteArray(new GzipMembersInputStream(
+				new ByteArrayInputStream(out.toByteArray()), 1024)), data);
+	}
+
+	@Test(expectedExceptions = { ZipException.class })
+	public void create_notGzip_throws() throws IOException {
+		new GzipMembersInputStream(new ByteArrayInputStream("not gzip".getBytes()),
+				1024);
+	}
+
+	@Test(expectedExceptions = { EOFException.class })
+	public void read_truncatedInLastMember_throws() throws IOException {
+		byte[] gzipped = parallelGzip(randomData(BLOCK_SIZE * 3));
+		byte[] truncated = Arrays.copyOf(gzipped, gzipped.length - 4);
+		IOUtils.toByteArray(new GzipMembersInputStream(new ByteArrayInputStream(
+				truncated), 1024));
+	}
+
+	@Test(expectedExceptions = { ZipException.class })
+	public void read_corruptCrc_throws() throws IOException {
+		byte[] gzipped = parallelGzip(randomData(BLOCK_SIZE));
+		gzipped[gzipped.length - 8] ^= 1;
+		IOUtils.toByteArray(new GzipMembersInputStream(new ByteArrayInputStream(
+				gzipped), 1024));
+	}
+
+	private static byte[] parallelGzip(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out,
+				new CallingThreadExecutor(), 6, BLOCK_SIZE, 2);
+		gzip.write(data);
+		gzip.close();
+		return out.toByteArray();
+	}
+
+	private static byte[] randomData(int size) {
+		byte[] data = new byte[size];
+		Random random = new Random(size);
+		for (int i = 0; i < size; i++)
+			data[i] = (byte) ('a' + random.nextInt(4));
+		return data;
+	}
+
+	/**
+	 * Like a network stream, that has nothing available and returns a few bytes
+	 * per read.
+	 */
+	static class NothingAvailable extends FilterInputStream {
+
+		public NothingAvailable(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int available() {
+			return 0;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return super.read(b, off, Math.min(len, 7));
+		}
+	}
+}
@@ -0,0 +1,118 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
+
+@Test(groups = { "fast-unit" })
+public class ParallelGzipOutputStreamTest {
+
+	private static final int BLOCK_SIZE = 1024;
+
+	private ByteArrayOutputStream out;
+
+	@BeforeMethod
+	public void setUp() {
+		out = new ByteArrayOutputStream();
+	}
+
+	public void close_dataSpanningManyBlocks_isReadableAsOneGzipStream()
+			throws IOException {
+		byte[] data = randomData(BLOCK_SIZE * 10 + 17);
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out,
+				new CallingThreadExecutor(), 6, BLOCK_SIZE, 2);
+		gzip.write(data);
+		gzip.close();
+
+		assertEquals(gunzip(out.toByteArray()), data);
+	}
+
+	public void close_compressingOnManyThreads_blocksAreWrittenInOrder()
+			throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			byte[] data = randomData(BLOCK_SIZE * 50);
+			ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out,
+					executor, 1, BLOCK_SIZE, 8);
+			for (int i = 0; i < data.length; i += 100)
+				gzip.write(data, i, Math.min(100, data.length - i));
+			gzip.close();
+
+			assertEquals(gunzip(out.toByteArray()), data);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void close_nothingWritten_isAnEmptyGzipStream() throws IOException {
+		new ParallelGzipOutputStream(out, new CallingThreadExecutor(), 6,
+				BLOCK_SIZE, 2).close();
+		assertEquals(gunzip(out.toByteArray()), new byte[0]);
+	}
+
+	public void write_fullBlock_compressesBlockOnExecutor() throws IOException {
+		Executor executor = spy(new CallingThreadExecutor());
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out,
+				executor, 6, BLOCK_SIZE, 2);
+		gzip.write(new byte[BLOCK_SIZE]);
+		verify(executor).execute(any(Runnable.class));
+	}
+
+	public void write_moreBlocksThanMaxInFlight_writesOldestBlocks()
+			throws IOException {
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out,
+				new CallingThreadExecutor(), 6, BLOCK_SIZE, 1);
+		gzip.write(new byte[BLOCK_SIZE * 2]);
+		assertTrue(out.size() > 0);
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void write_afterClose_throws() throws IOException {
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out,
+				new CallingThreadExecutor(), 6, BLOCK_SIZE, 2);
+		gzip.close();
+		gzip.write(1);
+	}
+
+	private byte[] randomData(int size) {
+		byte[] data = new byte[size];
+		Random random = new Random(size);
+		for (int i = 0; i < size; i++)
+			data[i] = (byte) ('a' + random.nextInt(4));
+		return data;
+	}
+
+	private byte[] gunzip(byte[] gzipped) throws IOException {
+		return IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(
+				gzipped)));
+	}
+}
@@ -0,0 +1,132 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class TarReaderTest {
+
+	private File extractTo;
+
+	@BeforeMethod
+	public void setUp() {
+		extractTo = createDirectory();
+	}
+
+	public void extractDirectoryContents_tarOfDirectory_extractsFilesWithoutTopDirectory()
+			throws IOException {
+		File dir = createDirectoryWithName("bucket");
+		populateFileWithContent(createFileInParent(dir, "file"), "content");
+		File subDir = new File(dir, "rawdata");
+		subDir.mkdirs();
+		populateFileWithContent(createFileInParent(subDir, "journal"), "journal");
+
+		new TarReader(tarOf(dir)).extractDirectoryContents(extractTo);
+
+		assertEquals(FileUtils.readFileToString(new File(extractTo, "file")),
+				"content");
+		assertEquals(FileUtils.readFileToString(new File(extractTo,
+				"rawdata/journal")), "journal");
+	}
+
+	public void extractDirectoryContents_longFileName_extractsFileWithLongName()
+			throws IOException {
+		File dir = createDirectoryWithName("bucket");
+		String longName = "";
+		for (int i = 0; i < 20; i++)
+			longName += "long_name";
+		populateFileWithContent(createFileInParent(dir, longName), "content");
+
+		new TarReader(tarOf(dir)).extractDirectoryContents(extractTo);
+
+		assertEquals(FileUtils.readFileToString(new File(extractTo, longName)),
+				"content");
+	}
+
+	public void extractDirectoryContents_emptyFile_extractsEmptyFile()
+			throws IOException {
+		File dir = createDirectoryWithName("bucket");
+		createFileInParent(dir, "empty");
+
+		new TarReader(tarOf(dir)).extractDirectoryContents(extractTo);
+
+		assertEquals(new File(extractTo, "empty").length(), 0);
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void extractDirectoryContents_truncatedArchive_throwsIOException()
+			throws IOException {
+		File dir = createDirectoryWithName("bucket");
+		populateFileWithContent(createFileInParent(dir, "file"), "content");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TarWriter tarWriter = new TarWriter(out);
+		tarWriter.writeDirectory(dir);
+
+		byte[] tar = out.toByteArray();
+		new TarReader(new ByteArrayInputStream(tar, 0, tar.length - 100))
+				.extractDirectoryContents(extractTo);
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void extractDirectoryContents_noEndOfArchiveMarker_throwsIOException()
+			throws IOException {
+		File dir = createDirectoryWithName("bucket");
+		populateFileWithContent(createFileInParent(dir, "file"), "content");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new TarWriter(out).writeDirectory(dir);
+
+		new TarReader(new ByteArrayInputStream(out.toByteArray()))
+				.extractDirectoryContents(extractTo);
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void extractDirectoryContents_corruptHeader_throwsIOException()
+			throws IOException {
+		File dir = createDirectoryWithName("bucket");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TarWriter tarWriter = new TarWriter(out);
+		tarWriter.writeDirectory(dir);
+		tarWriter.finish();
+
+		byte[] tar = out.toByteArray();
+		tar[0] = 'x';
+		new TarReader(new ByteArrayInputStream(tar))
+				.extractDirectoryContents(extractTo);
+	}
+
+	private static ByteArrayInputStream tarOf(File dir) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TarWriter tarWriter = new TarWriter(out);
+		tarWriter.writeDirectory(dir);
+		tarWriter.finish();
+		return new ByteArrayInputStream(out.toByteArray());
+	}
+
+	private static void populateFileWithContent(File file, String content)
+			throws IOException {
+		FileUtils.writeStringToFile(file, content);
+	}
+}
@@ -0,0 +1,133 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class TarWriterTest {
+
+	private ByteArrayOutputStream out;
+	private TarWriter tarWriter;
+
+	@BeforeMethod
+	public void setUp() {
+		out = new ByteArrayOutputStream();
+		tarWriter = new TarWriter(out);
+	}
+
+	public void writeDirectory_givenDirectory_firstEntryIsDirectoryName()
+			throws IOException {
+		File dir = createDirectoryWithName("dirName");
+		tarWriter.writeDirectory(dir);
+		tarWriter.finish();
+
+		byte[] tar = out.toByteArray();
+		assertEquals(nameInHeader(tar, 0), "dirName/");
+		assertEquals(tar[156], '5');
+	}
+
+	public void writeDirectory_fileInDirectory_writesFileEntryWithContent()
+			throws IOException {
+		File dir = createDirectoryWithName("dir");
+		File file = createFileInParent(dir, "file");
+		populateFileWithContent(file, "content");
+		tarWriter.writeDirectory(dir);
+		tarWriter.finish();
+
+		byte[] tar = out.toByteArray();
+		assertEquals(nameInHeader(tar, 512), "dir/file");
+		assertEquals(tar[512 + 156], '0');
+		assertEquals(new String(tar, 1024, "content".length()), "content");
+	}
+
+	public void writeDirectory_givenDirectory_headersHaveValidChecksums()
+			throws IOException {
+		File dir = createDirectoryWithName("dir");
+		populateFileWithContent(createFileInParent(dir, "file"), "abc");
+		tarWriter.writeDirectory(dir);
+		tarWriter.finish();
+
+		byte[] tar = out.toByteArray();
+		assertChecksumIsValid(tar, 0);
+		assertChecksumIsValid(tar, 512);
+	}
+
+	public void finish_afterWritingDirectory_archiveEndsWithTwoEmptyBlocksAndIsBlockAligned()
+			throws IOException {
+		File dir = createDirectoryWithName("dir");
+		populateFileWithContent(createFileInParent(dir, "file"), "abc");
+		tarWriter.writeDirectory(dir);
+		tarWriter.finish();
+
+		byte[] tar = out.toByteArray();
+		assertEquals(tar.length % 512, 0);
+		byte[] end = Arrays.copyOfRange(tar, tar.length - 1024, tar.length);
+		assertEquals(end, new byte[1024]);
+	}
+
+	public void writeDirectory_nameLongerThanHeaderField_writesLongNameEntryFirst()
+			throws IOException {
+		String longName = createLongName();
+		File dir = createDirectoryWithName(longName);
+		tarWriter.writeDirectory(dir);
+		tarWriter.finish();
+
+		byte[] tar = out.toByteArray();
+		assertEquals(nameInHeader(tar, 0), "././@LongLink");
+		assertEquals(tar[156], 'L');
+		assertEquals(nameInHeader(tar, 512), longName + "/");
+	}
+
+	private String createLongName() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 120; i++)
+			sb.append('a');
+		return sb.toString();
+	}
+
+	private void populateFileWithContent(File file, String content)
+			throws IOException {
+		FileUtils.writeStringToFile(file, content);
+	}
+
+	private String nameInHeader(byte[] tar, int offset) {
+		int end = offset;
+		while (tar[end] != 0)
+			end++;
+		return new String(tar, offset, end - offset);
+	}
+
+	private void assertChecksumIsValid(byte[] tar, int offset) {
+		long sum = 0;
+		for (int i = 0; i < 512; i++)
+			if (i >= 148 && i < 156)
+				sum += ' ';
+			else
+				sum += tar[offset + i] & 0xff;
+		String stored = new String(tar, offset + 148, 6).trim();
+		assertEquals(Long.parseLong(stored, 8), sum);
+	}
+}
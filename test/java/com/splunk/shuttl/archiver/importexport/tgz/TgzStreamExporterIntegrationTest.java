@@ -0,0 +1,65 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.importexport.ShellExecutor;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "slow-unit" })
+public class TgzStreamExporterIntegrationTest {
+
+	public void exportBucket_extractedWithTar_equalsTheOriginalBucket()
+			throws IOException {
+		LocalBucket bucket = TUtilsBucket.createRealBucket();
+		File tgz = new File(createDirectory(), bucket.getName() + ".tgz");
+		OutputStream out = new FileOutputStream(tgz);
+		try {
+			new TgzStreamExporter().exportBucket(bucket, out);
+		} finally {
+			out.close();
+		}
+
+		File extractDir = createDirectory();
+		int exit = ShellExecutor.getInstance().executeCommand(
+				new HashMap<String, String>(),
+				asList("tar", "-xzf", tgz.getAbsolutePath(), "-C",
+						extractDir.getAbsolutePath()));
+		assertEquals(exit, 0);
+
+		File extractedBucket = new File(extractDir, bucket.getDirectory()
+				.getName());
+		assertEquals(FileUtils.sizeOfDirectory(extractedBucket),
+				FileUtils.sizeOfDirectory(bucket.getDirectory()));
+		File rawdata = new File(bucket.getDirectory(), "rawdata");
+		for (File f : rawdata.listFiles())
+			if (f.isFile())
+				assertTrue(FileUtils.contentEquals(f, new File(new File(
+						extractedBucket, "rawdata"), f.getName())));
+	}
+}
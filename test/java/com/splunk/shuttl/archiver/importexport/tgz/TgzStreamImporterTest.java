@@ -0,0 +1,61 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.importexport.tgz.GzipMembersInputStreamTest.NothingAvailable;
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
+
+@Test(groups = { "fast-unit" })
+public class TgzStreamImporterTest {
+
+	public void importBucket_multiMemberTgzFromStreamWithNothingAvailable_importsEveryFile()
+			throws IOException {
+		File dir = createDirectoryWithName("bucket");
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 10000; i++)
+			content.append(i);
+		FileUtils.writeStringToFile(createFileInParent(dir, "first"),
+				content.toString());
+		FileUtils.writeStringToFile(createFileInParent(dir, "last"), "last");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out,
+				new CallingThreadExecutor(), 6, 1024, 2);
+		TarWriter tarWriter = new TarWriter(gzip);
+		tarWriter.writeDirectory(dir);
+		tarWriter.finish();
+		gzip.close();
+
+		File imported = createDirectory();
+		new TgzStreamImporter().importBucket(new NothingAvailable(
+				new ByteArrayInputStream(out.toByteArray())), imported);
+
+		assertEquals(FileUtils.readFileToString(new File(imported, "first")),
+				content.toString());
+		assertEquals(FileUtils.readFileToString(new File(imported, "last")),
+				"last");
+	}
+}
@@ -19,16 +19,23 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
 import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.RemoteBucket;
+import com.splunk.shuttl.archiver.thaw.BucketTimeIndex;
+import com.splunk.shuttl.testutil.TUtilsFile;
 import com.splunk.shuttl.testutil.TUtilsTestNG;
 
 @Test(groups = { "fast-unit" })
@@ -106,4 +113,54 @@ public class ArchiveBucketsListerTest {
 					.isBucketEqualOnIndexFormatAndName(bucket1, bucket)
 					|| TUtilsTestNG.isBucketEqualOnIndexFormatAndName(bucket2, bucket));
 	}
+
+	public void listBucketsInIndex_completeCatalog_bucketsWithCatalogedFormatPathAndSize()
+			throws IOException {
+		ArchiveCatalog catalog = new ArchiveCatalog(new File(
+				TUtilsFile.createDirectory(), "archive.catalog"));
+		String name = "db_1336330530_1336330500_0";
+		catalog.putArchivedBucket(new RemoteBucket("/archive/index/" + name
+				+ "/SPLUNK_BUCKET", "index", name, BucketFormat.SPLUNK_BUCKET, 17L));
+		catalog.startRebuild();
+		catalog.finishRebuild(Collections.<Bucket> emptyList());
+		catalog.putArchivedBucket(new RemoteBucket("/archive/index/" + name
+				+ "/SPLUNK_BUCKET", "index", name, BucketFormat.SPLUNK_BUCKET, 17L));
+		archiveBucketsLister = new ArchiveBucketsLister(archiveFileSystem,
+				indexLister, pathResolver, catalog);
+
+		List<Bucket> buckets = archiveBucketsLister.listBucketsInIndex("index");
+		assertEquals(1, buckets.size());
+		Bucket bucket = buckets.get(0);
+		assertEquals(BucketFormat.SPLUNK_BUCKET, bucket.getFormat());
+		assertEquals("/archive/index/" + name + "/SPLUNK_BUCKET", bucket.getPath());
+		assertEquals((Long) 17L, bucket.getSize());
+		verifyZeroInteractions(archiveFileSystem);
+	}
+
+	public void indexBucketsInIndex_completeCatalog_sameIndexUntilCatalogChanges()
+			throws IOException {
+		ArchiveCatalog catalog = new ArchiveCatalog(new File(
+				TUtilsFile.createDirectory(), "archive.catalog"));
+		catalog.startRebuild();
+		catalog.finishRebuild(Collections.<Bucket> emptyList());
+		catalog.putArchivedBucket(new RemoteBucket("/archive/index/b",
+				"index", "db_1336330530_1336330500_0", BucketFormat.SPLUNK_BUCKET));
+		archiveBucketsLister = new ArchiveBucketsLister(archiveFileSystem,
+				indexLister, pathResolver, catalog);
+
+		BucketTimeIndex<Bucket> timeIndex = archiveBucketsLister
+				.indexBucketsInIndex("index");
+		assertEquals(1, timeIndex.size());
+		assertSame(timeIndex, archiveBucketsLister.indexBucketsInIndex("index"));
+	}
+
+	public void indexBucketsInIndex_noCatalog_indexesListedBuckets()
+			throws IOException {
+		when(pathResolver.getBucketsHome("index")).thenReturn("/index");
+		when(archiveFileSystem.listPath("/index")).thenReturn(
+				Arrays.asList("/index/db_1336330530_1336330500_0"));
+		when(pathResolver.resolveIndexFromPathToBucket(anyString())).thenReturn(
+				"index");
+		assertEquals(1, archiveBucketsLister.indexBucketsInIndex("index").size());
+	}
 }
@@ -25,6 +25,7 @@ import java.util.List;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
 
@@ -67,4 +68,23 @@ public class ArchiveIndexesListerTest {
 		assertEquals(listIndexes, Arrays.asList(index1, index2));
 	}
 
+	public void listIndexes_completeCatalog_listsCatalogInsteadOfFileSystem()
+			throws IOException {
+		ArchiveCatalog catalog = mock(ArchiveCatalog.class);
+		when(catalog.isComplete()).thenReturn(true);
+		when(catalog.getIndexes()).thenReturn(Arrays.asList("index"));
+		List<String> indexes = new ArchivedIndexesLister(pathResolver, fileSystem,
+				catalog).listIndexes();
+		assertEquals(Arrays.asList("index"), indexes);
+		verifyZeroInteractions(fileSystem);
+	}
+
+	public void listIndexes_incompleteCatalog_listsFileSystem()
+			throws IOException {
+		ArchiveCatalog catalog = mock(ArchiveCatalog.class);
+		new ArchivedIndexesLister(pathResolver, fileSystem, catalog).listIndexes();
+		verify(fileSystem).listPath(anyString());
+		verify(catalog, never()).getIndexes();
+	}
+
 }
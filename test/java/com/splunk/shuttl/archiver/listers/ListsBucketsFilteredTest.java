@@ -19,15 +19,22 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.RemoteBucket;
 import com.splunk.shuttl.archiver.thaw.BucketFilter;
 import com.splunk.shuttl.archiver.thaw.BucketFormatResolver;
+import com.splunk.shuttl.archiver.thaw.BucketTimeIndex;
+import com.splunk.shuttl.archiver.thaw.BucketSizeResolver;
 
 @Test(groups = { "fast-unit" })
 public class ListsBucketsFilteredTest {
@@ -35,6 +42,7 @@ public class ListsBucketsFilteredTest {
 	private ArchiveBucketsLister archiveBucketsLister;
 	private BucketFilter bucketFilter;
 	private BucketFormatResolver bucketFormatResolver;
+	private BucketSizeResolver bucketSizeResolver;
 	private ListsBucketsFiltered listsBucketsFiltered;
 	private Date earliestTime;
 	private Date latestTime;
@@ -47,15 +55,17 @@ public class ListsBucketsFilteredTest {
 		archiveBucketsLister = mock(ArchiveBucketsLister.class);
 		bucketFilter = mock(BucketFilter.class);
 		bucketFormatResolver = mock(BucketFormatResolver.class);
+		bucketSizeResolver = mock(BucketSizeResolver.class);
 		listsBucketsFiltered = new ListsBucketsFiltered(archiveBucketsLister,
-				bucketFilter, bucketFormatResolver);
+				bucketFilter, bucketFormatResolver, bucketSizeResolver);
 	}
 
 	@Test(groups = { "fast-unit" })
 	public void _givenBucketsInAnIndex_filterBucketsOnTimeRange() {
-		List<Bucket> bucketsInIndex = asList(mock(Bucket.class));
+		BucketTimeIndex<Bucket> bucketsInIndex = BucketTimeIndex
+				.create(new ArrayList<Bucket>());
 		String index = "index";
-		when(archiveBucketsLister.listBucketsInIndex(index)).thenReturn(
+		when(archiveBucketsLister.indexBucketsInIndex(index)).thenReturn(
 				bucketsInIndex);
 		listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
 				latestTime);
@@ -67,8 +77,8 @@ public class ListsBucketsFilteredTest {
 	public void _givenFilteredBuckets_resolvesFilteredBucketsFormats() {
 		List<Bucket> filteredBuckets = asList(mock(Bucket.class));
 		when(
-				bucketFilter.filterBucketsByTimeRange(anyList(), any(Date.class),
-						any(Date.class))).thenReturn(filteredBuckets);
+				bucketFilter.filterBucketsByTimeRange(any(BucketTimeIndex.class),
+						any(Date.class), any(Date.class))).thenReturn(filteredBuckets);
 		listsBucketsFiltered.listFilteredBucketsAtIndex("foo", earliestTime,
 				latestTime);
 		verify(bucketFormatResolver).resolveBucketsFormats(filteredBuckets);
@@ -84,4 +94,143 @@ public class ListsBucketsFilteredTest {
 				.listFilteredBucketsAtIndex("foo", earliestTime, latestTime);
 		assertEquals(bucketsWithFormats, filteredBucketsAtIndex);
 	}
+
+	private static Bucket bucket(String index, long earliest, long size) {
+		return new RemoteBucket("/" + index, index, "db_" + (earliest + 10) + "_"
+				+ earliest + "_" + earliest, (BucketFormat) null, size);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void givenListingReturnsWhatIsGiven() {
+		Answer<Object> firstArgument = new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) {
+				return invocation.getArguments()[0];
+			}
+		};
+		when(
+				bucketFilter.filterBucketsByTimeRange(any(BucketTimeIndex.class),
+						any(Date.class), any(Date.class))).thenAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) {
+				return new ArrayList<Bucket>(((BucketTimeIndex<Bucket>) invocation
+						.getArguments()[0]).getBuckets());
+			}
+		});
+		when(bucketFormatResolver.resolveBucketsFormats(anyList())).thenAnswer(
+				firstArgument);
+		when(bucketSizeResolver.resolveBucketSizes(anyList())).thenAnswer(
+				firstArgument);
+	}
+
+	public void listFilteredBucketsPage_moreBucketsThanLimit_returnsFirstBucketsAndNextCursor() {
+		givenListingReturnsWhatIsGiven();
+		Bucket b1 = bucket("a", 1, 0);
+		Bucket b2 = bucket("a", 2, 0);
+		Bucket b3 = bucket("a", 3, 0);
+		when(archiveBucketsLister.indexBucketsInIndex("a")).thenReturn(
+				BucketTimeIndex.create(asList(b3, b1, b2)));
+		BucketSort sort = BucketSort.parse("earliest");
+
+		BucketPage page = listsBucketsFiltered.listFilteredBucketsPage("a",
+				earliestTime, latestTime, sort, 2, null);
+
+		assertEquals(asList(b1, b2), page.getBuckets());
+		assertEquals(sort.getCursor(b2), page.getNextCursor());
+	}
+
+	public void listFilteredBucketsPage_givenCursor_continuesAfterCursorToLastPage() {
+		givenListingReturnsWhatIsGiven();
+		Bucket b1 = bucket("a", 1, 0);
+		Bucket b2 = bucket("a", 2, 0);
+		Bucket b3 = bucket("a", 3, 0);
+		when(archiveBucketsLister.indexBucketsInIndex("a")).thenReturn(
+				BucketTimeIndex.create(asList(b3, b1, b2)));
+		BucketSort sort = BucketSort.parse("-earliest");
+
+		BucketPage page = listsBucketsFiltered.listFilteredBucketsPage("a",
+				earliestTime, latestTime, sort, 2, sort.getCursor(b2));
+
+		assertEquals(asList(b1), page.getBuckets());
+		assertNull(page.getNextCursor());
+	}
+
+	@SuppressWarnings("unchecked")
+	public void listFilteredBucketsPage_notSortedBySize_resolvesFormatsAndSizesOfPageOnly() {
+		givenListingReturnsWhatIsGiven();
+		Bucket b1 = bucket("a", 1, 0);
+		Bucket b2 = bucket("a", 2, 0);
+		when(archiveBucketsLister.indexBucketsInIndex("a")).thenReturn(
+				BucketTimeIndex.create(asList(b1, b2)));
+
+		listsBucketsFiltered.listFilteredBucketsPage("a", earliestTime,
+				latestTime, BucketSort.parse("latest"), 1, null);
+
+		verify(bucketFormatResolver).resolveBucketsFormats(asList(b1));
+		verify(bucketSizeResolver).resolveBucketSizes(asList(b1));
+		verify(bucketSizeResolver, times(1)).resolveBucketSizes(anyList());
+	}
+
+	public void listFilteredBucketsPage_sortedBySize_ordersBySizes() {
+		givenListingReturnsWhatIsGiven();
+		Bucket small = bucket("a", 1, 10);
+		Bucket big = bucket("a", 2, 20);
+		when(archiveBucketsLister.indexBucketsInIndex("a")).thenReturn(
+				BucketTimeIndex.create(asList(small, big)));
+
+		BucketPage page = listsBucketsFiltered.listFilteredBucketsPage("a",
+				earliestTime, latestTime, BucketSort.parse("-size"), 1, null);
+
+		assertEquals(asList(big), page.getBuckets());
+		verify(bucketSizeResolver).resolveBucketSizes(asList(small, big));
+	}
+
+	public void listFilteredBucketsPage_sortedByNameAndPageFilled_doesNotListLaterIndexes() {
+		givenListingReturnsWhatIsGiven();
+		Bucket a1 = bucket("a", 1, 0);
+		Bucket a2 = bucket("a", 2, 0);
+		when(archiveBucketsLister.listIndexes()).thenReturn(asList("b", "a"));
+		when(archiveBucketsLister.indexBucketsInIndex("a")).thenReturn(
+				BucketTimeIndex.create(asList(a2, a1)));
+
+		BucketPage page = listsBucketsFiltered.listFilteredBucketsPage(null,
+				earliestTime, latestTime, BucketSort.parse("name"), 1, null);
+
+		assertEquals(asList(a1), page.getBuckets());
+		assertNotNull(page.getNextCursor());
+		verify(archiveBucketsLister, never()).indexBucketsInIndex("b");
+	}
+
+	public void listFilteredBucketsPage_sortedByNameWithCursor_skipsIndexesBeforeCursor() {
+		givenListingReturnsWhatIsGiven();
+		Bucket b1 = bucket("b", 1, 0);
+		Bucket b2 = bucket("b", 2, 0);
+		when(archiveBucketsLister.listIndexes()).thenReturn(asList("a", "b"));
+		when(archiveBucketsLister.indexBucketsInIndex("b")).thenReturn(
+				BucketTimeIndex.create(asList(b1, b2)));
+		BucketSort sort = BucketSort.parse("name");
+
+		BucketPage page = listsBucketsFiltered.listFilteredBucketsPage(null,
+				earliestTime, latestTime, sort, 1, sort.getCursor(b1));
+
+		assertEquals(asList(b2), page.getBuckets());
+		assertNull(page.getNextCursor());
+		verify(archiveBucketsLister, never()).indexBucketsInIndex("a");
+	}
+
+	public void listFilteredBucketsPage_allIndexesNotSortedByIndex_sortsBucketsOfAllIndexes() {
+		givenListingReturnsWhatIsGiven();
+		Bucket a2 = bucket("a", 2, 0);
+		Bucket b1 = bucket("b", 1, 0);
+		when(archiveBucketsLister.listIndexes()).thenReturn(asList("a", "b"));
+		when(archiveBucketsLister.indexBucketsInIndex("a")).thenReturn(
+				BucketTimeIndex.create(asList(a2)));
+		when(archiveBucketsLister.indexBucketsInIndex("b")).thenReturn(
+				BucketTimeIndex.create(asList(b1)));
+
+		BucketPage page = listsBucketsFiltered.listFilteredBucketsPage(null,
+				earliestTime, latestTime, BucketSort.parse("earliest"), 2, null);
+
+		assertEquals(asList(b1, a2), page.getBuckets());
+	}
 }
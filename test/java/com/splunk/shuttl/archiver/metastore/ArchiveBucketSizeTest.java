@@ -22,6 +22,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
 import com.splunk.shuttl.archiver.metastore.MetadataStore.CouldNotReadMetadataException;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
@@ -45,10 +46,14 @@ public class ArchiveBucketSizeTest {
 				PathResolver.BUCKET_SIZE_FILE_NAME);
 	}
 
-	public void persistBucketSize_givenBucket_putsBucketWithMetadataStore() {
-		archiveBucketSize.persistBucketSize(bucket);
-		verify(metadataStore).put(bucket,
-				archiveBucketSize.getSizeMetadataFileName(), "" + bucket.getSize());
+	public void createPersistBucketSizeTransaction_givenBucket_putTransactionFromMetadataStore() {
+		Transaction putTransaction = mock(Transaction.class);
+		when(
+				metadataStore.createPutTransaction(bucket,
+						archiveBucketSize.getSizeMetadataFileName(), "" + bucket.getSize()))
+				.thenReturn(putTransaction);
+		assertEquals(putTransaction,
+				archiveBucketSize.createPersistBucketSizeTransaction(bucket));
 	}
 
 	public void readBucketSize_givenBucket_sizeFromMetadataStore() {
@@ -66,4 +71,15 @@ public class ArchiveBucketSizeTest {
 		assertEquals(null, archiveBucketSize.readBucketSize(bucket));
 	}
 
+
+	public void readLocalBucketSize_sizeStoredLocally_localSize() {
+		when(metadataStore.readLocal(bucket,
+				archiveBucketSize.getSizeMetadataFileName())).thenReturn("17");
+		assertEquals((Long) 17L, archiveBucketSize.readLocalBucketSize(bucket));
+	}
+
+	public void readLocalBucketSize_noLocalSize_nullWithoutReadingArchive() {
+		assertNull(archiveBucketSize.readLocalBucketSize(bucket));
+		verify(metadataStore, never()).read(any(Bucket.class), anyString());
+	}
 }
@@ -0,0 +1,139 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metastore;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.metastore.MetadataCache.CachedMetadata;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class MetadataCacheTest {
+
+	private static final long TTL = 1000;
+	private static final long DATA_TTL = 10 * TTL;
+
+	private long now;
+	private MetadataCache metadataCache;
+	private Bucket bucket;
+
+	@BeforeMethod
+	public void setUp() {
+		now = 0;
+		metadataCache = createCache(100);
+		bucket = TUtilsBucket.createBucket();
+	}
+
+	private MetadataCache createCache(int maxSize) {
+		return new MetadataCache(maxSize, DATA_TTL, TTL) {
+			@Override
+			protected long now() {
+				return now;
+			}
+		};
+	}
+
+	public void get_nothingCached_nullAndCountsMiss() {
+		assertNull(metadataCache.get(bucket, "file"));
+		assertEquals(metadataCache.getMissCount(), 1);
+	}
+
+	public void get_putData_cachedDataAndCountsHit() {
+		metadataCache.put(bucket, "file", "data");
+		CachedMetadata cached = metadataCache.get(bucket, "file");
+		assertFalse(cached.isMissing());
+		assertEquals(cached.getData(), "data");
+		assertEquals(metadataCache.getHitCount(), 1);
+	}
+
+	public void get_putForOtherFileName_null() {
+		metadataCache.put(bucket, "file", "data");
+		assertNull(metadataCache.get(bucket, "other"));
+	}
+
+	public void get_putMissing_missingAndCountsNegativeHit() {
+		metadataCache.putMissing(bucket, "file");
+		assertTrue(metadataCache.get(bucket, "file").isMissing());
+		assertEquals(metadataCache.getNegativeHitCount(), 1);
+	}
+
+	public void get_missingTimeToLiveHasPassed_null() {
+		metadataCache.putMissing(bucket, "file");
+		now += TTL;
+		assertNull(metadataCache.get(bucket, "file"));
+		assertEquals(metadataCache.getSize(), 0);
+	}
+
+	public void get_dataAfterMissingTimeToLive_stillCached() {
+		metadataCache.put(bucket, "file", "data");
+		now += TTL;
+		assertEquals(metadataCache.get(bucket, "file").getData(), "data");
+	}
+
+	public void get_dataTimeToLiveHasPassed_null() {
+		metadataCache.put(bucket, "file", "data");
+		now += DATA_TTL;
+		assertNull(metadataCache.get(bucket, "file"));
+		assertEquals(metadataCache.getSize(), 0);
+	}
+
+	public void put_afterPutMissing_replacesMissing() {
+		metadataCache.putMissing(bucket, "file");
+		metadataCache.put(bucket, "file", "data");
+		assertEquals(metadataCache.get(bucket, "file").getData(), "data");
+	}
+
+	public void put_moreThanMaxSize_evictsAndStaysBounded() {
+		int maxSize = 32;
+		MetadataCache cache = createCache(maxSize);
+		for (int i = 0; i < maxSize * 10; i++)
+			cache.put(bucket, "file" + i, "data");
+		assertTrue(cache.getSize() <= maxSize);
+		assertTrue(cache.getEvictionCount() > 0);
+	}
+
+	public void put_recentlyReadEntry_isNotEvictedBeforeOlderEntries() {
+		MetadataCache cache = new MetadataCache(64, TTL);
+		cache.put(bucket, "file", "data");
+		for (int i = 0; i < 1000; i++) {
+			assertNotNull(cache.get(bucket, "file"));
+			cache.put(bucket, "other" + i, "data");
+		}
+		assertEquals(cache.get(bucket, "file").getData(), "data");
+	}
+
+	public void remove_cachedData_null() {
+		metadataCache.put(bucket, "file", "data");
+		metadataCache.remove(bucket, "file");
+		assertNull(metadataCache.get(bucket, "file"));
+	}
+
+	public void clear_cachedData_emptyCache() {
+		metadataCache.put(bucket, "file", "data");
+		metadataCache.clear();
+		assertEquals(metadataCache.getSize(), 0);
+	}
+
+	public void createDisabled_put_cachesNothing() {
+		MetadataCache cache = MetadataCache.createDisabled();
+		cache.put(bucket, "file", "data");
+		assertNull(cache.get(bucket, "file"));
+		assertEquals(cache.getSize(), 0);
+	}
+}
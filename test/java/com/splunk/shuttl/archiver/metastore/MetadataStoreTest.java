@@ -16,19 +16,26 @@ package com.splunk.shuttl.archiver.metastore;
 
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
 
 import java.io.File;
+import java.io.IOException;
 
+import org.apache.commons.io.FileUtils;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.filesystem.transaction.file.PutFileTransaction;
+import com.splunk.shuttl.archiver.metastore.FlatFileStorage.FlatFileReadException;
+import com.splunk.shuttl.archiver.metastore.MetadataStore.CouldNotReadMetadataException;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
+import com.splunk.shuttl.testutil.TUtilsFile;
 
 @Test(groups = { "fast-unit" })
 public class MetadataStoreTest {
@@ -71,4 +78,77 @@ public class MetadataStoreTest {
 				eq(PutFileTransaction.create(archiveFileSystem,
 						flatFile.getAbsolutePath(), temp, flatFileRealPath)));
 	}
+
+	private MetadataStore createCachingStore(MetadataCache metadataCache) {
+		File flatFile = TUtilsFile.createFilePath();
+		when(flatFileStorage.getFlatFile(eq(bucket), anyString())).thenReturn(
+				flatFile);
+		when(localFileSystemPaths.getMetadataTransfersDirectory(bucket))
+				.thenReturn(TUtilsFile.createDirectory());
+		return new MetadataStore(pathResolver, flatFileStorage, archiveFileSystem,
+				transactionExecuter, localFileSystemPaths, metadataCache);
+	}
+
+	public void read_withCache_readsFlatFileOnlyOnce() {
+		MetadataStore cachingStore = createCachingStore(new MetadataCache(10,
+				1000));
+		when(flatFileStorage.readFlatFile(any(File.class))).thenReturn("data");
+
+		assertEquals(cachingStore.read(bucket, "filename"), "data");
+		assertEquals(cachingStore.read(bucket, "filename"), "data");
+
+		verify(flatFileStorage, times(1)).readFlatFile(any(File.class));
+	}
+
+	public void read_withCacheAndMissingRemoteMetadata_getsRemoteOnlyOnce() {
+		MetadataStore cachingStore = createCachingStore(new MetadataCache(10,
+				60 * 1000));
+		when(flatFileStorage.readFlatFile(any(File.class))).thenThrow(
+				new FlatFileReadException(new RuntimeException()));
+
+		for (int i = 0; i < 2; i++)
+			try {
+				cachingStore.read(bucket, "filename");
+				fail();
+			} catch (CouldNotReadMetadataException e) {
+			}
+
+		verify(transactionExecuter, times(1)).execute(any(Transaction.class));
+	}
+
+	public void read_afterPutWithCache_doesNotReadFlatFile() {
+		MetadataStore cachingStore = createCachingStore(new MetadataCache(10,
+				1000));
+		when(pathResolver.resolveTempPathForBucketMetadata(eq(bucket),
+				any(File.class))).thenReturn("temp");
+		when(pathResolver.resolvePathForBucketMetadata(eq(bucket),
+				any(File.class))).thenReturn("path");
+
+		cachingStore.put(bucket, "filename", "data");
+
+		assertEquals(cachingStore.read(bucket, "filename"), "data");
+		verify(flatFileStorage, never()).readFlatFile(any(File.class));
+	}
+
+	public void readLocal_afterPutWithCache_cachedData() {
+		MetadataStore cachingStore = createCachingStore(new MetadataCache(10,
+				1000));
+		cachingStore.createPutTransaction(bucket, "filename", "data");
+
+		assertEquals(cachingStore.readLocal(bucket, "filename"), "data");
+		verify(flatFileStorage, never()).readFlatFile(any(File.class));
+	}
+
+	public void readLocal_cachedAsMissingButLocalFileWritten_readsLocalFile()
+			throws IOException {
+		MetadataCache metadataCache = new MetadataCache(10, 1000);
+		MetadataStore cachingStore = createCachingStore(metadataCache);
+		metadataCache.putMissing(bucket, "filename");
+		File flatFile = flatFileStorage.getFlatFile(bucket, "filename");
+		FileUtils.writeStringToFile(flatFile, "data");
+		when(flatFileStorage.readFlatFile(flatFile)).thenReturn("data");
+
+		assertEquals(cachingStore.readLocal(bucket, "filename"), "data");
+		assertFalse(metadataCache.get(bucket, "filename").isMissing());
+	}
 }
@@ -0,0 +1,150 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metrics;
+
+import static org.testng.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics.PhaseTimer;
+
+@Test(groups = { "fast-unit" })
+public class ArchiverMetricsTest {
+
+	private long nanos;
+	private ArchiverMetrics metrics;
+
+	@BeforeMethod
+	public void setUp() {
+		nanos = 0;
+		metrics = new ArchiverMetrics() {
+			@Override
+			protected long nanoTime() {
+				return nanos;
+			}
+		};
+	}
+
+	private void advanceMillis(long millis) {
+		nanos += millis * 1000 * 1000;
+	}
+
+	public void start_stoppedWithBytes_recordsLatencyBytesAndThroughput() {
+		PhaseTimer timer = metrics.start(Phase.UPLOAD, "s3n",
+				BucketFormat.SPLUNK_BUCKET);
+		advanceMillis(2000);
+		timer.stop(1000);
+		PhaseMetrics upload = metrics.getAllSeries().get(0);
+		assertEquals(upload.getPhase(), Phase.UPLOAD);
+		assertEquals(upload.getBackend(), "s3n");
+		assertEquals(upload.getFormat(), "SPLUNK_BUCKET");
+		assertEquals(upload.getCount(), 1);
+		assertEquals(upload.getBytes(), 1000);
+		assertEquals(upload.getLatencies().getMaxMillis(), 2000);
+		assertEquals(upload.getThroughputBytesPerSecond(), 500);
+	}
+
+	public void start_failed_recordsFailure() {
+		PhaseTimer timer = metrics.start(Phase.DELETE, null, null);
+		advanceMillis(5);
+		timer.fail();
+		assertEquals(metrics.getPhaseFailureCount("delete"), 1);
+		assertEquals(metrics.getPhaseCount("delete"), 1);
+		assertEquals(metrics.getPhaseBytes("delete"), 0);
+	}
+
+	public void stop_thenFail_onlyRecordsTheStop() {
+		PhaseTimer timer = metrics.start(Phase.EXPORT, null, BucketFormat.CSV);
+		timer.stop();
+		timer.fail();
+		assertEquals(metrics.getPhaseCount("export"), 1);
+		assertEquals(metrics.getPhaseFailureCount("export"), 0);
+	}
+
+	public void record_differentBackendsAndFormats_keptAsSeparateSeries() {
+		metrics.record(Phase.UPLOAD, "hdfs", BucketFormat.CSV, 10, 100);
+		metrics.record(Phase.UPLOAD, "s3n", BucketFormat.CSV, 10, 100);
+		metrics.record(Phase.UPLOAD, "s3n", BucketFormat.SPLUNK_BUCKET, 10, 100);
+		metrics.record(Phase.UPLOAD, "s3n", BucketFormat.SPLUNK_BUCKET, 10, 100);
+		assertEquals(metrics.getAllSeries().size(), 3);
+		assertEquals(metrics.getPhaseCount("upload"), 4);
+		assertEquals(metrics.getPhaseBytes("upload"), 400);
+	}
+
+	public void getAllSeries_recordedInAnyOrder_orderedByPhaseBackendAndFormat() {
+		metrics.record(Phase.IMPORT, "s3n", null, 1, -1);
+		metrics.record(Phase.UPLOAD, "s3n", BucketFormat.SPLUNK_BUCKET, 1, -1);
+		metrics.record(Phase.UPLOAD, "hdfs", BucketFormat.CSV, 1, -1);
+		metrics.record(Phase.LOCK_WAIT, null, null, 1, -1);
+		List<PhaseMetrics> all = metrics.getAllSeries();
+		assertEquals(all.get(0).getPhase(), Phase.LOCK_WAIT);
+		assertEquals(all.get(1).getBackend(), "hdfs");
+		assertEquals(all.get(2).getBackend(), "s3n");
+		assertEquals(all.get(3).getPhase(), Phase.IMPORT);
+	}
+
+	public void getPhaseLatencyPercentileMillis_allSeriesOfPhase_mergesTheirLatencies() {
+		metrics.record(Phase.THAW_DOWNLOAD, "hdfs", null, 100, -1);
+		metrics.record(Phase.THAW_DOWNLOAD, "s3n", null, 100000, -1);
+		metrics.record(Phase.IMPORT, "s3n", null, 5, -1);
+		assertEquals(metrics.getPhaseLatencyPercentileMillis("thaw_download", 50),
+				100);
+		assertEquals(metrics.getPhaseLatencyPercentileMillis("THAW_DOWNLOAD", 100),
+				100000);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void getPhaseCount_unknownPhase_throws() {
+		metrics.getPhaseCount("nope");
+	}
+
+	public void reset_recorded_forgetsEverything() {
+		metrics.record(Phase.COMMIT, "s3n", null, 1, -1);
+		metrics.reset();
+		assertTrue(metrics.getAllSeries().isEmpty());
+		assertEquals(metrics.getSeriesSummaries().length, 0);
+	}
+
+	@SuppressWarnings("unchecked")
+	public void toMap_recorded_listsSeriesWithLatencies() {
+		metrics.record(Phase.METADATA_PUT, "s3n", BucketFormat.CSV, 20, 10);
+		Map<String, Object> map = metrics.toMap();
+		List<Map<String, Object>> series = (List<Map<String, Object>>) map
+				.get("series");
+		assertEquals(series.size(), 1);
+		Map<String, Object> metadataPut = series.get(0);
+		assertEquals(metadataPut.get("phase"), "metadata_put");
+		assertEquals(metadataPut.get("backend"), "s3n");
+		assertEquals(metadataPut.get("format"), "CSV");
+		assertEquals(metadataPut.get("count"), 1L);
+		assertEquals(metadataPut.get("bytes"), 10L);
+		assertEquals(metadataPut.get("throughput_bytes_per_second"), 500L);
+		Map<String, Object> latency = (Map<String, Object>) metadataPut
+				.get("latency_ms");
+		assertEquals(latency.get("p99"), 20L);
+	}
+
+	public void getSeriesSummaries_recorded_oneLinePerSeries() {
+		metrics.record(Phase.COMMIT, "s3n", BucketFormat.CSV, 1, -1);
+		String[] summaries = metrics.getSeriesSummaries();
+		assertEquals(summaries.length, 1);
+		assertTrue(summaries[0].startsWith("phase=commit backend=s3n format=CSV"));
+	}
+}
@@ -0,0 +1,97 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metrics;
+
+import static org.testng.Assert.*;
+
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class LatencyHistogramTest {
+
+	private LatencyHistogram histogram;
+
+	@BeforeMethod
+	public void setUp() {
+		histogram = new LatencyHistogram();
+	}
+
+	public void getPercentileMillis_nothingRecorded_zero() {
+		assertEquals(histogram.getPercentileMillis(99), 0);
+		assertEquals(histogram.getMeanMillis(), 0);
+	}
+
+	public void record_latencies_countsSumAndMax() {
+		histogram.record(3);
+		histogram.record(7);
+		histogram.record(50);
+		assertEquals(histogram.getCount(), 3);
+		assertEquals(histogram.getTotalMillis(), 60);
+		assertEquals(histogram.getMeanMillis(), 20);
+		assertEquals(histogram.getMaxMillis(), 50);
+	}
+
+	public void getPercentileMillis_manyFastAndOneSlow_upperBoundOfBucketOfPercentile() {
+		for (int i = 0; i < 99; i++)
+			histogram.record(15);
+		histogram.record(4000);
+		assertEquals(histogram.getPercentileMillis(50), 20);
+		assertEquals(histogram.getPercentileMillis(99), 20);
+		assertEquals(histogram.getPercentileMillis(100), 4000);
+	}
+
+	public void getPercentileMillis_upperBoundAboveMax_max() {
+		histogram.record(12);
+		assertEquals(histogram.getPercentileMillis(50), 12);
+	}
+
+	public void getPercentileMillis_longerThanAnHour_max() {
+		histogram.record(5 * 3600000L);
+		assertEquals(histogram.getPercentileMillis(50), 5 * 3600000L);
+	}
+
+	public void record_negativeLatency_recordedAsZero() {
+		histogram.record(-5);
+		assertEquals(histogram.getTotalMillis(), 0);
+		assertEquals(histogram.getCount(), 1);
+	}
+
+	public void getBucketCounts_recordedLatencies_countsNonEmptyBucketsByUpperBound() {
+		histogram.record(1);
+		histogram.record(2);
+		histogram.record(2);
+		histogram.record(2 * 3600000L);
+		Map<String, Long> buckets = histogram.getBucketCounts();
+		assertEquals(buckets.size(), 3);
+		assertEquals(buckets.get("1"), (Long) 1L);
+		assertEquals(buckets.get("2"), (Long) 2L);
+		assertEquals(buckets.get("inf"), (Long) 1L);
+	}
+
+	public void add_otherHistogram_mergesCountsAndMax() {
+		histogram.record(10);
+		LatencyHistogram other = new LatencyHistogram();
+		other.record(1000);
+		other.record(1000);
+		histogram.add(other);
+		assertEquals(histogram.getCount(), 3);
+		assertEquals(histogram.getTotalMillis(), 2010);
+		assertEquals(histogram.getMaxMillis(), 1000);
+		assertEquals(histogram.getPercentileMillis(50), 1000);
+	}
+}
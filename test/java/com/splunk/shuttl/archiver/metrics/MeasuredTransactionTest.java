@@ -0,0 +1,102 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metrics;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
+import com.splunk.shuttl.archiver.metrics.MeasuredTransaction.TransferredBytes;
+
+@Test(groups = { "fast-unit" })
+public class MeasuredTransactionTest {
+
+	private Transaction transaction;
+	private ArchiverMetrics metrics;
+	private MeasuredTransaction measuredTransaction;
+
+	@BeforeMethod
+	public void setUp() {
+		transaction = mock(Transaction.class);
+		metrics = new ArchiverMetrics();
+		measuredTransaction = new MeasuredTransaction(transaction, metrics,
+				Phase.UPLOAD, Phase.COMMIT, "s3n", BucketFormat.CSV, 123);
+	}
+
+	public void prepare_transactionPrepares_recordsPreparePhaseWithBytes() {
+		measuredTransaction.prepare();
+		verify(transaction).prepare();
+		assertEquals(metrics.getPhaseCount("upload"), 1);
+		assertEquals(metrics.getPhaseBytes("upload"), 123);
+		assertEquals(metrics.getPhaseCount("commit"), 0);
+	}
+
+	public void prepare_transferredBytes_recordsBytesKnownAfterPrepare() {
+		final long[] bytes = { -1 };
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				bytes[0] = 456;
+				return null;
+			}
+		}).when(transaction).prepare();
+		new MeasuredTransaction(transaction, metrics, Phase.UPLOAD, null, "s3n",
+				BucketFormat.SPLUNK_BUCKET_TGZ, new TransferredBytes() {
+					@Override
+					public long getBytes() {
+						return bytes[0];
+					}
+				}).prepare();
+		assertEquals(metrics.getPhaseBytes("upload"), 456);
+	}
+
+	public void prepare_transactionThrows_recordsFailureAndRethrows() {
+		RuntimeException exception = new RuntimeException();
+		doThrow(exception).when(transaction).prepare();
+		try {
+			measuredTransaction.prepare();
+			fail();
+		} catch (RuntimeException e) {
+			assertSame(e, exception);
+		}
+		assertEquals(metrics.getPhaseFailureCount("upload"), 1);
+		assertEquals(metrics.getPhaseBytes("upload"), 0);
+	}
+
+	public void commit_transactionCommits_recordsCommitPhase() {
+		measuredTransaction.commit();
+		verify(transaction).commit();
+		assertEquals(metrics.getPhaseCount("commit"), 1);
+	}
+
+	public void commit_noCommitPhase_commitsWithoutRecording() {
+		new MeasuredTransaction(transaction, metrics, Phase.METADATA_PUT, null,
+				"s3n", BucketFormat.CSV, -1).commit();
+		verify(transaction).commit();
+		assertTrue(metrics.getAllSeries().isEmpty());
+	}
+
+	public void clean_givenTransaction_cleansWithoutRecording() {
+		measuredTransaction.clean();
+		verify(transaction).clean();
+		assertTrue(metrics.getAllSeries().isEmpty());
+	}
+}
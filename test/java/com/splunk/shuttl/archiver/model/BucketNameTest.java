@@ -16,6 +16,9 @@ package com.splunk.shuttl.archiver.model;
 
 import static org.testng.Assert.*;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -155,4 +158,73 @@ public class BucketNameTest {
 	public void constructor_null_doesNothing() {
 		new BucketName(null);
 	}
+
+	public void isValid_legalName_true() {
+		assertTrue(getBucketName().isValid());
+	}
+
+	public void isValid_indexWithUnderscores_false() {
+		assertFalse(getBucketName(db, earliest, latest, "in_dex", guid).isValid());
+	}
+
+	public void isValid_null_false() {
+		assertFalse(new BucketName(null).isValid());
+	}
+
+	@Test(expectedExceptions = { NumberFormatException.class })
+	public void getEarliest_earliestLargerThanLong_throwsNumberFormatException() {
+		getBucketName(db, "99999999999999999999", latest, index, guid)
+				.getEarliest();
+	}
+
+	public void getters_trickyNames_sameAsMatchingTheLegalNameRegex() {
+		String[] names = { "db_2_1_idx", "db_2_1_idx_guid", "rb_2_1_i-1_g-1",
+				"db_2_1_idx_", "db_2_1_idx__", "db_2_1__guid", "db_2_1_idx_guid_",
+				"db_2_1_a_b_c", "db_2_1_", "db_2_1__", "_2_1_idx", "d-b_2_1_idx",
+				"db_x_1_idx", "db_2__idx", "db_2_1_id\nx", "db_2_1", "db", "",
+				"___", "db_007_0_idx", "db_2_1_idx_guid\n" };
+		for (String name : names) {
+			BucketName bucketName = new BucketName(name);
+			assertEquals(call(bucketName, "db"), regexValue(name, 1, true), name);
+			assertEquals(call(bucketName, "latest"), regexValue(name, 2, false),
+					name);
+			assertEquals(call(bucketName, "earliest"), regexValue(name, 3, false),
+					name);
+			assertEquals(call(bucketName, "index"), regexValue(name, 4, true),
+					name);
+			assertEquals(call(bucketName, "guid"), regexValue(name, 5, false),
+					name);
+		}
+	}
+
+	private String call(BucketName bucketName, String getter) {
+		try {
+			if (getter.equals("db"))
+				return bucketName.getDB();
+			else if (getter.equals("latest"))
+				return "" + bucketName.getLatest();
+			else if (getter.equals("earliest"))
+				return "" + bucketName.getEarliest();
+			else if (getter.equals("index"))
+				return bucketName.getIndex();
+			else
+				return bucketName.getGuid();
+		} catch (RuntimeException e) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	private String regexValue(String name, int group, boolean validates) {
+		int underscores = name.split("_").length - 1;
+		if (validates && (underscores > 4 || underscores < 3))
+			return IllegalBucketNameException.class.getSimpleName();
+		String regex = BucketName.LEGAL_NAME_REGEX;
+		if (underscores == 4)
+			regex += BucketName.GUID_ADDITION;
+		Matcher matcher = Pattern.compile(regex).matcher(name);
+		if (!matcher.matches() || group > matcher.groupCount())
+			return IllegalRegexGroupException.class.getSimpleName();
+		String value = matcher.group(group);
+		return group == 2 || group == 3 ? "" + Long.parseLong(value) : value;
+	}
 }
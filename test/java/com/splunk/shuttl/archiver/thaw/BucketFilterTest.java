@@ -25,6 +25,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.util.IllegalRegexGroupException;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 import com.splunk.shuttl.testutil.TUtilsDate;
 
@@ -126,4 +127,22 @@ public class BucketFilterTest {
 		assertTrue(filteredBuckets.contains(bucket));
 	}
 
+	public void filterBucketsByTimeRange_givenTimeIndex_bucketsWithinTimeRange() {
+		Bucket within = TUtilsBucket.createBucketWithTimes(earliest, latest);
+		Bucket before = TUtilsBucket.createBucketWithTimes(new Date(
+				earliest.getTime() - 3000), new Date(earliest.getTime() - 2000));
+		List<Bucket> buckets = Arrays.asList(before, within);
+		filteredBuckets = bucketFilter.filterBucketsByTimeRange(
+				BucketTimeIndex.create(buckets), earliest, latest);
+		assertEquals(filteredBuckets, Arrays.asList(within));
+	}
+
+	@Test(expectedExceptions = { IllegalRegexGroupException.class })
+	public void filterBucketsByTimeRange_bucketNameWithoutTimes_throws() {
+		Bucket bucket = mock(Bucket.class);
+		when(bucket.getLatest()).thenThrow(new IllegalRegexGroupException());
+		when(bucket.getEarliest()).thenThrow(new IllegalRegexGroupException());
+		bucketFilter.filterBucketsByTimeRange(Arrays.asList(bucket), earliest,
+				latest);
+	}
 }
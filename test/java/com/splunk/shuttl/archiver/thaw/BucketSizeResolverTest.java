@@ -14,14 +14,25 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.thaw;
 
+import static java.util.Arrays.*;
+import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.catalog.ArchiveCatalog;
+import com.splunk.shuttl.archiver.catalog.CatalogedBucket;
 import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
 import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.RemoteBucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
 @Test(groups = { "fast-unit" })
@@ -34,6 +45,8 @@ public class BucketSizeResolverTest {
 	@BeforeMethod
 	public void setUp() {
 		archiveBucketSize = mock(ArchiveBucketSize.class);
+		when(archiveBucketSize.readLocalBucketSize(any(Bucket.class)))
+				.thenReturn(null);
 		bucketSizeResolver = new BucketSizeResolver(archiveBucketSize);
 		bucketWithoutSize = TUtilsBucket.createRemoteBucket();
 	}
@@ -60,4 +73,53 @@ public class BucketSizeResolverTest {
 		assertEquals(bucketWithoutSize.getPath(), sizedBucket.getPath());
 		assertFalse(bucketWithoutSize.getSize() == sizedBucket.getSize());
 	}
+
+	public void resolveBucketSize_bucketCatalogedWithSize_usesCatalogedSize() {
+		ArchiveCatalog catalog = mock(ArchiveCatalog.class);
+		CatalogedBucket cataloged = mock(CatalogedBucket.class);
+		when(catalog.getBucket(bucketWithoutSize.getIndex(),
+				bucketWithoutSize.getName())).thenReturn(cataloged);
+		when(cataloged.getSize(bucketWithoutSize.getFormat())).thenReturn(7L);
+
+		Bucket sizedBucket = new BucketSizeResolver(archiveBucketSize, catalog)
+				.resolveBucketSize(bucketWithoutSize);
+		assertEquals(7, (long) sizedBucket.getSize());
+		verifyZeroInteractions(archiveBucketSize);
+	}
+
+	public void resolveBucketSizes_sizesReadOnExecutor_keepsOrderOfBuckets() {
+		Bucket first = new RemoteBucket("/path", "first", bucketWithoutSize
+				.getName(), BucketFormat.SPLUNK_BUCKET);
+		Bucket second = new RemoteBucket("/path", "second", bucketWithoutSize
+				.getName(), BucketFormat.SPLUNK_BUCKET);
+		when(archiveBucketSize.readBucketSize(first)).thenReturn(1L);
+		when(archiveBucketSize.readBucketSize(second)).thenReturn(2L);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<Bucket> sized = new BucketSizeResolver(archiveBucketSize, null,
+					executor).resolveBucketSizes(asList(first, second));
+			assertEquals(1, (long) sized.get(0).getSize());
+			assertEquals(2, (long) sized.get(1).getSize());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public void resolveBucketSizes_sizeStoredLocally_doesNotReadFromArchive() {
+		Executor executor = mock(Executor.class);
+		when(archiveBucketSize.readLocalBucketSize(bucketWithoutSize)).thenReturn(
+				3L);
+		List<Bucket> sized = new BucketSizeResolver(archiveBucketSize, null,
+				executor).resolveBucketSizes(asList(bucketWithoutSize));
+		assertEquals(3, (long) sized.get(0).getSize());
+		verifyZeroInteractions(executor);
+		verify(archiveBucketSize, never()).readBucketSize(any(Bucket.class));
+	}
+
+	public void resolveBucketSizes_noExecutor_readsSizesInCallingThread() {
+		when(archiveBucketSize.readBucketSize(bucketWithoutSize)).thenReturn(5L);
+		List<Bucket> sized = bucketSizeResolver
+				.resolveBucketSizes(asList(bucketWithoutSize));
+		assertEquals(5, (long) sized.get(0).getSize());
+	}
 }
@@ -24,8 +24,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.testng.annotations.BeforeMethod;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.bucketlock.BucketLock;
@@ -114,7 +120,8 @@ public class BucketThawerTest {
 		verifyZeroInteractions(getsBucketsFromArchive);
 	}
 
-	public void thawBuckets_bucketIsAlreadyLocked_doesNotThaw() {
+	public void thawBuckets_bucketIsAlreadyLocked_doesNotThaw()
+			throws ThawTransferFailException, ImportThawedBucketFailException {
 		BucketLock bucketLock = thawBucketLocker.getLockForBucket(bucket);
 		assertTrue(bucketLock.tryLockExclusive());
 		when(
@@ -122,7 +129,8 @@ public class BucketThawerTest {
 						latestTime)).thenReturn(asList(bucket));
 
 		bucketThawer.thawBuckets(index, earliestTime, latestTime);
-		verifyZeroInteractions(getsBucketsFromArchive);
+		verify(getsBucketsFromArchive, never()).getBucketFromArchive(
+				any(Bucket.class));
 		assertEquals(bucket, bucketThawer.getSkippedBuckets().get(0));
 	}
 
@@ -196,4 +204,119 @@ public class BucketThawerTest {
 		run_thawBuckets_bucketFieldPassedToGetsBucketFromArchive();
 		assertTrue(bucketThawer.getFailedBuckets().isEmpty());
 	}
+
+	public void thawBuckets_executorWithTwoThreads_thawsTwoBucketsAtTheSameTime()
+			throws Exception {
+		Bucket bucket1 = TUtilsBucket.createBucket();
+		Bucket bucket2 = TUtilsBucket.createBucket();
+		when(
+				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
+						latestTime)).thenReturn(asList(bucket1, bucket2));
+		final CountDownLatch bothThawing = new CountDownLatch(2);
+		when(getsBucketsFromArchive.getBucketFromArchive(any(Bucket.class)))
+				.thenAnswer(new Answer<LocalBucket>() {
+
+					@Override
+					public LocalBucket answer(InvocationOnMock invocation)
+							throws Throwable {
+						bothThawing.countDown();
+						if (!bothThawing.await(5, TimeUnit.SECONDS))
+							throw new ThawTransferFailException(
+									(Bucket) invocation.getArguments()[0]);
+						return mock(LocalBucket.class);
+					}
+				});
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			new BucketThawer(listsBucketsFiltered, getsBucketsFromArchive,
+					localBuckets, thawBucketLocker, executor).thawBuckets(index,
+					earliestTime, latestTime);
+		} finally {
+			executor.shutdownNow();
+		}
+		verify(getsBucketsFromArchive).getBucketFromArchive(bucket1);
+		verify(getsBucketsFromArchive).getBucketFromArchive(bucket2);
+		assertEquals(0, bothThawing.getCount());
+	}
+
+	public void thawBuckets_executorWithTwoThreads_collectsAllResults()
+			throws Exception {
+		Bucket thawed = TUtilsBucket.createBucket();
+		Bucket skipped = TUtilsBucket.createBucket();
+		Bucket failed = TUtilsBucket.createBucket();
+		when(
+				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
+						latestTime)).thenReturn(asList(thawed, skipped, failed));
+		when(localBuckets.hasBucket(skipped)).thenReturn(true);
+		LocalBucket thawedBucket = mock(LocalBucket.class);
+		when(getsBucketsFromArchive.getBucketFromArchive(thawed)).thenReturn(
+				thawedBucket);
+		doThrow(ThawTransferFailException.class).when(getsBucketsFromArchive)
+				.getBucketFromArchive(failed);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			bucketThawer = new BucketThawer(listsBucketsFiltered,
+					getsBucketsFromArchive, localBuckets, thawBucketLocker, executor);
+			bucketThawer.thawBuckets(index, earliestTime, latestTime);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(asList(thawedBucket), bucketThawer.getThawedBuckets());
+		assertEquals(asList(skipped), bucketThawer.getSkippedBuckets());
+		assertEquals(failed, bucketThawer.getFailedBuckets().get(0).bucket);
+	}
+
+	public void thawBuckets_progressIsCancelled_doesNotThawBuckets() {
+		when(
+				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
+						latestTime)).thenReturn(asList(bucket));
+		ThawProgress progress = mock(ThawProgress.class);
+		when(progress.isCancelled()).thenReturn(true);
+
+		bucketThawer.thawBuckets(index, earliestTime, latestTime, progress);
+		verifyZeroInteractions(getsBucketsFromArchive);
+		assertTrue(bucketThawer.getThawedBuckets().isEmpty());
+		assertTrue(bucketThawer.getSkippedBuckets().isEmpty());
+		assertTrue(bucketThawer.getFailedBuckets().isEmpty());
+	}
+
+	public void thawBuckets_givenProgress_reportsBucketsToProgress()
+			throws Exception {
+		Bucket thawed = TUtilsBucket.createBucket();
+		Bucket skipped = TUtilsBucket.createBucket();
+		Bucket failed = TUtilsBucket.createBucket();
+		List<Bucket> buckets = asList(thawed, skipped, failed);
+		when(
+				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
+						latestTime)).thenReturn(buckets);
+		when(localBuckets.hasBucket(skipped)).thenReturn(true);
+		LocalBucket thawedBucket = mock(LocalBucket.class);
+		when(getsBucketsFromArchive.getBucketFromArchive(thawed)).thenReturn(
+				thawedBucket);
+		ThawTransferFailException exception = new ThawTransferFailException(
+				failed);
+		doThrow(exception).when(getsBucketsFromArchive).getBucketFromArchive(
+				failed);
+		ThawProgress progress = mock(ThawProgress.class);
+
+		bucketThawer.thawBuckets(index, earliestTime, latestTime, progress);
+		verify(progress).thawStarted(buckets);
+		verify(progress).bucketThawed(thawedBucket);
+		verify(progress).bucketSkipped(skipped);
+		verify(progress).bucketFailed(failed, exception);
+	}
+
+	public void thawBuckets_someBucketsAlreadyThawed_preparesTheOtherBuckets()
+			throws IOException {
+		Bucket thawedBucket = mock(Bucket.class);
+		when(localBuckets.hasBucket(thawedBucket)).thenReturn(true);
+		when(
+				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
+						latestTime)).thenReturn(asList(thawedBucket, bucket));
+
+		bucketThawer.thawBuckets(index, earliestTime, latestTime);
+		verify(getsBucketsFromArchive).prepareBucketsFromArchive(asList(bucket));
+	}
 }
@@ -0,0 +1,110 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.RemoteBucket;
+import com.splunk.shuttl.archiver.util.IllegalRegexGroupException;
+
+@Test(groups = { "fast-unit" })
+public class BucketTimeIndexTest {
+
+	private static Bucket bucket(long earliestSeconds, long latestSeconds) {
+		return new RemoteBucket("/path", "index", "db_" + latestSeconds + "_"
+				+ earliestSeconds + "_0", BucketFormat.SPLUNK_BUCKET);
+	}
+
+	private static Date seconds(long seconds) {
+		return new Date(seconds * 1000);
+	}
+
+	public void getBucketsOverlapping_noBuckets_emptyList() {
+		BucketTimeIndex<Bucket> index = BucketTimeIndex
+				.create(new ArrayList<Bucket>());
+		assertTrue(index.getBucketsOverlapping(seconds(0), seconds(10)).isEmpty());
+	}
+
+	public void getBucketsOverlapping_bucketsTouchingRangeEdges_includesThem() {
+		Bucket endsAtStart = bucket(0, 10);
+		Bucket startsAtEnd = bucket(20, 30);
+		Bucket before = bucket(0, 9);
+		Bucket after = bucket(21, 30);
+		BucketTimeIndex<Bucket> index = BucketTimeIndex.create(asList(before,
+				endsAtStart, startsAtEnd, after));
+		assertEquals(index.getBucketsOverlapping(seconds(10), seconds(20)),
+				asList(endsAtStart, startsAtEnd));
+	}
+
+	public void getBucketsOverlapping_longBucketStartingFirst_isFound() {
+		Bucket longBucket = bucket(0, 1000);
+		List<Bucket> buckets = new ArrayList<Bucket>();
+		buckets.add(longBucket);
+		for (int i = 1; i < 100; i++)
+			buckets.add(bucket(i, i));
+		List<Bucket> found = BucketTimeIndex.create(buckets)
+				.getBucketsOverlapping(seconds(500), seconds(600));
+		assertEquals(found, asList(longBucket));
+	}
+
+	public void getBucketsOverlapping_bucketsInAnyOrder_keepsTheirOrder() {
+		Bucket late = bucket(20, 30);
+		Bucket early = bucket(0, 10);
+		assertEquals(BucketTimeIndex.create(asList(late, early))
+				.getBucketsOverlapping(seconds(0), seconds(30)), asList(late, early));
+	}
+
+	public void getBucketsOverlapping_randomBuckets_sameAsCheckingEveryBucket() {
+		Random random = new Random(4711);
+		List<Bucket> buckets = new ArrayList<Bucket>();
+		for (int i = 0; i < 500; i++) {
+			long earliest = random.nextInt(10000);
+			buckets.add(bucket(earliest, earliest + random.nextInt(500)));
+		}
+		BucketTimeIndex<Bucket> index = BucketTimeIndex.create(buckets);
+		for (int i = 0; i < 100; i++) {
+			Date from = seconds(random.nextInt(11000));
+			Date to = seconds(from.getTime() / 1000 + random.nextInt(1000));
+			List<Bucket> expected = new ArrayList<Bucket>();
+			for (Bucket bucket : buckets)
+				if (BucketFilter.isBucketWithinTimeRange(bucket, from, to))
+					expected.add(bucket);
+			assertEquals(index.getBucketsOverlapping(from, to), expected);
+		}
+	}
+
+	@Test(expectedExceptions = { IllegalRegexGroupException.class })
+	public void create_bucketNameWithoutTimes_throws() {
+		BucketTimeIndex.create(asList(bucket(0, 10), new RemoteBucket("/path",
+				"index", "not-a-bucket", BucketFormat.SPLUNK_BUCKET)));
+	}
+
+	public void getBuckets_indexedBuckets_inGivenOrder() {
+		Bucket later = bucket(20, 30);
+		Bucket earlier = bucket(0, 10);
+		assertEquals(BucketTimeIndex.create(asList(later, earlier)).getBuckets(),
+				asList(later, earlier));
+	}
+}
@@ -23,7 +23,9 @@ import java.io.IOException;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.importexport.BucketImportController;
+import com.splunk.shuttl.archiver.importexport.BucketStreamImporter;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
@@ -71,6 +73,30 @@ public class GetsBucketsFromArchiveTest {
 		assertEquals(sizedBucket.getSize(), actualBucket.getSize());
 	}
 
+	public void getBucketFromArchive_streamImporterForFormatAndArchiveCanStream_importsBucketWhileTransferring()
+			throws Exception {
+		BucketStreamImporter streamImporter = mock(BucketStreamImporter.class);
+		when(bucket.getFormat()).thenReturn(BucketFormat.SPLUNK_BUCKET_TGZ);
+		when(
+				bucketImportController
+						.getStreamImporter(BucketFormat.SPLUNK_BUCKET_TGZ)).thenReturn(
+				streamImporter);
+		when(thawBucketTransferer.canStreamFromArchive()).thenReturn(true);
+		LocalBucket streamedBucket = TUtilsBucket.createBucket();
+		when(thawBucketTransferer.streamBucketToThaw(bucket, streamImporter))
+				.thenReturn(streamedBucket);
+		when(bucketImportController.restoreToSplunkBucketFormat(streamedBucket))
+				.thenReturn(streamedBucket);
+		when(bucketSizeResolver.resolveBucketSize(any(Bucket.class))).thenReturn(
+				bucket);
+
+		LocalBucket actualBucket = getsBucketsFromArchive
+				.getBucketFromArchive(bucket);
+
+		assertEquals(streamedBucket.getDirectory(), actualBucket.getDirectory());
+		verify(thawBucketTransferer, never()).transferBucketToThaw(bucket);
+	}
+
 	// Sad path
 
 	@Test(expectedExceptions = { ThawTransferFailException.class })
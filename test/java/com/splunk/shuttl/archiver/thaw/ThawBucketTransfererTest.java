@@ -15,17 +15,20 @@
 package com.splunk.shuttl.archiver.thaw;
 
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.PreparesBucketRetrievals;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.GetBucketTransaction;
 import com.splunk.shuttl.archiver.model.Bucket;
@@ -89,4 +92,19 @@ public class ThawBucketTransfererTest {
 		assertEquals(bucketOnLocalDisk, actualBucket);
 	}
 
+	public void prepareTransfers_archivePreparesRetrievals_preparesBuckets() {
+		ArchiveFileSystem preparingArchive = mock(ArchiveFileSystem.class,
+				withSettings().extraInterfaces(PreparesBucketRetrievals.class));
+		List<Bucket> buckets = asList(bucket);
+
+		new ThawBucketTransferer(thawLocationProvider, preparingArchive,
+				bucketFactory, transactionExecuter).prepareTransfers(buckets);
+		verify((PreparesBucketRetrievals) preparingArchive).prepareRetrievals(
+				buckets);
+	}
+
+	public void prepareTransfers_archiveDoesNotPrepareRetrievals_doesNothing() {
+		bucketTransferer.prepareTransfers(asList(bucket));
+		verifyZeroInteractions(archiveFileSystem);
+	}
 }
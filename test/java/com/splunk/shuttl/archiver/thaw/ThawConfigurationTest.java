@@ -0,0 +1,63 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class ThawConfigurationTest {
+
+	private ThawConfiguration createWithProperties(String... kvs) {
+		File properties = createFile();
+		writeKeyValueProperties(properties, kvs);
+		return ThawConfiguration.createWithPropertyFile(properties);
+	}
+
+	public void createWithPropertyFile_nothingConfigured_oneBucketAtATime() {
+		ThawConfiguration config = createWithProperties("other=value");
+		assertEquals(config.getThreads(), ThawConfiguration.DEFAULT_THREADS);
+		assertEquals(config.getDownloadThreads(), 1);
+		assertEquals(config.getImportThreads(), 1);
+		assertEquals(config.getFinalizeThreads(), 1);
+	}
+
+	public void createWithPropertyFile_onlyThreadsConfigured_stagesGetAsManyThreads() {
+		ThawConfiguration config = createWithProperties("thaw.threads=4");
+		assertEquals(config.getThreads(), 4);
+		assertEquals(config.getDownloadThreads(), 4);
+		assertEquals(config.getImportThreads(), 4);
+		assertEquals(config.getFinalizeThreads(), 4);
+	}
+
+	public void createWithPropertyFile_stageThreadsConfigured_overrideThreads() {
+		ThawConfiguration config = createWithProperties("thaw.threads=4",
+				"thaw.download.threads=2", "thaw.queue.size=3");
+		assertEquals(config.getDownloadThreads(), 2);
+		assertEquals(config.getImportThreads(), 4);
+		assertEquals(config.getQueueSize(), 3);
+	}
+
+	public void constructor_threads_stagesGetAsManyThreads() {
+		ThawConfiguration config = new ThawConfiguration(3);
+		assertEquals(config.getDownloadThreads(), 3);
+		assertEquals(config.getImportThreads(), 3);
+		assertEquals(config.getFinalizeThreads(), 3);
+	}
+}
@@ -0,0 +1,235 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import static java.util.Arrays.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.thaw.ThawJob.State;
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
+
+@Test(groups = { "fast-unit" })
+public class ThawJobsTest {
+
+	private ThawJobs thawJobs;
+	private BucketThawer bucketThawer;
+	private Date from;
+	private Date to;
+
+	@BeforeMethod
+	public void setUp() {
+		thawJobs = new ThawJobs(new CallingThreadExecutor(), 2, 60 * 1000);
+		bucketThawer = mock(BucketThawer.class);
+		from = new Date(0);
+		to = new Date(1000);
+	}
+
+	private void thawerReportsProgress(final long thawedSize) {
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				ThawProgress progress = (ThawProgress) invocation.getArguments()[3];
+				Bucket failed = mock(Bucket.class);
+				progress.thawStarted(asList(mock(Bucket.class), mock(Bucket.class),
+						failed));
+				LocalBucket thawed = mock(LocalBucket.class);
+				when(thawed.getSize()).thenReturn(thawedSize);
+				progress.bucketThawed(thawed);
+				progress.bucketSkipped(mock(Bucket.class));
+				progress.bucketFailed(failed, new ThawTransferFailException(failed));
+				return null;
+			}
+		}).when(bucketThawer).thawBuckets(eq("index"), eq(from), eq(to),
+				any(ThawProgress.class));
+	}
+
+	public void submit_thawerReportsProgress_jobIsFinishedWithProgress() {
+		thawerReportsProgress(1234);
+		ThawJob job = thawJobs.submit(bucketThawer, "index", from, to);
+
+		assertEquals(job.getState(), State.FINISHED);
+		assertEquals(job.getBucketsTotal(), 3);
+		assertEquals(job.getBucketsDone(), 2);
+		assertEquals(job.getBucketsThawed(), 1);
+		assertEquals(job.getBucketsSkipped(), 1);
+		assertEquals(job.getBucketsFailed(), 1);
+		assertEquals(job.getBytesTransferred(), 1234);
+		assertTrue(job.getFinishedMillis() > 0);
+	}
+
+	public void submit_thawerStreamsBytes_bytesAreCountedOnceWhileStreaming() {
+		final long[] whileStreaming = new long[2];
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				ThawJob progress = (ThawJob) invocation.getArguments()[3];
+				LocalBucket thawed = mock(LocalBucket.class);
+				when(thawed.getIndex()).thenReturn("index");
+				when(thawed.getName()).thenReturn("bucket");
+				when(thawed.getSize()).thenReturn(1000L);
+				progress.thawStarted(asList((Bucket) thawed));
+				progress.bytesTransferred(thawed, 400);
+				progress.bytesTransferred(thawed, 600);
+				whileStreaming[0] = progress.getBytesTransferred();
+				whileStreaming[1] = progress.getThroughputBytesPerSecond();
+				progress.bucketThawed(thawed);
+				return null;
+			}
+		}).when(bucketThawer).thawBuckets(eq("index"), eq(from), eq(to),
+				any(ThawProgress.class));
+		ThawJob job = thawJobs.submit(bucketThawer, "index", from, to);
+
+		assertEquals(whileStreaming[0], 1000);
+		assertTrue(whileStreaming[1] > 0);
+		assertEquals(job.getBytesTransferred(), 1000);
+	}
+
+	@Test(expectedExceptions = { ThawJobsFullException.class })
+	public void submit_maxActiveJobsQueued_throws() {
+		thawJobs = new ThawJobs(new QueuingExecutor(), 2, 2, 60 * 1000);
+		thawJobs.submit(bucketThawer, "index", from, to);
+		thawJobs.submit(bucketThawer, "index", from, to);
+		thawJobs.submit(bucketThawer, "index", from, to);
+	}
+
+	public void submit_maxActiveJobsAreDone_acceptsTheJob() {
+		thawJobs = new ThawJobs(new CallingThreadExecutor(), 1, 2, 60 * 1000);
+		thawJobs.submit(bucketThawer, "index", from, to);
+		ThawJob job = thawJobs.submit(bucketThawer, "index", from, to);
+		assertEquals(job.getState(), State.FINISHED);
+	}
+
+	public void getJob_submittedJob_getsJobById() {
+		ThawJob job = thawJobs.submit(bucketThawer, "index", from, to);
+		assertSame(thawJobs.getJob(job.getId()), job);
+	}
+
+	public void getJob_unknownId_null() {
+		assertNull(thawJobs.getJob("unknown"));
+	}
+
+	public void submit_thawerThrows_jobFailedWithError() {
+		doThrow(new RuntimeException("error")).when(bucketThawer).thawBuckets(
+				anyString(), any(Date.class), any(Date.class),
+				any(ThawProgress.class));
+		ThawJob job = thawJobs.submit(bucketThawer, "index", from, to);
+		assertEquals(job.getState(), State.FAILED);
+		assertEquals(job.getError(), "error");
+	}
+
+	public void run_thawerThrowsError_jobFailedAndErrorIsRethrown() {
+		OutOfMemoryError thrown = new OutOfMemoryError("heap");
+		doThrow(thrown).when(bucketThawer).thawBuckets(anyString(),
+				any(Date.class), any(Date.class), any(ThawProgress.class));
+		QueuingExecutor executor = new QueuingExecutor();
+		thawJobs = new ThawJobs(executor, 2, 60 * 1000);
+		ThawJob job = thawJobs.submit(bucketThawer, "index", from, to);
+		try {
+			executor.runAll();
+			fail("Error should have been rethrown");
+		} catch (OutOfMemoryError e) {
+			assertSame(e, thrown);
+		}
+		assertEquals(job.getState(), State.FAILED);
+		assertEquals(job.getError(), "heap");
+		assertTrue(job.getFinishedMillis() > 0);
+	}
+
+	public void cancel_jobHasNotStarted_isCancelledWithoutThawing() {
+		QueuingExecutor executor = new QueuingExecutor();
+		thawJobs = new ThawJobs(executor, 2, 60 * 1000);
+		ThawJob job = thawJobs.submit(bucketThawer, "index", from, to);
+		assertEquals(job.getState(), State.QUEUED);
+
+		assertSame(thawJobs.cancel(job.getId()), job);
+		executor.runAll();
+		assertEquals(job.getState(), State.CANCELLED);
+		verifyZeroInteractions(bucketThawer);
+	}
+
+	public void cancel_whileThawing_jobIsCancelled() {
+		final ThawJob[] running = new ThawJob[1];
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				running[0] = (ThawJob) invocation.getArguments()[3];
+				thawJobs.cancel(running[0].getId());
+				assertTrue(running[0].isCancelled());
+				return null;
+			}
+		}).when(bucketThawer).thawBuckets(anyString(), any(Date.class),
+				any(Date.class), any(ThawProgress.class));
+		ThawJob job = thawJobs.submit(bucketThawer, "index", from, to);
+		assertSame(running[0], job);
+		assertEquals(job.getState(), State.CANCELLED);
+	}
+
+	public void cancel_unknownId_null() {
+		assertNull(thawJobs.cancel("unknown"));
+	}
+
+	public void getJobs_moreDoneJobsThanMax_forgetsTheOldestDoneJobs() {
+		ThawJob first = thawJobs.submit(bucketThawer, "index", from, to);
+		ThawJob second = thawJobs.submit(bucketThawer, "index", from, to);
+		ThawJob third = thawJobs.submit(bucketThawer, "index", from, to);
+		assertEquals(thawJobs.getJobs(), asList(second, third));
+		assertNull(thawJobs.getJob(first.getId()));
+	}
+
+	public void getJobs_doneJobsOlderThanRetention_forgetsThem() {
+		thawJobs = new ThawJobs(new CallingThreadExecutor(), 2, -1);
+		thawJobs.submit(bucketThawer, "index", from, to);
+		assertTrue(thawJobs.getJobs().isEmpty());
+	}
+
+	public void getJobs_queuedJobs_areNeverForgotten() {
+		thawJobs = new ThawJobs(new QueuingExecutor(), 0, -1);
+		thawJobs.submit(bucketThawer, "index", from, to);
+		thawJobs.submit(bucketThawer, "index", from, to);
+		assertEquals(thawJobs.getJobs().size(), 2);
+	}
+
+	private static class QueuingExecutor implements Executor {
+
+		private final List<Runnable> queued = new ArrayList<Runnable>();
+
+		@Override
+		public void execute(Runnable command) {
+			queued.add(command);
+		}
+
+		public void runAll() {
+			for (Runnable runnable : queued)
+				runnable.run();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.thaw;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferListener;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferListeners;
+import com.splunk.shuttl.archiver.metrics.ArchiverMetrics;
+import com.splunk.shuttl.archiver.metrics.Phase;
+import com.splunk.shuttl.archiver.thaw.ThawPipeline.Stage;
+import com.splunk.shuttl.archiver.util.CallingThreadExecutor;
+
+@Test(groups = { "fast-unit" })
+public class ThawPipelineTest {
+
+	private ThawPipeline pipeline;
+
+	@BeforeMethod
+	public void setUp() {
+		pipeline = ThawPipeline.createInline();
+	}
+
+	public void runStage_work_returnsWhatWorkReturns() throws Exception {
+		assertEquals("done", pipeline.runStage(Stage.IMPORT, returns("done")));
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void runStage_workThrows_throwsWhatWorkThrew() throws Exception {
+		pipeline.runStage(Stage.DOWNLOAD, new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				throw new IOException();
+			}
+		});
+	}
+
+	public void runStage_withArchiverMetrics_recordsWaitForEveryStageRun()
+			throws Exception {
+		ArchiverMetrics metrics = new ArchiverMetrics();
+		pipeline = new ThawPipeline(new CallingThreadExecutor(),
+				new CallingThreadExecutor(), new CallingThreadExecutor(), metrics,
+				"hdfs");
+		pipeline.runStage(Stage.DOWNLOAD, returns("a"));
+		try {
+			pipeline.runStage(Stage.IMPORT, new Callable<Void>() {
+
+				@Override
+				public Void call() {
+					throw new RuntimeException();
+				}
+			});
+		} catch (RuntimeException e) {
+			// Expected.
+		}
+
+		assertEquals(2, metrics.getPhaseCount(Phase.THAW_STAGE_WAIT.getName()));
+		assertEquals(0,
+				metrics.getPhaseFailureCount(Phase.THAW_STAGE_WAIT.getName()));
+	}
+
+	public void runStage_oneThreadPerStage_downloadsWhileAnotherBucketImports()
+			throws Exception {
+		pipeline = ThawPipeline.create("hdfs", new ThawConfiguration(2, 1, 1, 1,
+				1));
+		final CountDownLatch importing = new CountDownLatch(1);
+		final CountDownLatch downloaded = new CountDownLatch(1);
+		ExecutorService buckets = Executors.newFixedThreadPool(2);
+		try {
+			Future<Boolean> importingBucket = buckets.submit(new Callable<Boolean>() {
+
+				@Override
+				public Boolean call() throws Exception {
+					return pipeline.runStage(Stage.IMPORT, new Callable<Boolean>() {
+
+						@Override
+						public Boolean call() throws Exception {
+							importing.countDown();
+							return downloaded.await(5, TimeUnit.SECONDS);
+						}
+					});
+				}
+			});
+			assertTrue(importing.await(5, TimeUnit.SECONDS));
+			buckets.submit(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					return pipeline.runStage(Stage.DOWNLOAD, new Callable<Void>() {
+
+						@Override
+						public Void call() {
+							downloaded.countDown();
+							return null;
+						}
+					});
+				}
+			});
+			assertTrue(importingBucket.get(5, TimeUnit.SECONDS));
+		} finally {
+			buckets.shutdownNow();
+		}
+	}
+
+	public void runStage_otherThread_reportsTransfersToTheListenerOfTheCallingThread()
+			throws Exception {
+		ExecutorService download = Executors.newSingleThreadExecutor();
+		try {
+			pipeline = new ThawPipeline(download, download, download);
+			final long[] reported = new long[1];
+			TransferListener previous = TransferListeners
+					.setCurrent(new TransferListener() {
+
+						@Override
+						public void bytesTransferred(long byteCount) {
+							reported[0] += byteCount;
+						}
+					});
+			try {
+				pipeline.runStage(Stage.DOWNLOAD, new Callable<Void>() {
+
+					@Override
+					public Void call() {
+						TransferListeners.getCurrent().bytesTransferred(42);
+						return null;
+					}
+				});
+			} finally {
+				TransferListeners.setCurrent(previous);
+			}
+			assertEquals(42, reported[0]);
+		} finally {
+			download.shutdownNow();
+		}
+	}
+
+	private static Callable<String> returns(final String value) {
+		return new Callable<String>() {
+
+			@Override
+			public String call() {
+				return value;
+			}
+		};
+	}
+}
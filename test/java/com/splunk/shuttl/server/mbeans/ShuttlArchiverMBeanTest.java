@@ -26,6 +26,8 @@ import org.apache.commons.io.FileUtils;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottles;
+import com.splunk.shuttl.archiver.filesystem.throttle.TransferThrottles.Direction;
 import com.splunk.shuttl.testutil.TUtilsMBean;
 import com.splunk.shuttl.testutil.TUtilsString;
 
@@ -91,6 +93,52 @@ public class ShuttlArchiverMBeanTest {
 		assertEquals(archiverMBean.getBucketFormatPriority(), bucketFormatPriority);
 	}
 
+	public void setCompressionLevel_levelIsSet_gotLevel() {
+		assertNull(archiverMBean.getCompressionLevel());
+		archiverMBean.setCompressionLevel(9);
+		assertEquals(archiverMBean.getCompressionLevel(), Integer.valueOf(9));
+	}
+
+	public void setCompressionThreads_threadsAreSet_gotThreads() {
+		assertNull(archiverMBean.getCompressionThreads());
+		archiverMBean.setCompressionThreads(2);
+		assertEquals(archiverMBean.getCompressionThreads(), Integer.valueOf(2));
+	}
+
+	public void setMaxArchiveBytesPerSec_bytesAreSet_gotBytes() {
+		assertNull(archiverMBean.getMaxArchiveBytesPerSec());
+		archiverMBean.setMaxArchiveBytesPerSec(1024L);
+		assertEquals(archiverMBean.getMaxArchiveBytesPerSec(), Long.valueOf(1024));
+	}
+
+	public void setMaxThawOpsPerSec_opsAreSet_gotOps() {
+		assertNull(archiverMBean.getMaxThawOpsPerSec());
+		archiverMBean.setMaxThawOpsPerSec(50);
+		assertEquals(archiverMBean.getMaxThawOpsPerSec(), Integer.valueOf(50));
+	}
+
+	public void setMaxThawBytesPerSec_configuredBackend_limitsItsThawThrottle() {
+		archiverMBean.setBackendName(backendName);
+		try {
+			archiverMBean.setMaxThawBytesPerSec(2048L);
+			assertEquals(TransferThrottles.getSharedInstance()
+					.get(backendName, Direction.THAW).getLimits().getBytesPerSecond(),
+					2048);
+		} finally {
+			archiverMBean.setMaxThawBytesPerSec(null);
+		}
+	}
+
+	public void setThrottleSchedule_scheduleIsSet_gotSchedule() {
+		archiverMBean.setThrottleSchedule("08:00-18:00");
+		assertEquals(archiverMBean.getThrottleSchedule(), "08:00-18:00");
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void setThrottleSchedule_invalidSchedule_throws() {
+		archiverMBean.setThrottleSchedule("all day");
+	}
+
 	public void save_configured_producesCorrectXML() throws Exception {
 		List<String> archiveFormats = asList("SPLUNK_BUCKET", "CSV");
 		String expectedConfigFile = TUtilsMBean.XML_HEADER
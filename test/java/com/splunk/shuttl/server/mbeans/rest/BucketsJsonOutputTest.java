@@ -0,0 +1,99 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.RemoteBucket;
+import com.splunk.shuttl.server.model.BucketBean;
+
+@Test(groups = { "fast-unit" })
+public class BucketsJsonOutputTest {
+
+	private List<Bucket> buckets;
+
+	@BeforeMethod
+	public void setUp() {
+		Bucket first = new RemoteBucket("/path/first", "index", "db_2_1_first",
+				BucketFormat.SPLUNK_BUCKET, 1024L);
+		Bucket second = new RemoteBucket("/path/second", "index",
+				"db_4_3_second", BucketFormat.CSV, 2048L);
+		buckets = asList(first, second);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> writeAndRead(BucketsJsonOutput output)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		output.write(out);
+		return new ObjectMapper().readValue(out.toByteArray(), Map.class);
+	}
+
+	public void withTotalSize_buckets_writesBucketsLikeTheirBeans()
+			throws IOException {
+		Map<String, Object> response = writeAndRead(BucketsJsonOutput
+				.withTotalSize(buckets));
+		List<?> writtenBuckets = (List<?>) response.get("buckets");
+		assertEquals(writtenBuckets.size(), 2);
+		for (int i = 0; i < buckets.size(); i++) {
+			String expected = RestUtil.getObjectMapper().writeValueAsString(
+					BucketBean.createBeanFromBucket(buckets.get(i)));
+			assertEquals(writtenBuckets.get(i),
+					new ObjectMapper().readValue(expected, Map.class));
+		}
+	}
+
+	public void withTotalSize_buckets_writesTotalSizeOfBuckets()
+			throws IOException {
+		Map<String, Object> response = writeAndRead(BucketsJsonOutput
+				.withTotalSize(buckets));
+		assertEquals(response.get("buckets_TOTAL_SIZE"), "3 KB");
+		assertFalse(response.containsKey("failed"));
+	}
+
+	public void withFailed_noBuckets_writesEmptyBucketsAndFailed()
+			throws IOException {
+		Map<String, Object> response = writeAndRead(BucketsJsonOutput.withFailed(
+				asList(new Bucket[0]), asList("reason")));
+		assertEquals(response.get("buckets"), asList());
+		assertEquals(response.get("failed"), asList("reason"));
+		assertFalse(response.containsKey("buckets_TOTAL_SIZE"));
+	}
+
+	public void write_outputStream_doesNotCloseIt() throws IOException {
+		final boolean[] closed = new boolean[1];
+		ByteArrayOutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void close() throws IOException {
+				closed[0] = true;
+			}
+		};
+		BucketsJsonOutput.withTotalSize(buckets).write(out);
+		assertFalse(closed[0]);
+		assertTrue(out.size() > 0);
+	}
+}
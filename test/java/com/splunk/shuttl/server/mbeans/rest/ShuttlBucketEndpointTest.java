@@ -0,0 +1,104 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.ArchivingQueueFullException;
+import com.splunk.shuttl.archiver.archive.ArchivingScheduler;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.archive.BucketShuttler;
+import com.splunk.shuttl.archiver.bucketlock.BucketLock;
+import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
+import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.BucketModifier;
+import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.ConfigProvider;
+import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.ShuttlProvider;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class ShuttlBucketEndpointTest {
+
+	private ShuttlBucketEndpoint shuttlBucketEndpoint;
+	private ArchivingScheduler archivingScheduler;
+	private BucketLock bucketLock;
+	private LocalBucket bucket;
+	private BucketModifier bucketModifier;
+
+	@BeforeMethod
+	public void setUp() {
+		bucket = TUtilsBucket.createBucket();
+		BucketFactory bucketFactory = mock(BucketFactory.class);
+		when(
+				bucketFactory.createWithIndexDirectoryAndFormat(anyString(),
+						any(File.class), eq(BucketFormat.SPLUNK_BUCKET))).thenReturn(
+				bucket);
+		bucketLock = mock(BucketLock.class);
+		when(bucketLock.tryLockShared()).thenReturn(true);
+		when(bucketLock.isLocked()).thenReturn(true);
+		BucketLocker bucketLocker = mock(BucketLocker.class);
+		when(bucketLocker.getLockForBucket(bucket)).thenReturn(bucketLock);
+		bucketModifier = mock(BucketModifier.class);
+		when(bucketModifier.modifyLocalBucket(bucket)).thenReturn(bucket);
+		archivingScheduler = mock(ArchivingScheduler.class);
+		ShuttlProvider shuttlProvider = mock(ShuttlProvider.class);
+		when(shuttlProvider.createWithConfig(any(ArchiveConfiguration.class)))
+				.thenReturn(mock(BucketShuttler.class));
+
+		shuttlBucketEndpoint = new ShuttlBucketEndpoint(shuttlProvider,
+				mock(ConfigProvider.class),
+				bucketModifier, bucketFactory, bucketLocker, archivingScheduler);
+	}
+
+	public void shuttlBucket_givenPathAndIndex_schedulesWorkForBucketsIndex() {
+		shuttlBucketEndpoint.shuttlBucket(bucket.getPath(), bucket.getIndex());
+		verify(archivingScheduler).schedule(eq(bucket.getIndex()),
+				any(Runnable.class));
+		verify(bucketLock, never()).closeLock();
+	}
+
+	public void shuttlBucket_queueIsFull_releasesLockAndThrows() {
+		doThrow(new ArchivingQueueFullException("full")).when(archivingScheduler)
+				.schedule(anyString(), any(Runnable.class));
+		try {
+			shuttlBucketEndpoint.shuttlBucket(bucket.getPath(), bucket.getIndex());
+			fail();
+		} catch (ArchivingQueueFullException e) {
+		}
+		verify(bucketLock).closeLock();
+		verify(bucketModifier, never()).modifyLocalBucket(any(LocalBucket.class));
+	}
+
+	public void shuttlBucket_scheduledWorkRuns_modifiesBucketBeforeShuttling() {
+		shuttlBucketEndpoint.shuttlBucket(bucket.getPath(), bucket.getIndex());
+		verify(bucketModifier, never()).modifyLocalBucket(any(LocalBucket.class));
+
+		ArgumentCaptor<Runnable> work = ArgumentCaptor.forClass(Runnable.class);
+		verify(archivingScheduler).schedule(eq(bucket.getIndex()), work.capture());
+		work.getValue().run();
+		verify(bucketModifier).modifyLocalBucket(bucket);
+		verify(bucketLock).closeLock();
+	}
+}
@@ -22,7 +22,10 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.commons.io.FileUtils;
@@ -264,6 +267,47 @@ public class TUtilsBucket {
 		}
 	}
 
+	/**
+	 * Index of the buckets from {@link #createRemoteBuckets(int)}.
+	 */
+	public static final String REMOTE_BUCKETS_INDEX = "index";
+
+	/**
+	 * Epoch seconds of the earliest time of the first bucket from
+	 * {@link #createRemoteBuckets(int)}.
+	 */
+	public static final long REMOTE_BUCKETS_FIRST_EARLIEST = 1300000000L;
+
+	/**
+	 * Seconds that each bucket from {@link #createRemoteBuckets(int)} spans.
+	 */
+	public static final long REMOTE_BUCKET_SPAN = 3600;
+
+	/**
+	 * @return "fake-remote" buckets that each span an hour, one after the other,
+	 *         in random order as they are listed from an archive. Nothing is
+	 *         created on the file system.
+	 */
+	public static List<Bucket> createRemoteBuckets(int count) {
+		List<Bucket> buckets = new ArrayList<Bucket>(count);
+		for (int i = 0; i < count; i++)
+			buckets.add(createRemoteBucket(i));
+		Collections.shuffle(buckets, new Random(count));
+		return buckets;
+	}
+
+	/**
+	 * @return the n:th bucket of {@link #createRemoteBuckets(int)}.
+	 */
+	public static RemoteBucket createRemoteBucket(int n) {
+		long earliest = REMOTE_BUCKETS_FIRST_EARLIEST + n * REMOTE_BUCKET_SPAN;
+		long latest = earliest + REMOTE_BUCKET_SPAN - 1;
+		String name = "db_" + latest + "_" + earliest + "_" + n;
+		return new RemoteBucket("/archive/" + REMOTE_BUCKETS_INDEX + "/" + name,
+				REMOTE_BUCKETS_INDEX, name, BucketFormat.SPLUNK_BUCKET,
+				1024L * 1024 * (n % 100 + 1));
+	}
+
 	/**
 	 * @return {@link Bucket} with a tgz format
 	 */
@@ -21,6 +21,7 @@ import static org.testng.AssertJUnit.*;
 import java.io.File;
 import java.net.URISyntaxException;
 import java.util.Date;
+import java.util.List;
 
 import org.apache.commons.io.FileUtils;
 import org.testng.annotations.BeforeMethod;
@@ -300,4 +301,15 @@ public class TUtilsBucketTest {
 				createDirectory(), "guid");
 		assertTrue(rb.isReplicatedBucket());
 	}
+
+	public void createRemoteBuckets_count_bucketsOneSpanApartAndParsable() {
+		List<Bucket> buckets = TUtilsBucket.createRemoteBuckets(3);
+		assertEquals(3, buckets.size());
+		Bucket second = TUtilsBucket.createRemoteBucket(1);
+		assertTrue(buckets.contains(second));
+		assertEquals(TUtilsBucket.REMOTE_BUCKETS_FIRST_EARLIEST
+				+ TUtilsBucket.REMOTE_BUCKET_SPAN,
+				second.getEarliest().getTime() / 1000);
+		assertEquals(TUtilsBucket.REMOTE_BUCKETS_INDEX, second.getIndex());
+	}
 }